@@ -0,0 +1,119 @@
+package com.hibernate.gymapp;
+
+import com.hibernate.gymapp.exporter.TrainingExporter;
+import com.hibernate.gymapp.importer.BulkImporter;
+import com.hibernate.gymapp.metrics.RepositoryInstrumentation;
+import com.hibernate.gymapp.metrics.RepositoryMetrics;
+import com.hibernate.gymapp.purge.PurgeWorker;
+import com.hibernate.gymapp.repository.TraineeRepository;
+import com.hibernate.gymapp.repository.TrainerAssignmentIndex;
+import com.hibernate.gymapp.repository.TrainerRepository;
+import com.hibernate.gymapp.repository.TrainingRepository;
+import com.hibernate.gymapp.repository.TrainingSearchCache;
+import com.hibernate.gymapp.repository.TrainingTypeRegistry;
+import com.hibernate.gymapp.repository.UserNameIndex;
+import com.hibernate.gymapp.repository.UserRepository;
+import com.hibernate.gymapp.repository.impl.TraineeRepositoryImpl;
+import com.hibernate.gymapp.repository.impl.TrainerRepositoryImpl;
+import com.hibernate.gymapp.repository.impl.TrainingRepositoryImpl;
+import com.hibernate.gymapp.repository.impl.UserRepositoryImpl;
+import com.hibernate.gymapp.service.AuthenticationService;
+import com.hibernate.gymapp.service.CredentialCache;
+import com.hibernate.gymapp.service.SessionManager;
+import com.hibernate.gymapp.service.TraineeService;
+import com.hibernate.gymapp.service.TrainerService;
+import com.hibernate.gymapp.service.TrainingService;
+import com.hibernate.gymapp.service.UserStatusService;
+import com.hibernate.gymapp.transaction.TransactionalProxyFactory;
+import com.hibernate.gymapp.transaction.UnitOfWork;
+import com.hibernate.gymapp.utils.CredentialsGenerator;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.Getter;
+
+/**
+ * Wires repositories and services. Every service is wrapped in a transactional proxy, so each call
+ * runs in its own unit of work. The graph holds no per-call state and is meant to be shared by all threads.
+ */
+@Getter
+public class AppContext {
+
+    private final UnitOfWork unitOfWork;
+    private final TrainingTypeRegistry trainingTypeRegistry;
+    private final UserNameIndex userNameIndex;
+    private final TrainerAssignmentIndex trainerAssignmentIndex;
+    private final TrainingSearchCache trainingSearchCache = new TrainingSearchCache();
+    private final RepositoryMetrics repositoryMetrics = new RepositoryMetrics();
+
+    private final UserRepository userRepository;
+    private final TraineeRepository traineeRepository;
+    private final TrainerRepository trainerRepository;
+    private final TrainingRepository trainingRepository;
+
+    private final AuthenticationService authenticationService;
+    private final TraineeService traineeService;
+    private final TrainerService trainerService;
+    private final TrainingService trainingService;
+    private final UserStatusService userStatusService;
+
+    // run their own transactions, so they are not wrapped in a transactional proxy
+    private final BulkImporter bulkImporter;
+    private final TrainingExporter trainingExporter;
+
+    // physically removes soft-deleted users in the background; null unless a purge rate is configured
+    private final PurgeWorker purgeWorker;
+
+    public AppContext(EntityManagerFactory entityManagerFactory) {
+        this.unitOfWork = new UnitOfWork(entityManagerFactory);
+        this.trainingTypeRegistry = new TrainingTypeRegistry(unitOfWork).attach(entityManagerFactory);
+        this.userNameIndex = new UserNameIndex(unitOfWork).attach(entityManagerFactory);
+        this.trainerAssignmentIndex = new TrainerAssignmentIndex(unitOfWork).attach(entityManagerFactory);
+        unitOfWork.readOnly(() -> {
+            trainingTypeRegistry.load();
+            userNameIndex.load();
+            trainerAssignmentIndex.load();
+            return null;
+        });
+
+        // timed per method, and tagged so SQL metrics can attribute every statement to the method that issued it
+        this.userRepository = RepositoryInstrumentation.instrument(UserRepository.class,
+                new UserRepositoryImpl(unitOfWork, trainingSearchCache, trainerAssignmentIndex), repositoryMetrics);
+        this.traineeRepository = RepositoryInstrumentation.instrument(TraineeRepository.class,
+                new TraineeRepositoryImpl(unitOfWork, trainingTypeRegistry, trainingSearchCache, userNameIndex,
+                        trainerAssignmentIndex),
+                repositoryMetrics);
+        this.trainerRepository = RepositoryInstrumentation.instrument(TrainerRepository.class,
+                new TrainerRepositoryImpl(unitOfWork, trainingTypeRegistry, trainingSearchCache, userNameIndex,
+                        trainerAssignmentIndex),
+                repositoryMetrics);
+        this.trainingRepository = RepositoryInstrumentation.instrument(TrainingRepository.class,
+                new TrainingRepositoryImpl(unitOfWork, trainingSearchCache), repositoryMetrics);
+
+        CredentialsGenerator credentialsGenerator = new CredentialsGenerator();
+
+        this.authenticationService = TransactionalProxyFactory.create(
+                new AuthenticationService(userRepository, new CredentialCache(), new SessionManager(), unitOfWork),
+                unitOfWork);
+        this.traineeService = TransactionalProxyFactory.create(
+                new TraineeService(traineeRepository, userRepository, authenticationService, credentialsGenerator),
+                unitOfWork);
+        this.trainerService = TransactionalProxyFactory.create(
+                new TrainerService(trainerRepository, userRepository, authenticationService, credentialsGenerator),
+                unitOfWork);
+        this.trainingService = TransactionalProxyFactory.create(
+                new TrainingService(trainingRepository, authenticationService, traineeRepository, trainerRepository,
+                        trainingTypeRegistry),
+                unitOfWork);
+        this.userStatusService = TransactionalProxyFactory.create(
+                new UserStatusService(userRepository, authenticationService), unitOfWork);
+
+        this.bulkImporter = new BulkImporter(unitOfWork, userRepository, traineeRepository, trainerRepository,
+                trainingRepository, credentialsGenerator);
+        this.trainingExporter = new TrainingExporter(unitOfWork);
+
+        this.purgeWorker = PurgeWorker.fromSettings(unitOfWork, trainingSearchCache,
+                entityManagerFactory.getProperties());
+        if (purgeWorker != null) {
+            purgeWorker.start();
+        }
+    }
+}
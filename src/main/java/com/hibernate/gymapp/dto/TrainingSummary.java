@@ -0,0 +1,39 @@
+package com.hibernate.gymapp.dto;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/**
+ * Read-only row of a training history search, built by a JPQL constructor expression in the same statement that
+ * finds the trainings. Not an entity: nothing is tracked by the persistence context and nothing loads lazily.
+ */
+@Getter
+public final class TrainingSummary {
+
+    private final Long id;
+    private final String trainingName;
+    private final LocalDate trainingDate;
+    private final Number trainingDuration;
+    private final String traineeName;
+    private final String trainerName;
+    private final String trainingTypeName;
+
+    public TrainingSummary(Long id, String trainingName, LocalDate trainingDate, Number trainingDuration,
+                           String traineeName, String trainerName, String trainingTypeName) {
+        this.id = id;
+        this.trainingName = trainingName;
+        this.trainingDate = trainingDate;
+        this.trainingDuration = trainingDuration;
+        this.traineeName = traineeName;
+        this.trainerName = trainerName;
+        this.trainingTypeName = trainingTypeName;
+    }
+
+    @Override
+    public String toString() {
+        return "TrainingSummary{id=" + id + ", trainingName=" + trainingName + ", trainingDate=" + trainingDate
+                + ", trainingDuration=" + trainingDuration + ", trainee=" + traineeName + ", trainer=" + trainerName
+                + ", type=" + trainingTypeName + "}";
+    }
+}
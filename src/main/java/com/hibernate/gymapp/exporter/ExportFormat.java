@@ -0,0 +1,9 @@
+package com.hibernate.gymapp.exporter;
+
+/**
+ * Output formats of an export. Column names match what BulkImporter reads, so an export can be imported again.
+ */
+public enum ExportFormat {
+    CSV,
+    NDJSON
+}
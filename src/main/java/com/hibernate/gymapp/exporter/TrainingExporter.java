@@ -0,0 +1,218 @@
+package com.hibernate.gymapp.exporter;
+
+import com.hibernate.gymapp.transaction.UnitOfWork;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams trainings to CSV or NDJSON. Rows come from a forward-only, read-only cursor as plain column values,
+ * so neither the heap nor the persistence context grows with the number of trainings; the JDBC driver holds at
+ * most one fetch of rows at a time.
+ */
+public class TrainingExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrainingExporter.class);
+
+    public static final int DEFAULT_FETCH_SIZE = 1_000;
+
+    private static final String[] COLUMNS = {"id", "traineeUsername", "trainerUsername", "trainingType",
+            "trainingName", "trainingDate", "trainingDuration"};
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final UnitOfWork unitOfWork;
+    private final int fetchSize;
+
+    public TrainingExporter(UnitOfWork unitOfWork) {
+        this(unitOfWork, DEFAULT_FETCH_SIZE);
+    }
+
+    public TrainingExporter(UnitOfWork unitOfWork, int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("fetchSize must be positive");
+        }
+        this.unitOfWork = unitOfWork;
+        this.fetchSize = fetchSize;
+    }
+
+    // every filter is optional; the channel is written to but not closed, e.g. a FileChannel opened for writing
+    public long export(ExportFormat format, WritableByteChannel channel, String traineeUsername,
+                       String trainerUsername, LocalDate fromDate, LocalDate toDate) {
+        return export(format, Channels.newOutputStream(channel), traineeUsername, trainerUsername, fromDate, toDate);
+    }
+
+    // every filter is optional; the stream is flushed but not closed
+    public long export(ExportFormat format, OutputStream out, String traineeUsername,
+                       String trainerUsername, LocalDate fromDate, LocalDate toDate) {
+        logger.info("Exporting trainings as {} (trainee={}, trainer={}, from={}, to={})",
+                format, traineeUsername, trainerUsername, fromDate, toDate);
+        long start = System.nanoTime();
+
+        try {
+            long rows = unitOfWork.readOnly(() -> {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8),
+                        WRITE_BUFFER_SIZE);
+                try {
+                    long written = writeRows(format, writer, traineeUsername, trainerUsername, fromDate, toDate);
+                    writer.flush();
+                    return written;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            logger.info("Exported {} trainings in {} ms",
+                    rows, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return rows;
+        } catch (Exception e) {
+            logger.error("Error exporting trainings", e);
+            throw new RuntimeException("Failed to export trainings", e);
+        }
+    }
+
+    private long writeRows(ExportFormat format, Writer writer, String traineeUsername, String trainerUsername,
+                           LocalDate fromDate, LocalDate toDate) throws IOException {
+        StringBuilder hql = new StringBuilder(
+                "SELECT t.id, t.trainee.user.username, t.trainer.user.username, t.trainingType.trainingTypeName, " +
+                "t.trainingName, t.trainingDate, t.trainingDuration FROM Training t WHERE 1 = 1");
+        if (traineeUsername != null) {
+            hql.append(" AND t.trainee.user.username = :traineeUsername");
+        }
+        if (trainerUsername != null) {
+            hql.append(" AND t.trainer.user.username = :trainerUsername");
+        }
+        if (fromDate != null) {
+            hql.append(" AND t.trainingDate >= :fromDate");
+        }
+        if (toDate != null) {
+            hql.append(" AND t.trainingDate <= :toDate");
+        }
+        hql.append(" ORDER BY t.trainingDate, t.id");
+
+        Session session = unitOfWork.get().unwrap(Session.class);
+        Query<Object[]> query = session.createQuery(hql.toString(), Object[].class);
+        if (traineeUsername != null) {
+            query.setParameter("traineeUsername", traineeUsername);
+        }
+        if (trainerUsername != null) {
+            query.setParameter("trainerUsername", trainerUsername);
+        }
+        if (fromDate != null) {
+            query.setParameter("fromDate", fromDate);
+        }
+        if (toDate != null) {
+            query.setParameter("toDate", toDate);
+        }
+        query.setFetchSize(fetchSize);
+        query.setReadOnly(true);
+
+        if (format == ExportFormat.CSV) {
+            writeCsvRow(writer, COLUMNS);
+        }
+
+        long rows = 0;
+        try (ScrollableResults<Object[]> results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                Object[] row = results.get();
+                if (format == ExportFormat.CSV) {
+                    writeCsvRow(writer, row);
+                } else {
+                    writeJsonRow(writer, row);
+                }
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static void writeCsvRow(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (values[i] == null) {
+                continue;
+            }
+
+            String value = values[i].toString();
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write('\n');
+    }
+
+    private static void writeJsonRow(Writer writer, Object[] values) throws IOException {
+        writer.write('{');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write('"');
+            writer.write(COLUMNS[i]);
+            writer.write("\":");
+
+            Object value = values[i];
+            if (value == null) {
+                writer.write("null");
+            } else if (value instanceof Number) {
+                writer.write(value.toString());
+            } else {
+                writeJsonString(writer, value.toString());
+            }
+        }
+        writer.write("}\n");
+    }
+
+    private static void writeJsonString(Writer writer, String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+}
@@ -0,0 +1,400 @@
+package com.hibernate.gymapp.importer;
+
+import com.hibernate.gymapp.model.Trainee;
+import com.hibernate.gymapp.model.Trainer;
+import com.hibernate.gymapp.model.Training;
+import com.hibernate.gymapp.model.TrainingType;
+import com.hibernate.gymapp.model.User;
+import com.hibernate.gymapp.repository.TraineeRepository;
+import com.hibernate.gymapp.repository.TrainerRepository;
+import com.hibernate.gymapp.repository.TrainingRepository;
+import com.hibernate.gymapp.repository.UserRepository;
+import com.hibernate.gymapp.transaction.UnitOfWork;
+import com.hibernate.gymapp.utils.CredentialsGenerator;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Streams trainees, trainers or trainings from a CSV or NDJSON file into the database. Records are written in
+ * chunks, one transaction each, and the persistence context is flushed and cleared as the chunk goes, so memory
+ * stays flat no matter how large the file is. After every committed chunk the checkpoint moves forward; a failed
+ * import started again with the same checkpoint file continues after the last committed chunk.
+ *
+ * Invalid records, including records the reader cannot parse, are logged and counted as rejected; they never stop
+ * the import.
+ */
+public class BulkImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkImporter.class);
+
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    // matches hibernate.jdbc.batch_size, so every flush sends full JDBC batches
+    private static final int FLUSH_INTERVAL = 50;
+
+    private final UnitOfWork unitOfWork;
+    private final UserRepository userRepository;
+    private final TraineeRepository traineeRepository;
+    private final TrainerRepository trainerRepository;
+    private final TrainingRepository trainingRepository;
+    private final CredentialsGenerator credentialsGenerator;
+    private final int chunkSize;
+    private final Consumer<ImportProgress> progressListener;
+
+    public BulkImporter(UnitOfWork unitOfWork, UserRepository userRepository,
+                        TraineeRepository traineeRepository, TrainerRepository trainerRepository,
+                        TrainingRepository trainingRepository, CredentialsGenerator credentialsGenerator) {
+        this(unitOfWork, userRepository, traineeRepository, trainerRepository, trainingRepository,
+                credentialsGenerator, DEFAULT_CHUNK_SIZE, progress -> logger.info("{}", progress));
+    }
+
+    public BulkImporter(UnitOfWork unitOfWork, UserRepository userRepository,
+                        TraineeRepository traineeRepository, TrainerRepository trainerRepository,
+                        TrainingRepository trainingRepository, CredentialsGenerator credentialsGenerator,
+                        int chunkSize, Consumer<ImportProgress> progressListener) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.unitOfWork = unitOfWork;
+        this.userRepository = userRepository;
+        this.traineeRepository = traineeRepository;
+        this.trainerRepository = trainerRepository;
+        this.trainingRepository = trainingRepository;
+        this.credentialsGenerator = credentialsGenerator;
+        this.chunkSize = chunkSize;
+        this.progressListener = progressListener;
+    }
+
+    public ImportProgress importFile(ImportKind kind, Path source) {
+        return importFile(kind, source, null);
+    }
+
+    // checkpointFile may be null, the import then always starts at the first record
+    public ImportProgress importFile(ImportKind kind, Path source, Path checkpointFile) {
+        String sourceKey = kind + ":" + source.toAbsolutePath().normalize();
+        ImportCheckpoint checkpoint = checkpointFile == null ? null : new ImportCheckpoint(checkpointFile);
+
+        try (RecordReader reader = RecordReader.open(source)) {
+            Run run = new Run(kind, checkpoint == null ? 0 : checkpoint.load(sourceKey));
+            if (run.resumedAfter > 0) {
+                logger.info("Resuming import of {} from {} after record {}", kind, source, run.resumedAfter);
+            }
+
+            List<NumberedRecord> chunk = new ArrayList<>(chunkSize);
+            Map<String, String> record;
+            while ((record = next(reader, run)) != null) {
+                if (reader.getRecordNumber() <= run.resumedAfter) {
+                    continue;
+                }
+
+                chunk.add(new NumberedRecord(reader.getRecordNumber(), record));
+                if (chunk.size() == chunkSize) {
+                    writeChunk(run, chunk, checkpoint, sourceKey);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                writeChunk(run, chunk, checkpoint, sourceKey);
+            }
+
+            if (checkpoint != null) {
+                checkpoint.clear();
+            }
+
+            ImportProgress result = run.progress();
+            logger.info("Finished import of {} from {}: {}", kind, source, result);
+            return result;
+        } catch (IOException e) {
+            logger.error("Error reading import file {}", source, e);
+            throw new RuntimeException("Failed to read import file " + source, e);
+        }
+    }
+
+    // skips malformed records, rejecting those the checkpoint does not cover
+    private static Map<String, String> next(RecordReader reader, Run run) throws IOException {
+        while (true) {
+            try {
+                return reader.next();
+            } catch (MalformedRecordException e) {
+                if (reader.getRecordNumber() > run.resumedAfter) {
+                    logger.warn("Rejected record {}: {}", reader.getRecordNumber(), e.getMessage());
+                    run.recordsRead++;
+                    run.rejected++;
+                }
+            }
+        }
+    }
+
+    private void writeChunk(Run run, List<NumberedRecord> chunk, ImportCheckpoint checkpoint, String sourceKey)
+            throws IOException {
+        long lastRecord = chunk.get(chunk.size() - 1).number;
+
+        int imported;
+        try {
+            imported = unitOfWork.inTransaction(() -> write(run, chunk));
+        } catch (RuntimeException e) {
+            logger.error("Import of {} failed in records {}-{}; {} records are committed",
+                    run.kind, chunk.get(0).number, lastRecord, run.resumedAfter + run.recordsRead, e);
+            throw new RuntimeException("Failed to import " + run.kind + " at record " + chunk.get(0).number, e);
+        }
+
+        if (checkpoint != null) {
+            checkpoint.save(sourceKey, lastRecord);
+        }
+
+        run.recordsRead += chunk.size();
+        run.imported += imported;
+        run.rejected += chunk.size() - imported;
+        chunk.clear();
+
+        progressListener.accept(run.progress());
+    }
+
+    private int write(Run run, List<NumberedRecord> chunk) {
+        switch (run.kind) {
+            case TRAINEES:
+                return writeTrainees(chunk);
+            case TRAINERS:
+                return writeTrainers(run, chunk);
+            case TRAININGS:
+                return writeTrainings(run, chunk);
+            default:
+                throw new IllegalArgumentException("Unsupported import kind: " + run.kind);
+        }
+    }
+
+    private int writeTrainees(List<NumberedRecord> chunk) {
+        List<NumberedRecord> valid = new ArrayList<>(chunk.size());
+        List<LocalDate> datesOfBirth = new ArrayList<>(chunk.size());
+
+        for (NumberedRecord record : chunk) {
+            if (!hasName(record)) {
+                continue;
+            }
+            String dateOfBirth = record.get("dateOfBirth");
+            try {
+                datesOfBirth.add(dateOfBirth == null ? null : LocalDate.parse(dateOfBirth));
+            } catch (DateTimeParseException e) {
+                reject(record, "invalid dateOfBirth '" + dateOfBirth + "'");
+                continue;
+            }
+            valid.add(record);
+        }
+
+        List<User> users = newUsers(valid);
+        for (int i = 0; i < valid.size(); i++) {
+            Trainee trainee = new Trainee();
+            trainee.setDateOfBirth(datesOfBirth.get(i));
+            trainee.setAddress(valid.get(i).get("address"));
+            trainee.setUser(userRepository.save(users.get(i)));
+
+            traineeRepository.save(trainee);
+            flushPeriodically(i);
+        }
+        return valid.size();
+    }
+
+    private int writeTrainers(Run run, List<NumberedRecord> chunk) {
+        Map<String, Long> trainingTypeIds = run.trainingTypeIds(unitOfWork.get());
+        List<NumberedRecord> valid = new ArrayList<>(chunk.size());
+        List<Long> specializationIds = new ArrayList<>(chunk.size());
+
+        for (NumberedRecord record : chunk) {
+            if (!hasName(record)) {
+                continue;
+            }
+            Long specializationId = trainingTypeId(trainingTypeIds, record, "specialization");
+            if (specializationId == null) {
+                continue;
+            }
+            specializationIds.add(specializationId);
+            valid.add(record);
+        }
+
+        EntityManager entityManager = unitOfWork.get();
+        List<User> users = newUsers(valid);
+        for (int i = 0; i < valid.size(); i++) {
+            Trainer trainer = new Trainer();
+            trainer.setSpecialization(entityManager.getReference(TrainingType.class, specializationIds.get(i)));
+            trainer.setUser(userRepository.save(users.get(i)));
+
+            trainerRepository.save(trainer);
+            flushPeriodically(i);
+        }
+        return valid.size();
+    }
+
+    private int writeTrainings(Run run, List<NumberedRecord> chunk) {
+        EntityManager entityManager = unitOfWork.get();
+        Map<String, Long> trainingTypeIds = run.trainingTypeIds(entityManager);
+
+        Set<String> traineeUsernames = new HashSet<>();
+        Set<String> trainerUsernames = new HashSet<>();
+        for (NumberedRecord record : chunk) {
+            if (record.get("traineeUsername") != null) {
+                traineeUsernames.add(record.get("traineeUsername"));
+            }
+            if (record.get("trainerUsername") != null) {
+                trainerUsernames.add(record.get("trainerUsername"));
+            }
+        }
+        Map<String, Long> traineeIds = traineeRepository.findIdsByUsernames(traineeUsernames);
+        Map<String, Long> trainerIds = trainerRepository.findIdsByUsernames(trainerUsernames);
+
+        int imported = 0;
+        for (NumberedRecord record : chunk) {
+            Long traineeId = traineeIds.get(record.get("traineeUsername"));
+            Long trainerId = trainerIds.get(record.get("trainerUsername"));
+            if (traineeId == null || trainerId == null) {
+                reject(record, "unknown trainee '" + record.get("traineeUsername")
+                        + "' or trainer '" + record.get("trainerUsername") + "'");
+                continue;
+            }
+            Long trainingTypeId = trainingTypeId(trainingTypeIds, record, "trainingType");
+            if (trainingTypeId == null) {
+                continue;
+            }
+            if (record.get("trainingName") == null) {
+                reject(record, "trainingName is required");
+                continue;
+            }
+
+            Training training = new Training();
+            try {
+                training.setTrainingDate(LocalDate.parse(record.get("trainingDate")));
+                training.setTrainingDuration(Integer.valueOf(record.get("trainingDuration")));
+            } catch (DateTimeParseException | NumberFormatException | NullPointerException e) {
+                reject(record, "invalid trainingDate '" + record.get("trainingDate")
+                        + "' or trainingDuration '" + record.get("trainingDuration") + "'");
+                continue;
+            }
+            training.setTrainingName(record.get("trainingName"));
+            training.setTrainee(entityManager.getReference(Trainee.class, traineeId));
+            training.setTrainer(entityManager.getReference(Trainer.class, trainerId));
+            training.setTrainingType(entityManager.getReference(TrainingType.class, trainingTypeId));
+
+            trainingRepository.save(training);
+            flushPeriodically(imported++);
+        }
+        return imported;
+    }
+
+    // one username lookup for the whole chunk instead of one per record; the users are not saved yet
+    private List<User> newUsers(List<NumberedRecord> records) {
+        List<String> baseUsernames = new ArrayList<>(records.size());
+        for (NumberedRecord record : records) {
+            baseUsernames.add(CredentialsGenerator.baseUsername(
+                    record.get("firstName").trim(), record.get("lastName").trim()));
+        }
+        List<String> usernames = credentialsGenerator.generateUsernames(baseUsernames, userRepository);
+
+        List<User> users = new ArrayList<>(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            NumberedRecord record = records.get(i);
+            String password = record.get("password");
+
+            User user = new User();
+            user.setFirstName(record.get("firstName").trim());
+            user.setLastName(record.get("lastName").trim());
+            user.setUsername(usernames.get(i));
+            user.setPassword(password != null ? password : credentialsGenerator.generatePassword());
+            user.setIsActive(true);
+
+            users.add(user);
+        }
+        return users;
+    }
+
+    private Long trainingTypeId(Map<String, Long> trainingTypeIds, NumberedRecord record, String column) {
+        String name = record.get(column);
+        Long id = name == null ? null : trainingTypeIds.get(name.trim().toLowerCase(Locale.ROOT));
+        if (id == null) {
+            reject(record, "unknown " + column + " '" + name + "'");
+        }
+        return id;
+    }
+
+    private static boolean hasName(NumberedRecord record) {
+        String firstName = record.get("firstName");
+        String lastName = record.get("lastName");
+        if (firstName == null || firstName.trim().isEmpty() || lastName == null || lastName.trim().isEmpty()) {
+            reject(record, "firstName and lastName are required");
+            return false;
+        }
+        return true;
+    }
+
+    private void flushPeriodically(int index) {
+        if ((index + 1) % FLUSH_INTERVAL == 0) {
+            EntityManager entityManager = unitOfWork.get();
+            entityManager.flush();
+            entityManager.clear();
+        }
+    }
+
+    private static void reject(NumberedRecord record, String reason) {
+        logger.warn("Rejected record {}: {}", record.number, reason);
+    }
+
+    private static final class NumberedRecord {
+
+        private final long number;
+        private final Map<String, String> fields;
+
+        private NumberedRecord(long number, Map<String, String> fields) {
+            this.number = number;
+            this.fields = fields;
+        }
+
+        private String get(String column) {
+            return fields.get(column);
+        }
+    }
+
+    private static final class Run {
+
+        private final ImportKind kind;
+        private final long resumedAfter;
+        private final long startNanos = System.nanoTime();
+        private long recordsRead;
+        private long imported;
+        private long rejected;
+        private Map<String, Long> trainingTypeIds;
+
+        private Run(ImportKind kind, long resumedAfter) {
+            this.kind = kind;
+            this.resumedAfter = resumedAfter;
+        }
+
+        // training types are few and fixed for the duration of an import, so they are read once
+        private Map<String, Long> trainingTypeIds(EntityManager entityManager) {
+            if (trainingTypeIds == null) {
+                trainingTypeIds = new HashMap<>();
+                List<Object[]> rows = entityManager.createQuery(
+                        "SELECT t.trainingTypeName, t.id FROM TrainingType t", Object[].class).getResultList();
+                for (Object[] row : rows) {
+                    trainingTypeIds.put(((String) row[0]).toLowerCase(Locale.ROOT), (Long) row[1]);
+                }
+            }
+            return trainingTypeIds;
+        }
+
+        private ImportProgress progress() {
+            return new ImportProgress(kind, resumedAfter, recordsRead, imported, rejected,
+                    System.nanoTime() - startNanos);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.hibernate.gymapp.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RFC 4180 CSV with a header row. Quoted fields may contain commas, doubled quotes and line breaks. A row with more
+ * or fewer fields than the header is malformed and skipped; an unterminated quote runs to the end of the input and
+ * fails the read.
+ */
+public class CsvRecordReader implements RecordReader {
+
+    private final BufferedReader reader;
+    private List<String> header;
+    private long recordNumber;
+
+    public CsvRecordReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public Map<String, String> next() throws IOException {
+        if (header == null) {
+            header = readRow();
+            if (header == null) {
+                return null;
+            }
+        }
+
+        List<String> row = readRow();
+        if (row == null) {
+            return null;
+        }
+        recordNumber++;
+
+        if (row.size() != header.size()) {
+            throw new MalformedRecordException("Record " + recordNumber + " has " + row.size()
+                    + " fields, the header has " + header.size());
+        }
+
+        Map<String, String> record = new LinkedHashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            record.put(header.get(i), row.get(i));
+        }
+        return record;
+    }
+
+    @Override
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // next non-blank row, null at the end of the input
+    private List<String> readRow() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean inQuotes = false;
+        boolean readAny = false;
+
+        int c;
+        while ((c = reader.read()) != -1) {
+            readAny = true;
+
+            if (inQuotes) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        inQuotes = false;
+                        if (next != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && !quoted && field.toString().trim().isEmpty()) {
+                field.setLength(0);
+                quoted = true;
+                inQuotes = true;
+            } else if (c == ',') {
+                fields.add(value(field, quoted));
+                field.setLength(0);
+                quoted = false;
+            } else if (c == '\n') {
+                if (fields.isEmpty() && !quoted && field.toString().trim().isEmpty()) {
+                    field.setLength(0);
+                    continue;
+                }
+                fields.add(value(field, quoted));
+                return fields;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+
+        if (inQuotes) {
+            throw new IOException("Unterminated quoted field after record " + recordNumber);
+        }
+        if (!readAny || (fields.isEmpty() && !quoted && field.toString().trim().isEmpty())) {
+            return null;
+        }
+        fields.add(value(field, quoted));
+        return fields;
+    }
+
+    private static String value(StringBuilder field, boolean quoted) {
+        if (quoted) {
+            return field.toString();
+        }
+        String value = field.toString().trim();
+        return value.isEmpty() ? null : value;
+    }
+}
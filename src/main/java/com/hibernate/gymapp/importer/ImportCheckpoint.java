@@ -0,0 +1,65 @@
+package com.hibernate.gymapp.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Number of leading records of a source that are committed. Written after every committed chunk and replaced
+ * atomically, so a crash leaves either the old or the new value.
+ */
+public class ImportCheckpoint {
+
+    private static final String SOURCE = "source";
+    private static final String COMMITTED_RECORDS = "committedRecords";
+
+    private final Path file;
+
+    public ImportCheckpoint(Path file) {
+        this.file = file;
+    }
+
+    public long load(String source) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+
+        if (!source.equals(properties.getProperty(SOURCE))) {
+            throw new IllegalStateException("Checkpoint " + file + " belongs to " + properties.getProperty(SOURCE)
+                    + ", not to " + source);
+        }
+        return Long.parseLong(properties.getProperty(COMMITTED_RECORDS, "0"));
+    }
+
+    public void save(String source, long committedRecords) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(SOURCE, source);
+        properties.setProperty(COMMITTED_RECORDS, Long.toString(committedRecords));
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            properties.store(writer, null);
+        }
+
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public void clear() throws IOException {
+        Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,11 @@
+package com.hibernate.gymapp.importer;
+
+/**
+ * What an import file contains. Column names match the field names used by the services, e.g.
+ * firstName, lastName, dateOfBirth, address for trainees.
+ */
+public enum ImportKind {
+    TRAINEES,
+    TRAINERS,
+    TRAININGS
+}
@@ -0,0 +1,42 @@
+package com.hibernate.gymapp.importer;
+
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point-in-time view of a running import. Records skipped because a checkpoint already covered them are not
+ * counted as read.
+ */
+@Getter
+public final class ImportProgress {
+
+    private final ImportKind kind;
+    private final long resumedAfter;
+    private final long recordsRead;
+    private final long imported;
+    private final long rejected;
+    private final long elapsedNanos;
+
+    ImportProgress(ImportKind kind, long resumedAfter, long recordsRead, long imported, long rejected,
+                   long elapsedNanos) {
+        this.kind = kind;
+        this.resumedAfter = resumedAfter;
+        this.recordsRead = recordsRead;
+        this.imported = imported;
+        this.rejected = rejected;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public double getRecordsPerSecond() {
+        return elapsedNanos == 0 ? 0 : recordsRead * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "Import[" + kind + "] read=" + recordsRead + ", imported=" + imported + ", rejected=" + rejected
+                + (resumedAfter > 0 ? ", resumedAfter=" + resumedAfter : "")
+                + ", elapsed=" + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + "ms"
+                + ", rate=" + Math.round(getRecordsPerSecond()) + "/s";
+    }
+}
@@ -0,0 +1,14 @@
+package com.hibernate.gymapp.importer;
+
+import java.io.IOException;
+
+/**
+ * A record that could not be parsed. The reader has already moved past it, so the next call to
+ * {@link RecordReader#next()} continues with the record after it.
+ */
+public class MalformedRecordException extends IOException {
+
+    public MalformedRecordException(String message) {
+        super(message);
+    }
+}
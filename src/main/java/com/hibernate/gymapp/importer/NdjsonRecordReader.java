@@ -0,0 +1,195 @@
+package com.hibernate.gymapp.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Newline-delimited JSON, one flat object per line. Values are kept as their text; nested objects and arrays
+ * are rejected since no import format needs them.
+ */
+public class NdjsonRecordReader implements RecordReader {
+
+    private final BufferedReader reader;
+    private long recordNumber;
+
+    private String line;
+    private int position;
+
+    public NdjsonRecordReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public Map<String, String> next() throws IOException {
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.trim().isEmpty());
+
+        recordNumber++;
+        position = 0;
+        return parseObject();
+    }
+
+    @Override
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Map<String, String> parseObject() throws IOException {
+        Map<String, String> record = new LinkedHashMap<>();
+
+        expect('{');
+        if (peek() == '}') {
+            position++;
+        } else {
+            while (true) {
+                expect('"');
+                String key = parseString();
+                expect(':');
+                record.put(key, parseValue());
+
+                char c = nextToken();
+                if (c == '}') {
+                    break;
+                }
+                if (c != ',') {
+                    throw error("expected ',' or '}'");
+                }
+            }
+        }
+
+        skipWhitespace();
+        if (position != line.length()) {
+            throw error("unexpected content after the object");
+        }
+        return record;
+    }
+
+    private String parseValue() throws IOException {
+        char c = nextToken();
+        switch (c) {
+            case '"':
+                return parseString();
+            case 't':
+                return literal("true");
+            case 'f':
+                return literal("false");
+            case 'n':
+                literal("null");
+                return null;
+            case '{':
+            case '[':
+                throw error("nested values are not supported");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    int start = position - 1;
+                    while (position < line.length() && "+-.eE0123456789".indexOf(line.charAt(position)) >= 0) {
+                        position++;
+                    }
+                    return line.substring(start, position);
+                }
+                throw error("unexpected character '" + c + "'");
+        }
+    }
+
+    // called after the opening quote
+    private String parseString() throws IOException {
+        StringBuilder value = new StringBuilder();
+
+        while (position < line.length()) {
+            char c = line.charAt(position++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (position >= line.length()) {
+                break;
+            }
+
+            char escaped = line.charAt(position++);
+            switch (escaped) {
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'u':
+                    if (position + 4 > line.length()) {
+                        throw error("truncated unicode escape");
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(line.substring(position, position + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("invalid unicode escape");
+                    }
+                    position += 4;
+                    break;
+                default:
+                    value.append(escaped);
+            }
+        }
+        throw error("unterminated string");
+    }
+
+    private String literal(String expected) throws IOException {
+        int start = position - 1;
+        if (!line.startsWith(expected, start)) {
+            throw error("expected " + expected);
+        }
+        position = start + expected.length();
+        return expected;
+    }
+
+    private void expect(char expected) throws IOException {
+        if (nextToken() != expected) {
+            throw error("expected '" + expected + "'");
+        }
+    }
+
+    private char nextToken() throws IOException {
+        skipWhitespace();
+        if (position >= line.length()) {
+            throw error("unexpected end of line");
+        }
+        return line.charAt(position++);
+    }
+
+    private char peek() {
+        skipWhitespace();
+        return position < line.length() ? line.charAt(position) : 0;
+    }
+
+    private void skipWhitespace() {
+        while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+            position++;
+        }
+    }
+
+    // the whole line was read already, so the reader can go on with the next one
+    private MalformedRecordException error(String message) {
+        return new MalformedRecordException("Malformed record " + recordNumber + " at column " + position + ": " + message);
+    }
+}
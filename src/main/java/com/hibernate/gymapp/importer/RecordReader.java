@@ -0,0 +1,36 @@
+package com.hibernate.gymapp.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Forward-only reader over an import file. Only the current record is held in memory.
+ */
+public interface RecordReader extends Closeable {
+
+    /*
+     * Next record as column name -> value (null for empty values), null once the input is exhausted. A record that
+     * cannot be parsed throws MalformedRecordException and is still counted; any other IOException ends the read.
+     */
+    Map<String, String> next() throws IOException;
+
+    // 1-based number of the record last returned by next()
+    long getRecordNumber();
+
+    static RecordReader open(Path source) throws IOException {
+        String name = source.getFileName().toString().toLowerCase(Locale.ROOT);
+
+        if (name.endsWith(".csv")) {
+            return new CsvRecordReader(Files.newBufferedReader(source, StandardCharsets.UTF_8));
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return new NdjsonRecordReader(Files.newBufferedReader(source, StandardCharsets.UTF_8));
+        }
+        throw new IllegalArgumentException("Unsupported import format, expected .csv or .ndjson: " + source);
+    }
+}
@@ -0,0 +1,66 @@
+package com.hibernate.gymapp.metrics;
+
+import lombok.Getter;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hit, miss and put counts of every second-level cache region. Needs hibernate.generate_statistics.
+ */
+public class CacheMetrics {
+
+    private final SessionFactory sessionFactory;
+
+    public CacheMetrics(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    public List<RegionSnapshot> snapshot() {
+        Statistics statistics = sessionFactory.getStatistics();
+        List<RegionSnapshot> snapshots = new ArrayList<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics stats = statistics.getCacheRegionStatistics(region);
+            if (stats != null) {
+                snapshots.add(new RegionSnapshot(region, stats.getHitCount(), stats.getMissCount(),
+                        stats.getPutCount()));
+            }
+        }
+        snapshots.sort((a, b) -> a.region.compareTo(b.region));
+        return snapshots;
+    }
+
+    public void reset() {
+        sessionFactory.getStatistics().clear();
+    }
+
+    @Getter
+    public static final class RegionSnapshot {
+
+        private final String region;
+        private final long hits;
+        private final long misses;
+        private final long puts;
+
+        private RegionSnapshot(String region, long hits, long misses, long puts) {
+            this.region = region;
+            this.hits = hits;
+            this.misses = misses;
+            this.puts = puts;
+        }
+
+        public double getHitRatio() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return "Cache[" + region + "] hits=" + hits + ", misses=" + misses + ", puts=" + puts
+                    + String.format(", hitRatio=%.3f", getHitRatio());
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.hibernate.gymapp.metrics;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.DeleteContext;
+import org.hibernate.event.spi.DeleteEvent;
+import org.hibernate.event.spi.DeleteEventListener;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.MergeContext;
+import org.hibernate.event.spi.MergeEvent;
+import org.hibernate.event.spi.MergeEventListener;
+import org.hibernate.event.spi.PersistContext;
+import org.hibernate.event.spi.PersistEvent;
+import org.hibernate.event.spi.PersistEventListener;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.event.spi.PreCollectionRecreateEvent;
+import org.hibernate.event.spi.PreCollectionRecreateEventListener;
+import org.hibernate.event.spi.PreCollectionRemoveEvent;
+import org.hibernate.event.spi.PreCollectionRemoveEventListener;
+import org.hibernate.event.spi.PreCollectionUpdateEvent;
+import org.hibernate.event.spi.PreCollectionUpdateEventListener;
+import org.hibernate.event.spi.PreDeleteEvent;
+import org.hibernate.event.spi.PreDeleteEventListener;
+import org.hibernate.event.spi.PreInsertEvent;
+import org.hibernate.event.spi.PreInsertEventListener;
+import org.hibernate.event.spi.PreUpdateEvent;
+import org.hibernate.event.spi.PreUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Carries the {@link SqlContext} tag of a repository call into the flush that writes its changes. With deferred
+ * flushing and JDBC batching, inserts, updates and deletes run at commit, outside any repository call. The tag is
+ * therefore recorded per entity when it is persisted, merged or removed, and put back while Hibernate executes that
+ * entity's action or the actions of its collections. A batch is attributed to the method that queued its first row.
+ * Changes made only through the setters of a managed entity were queued by no repository method and stay untagged.
+ */
+public final class FlushAttribution {
+
+    // per session, entity instance to the tag it was written under; dropped when the transaction completes
+    private final Map<EventSource, Map<Object, String>> tags = new ConcurrentHashMap<>();
+
+    // the tag put back for the action executing on this thread
+    private final ThreadLocal<SqlContext.Scope> executing = new ThreadLocal<>();
+
+    private FlushAttribution() {
+    }
+
+    public static FlushAttribution attach(EntityManagerFactory entityManagerFactory) {
+        EventListenerRegistry listeners = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        FlushAttribution attribution = new FlushAttribution();
+
+        WriteListener write = attribution.new WriteListener();
+        listeners.appendListeners(EventType.PERSIST, write);
+        listeners.appendListeners(EventType.MERGE, write);
+        listeners.appendListeners(EventType.DELETE, write);
+
+        ActionListener action = attribution.new ActionListener();
+        listeners.appendListeners(EventType.PRE_INSERT, action);
+        listeners.appendListeners(EventType.PRE_UPDATE, action);
+        listeners.appendListeners(EventType.PRE_DELETE, action);
+        listeners.appendListeners(EventType.PRE_COLLECTION_RECREATE, action);
+        listeners.appendListeners(EventType.PRE_COLLECTION_UPDATE, action);
+        listeners.appendListeners(EventType.PRE_COLLECTION_REMOVE, action);
+        listeners.appendListeners(EventType.POST_INSERT, action);
+        listeners.appendListeners(EventType.POST_UPDATE, action);
+        listeners.appendListeners(EventType.POST_DELETE, action);
+        listeners.appendListeners(EventType.POST_COLLECTION_RECREATE, action);
+        listeners.appendListeners(EventType.POST_COLLECTION_UPDATE, action);
+        listeners.appendListeners(EventType.POST_COLLECTION_REMOVE, action);
+        return attribution;
+    }
+
+    private void record(EventSource session, Object entity) {
+        String tag = SqlContext.current();
+        if (entity == null || SqlContext.UNTAGGED.equals(tag)) {
+            return;
+        }
+        Map<Object, String> sessionTags = tags.get(session);
+        if (sessionTags == null) {
+            sessionTags = new IdentityHashMap<>();
+            tags.put(session, sessionTags);
+            session.getActionQueue().registerProcess((success, s) -> {
+                tags.remove(session);
+                restore();
+            });
+        }
+        sessionTags.put(entity, tag);
+    }
+
+    private void enter(EventSource session, Object entity) {
+        restore();
+        Map<Object, String> sessionTags = tags.get(session);
+        String tag = sessionTags == null || entity == null ? null : sessionTags.get(entity);
+        if (tag != null) {
+            executing.set(SqlContext.open(tag));
+        }
+    }
+
+    private void restore() {
+        SqlContext.Scope scope = executing.get();
+        if (scope != null) {
+            executing.remove();
+            scope.close();
+        }
+    }
+
+    private final class WriteListener implements PersistEventListener, MergeEventListener, DeleteEventListener {
+
+        @Override
+        public void onPersist(PersistEvent event) {
+            record(event.getSession(), event.getObject());
+        }
+
+        @Override
+        public void onPersist(PersistEvent event, PersistContext createdAlready) {
+            record(event.getSession(), event.getObject());
+        }
+
+        @Override
+        public void onMerge(MergeEvent event) {
+            record(event.getSession(), event.getResult());
+        }
+
+        @Override
+        public void onMerge(MergeEvent event, MergeContext copiedAlready) {
+            record(event.getSession(), event.getResult());
+        }
+
+        @Override
+        public void onDelete(DeleteEvent event) {
+            record(event.getSession(), event.getObject());
+        }
+
+        @Override
+        public void onDelete(DeleteEvent event, DeleteContext transientEntities) {
+            record(event.getSession(), event.getObject());
+        }
+    }
+
+    // statements are prepared between the pre and post event of their action, which is when their tag is taken
+    private final class ActionListener implements PreInsertEventListener, PreUpdateEventListener,
+            PreDeleteEventListener, PreCollectionRecreateEventListener, PreCollectionUpdateEventListener,
+            PreCollectionRemoveEventListener, PostInsertEventListener, PostUpdateEventListener,
+            PostDeleteEventListener, PostCollectionRecreateEventListener, PostCollectionUpdateEventListener,
+            PostCollectionRemoveEventListener {
+
+        @Override
+        public boolean onPreInsert(PreInsertEvent event) {
+            enter(event.getSession(), event.getEntity());
+            return false;
+        }
+
+        @Override
+        public boolean onPreUpdate(PreUpdateEvent event) {
+            enter(event.getSession(), event.getEntity());
+            return false;
+        }
+
+        @Override
+        public boolean onPreDelete(PreDeleteEvent event) {
+            enter(event.getSession(), event.getEntity());
+            return false;
+        }
+
+        @Override
+        public void onPreRecreateCollection(PreCollectionRecreateEvent event) {
+            enterOwner(event);
+        }
+
+        @Override
+        public void onPreUpdateCollection(PreCollectionUpdateEvent event) {
+            enterOwner(event);
+        }
+
+        @Override
+        public void onPreRemoveCollection(PreCollectionRemoveEvent event) {
+            enterOwner(event);
+        }
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            restore();
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            restore();
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            restore();
+        }
+
+        @Override
+        public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+            restore();
+        }
+
+        @Override
+        public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+            restore();
+        }
+
+        @Override
+        public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+            restore();
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return false;
+        }
+
+        private void enterOwner(AbstractCollectionEvent event) {
+            enter(event.getSession(), event.getAffectedOwnerOrNull());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.hibernate.gymapp.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live gauges and timings of the connection pool. HikariCP refreshes the gauges at most once per second.
+ */
+public class PoolMetrics implements MetricsTrackerFactory {
+
+    private final LatencyHistogram acquireTime = new LatencyHistogram();
+    private final LatencyHistogram usageTime = new LatencyHistogram();
+    private final LongAdder acquireTimeouts = new LongAdder();
+    private final LongAdder connectionsCreated = new LongAdder();
+
+    private volatile String poolName;
+    private volatile PoolStats poolStats;
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolName = poolName;
+        this.poolStats = poolStats;
+
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquireTime.record(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageTime.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+            }
+
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                connectionsCreated.increment();
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                acquireTimeouts.increment();
+            }
+        };
+    }
+
+    public Snapshot snapshot() {
+        PoolStats stats = poolStats;
+
+        return new Snapshot(poolName,
+                stats == null ? 0 : stats.getActiveConnections(),
+                stats == null ? 0 : stats.getIdleConnections(),
+                stats == null ? 0 : stats.getTotalConnections(),
+                stats == null ? 0 : stats.getPendingThreads(),
+                acquireTimeouts.sum(),
+                connectionsCreated.sum(),
+                acquireTime.snapshot(),
+                usageTime.snapshot());
+    }
+
+    @Getter
+    public static final class Snapshot {
+
+        private final String poolName;
+        private final int activeConnections;
+        private final int idleConnections;
+        private final int totalConnections;
+        private final int waitingThreads;
+        private final long acquireTimeouts;
+        private final long connectionsCreated;
+        private final LatencyHistogram.Snapshot acquireTime;
+        private final LatencyHistogram.Snapshot usageTime;
+
+        private Snapshot(String poolName, int activeConnections, int idleConnections, int totalConnections,
+                         int waitingThreads, long acquireTimeouts, long connectionsCreated,
+                         LatencyHistogram.Snapshot acquireTime, LatencyHistogram.Snapshot usageTime) {
+            this.poolName = poolName;
+            this.activeConnections = activeConnections;
+            this.idleConnections = idleConnections;
+            this.totalConnections = totalConnections;
+            this.waitingThreads = waitingThreads;
+            this.acquireTimeouts = acquireTimeouts;
+            this.connectionsCreated = connectionsCreated;
+            this.acquireTime = acquireTime;
+            this.usageTime = usageTime;
+        }
+
+        @Override
+        public String toString() {
+            return "Pool[" + poolName + "] active=" + activeConnections + ", idle=" + idleConnections
+                    + ", total=" + totalConnections + ", waiting=" + waitingThreads
+                    + ", timeouts=" + acquireTimeouts + ", acquire{" + acquireTime + "}";
+        }
+    }
+}
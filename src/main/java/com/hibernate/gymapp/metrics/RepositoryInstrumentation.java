@@ -0,0 +1,64 @@
+package com.hibernate.gymapp.metrics;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Wraps a repository so every call runs under a {@link SqlContext} tag such as "UserRepository.findByUsername"
+ * and, when a {@link RepositoryMetrics} is given, is timed and counted under the same name.
+ */
+public final class RepositoryInstrumentation {
+
+    private RepositoryInstrumentation() {
+    }
+
+    public static <T> T instrument(Class<T> repositoryType, T repository) {
+        return instrument(repositoryType, repository, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T instrument(Class<T> repositoryType, T repository, RepositoryMetrics metrics) {
+        // resolved once here so a call costs one map lookup, not a string concatenation
+        Map<Method, String> tags = new HashMap<>();
+        Map<Method, RepositoryMetrics.MethodStats> stats = new HashMap<>();
+        for (Method method : repositoryType.getMethods()) {
+            String tag = repositoryType.getSimpleName() + "." + method.getName();
+            tags.put(method, tag);
+            if (metrics != null) {
+                stats.put(method, metrics.register(tag));
+            }
+        }
+
+        return (T) Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[]{repositoryType},
+                (proxy, method, args) -> {
+                    String tag = tags.get(method);
+                    if (tag == null) {
+                        return invoke(repository, method, args);
+                    }
+
+                    RepositoryMetrics.MethodStats methodStats = stats.get(method);
+                    long start = System.nanoTime();
+                    boolean failed = true;
+                    try (SqlContext.Scope ignored = SqlContext.open(tag)) {
+                        Object result = invoke(repository, method, args);
+                        failed = false;
+                        return result;
+                    } finally {
+                        if (methodStats != null) {
+                            methodStats.record(System.nanoTime() - start, failed);
+                        }
+                    }
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
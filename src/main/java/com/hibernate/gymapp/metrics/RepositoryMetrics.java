@@ -0,0 +1,94 @@
+package com.hibernate.gymapp.metrics;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Calls, errors and latency of every repository method, e.g. "UserRepository.findByUsername". Recording is a few
+ * striped counter increments and one histogram increment, no locks.
+ */
+public class RepositoryMetrics {
+
+    private final Map<String, MethodStats> methods = new ConcurrentHashMap<>();
+    private volatile long windowStartNanos = System.nanoTime();
+
+    MethodStats register(String method) {
+        return methods.computeIfAbsent(method, MethodStats::new);
+    }
+
+    public List<MethodSnapshot> snapshot() {
+        long windowNanos = Math.max(1, System.nanoTime() - windowStartNanos);
+
+        List<MethodSnapshot> snapshots = new ArrayList<>(methods.size());
+        for (MethodStats stats : methods.values()) {
+            long calls = stats.calls.sum();
+            if (calls > 0) {
+                snapshots.add(new MethodSnapshot(stats.method, calls, stats.errors.sum(),
+                        calls * (double) TimeUnit.SECONDS.toNanos(1) / windowNanos, stats.latency.snapshot()));
+            }
+        }
+        snapshots.sort((a, b) -> Long.compare(b.getLatency().getP99Nanos(), a.getLatency().getP99Nanos()));
+        return snapshots;
+    }
+
+    // starts a new measurement window; the registered methods stay
+    public void reset() {
+        for (MethodStats stats : methods.values()) {
+            stats.calls.reset();
+            stats.errors.reset();
+            stats.latency.reset();
+        }
+        windowStartNanos = System.nanoTime();
+    }
+
+    static final class MethodStats {
+
+        private final String method;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private MethodStats(String method) {
+            this.method = method;
+        }
+
+        void record(long nanos, boolean failed) {
+            calls.increment();
+            if (failed) {
+                errors.increment();
+            }
+            latency.record(nanos);
+        }
+    }
+
+    @Getter
+    public static final class MethodSnapshot {
+
+        private final String method;
+        private final long calls;
+        private final long errors;
+        private final double callsPerSecond;
+        private final LatencyHistogram.Snapshot latency;
+
+        private MethodSnapshot(String method, long calls, long errors, double callsPerSecond,
+                               LatencyHistogram.Snapshot latency) {
+            this.method = method;
+            this.calls = calls;
+            this.errors = errors;
+            this.callsPerSecond = callsPerSecond;
+            this.latency = latency;
+        }
+
+        @Override
+        public String toString() {
+            return method + " calls=" + calls + ", errors=" + errors
+                    + ", rate=" + Math.round(callsPerSecond) + "/s, " + latency;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.hibernate.gymapp.metrics;
+
+/**
+ * Tag of the repository method running on the current thread, so SQL metrics can say who issued a statement.
+ */
+public final class SqlContext {
+
+    public static final String UNTAGGED = "untagged";
+
+    private static final ThreadLocal<String> current = new ThreadLocal<>();
+
+    private SqlContext() {
+    }
+
+    public static String current() {
+        String tag = current.get();
+        return tag == null ? UNTAGGED : tag;
+    }
+
+    // the previous tag is restored on close; nothing stays bound once the outermost scope ends
+    public static Scope open(String tag) {
+        String previous = current.get();
+        current.set(tag);
+        return new Scope(previous);
+    }
+
+    public static final class Scope implements AutoCloseable {
+
+        private final String previous;
+
+        private Scope(String previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        }
+    }
+}
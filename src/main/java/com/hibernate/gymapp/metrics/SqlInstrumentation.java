@@ -0,0 +1,145 @@
+package com.hibernate.gymapp.metrics;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * JDBC proxies that time every statement execution and count the rows it returned or changed. Replaces
+ * hibernate.show_sql: nothing is printed, the numbers end up in {@link SqlMetrics}.
+ */
+public final class SqlInstrumentation {
+
+    private SqlInstrumentation() {
+    }
+
+    public static DataSource wrap(DataSource dataSource, SqlMetrics metrics) {
+        return proxy(DataSource.class, (proxy, method, args) -> {
+            Object result = invoke(dataSource, method, args);
+            return result instanceof Connection ? connection((Connection) result, metrics) : result;
+        });
+    }
+
+    private static Connection connection(Connection connection, SqlMetrics metrics) {
+        return proxy(Connection.class, (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+
+            if (result instanceof CallableStatement) {
+                return statement(CallableStatement.class, (Statement) result, (String) args[0], metrics);
+            }
+            if (result instanceof PreparedStatement) {
+                return statement(PreparedStatement.class, (Statement) result, (String) args[0], metrics);
+            }
+            if (result instanceof Statement) {
+                return statement(Statement.class, (Statement) result, null, metrics);
+            }
+            return result;
+        });
+    }
+
+    // preparedSql is null for plain statements, whose SQL comes with execute(sql) or addBatch(sql)
+    private static <S extends Statement> S statement(Class<S> type, Statement statement, String preparedSql,
+                                                     SqlMetrics metrics) {
+        // a prepared statement belongs to whoever prepared it; a JDBC batch may only run later, e.g. at commit
+        String preparedTag = preparedSql == null ? null : SqlContext.current();
+        String[] batchSql = new String[1];
+        SqlMetrics.StatementStats[] lastExecution = new SqlMetrics.StatementStats[1];
+
+        return proxy(type, (proxy, method, args) -> {
+            String name = method.getName();
+
+            if (!name.startsWith("execute")) {
+                if (name.equals("addBatch") && args != null && args.length == 1 && batchSql[0] == null) {
+                    batchSql[0] = (String) args[0];
+                }
+                Object result = invoke(statement, method, args);
+                if (result instanceof ResultSet && lastExecution[0] != null) {
+                    return resultSet((ResultSet) result, lastExecution[0]);
+                }
+                return result;
+            }
+
+            String sql = preparedSql;
+            if (sql == null) {
+                sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : batchSql[0];
+            }
+            String tag = preparedTag == null ? SqlContext.current() : preparedTag;
+            SqlMetrics.StatementStats stats = metrics.statsFor(tag, sql == null ? "<unknown>" : sql);
+            lastExecution[0] = stats;
+
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                stats.recordError();
+                throw e.getCause();
+            } finally {
+                if (name.endsWith("Batch")) {
+                    batchSql[0] = null;
+                }
+            }
+
+            metrics.recordExecution(stats, System.nanoTime() - start, affectedRows(result));
+            return result instanceof ResultSet ? resultSet((ResultSet) result, stats) : result;
+        });
+    }
+
+    private static ResultSet resultSet(ResultSet resultSet, SqlMetrics.StatementStats stats) {
+        return proxy(ResultSet.class, (proxy, method, args) -> {
+            Object result = invoke(resultSet, method, args);
+            if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+                stats.recordRow();
+            }
+            return result;
+        });
+    }
+
+    private static long affectedRows(Object result) {
+        if (result instanceof Integer || result instanceof Long) {
+            return Math.max(0, ((Number) result).longValue());
+        }
+        long rows = 0;
+        if (result instanceof int[]) {
+            for (int count : (int[]) result) {
+                rows += Math.max(0, count);
+            }
+        } else if (result instanceof long[]) {
+            for (long count : (long[]) result) {
+                rows += Math.max(0, count);
+            }
+        }
+        return rows;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(SqlInstrumentation.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    // Hibernate keeps statements in hash maps, identity must be the proxy's own
+                    if (method.getName().equals("equals") && args != null && args.length == 1
+                            && method.getDeclaringClass() == Object.class) {
+                        return proxy == args[0];
+                    }
+                    if (method.getName().equals("hashCode") && method.getDeclaringClass() == Object.class) {
+                        return System.identityHashCode(proxy);
+                    }
+                    return handler.invoke(proxy, method, args);
+                });
+    }
+}
@@ -0,0 +1,190 @@
+package com.hibernate.gymapp.metrics;
+
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Call counts, errors, row counts and latency per statement shape and repository method. A shape is the SQL
+ * with whitespace collapsed and expanded IN lists / repeated OR terms folded, so batches of different sizes
+ * share one entry. A sample of single executions is logged as JSON lines.
+ */
+public class SqlMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlMetrics.class);
+
+    private static final int MAX_SHAPES = 1_000;
+    private static final int MAX_CACHED_SHAPES = 4_000;
+    private static final String OTHER_SHAPE = "<other>";
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\?(?:\\s*,\\s*\\?)+\\)");
+    private static final Pattern REPEATED_OR = Pattern.compile(
+            "((?:\\w+\\.)?\\w+ (?:like|=) \\?(?: escape '.')?)(?: or \\1)+", Pattern.CASE_INSENSITIVE);
+
+    private final Map<String, String> shapes = new ConcurrentHashMap<>();
+    private final Map<String, StatementStats> statements = new ConcurrentHashMap<>();
+    private final double sampleRate;
+
+    public SqlMetrics() {
+        this(0);
+    }
+
+    // sampleRate is the share of executions logged one by one, 0 turns sampling off
+    public SqlMetrics(double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("sampleRate must be between 0 and 1");
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    StatementStats statsFor(String sql) {
+        return statsFor(SqlContext.current(), sql);
+    }
+
+    StatementStats statsFor(String tag, String sql) {
+        String shape = shape(sql);
+        String key = tag + '\u0000' + shape;
+
+        StatementStats stats = statements.get(key);
+        if (stats != null) {
+            return stats;
+        }
+        if (statements.size() >= MAX_SHAPES) {
+            return statements.computeIfAbsent(tag + '\u0000' + OTHER_SHAPE, k -> new StatementStats(tag, OTHER_SHAPE));
+        }
+        return statements.computeIfAbsent(key, k -> new StatementStats(tag, shape));
+    }
+
+    void recordExecution(StatementStats stats, long nanos, long rows) {
+        stats.calls.increment();
+        stats.latency.record(nanos);
+        if (rows > 0) {
+            stats.rows.add(rows);
+        }
+
+        if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            logger.info("{\"event\":\"sql\",\"tag\":{},\"sql\":{},\"micros\":{},\"rows\":{}}",
+                    quote(stats.tag), quote(stats.shape), TimeUnit.NANOSECONDS.toMicros(nanos), rows);
+        }
+    }
+
+    public List<StatementSnapshot> snapshot() {
+        List<StatementSnapshot> snapshots = new ArrayList<>(statements.size());
+        for (StatementStats stats : statements.values()) {
+            snapshots.add(new StatementSnapshot(stats.tag, stats.shape, stats.calls.sum(), stats.errors.sum(),
+                    stats.rows.sum(), stats.latency.snapshot()));
+        }
+        snapshots.sort((a, b) -> Long.compare(b.getCalls(), a.getCalls()));
+        return snapshots;
+    }
+
+    public void reset() {
+        statements.clear();
+    }
+
+    private String shape(String sql) {
+        String shape = shapes.get(sql);
+        if (shape == null) {
+            shape = normalize(sql);
+            if (shapes.size() >= MAX_CACHED_SHAPES) {
+                shapes.clear();
+            }
+            shapes.put(sql, shape);
+        }
+        return shape;
+    }
+
+    static String normalize(String sql) {
+        String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        shape = IN_LIST.matcher(shape).replaceAll("(?, ...)");
+        return REPEATED_OR.matcher(shape).replaceAll("$1 or ...");
+    }
+
+    static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    static final class StatementStats {
+
+        private final String tag;
+        private final String shape;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+
+        private StatementStats(String tag, String shape) {
+            this.tag = tag;
+            this.shape = shape;
+        }
+
+        void recordError() {
+            errors.increment();
+        }
+
+        void recordRow() {
+            rows.increment();
+        }
+    }
+
+    @Getter
+    public static final class StatementSnapshot {
+
+        private final String tag;
+        private final String sql;
+        private final long calls;
+        private final long errors;
+        private final long rows;
+        private final LatencyHistogram.Snapshot latency;
+
+        private StatementSnapshot(String tag, String sql, long calls, long errors, long rows,
+                                  LatencyHistogram.Snapshot latency) {
+            this.tag = tag;
+            this.sql = sql;
+            this.calls = calls;
+            this.errors = errors;
+            this.rows = rows;
+            this.latency = latency;
+        }
+
+        public String toJson() {
+            return "{\"tag\":" + quote(tag)
+                    + ",\"sql\":" + quote(sql)
+                    + ",\"calls\":" + calls
+                    + ",\"errors\":" + errors
+                    + ",\"rows\":" + rows
+                    + ",\"meanMicros\":" + TimeUnit.NANOSECONDS.toMicros(latency.getMeanNanos())
+                    + ",\"p50Micros\":" + TimeUnit.NANOSECONDS.toMicros(latency.getP50Nanos())
+                    + ",\"p95Micros\":" + TimeUnit.NANOSECONDS.toMicros(latency.getP95Nanos())
+                    + ",\"p99Micros\":" + TimeUnit.NANOSECONDS.toMicros(latency.getP99Nanos())
+                    + ",\"maxMicros\":" + TimeUnit.NANOSECONDS.toMicros(latency.getMaxNanos())
+                    + "}";
+        }
+
+        @Override
+        public String toString() {
+            return toJson();
+        }
+    }
+}
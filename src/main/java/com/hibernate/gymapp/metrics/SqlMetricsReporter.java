@@ -0,0 +1,45 @@
+package com.hibernate.gymapp.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs the SQL metrics as one JSON line per statement shape and repository method at a fixed interval.
+ * Counters are cumulative since start, so consumers can diff consecutive reports.
+ */
+public class SqlMetricsReporter implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlMetricsReporter.class);
+
+    private final SqlMetrics metrics;
+    private final ScheduledExecutorService scheduler;
+
+    public SqlMetricsReporter(SqlMetrics metrics, long intervalSeconds) {
+        this.metrics = metrics;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sql-metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::report, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void report() {
+        try {
+            for (SqlMetrics.StatementSnapshot statement : metrics.snapshot()) {
+                logger.info("{}", statement.toJson());
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not report SQL metrics", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
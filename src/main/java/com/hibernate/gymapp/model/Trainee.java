@@ -3,6 +3,10 @@ package com.hibernate.gymapp.model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.PastOrPresent;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.time.LocalDate;
 import java.util.HashSet;
@@ -10,14 +14,32 @@ import java.util.Set;
 
 @Entity
 @Table(name = "trainees")
+@NamedEntityGraph(name = Trainee.WITH_USER, attributeNodes = @NamedAttributeNode("user"))
+@NamedEntityGraph(
+        name = Trainee.WITH_TRAINERS,
+        attributeNodes = {
+                @NamedAttributeNode("user"),
+                @NamedAttributeNode(value = "trainers", subgraph = "trainer")
+        },
+        subgraphs = @NamedSubgraph(name = "trainer", attributeNodes = {
+                @NamedAttributeNode("user"),
+                @NamedAttributeNode("specialization")
+        })
+)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "trainees")
+@NaturalIdCache(region = "trainees-by-user")
 @Setter
 @Getter
 @NoArgsConstructor
 @AllArgsConstructor
 public class Trainee {
 
+    public static final String WITH_USER = "trainee-with-user";
+    public static final String WITH_TRAINERS = "trainee-with-trainers";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "traineeSeq")
+    @SequenceGenerator(name = "traineeSeq", sequenceName = "trainees_seq", allocationSize = 50)
     private Long id;
 
     @PastOrPresent
@@ -27,6 +49,7 @@ public class Trainee {
     @Column(name = "address")
     private String address;
 
+    @NaturalId
     @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false, unique = true)
     private User user;
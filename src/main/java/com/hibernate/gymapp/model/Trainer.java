@@ -3,26 +3,53 @@ package com.hibernate.gymapp.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
 @Table(name = "trainers")
+@NamedEntityGraph(
+        name = Trainer.WITH_USER,
+        attributeNodes = {
+                @NamedAttributeNode("user"),
+                @NamedAttributeNode("specialization")
+        }
+)
+@NamedEntityGraph(
+        name = Trainer.WITH_TRAINEES,
+        attributeNodes = {
+                @NamedAttributeNode("user"),
+                @NamedAttributeNode("specialization"),
+                @NamedAttributeNode(value = "trainees", subgraph = "trainee")
+        },
+        subgraphs = @NamedSubgraph(name = "trainee", attributeNodes = @NamedAttributeNode("user"))
+)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "trainers")
+@NaturalIdCache(region = "trainers-by-user")
 @Setter
 @Getter
 @NoArgsConstructor
 @AllArgsConstructor
 public class Trainer {
 
+    public static final String WITH_USER = "trainer-with-user";
+    public static final String WITH_TRAINEES = "trainer-with-trainees";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trainerSeq")
+    @SequenceGenerator(name = "trainerSeq", sequenceName = "trainers_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "specialization_id")
     private TrainingType specialization;
 
+    @NaturalId
     @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false, unique = true)
     private User user;
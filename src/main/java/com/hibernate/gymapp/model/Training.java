@@ -4,19 +4,41 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "trainings")
+@Table(name = "trainings", indexes = {
+        // keyset pagination of each side's history on (training_date, id)
+        @Index(name = "idx_trainings_trainee_date_id", columnList = "trainee_id, training_date, id"),
+        @Index(name = "idx_trainings_trainer_date_id", columnList = "trainer_id, training_date, id")
+})
+@NamedEntityGraph(
+        name = Training.WITH_PARTICIPANTS,
+        attributeNodes = {
+                @NamedAttributeNode(value = "trainee", subgraph = "trainee"),
+                @NamedAttributeNode(value = "trainer", subgraph = "trainer"),
+                @NamedAttributeNode("trainingType")
+        },
+        subgraphs = {
+                @NamedSubgraph(name = "trainee", attributeNodes = @NamedAttributeNode("user")),
+                @NamedSubgraph(name = "trainer", attributeNodes = @NamedAttributeNode("user"))
+        }
+)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "trainings")
 @Setter
 @Getter
 @NoArgsConstructor
 @AllArgsConstructor
 public class Training {
 
+    public static final String WITH_PARTICIPANTS = "training-with-participants";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trainingSeq")
+    @SequenceGenerator(name = "trainingSeq", sequenceName = "trainings_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -3,6 +3,8 @@ package com.hibernate.gymapp.model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -10,6 +12,7 @@ import java.util.Set;
 
 @Entity
 @Table(name = "training_types")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "training-types")
 @Setter
 @Getter
 @NoArgsConstructor
@@ -17,7 +20,8 @@ import java.util.Set;
 public class TrainingType {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trainingTypeSeq")
+    @SequenceGenerator(name = "trainingTypeSeq", sequenceName = "training_types_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -4,9 +4,24 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+import org.hibernate.annotations.SQLRestriction;
+
+import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        // the purge worker's scan for soft-deleted users
+        @Index(name = "idx_users_deleted_at", columnList = "deleted_at")
+})
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
+@NaturalIdCache(region = "users-by-username")
+// soft-deleted users are invisible to loads and queries of User until PurgeWorker removes them; queries that join
+// users from another entity check deleted_at themselves
+@SQLRestriction("deleted_at IS NULL")
 @Setter
 @Getter
 @NoArgsConstructor
@@ -14,7 +29,8 @@ import lombok.*;
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "userSeq")
+    @SequenceGenerator(name = "userSeq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -26,6 +42,7 @@ public class User {
     private String lastName;
 
     @NotBlank
+    @NaturalId
     @Column(name = "username", unique = true, nullable = false)
     private String username;
 
@@ -37,10 +54,8 @@ public class User {
     @Column(name = "is_active", nullable = false)
     private Boolean isActive;
 
-    @OneToOne(mappedBy = "user", fetch = FetchType.LAZY, optional = true)
-    private Trainee trainee;
-
-    @OneToOne(mappedBy = "user", fetch = FetchType.LAZY, optional = true)
-    private Trainer trainer;
+    // set together with isActive = false by a soft delete
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
 }
 
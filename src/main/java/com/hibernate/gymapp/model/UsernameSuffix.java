@@ -0,0 +1,21 @@
+package com.hibernate.gymapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// the next username suffix per base name, e.g. "john.smith" -> 3 hands out "john.smith3"; 0 stands for the bare name
+@Entity
+@Table(name = "username_suffixes")
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UsernameSuffix {
+
+    @Id
+    @Column(name = "base_username")
+    private String baseUsername;
+
+    @Column(name = "next_suffix", nullable = false)
+    private Long nextSuffix;
+}
@@ -0,0 +1,48 @@
+package com.hibernate.gymapp.purge;
+
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point-in-time view of the purge worker since it was created. {@code pending} is the number of soft-deleted users
+ * still waiting, as counted after the last batch.
+ */
+@Getter
+public final class PurgeProgress {
+
+    private final long batches;
+    private final long users;
+    private final long trainees;
+    private final long trainers;
+    private final long trainings;
+    private final long failures;
+    private final long pending;
+    private final long lastBatchNanos;
+    private final long elapsedNanos;
+
+    PurgeProgress(long batches, long users, long trainees, long trainers, long trainings, long failures, long pending,
+                  long lastBatchNanos, long elapsedNanos) {
+        this.batches = batches;
+        this.users = users;
+        this.trainees = trainees;
+        this.trainers = trainers;
+        this.trainings = trainings;
+        this.failures = failures;
+        this.pending = pending;
+        this.lastBatchNanos = lastBatchNanos;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public double getUsersPerSecond() {
+        return elapsedNanos == 0 ? 0 : users * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "Purge batches=" + batches + ", users=" + users + ", trainees=" + trainees + ", trainers=" + trainers
+                + ", trainings=" + trainings + ", failures=" + failures + ", pending=" + pending
+                + ", lastBatch=" + TimeUnit.NANOSECONDS.toMillis(lastBatchNanos) + "ms"
+                + ", rate=" + Math.round(getUsersPerSecond()) + "/s";
+    }
+}
@@ -0,0 +1,309 @@
+package com.hibernate.gymapp.purge;
+
+import com.hibernate.gymapp.model.Training;
+import com.hibernate.gymapp.repository.TrainingSearchCache;
+import com.hibernate.gymapp.transaction.UnitOfWork;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.query.NativeQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Physically removes soft-deleted users with their trainee or trainer profile, trainer assignments and trainings,
+ * a batch of users per transaction. After each batch the worker pauses long enough to stay under the configured
+ * users per second, so purging never holds locks or connections for long; with nothing left it polls at the idle
+ * interval. A failed batch is rolled back, counted and tried again after the idle interval.
+ *
+ * The statements are native, as the users restriction hides exactly the rows being purged. They name a query space
+ * no entity maps to, so Hibernate clears no cache region for them: soft-deleted profiles were evicted when they were
+ * marked, and the purged trainings are evicted one by one once the batch commits.
+ */
+public class PurgeWorker implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PurgeWorker.class);
+
+    // custom settings read from hibernate.cfg.xml next to the Hibernate ones
+    public static final String BATCH_SIZE = "gymapp.purge.batch_size";
+    public static final String USERS_PER_SECOND = "gymapp.purge.users_per_second";
+    public static final String IDLE_INTERVAL = "gymapp.purge.idle_interval_seconds";
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final Duration DEFAULT_IDLE_INTERVAL = Duration.ofSeconds(30);
+
+    private static final String QUERY_SPACE = "user_purge";
+
+    private final UnitOfWork unitOfWork;
+    private final TrainingSearchCache searchCache;
+    private final int batchSize;
+    private final double usersPerSecond;
+    private final Duration idleInterval;
+    private final Consumer<PurgeProgress> progressListener;
+
+    private final long startNanos = System.nanoTime();
+    private long batches;
+    private long users;
+    private long trainees;
+    private long trainers;
+    private long trainings;
+    private long failures;
+    private volatile PurgeProgress progress = new PurgeProgress(0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+    private ScheduledExecutorService scheduler;
+
+    // searchCache may be null
+    public PurgeWorker(UnitOfWork unitOfWork, TrainingSearchCache searchCache, int batchSize, double usersPerSecond,
+                       Duration idleInterval) {
+        this(unitOfWork, searchCache, batchSize, usersPerSecond, idleInterval,
+                progress -> logger.debug("{}", progress));
+    }
+
+    public PurgeWorker(UnitOfWork unitOfWork, TrainingSearchCache searchCache, int batchSize, double usersPerSecond,
+                       Duration idleInterval, Consumer<PurgeProgress> progressListener) {
+        if (batchSize <= 0 || usersPerSecond <= 0) {
+            throw new IllegalArgumentException("batchSize and usersPerSecond must be positive");
+        }
+        this.unitOfWork = unitOfWork;
+        this.searchCache = searchCache;
+        this.batchSize = batchSize;
+        this.usersPerSecond = usersPerSecond;
+        this.idleInterval = idleInterval;
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * The worker configured by {@link #USERS_PER_SECOND}, {@link #BATCH_SIZE} and {@link #IDLE_INTERVAL}, or null
+     * when no rate is set.
+     */
+    public static PurgeWorker fromSettings(UnitOfWork unitOfWork, TrainingSearchCache searchCache,
+                                           Map<String, Object> settings) {
+        double usersPerSecond = Double.parseDouble(String.valueOf(settings.getOrDefault(USERS_PER_SECOND, "0")));
+        if (usersPerSecond <= 0) {
+            return null;
+        }
+        int batchSize = Integer.parseInt(String.valueOf(settings.getOrDefault(BATCH_SIZE, DEFAULT_BATCH_SIZE)));
+        long idleSeconds = Long.parseLong(String.valueOf(
+                settings.getOrDefault(IDLE_INTERVAL, DEFAULT_IDLE_INTERVAL.getSeconds())));
+        return new PurgeWorker(unitOfWork, searchCache, batchSize, usersPerSecond, Duration.ofSeconds(idleSeconds));
+    }
+
+    public synchronized PurgeWorker start() {
+        if (scheduler != null) {
+            throw new IllegalStateException("Purge worker already started");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-purge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.execute(this::runAndReschedule);
+        return this;
+    }
+
+    public PurgeProgress getProgress() {
+        return progress;
+    }
+
+    /**
+     * Purges up to one batch of soft-deleted users in one transaction and returns how many were removed.
+     */
+    public synchronized int purgeBatch() {
+        long batchStart = System.nanoTime();
+        Batch batch;
+        try {
+            batch = unitOfWork.inTransaction(this::purge);
+        } catch (RuntimeException e) {
+            failures++;
+            publish(System.nanoTime() - batchStart, progress.getPending());
+            logger.error("Purge of deleted users failed; {} users purged so far", users, e);
+            throw new RuntimeException("Failed to purge deleted users", e);
+        }
+
+        if (batch.users > 0) {
+            batches++;
+            users += batch.users;
+            trainees += batch.trainees;
+            trainers += batch.trainers;
+            trainings += batch.trainings;
+        }
+        publish(System.nanoTime() - batchStart, batch.pending);
+        if (batch.users > 0) {
+            progressListener.accept(progress);
+        }
+        return batch.users;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void runAndReschedule() {
+        long delayNanos;
+        try {
+            long batchStart = System.nanoTime();
+            int purged = purgeBatch();
+            // the time a batch of this size is allowed at the configured rate, less the time it already took
+            delayNanos = purged == 0
+                    ? idleInterval.toNanos()
+                    : Math.max(0, (long) (purged * TimeUnit.SECONDS.toNanos(1) / usersPerSecond)
+                            - (System.nanoTime() - batchStart));
+        } catch (RuntimeException e) {
+            delayNanos = idleInterval.toNanos();
+        }
+
+        try {
+            scheduler.schedule(this::runAndReschedule, delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Purge worker stopped");
+        }
+    }
+
+    private Batch purge() {
+        EntityManager entityManager = unitOfWork.get();
+
+        List<Long> userIds = ids(query(entityManager,
+                "SELECT id FROM users WHERE deleted_at IS NOT NULL ORDER BY id").setMaxResults(batchSize));
+        if (userIds.isEmpty()) {
+            return new Batch(0, 0, 0, 0, 0);
+        }
+        List<Long> traineeIds = ids(query(entityManager, "SELECT id FROM trainees WHERE user_id IN (:userIds)")
+                .setParameter("userIds", userIds));
+        List<Long> trainerIds = ids(query(entityManager, "SELECT id FROM trainers WHERE user_id IN (:userIds)")
+                .setParameter("userIds", userIds));
+
+        int trainingCount = 0;
+        if (!traineeIds.isEmpty() || !trainerIds.isEmpty()) {
+            // trainings and trainee_trainer both name the two sides trainee_id and trainer_id
+            String owned = owned(traineeIds, trainerIds);
+
+            List<Long> trainingIds = new ArrayList<>();
+            Set<Long> trainingTrainees = new HashSet<>();
+            Set<Long> trainingTrainers = new HashSet<>();
+            List<?> rows = bindOwners(query(entityManager,
+                    "SELECT id, trainee_id, trainer_id FROM trainings WHERE " + owned), traineeIds, trainerIds)
+                    .getResultList();
+            for (Object row : rows) {
+                Object[] columns = (Object[]) row;
+                trainingIds.add(((Number) columns[0]).longValue());
+                trainingTrainees.add(((Number) columns[1]).longValue());
+                trainingTrainers.add(((Number) columns[2]).longValue());
+            }
+            // the surviving side's cached searches lose these rows
+            invalidateSearches(entityManager, TrainingSearchCache.Side.TRAINEE, trainingTrainees);
+            invalidateSearches(entityManager, TrainingSearchCache.Side.TRAINER, trainingTrainers);
+
+            trainingCount = bindOwners(query(entityManager, "DELETE FROM trainings WHERE " + owned),
+                    traineeIds, trainerIds).executeUpdate();
+            bindOwners(query(entityManager, "DELETE FROM trainee_trainer WHERE " + owned),
+                    traineeIds, trainerIds).executeUpdate();
+            if (!traineeIds.isEmpty()) {
+                query(entityManager, "DELETE FROM trainees WHERE id IN (:traineeIds)")
+                        .setParameter("traineeIds", traineeIds).executeUpdate();
+            }
+            if (!trainerIds.isEmpty()) {
+                query(entityManager, "DELETE FROM trainers WHERE id IN (:trainerIds)")
+                        .setParameter("trainerIds", trainerIds).executeUpdate();
+            }
+            evictOnCommit(entityManager, trainingIds);
+        }
+        query(entityManager, "DELETE FROM users WHERE id IN (:userIds)")
+                .setParameter("userIds", userIds).executeUpdate();
+
+        long pending = ((Number) query(entityManager, "SELECT COUNT(*) FROM users WHERE deleted_at IS NOT NULL")
+                .getSingleResult()).longValue();
+        return new Batch(userIds.size(), traineeIds.size(), trainerIds.size(), trainingCount, pending);
+    }
+
+    private void invalidateSearches(EntityManager entityManager, TrainingSearchCache.Side side, Set<Long> ownerIds) {
+        if (searchCache != null) {
+            for (Long ownerId : ownerIds) {
+                searchCache.invalidateOnCompletion(entityManager, side, ownerId);
+            }
+        }
+    }
+
+    private static void evictOnCommit(EntityManager entityManager, List<Long> trainingIds) {
+        if (trainingIds.isEmpty()) {
+            return;
+        }
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        entityManager.unwrap(SessionImplementor.class).getActionQueue().registerProcess((success, session) -> {
+            if (success) {
+                for (Long trainingId : trainingIds) {
+                    cache.evict(Training.class, trainingId);
+                }
+            }
+        });
+    }
+
+    private static String owned(List<Long> traineeIds, List<Long> trainerIds) {
+        if (trainerIds.isEmpty()) {
+            return "trainee_id IN (:traineeIds)";
+        }
+        if (traineeIds.isEmpty()) {
+            return "trainer_id IN (:trainerIds)";
+        }
+        return "(trainee_id IN (:traineeIds) OR trainer_id IN (:trainerIds))";
+    }
+
+    private static NativeQuery<?> bindOwners(NativeQuery<?> query, List<Long> traineeIds, List<Long> trainerIds) {
+        if (!traineeIds.isEmpty()) {
+            query.setParameter("traineeIds", traineeIds);
+        }
+        if (!trainerIds.isEmpty()) {
+            query.setParameter("trainerIds", trainerIds);
+        }
+        return query;
+    }
+
+    private static NativeQuery<?> query(EntityManager entityManager, String sql) {
+        return entityManager.createNativeQuery(sql).unwrap(NativeQuery.class).addSynchronizedQuerySpace(QUERY_SPACE);
+    }
+
+    private static List<Long> ids(NativeQuery<?> query) {
+        List<?> rows = query.getResultList();
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            ids.add(((Number) row).longValue());
+        }
+        return ids;
+    }
+
+    private void publish(long lastBatchNanos, long pending) {
+        progress = new PurgeProgress(batches, users, trainees, trainers, trainings, failures, pending,
+                lastBatchNanos, System.nanoTime() - startNanos);
+    }
+
+    private static final class Batch {
+
+        private final int users;
+        private final int trainees;
+        private final int trainers;
+        private final int trainings;
+        private final long pending;
+
+        private Batch(int users, int trainees, int trainers, int trainings, long pending) {
+            this.users = users;
+            this.trainees = trainees;
+            this.trainers = trainers;
+            this.trainings = trainings;
+            this.pending = pending;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.hibernate.gymapp.repository;
+
+import com.hibernate.gymapp.model.Trainee;
+import com.hibernate.gymapp.model.Trainer;
+import com.hibernate.gymapp.model.Training;
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.EntityGraph;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import lombok.Getter;
+import org.hibernate.jpa.SpecHints;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Named entity graph to load with an entity, fetched in the same statement. Associations outside the plan stay as
+ * mapped (lazy), so a call site asks for exactly what it is about to touch and nothing is made eager globally.
+ * Passing {@code null} where a plan is accepted loads by the mappings alone.
+ */
+@Getter
+public final class FetchPlan<T> {
+
+    public static final FetchPlan<Training> TRAINING_WITH_PARTICIPANTS =
+            new FetchPlan<>(Training.class, Training.WITH_PARTICIPANTS);
+
+    public static final FetchPlan<Trainee> TRAINEE_WITH_USER = new FetchPlan<>(Trainee.class, Trainee.WITH_USER);
+    public static final FetchPlan<Trainee> TRAINEE_WITH_TRAINERS = new FetchPlan<>(Trainee.class, Trainee.WITH_TRAINERS);
+
+    public static final FetchPlan<Trainer> TRAINER_WITH_USER = new FetchPlan<>(Trainer.class, Trainer.WITH_USER);
+    public static final FetchPlan<Trainer> TRAINER_WITH_TRAINEES = new FetchPlan<>(Trainer.class, Trainer.WITH_TRAINEES);
+
+    private final Class<T> entityType;
+    private final String graphName;
+
+    private FetchPlan(Class<T> entityType, String graphName) {
+        this.entityType = entityType;
+        this.graphName = graphName;
+    }
+
+    @SuppressWarnings("unchecked")
+    public EntityGraph<T> graph(EntityManager entityManager) {
+        return (EntityGraph<T>) entityManager.getEntityGraph(graphName);
+    }
+
+    /**
+     * Hints for {@code EntityManager.find}. A root found in the second-level cache comes back without its graph, so
+     * a planned find reads the row and its graph in one join instead; the result still refreshes the cache.
+     */
+    public Map<String, Object> findHints(EntityManager entityManager) {
+        Map<String, Object> hints = new HashMap<>();
+        // fetch-graph semantics: attributes outside the graph fall back to their mapped fetch type
+        hints.put(SpecHints.HINT_SPEC_FETCH_GRAPH, graph(entityManager));
+        hints.put(SpecHints.HINT_SPEC_CACHE_RETRIEVE_MODE, CacheRetrieveMode.BYPASS);
+        return hints;
+    }
+
+    public static <T, Q extends TypedQuery<T>> Q apply(Q query, FetchPlan<T> plan, EntityManager entityManager) {
+        if (plan != null) {
+            query.setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, plan.graph(entityManager));
+        }
+        return query;
+    }
+
+    @Override
+    public String toString() {
+        return graphName;
+    }
+}
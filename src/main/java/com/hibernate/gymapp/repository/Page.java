@@ -0,0 +1,29 @@
+package com.hibernate.gymapp.repository;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated result. The next cursor is opaque to callers and null on the last page.
+ */
+@Getter
+public final class Page<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    public static <T> Page<T> empty() {
+        return new Page<>(Collections.emptyList(), null);
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -1,11 +1,14 @@
 package com.hibernate.gymapp.repository;
 
+import com.hibernate.gymapp.dto.TrainingSummary;
 import com.hibernate.gymapp.model.Trainee;
 import com.hibernate.gymapp.model.Trainer;
 import com.hibernate.gymapp.model.Training;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface TraineeRepository {
@@ -14,18 +17,88 @@ public interface TraineeRepository {
 
     Optional<Trainee> findById(Long id);
 
+    Optional<Trainee> findById(Long id, FetchPlan<Trainee> plan);
+
     Optional<Trainee> findByUsername(String username);
 
+    Optional<Trainee> findByUsername(String username, FetchPlan<Trainee> plan);
+
+    Optional<Trainee> findByUserId(Long userId);
+
+    // username -> trainee id for the usernames that belong to a trainee, in one query
+    Map<String, Long> findIdsByUsernames(Collection<String> usernames);
+
     List<Trainee> findAll();
 
-    void delete(Trainee trainee);
+    // removes the trainee with its trainings, trainer assignments and user in a few set-based statements, in the
+    // caller's transaction; false if the trainee no longer exists
+    boolean deleteProfile(Trainee trainee);
+
+    // marks the trainee's user deleted and inactive; the trainee is hidden from every query until PurgeWorker removes it
+    boolean softDelete(Trainee trainee);
 
     List<Trainer> findTrainersNotAssignedToTrainee(String traineeUsername);
 
+    /*
+     * Trainer assignments written straight to trainee_trainer, in batches, without loading Trainee.trainers. Each is
+     * idempotent and returns the number of rows it changed; unknown trainer ids are ignored, and null trainer ids
+     * assign or unassign nothing. A Trainee whose trainers collection is already initialised in the current
+     * persistence context does not see the change.
+     */
+    int assignTrainers(Long traineeId, Collection<Long> trainerIds);
+
+    int unassignTrainers(Long traineeId, Collection<Long> trainerIds);
+
+    // leaves the trainee assigned to exactly trainerIds, writing only the difference; null trainerIds are rejected
+    int replaceTrainers(Long traineeId, Collection<Long> trainerIds);
+
+    // active trainers the trainee is not assigned to, by id; specializationName may be null, cursor as for trainings
+    Page<Trainer> findActiveTrainersNotAssignedToTrainee(String traineeUsername, String specializationName,
+                                                         String cursor, int pageSize);
+
     List<Training> findTrainingsByTraineeUsernameWithCriteria(String traineeUsername,
                                                      LocalDate fromDate,
                                                      LocalDate toDate,
                                                      String trainerName,
                                                      String trainingTypeName);
 
+    List<Training> findTrainingsByTraineeUsernameWithCriteria(String traineeUsername,
+                                                     LocalDate fromDate,
+                                                     LocalDate toDate,
+                                                     String trainerName,
+                                                     String trainingTypeName,
+                                                     FetchPlan<Training> plan);
+
+    // newest first, keyset-paginated on (training date, id); cursor is the previous page's next cursor, or null
+    Page<Training> findTrainingPageByTraineeUsernameWithCriteria(String traineeUsername,
+                                                                 LocalDate fromDate,
+                                                                 LocalDate toDate,
+                                                                 String trainerName,
+                                                                 String trainingTypeName,
+                                                                 String cursor,
+                                                                 int pageSize);
+
+    Page<Training> findTrainingPageByTraineeUsernameWithCriteria(String traineeUsername,
+                                                                 LocalDate fromDate,
+                                                                 LocalDate toDate,
+                                                                 String trainerName,
+                                                                 String trainingTypeName,
+                                                                 String cursor,
+                                                                 int pageSize,
+                                                                 FetchPlan<Training> plan);
+
+    // read-only rows with the names already resolved, in one statement; nothing is attached to the persistence context
+    List<TrainingSummary> findTrainingSummariesByTraineeUsernameWithCriteria(String traineeUsername,
+                                                                       LocalDate fromDate,
+                                                                       LocalDate toDate,
+                                                                       String trainerName,
+                                                                       String trainingTypeName);
+
+    Page<TrainingSummary> findTrainingSummaryPageByTraineeUsernameWithCriteria(String traineeUsername,
+                                                                         LocalDate fromDate,
+                                                                         LocalDate toDate,
+                                                                         String trainerName,
+                                                                         String trainingTypeName,
+                                                                         String cursor,
+                                                                         int pageSize);
 }
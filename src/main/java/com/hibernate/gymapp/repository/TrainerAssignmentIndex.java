@@ -0,0 +1,402 @@
+package com.hibernate.gymapp.repository;
+
+import com.hibernate.gymapp.model.Trainee;
+import com.hibernate.gymapp.model.Trainer;
+import com.hibernate.gymapp.model.User;
+import com.hibernate.gymapp.transaction.EntityManagerProvider;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Which trainers a trainee is not assigned to, answered from memory. Trainers get a dense ordinal in id order, and
+ * the trainer table is held as bitmaps over those ordinals: all trainers, active trainers, and active trainers per
+ * specialization. A trainee's assignments are a short sorted id array, read from trainee_trainer on first use and
+ * kept for the most recently used trainees only. The unassigned trainers are a copy of the wanted bitmap with the
+ * assigned bits cleared, walked in id order, so a page needs only its own trainers loaded. A stale trainer table is
+ * read again by one caller at a time; the others wait for it and use what it read. A trainer going active or inactive
+ * only flips that trainer's bits in a copy of the bitmaps, and other users' status changes are ignored.
+ *
+ * Writes through this factory mark the affected parts stale; direct SQL writes must call {@link #invalidate(Long)}
+ * or {@link #invalidateOnCompletion(EntityManager, Long)} themselves.
+ */
+public class TrainerAssignmentIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrainerAssignmentIndex.class);
+
+    private static final String TRAINERS_ROLE = Trainee.class.getName() + ".trainers";
+
+    public static final int DEFAULT_MAX_TRAINEES = 10_000;
+
+    private final EntityManagerProvider entityManagerProvider;
+
+    // bumped on every trainer insert, delete or update, and on bulk activation changes
+    private final AtomicLong trainerChanges = new AtomicLong();
+    private volatile Trainers trainers;
+
+    // guards replacing the trainer table, by a reload or by an activation change
+    private final Object reloadLock = new Object();
+
+    // least recently used first; guarded by itself
+    private final LinkedHashMap<Long, long[]> assignedByTrainee;
+    // bumped by every assignment invalidation; an assignment read before a write commits must not be stored after it
+    private long assignmentVersion;
+
+    public TrainerAssignmentIndex(EntityManagerProvider entityManagerProvider) {
+        this(entityManagerProvider, DEFAULT_MAX_TRAINEES);
+    }
+
+    public TrainerAssignmentIndex(EntityManagerProvider entityManagerProvider, int maxTrainees) {
+        if (maxTrainees <= 0) {
+            throw new IllegalArgumentException("Index size must be positive");
+        }
+        this.entityManagerProvider = entityManagerProvider;
+        this.assignedByTrainee = new LinkedHashMap<Long, long[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+                return size() > maxTrainees;
+            }
+        };
+    }
+
+    public TrainerAssignmentIndex attach(EntityManagerFactory entityManagerFactory) {
+        EventListenerRegistry listeners = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        ChangeListener listener = new ChangeListener();
+        listeners.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        listeners.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        listeners.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+        listeners.appendListeners(EventType.POST_COLLECTION_RECREATE, listener);
+        listeners.appendListeners(EventType.POST_COLLECTION_UPDATE, listener);
+        listeners.appendListeners(EventType.POST_COLLECTION_REMOVE, listener);
+        return this;
+    }
+
+    public void load() {
+        synchronized (reloadLock) {
+            long generation = trainerChanges.get();
+            List<Object[]> rows = entityManagerProvider.get().createQuery(
+                    "SELECT t.id, t.specialization.id, u.isActive, u.id FROM Trainer t JOIN t.user u "
+                            + "WHERE u.deletedAt IS NULL ORDER BY t.id",
+                    Object[].class).getResultList();
+
+            long[] ids = new long[rows.size()];
+            Long[] specializationIds = new Long[ids.length];
+            Map<Long, Integer> ordinalByUserId = new HashMap<>();
+            BitSet active = new BitSet(ids.length);
+            Map<Long, BitSet> activeBySpecialization = new HashMap<>();
+            for (int ordinal = 0; ordinal < ids.length; ordinal++) {
+                Object[] row = rows.get(ordinal);
+                ids[ordinal] = (Long) row[0];
+                specializationIds[ordinal] = (Long) row[1];
+                ordinalByUserId.put((Long) row[3], ordinal);
+                if (Boolean.TRUE.equals(row[2])) {
+                    active.set(ordinal);
+                    if (row[1] != null) {
+                        activeBySpecialization.computeIfAbsent((Long) row[1], s -> new BitSet(ids.length))
+                                .set(ordinal);
+                    }
+                }
+            }
+            trainers = new Trainers(generation, ids, specializationIds, ordinalByUserId, active,
+                    activeBySpecialization);
+            logger.debug("Indexed {} trainers, {} active", ids.length, active.cardinality());
+        }
+    }
+
+    /**
+     * Every trainer, active or not, that the trainee is not assigned to, in id order.
+     */
+    public List<Long> findUnassignedTrainerIds(Long traineeId) {
+        Trainers current = current();
+        BitSet all = new BitSet(current.ids.length);
+        all.set(0, current.ids.length);
+        return collect(current, unassigned(current, all, traineeId), null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Up to {@code limit} active trainers after {@code afterTrainerId} (null for the first page) that the trainee is
+     * not assigned to, in id order, optionally only of one specialization.
+     */
+    public List<Long> findUnassignedActiveTrainerIds(Long traineeId, Long specializationId, Long afterTrainerId,
+                                                     int limit) {
+        Trainers current = current();
+        BitSet wanted = specializationId == null
+                ? current.active
+                : current.activeBySpecialization.getOrDefault(specializationId, new BitSet());
+        return collect(current, unassigned(current, (BitSet) wanted.clone(), traineeId), afterTrainerId, limit);
+    }
+
+    public void invalidate(Long traineeId) {
+        synchronized (assignedByTrainee) {
+            assignmentVersion++;
+            assignedByTrainee.remove(traineeId);
+        }
+    }
+
+    public void invalidateTrainers() {
+        trainerChanges.incrementAndGet();
+    }
+
+    /**
+     * Drops the trainee's assignments now and again once the transaction completes, like
+     * {@link TrainingSearchCache#invalidateOnCompletion}.
+     */
+    public void invalidateOnCompletion(EntityManager entityManager, Long traineeId) {
+        invalidate(traineeId);
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        if (session != null) {
+            session.getActionQueue().registerProcess((success, s) -> invalidate(traineeId));
+        }
+    }
+
+    // for trainer and user writes made with bulk statements, which the listeners never see
+    public void invalidateTrainersOnCompletion(EntityManager entityManager) {
+        invalidateTrainers();
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        if (session != null) {
+            session.getActionQueue().registerProcess((success, s) -> invalidateTrainers());
+        }
+    }
+
+    // a committed status change of one user; only a trainer's changes the table, and only that trainer's bits
+    private void activationChanged(Long userId, boolean isActive) {
+        synchronized (reloadLock) {
+            Trainers current = trainers;
+            // a stale table is read again anyway, after this commit
+            if (isStale(current)) {
+                return;
+            }
+            Integer ordinal = current.ordinalByUserId.get(userId);
+            if (ordinal != null && current.active.get(ordinal) != isActive) {
+                trainers = current.withActive(ordinal, isActive);
+            }
+        }
+    }
+
+    private BitSet unassigned(Trainers current, BitSet wanted, Long traineeId) {
+        if (traineeId != null) {
+            for (long trainerId : assigned(traineeId)) {
+                int ordinal = Arrays.binarySearch(current.ids, trainerId);
+                if (ordinal >= 0) {
+                    wanted.clear(ordinal);
+                }
+            }
+        }
+        return wanted;
+    }
+
+    private static List<Long> collect(Trainers current, BitSet bits, Long afterTrainerId, int limit) {
+        int from = 0;
+        if (afterTrainerId != null) {
+            int position = Arrays.binarySearch(current.ids, afterTrainerId);
+            from = position >= 0 ? position + 1 : -position - 1;
+        }
+        List<Long> ids = new ArrayList<>(Math.min(limit, bits.cardinality()));
+        for (int ordinal = bits.nextSetBit(from); ordinal >= 0 && ids.size() < limit;
+             ordinal = bits.nextSetBit(ordinal + 1)) {
+            ids.add(current.ids[ordinal]);
+        }
+        return ids;
+    }
+
+    private long[] assigned(Long traineeId) {
+        long version;
+        synchronized (assignedByTrainee) {
+            long[] cached = assignedByTrainee.get(traineeId);
+            if (cached != null) {
+                return cached;
+            }
+            version = assignmentVersion;
+        }
+
+        List<Long> rows = entityManagerProvider.get().createQuery(
+                "SELECT t.id FROM Trainee tr JOIN tr.trainers t WHERE tr.id = :traineeId", Long.class)
+                .setParameter("traineeId", traineeId)
+                .getResultList();
+        long[] ids = new long[rows.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = rows.get(i);
+        }
+        Arrays.sort(ids);
+        synchronized (assignedByTrainee) {
+            if (assignmentVersion == version) {
+                assignedByTrainee.put(traineeId, ids);
+            }
+        }
+        return ids;
+    }
+
+    private Trainers current() {
+        Trainers current = trainers;
+        if (isStale(current)) {
+            synchronized (reloadLock) {
+                // whoever held the lock may have read the table already
+                if (isStale(trainers)) {
+                    load();
+                }
+                current = trainers;
+            }
+        }
+        return current;
+    }
+
+    private boolean isStale(Trainers current) {
+        return current == null || current.generation != trainerChanges.get();
+    }
+
+    private static final class Trainers {
+
+        private final long generation;
+        // trainer id by ordinal, ascending
+        private final long[] ids;
+        private final Long[] specializationIds;
+        private final Map<Long, Integer> ordinalByUserId;
+        private final BitSet active;
+        private final Map<Long, BitSet> activeBySpecialization;
+
+        private Trainers(long generation, long[] ids, Long[] specializationIds, Map<Long, Integer> ordinalByUserId,
+                         BitSet active, Map<Long, BitSet> activeBySpecialization) {
+            this.generation = generation;
+            this.ids = ids;
+            this.specializationIds = specializationIds;
+            this.ordinalByUserId = ordinalByUserId;
+            this.active = active;
+            this.activeBySpecialization = Collections.unmodifiableMap(activeBySpecialization);
+        }
+
+        // readers may hold this table, so only the two bitmaps that change are copied
+        private Trainers withActive(int ordinal, boolean isActive) {
+            BitSet changedActive = (BitSet) active.clone();
+            changedActive.set(ordinal, isActive);
+            Map<Long, BitSet> changedBySpecialization = new HashMap<>(activeBySpecialization);
+            Long specializationId = specializationIds[ordinal];
+            if (specializationId != null) {
+                BitSet bits = changedBySpecialization.get(specializationId);
+                bits = bits == null ? new BitSet(ids.length) : (BitSet) bits.clone();
+                bits.set(ordinal, isActive);
+                changedBySpecialization.put(specializationId, bits);
+            }
+            return new Trainers(generation, ids, specializationIds, ordinalByUserId, changedActive,
+                    changedBySpecialization);
+        }
+    }
+
+    private final class ChangeListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+            PostCommitDeleteEventListener, PostCollectionRecreateEventListener, PostCollectionUpdateEventListener,
+            PostCollectionRemoveEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            if (event.getEntity() instanceof Trainer) {
+                invalidateTrainers();
+            }
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            if (event.getEntity() instanceof Trainer) {
+                invalidateTrainers();
+            } else if (event.getEntity() instanceof User) {
+                Boolean isActive = changedActivation(event);
+                if (isActive != null) {
+                    activationChanged((Long) event.getId(), isActive);
+                }
+            }
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            if (event.getEntity() instanceof Trainer) {
+                invalidateTrainers();
+            } else if (event.getEntity() instanceof Trainee) {
+                invalidate((Long) event.getId());
+            }
+        }
+
+        @Override
+        public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+            assignmentsChanged(event);
+        }
+
+        @Override
+        public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+            assignmentsChanged(event);
+        }
+
+        @Override
+        public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+            assignmentsChanged(event);
+        }
+
+        private void assignmentsChanged(AbstractCollectionEvent event) {
+            Object traineeId = event.getAffectedOwnerIdOrNull();
+            if (TRAINERS_ROLE.equals(event.getCollection().getRole()) && traineeId != null) {
+                Long id = (Long) traineeId;
+                invalidate(id);
+                event.getSession().getActionQueue().registerProcess((success, s) -> invalidate(id));
+            }
+        }
+
+        // the user's new status when the update changed it, null otherwise
+        private Boolean changedActivation(PostUpdateEvent event) {
+            if (event.getDirtyProperties() == null) {
+                return null;
+            }
+            String[] names = event.getPersister().getPropertyNames();
+            for (int property : event.getDirtyProperties()) {
+                if ("isActive".equals(names[property])) {
+                    return Boolean.TRUE.equals(event.getState()[property]);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {
+        }
+
+        @Override
+        public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        }
+
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            Class<?> type = persister.getMappedClass();
+            return type == Trainer.class || type == Trainee.class || type == User.class;
+        }
+    }
+}
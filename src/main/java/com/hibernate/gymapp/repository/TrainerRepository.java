@@ -1,10 +1,13 @@
 package com.hibernate.gymapp.repository;
 
+import com.hibernate.gymapp.dto.TrainingSummary;
 import com.hibernate.gymapp.model.Trainer;
 import com.hibernate.gymapp.model.Training;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface TrainerRepository {
@@ -13,15 +16,67 @@ public interface TrainerRepository {
 
     Optional<Trainer> findById(Long id);
 
+    Optional<Trainer> findById(Long id, FetchPlan<Trainer> plan);
+
     List<Trainer> findAll();
 
     void delete(Trainer trainer);
 
+    // marks the trainer's user deleted and inactive; the trainer is hidden from every query until PurgeWorker removes it
+    boolean softDelete(Trainer trainer);
+
     Optional<Trainer> findByUsername(String username);
 
+    Optional<Trainer> findByUsername(String username, FetchPlan<Trainer> plan);
+
+    Optional<Trainer> findByUserId(Long userId);
+
+    // username -> trainer id for the usernames that belong to a trainer, in one query
+    Map<String, Long> findIdsByUsernames(Collection<String> usernames);
+
     List<Training> findTrainingsByTrainerUsernameWithCriteria(String trainerUsername,
                                                      LocalDate fromDate,
                                                      LocalDate toDate,
                                                      String traineeName,
                                                      String trainingTypeName);
+
+    List<Training> findTrainingsByTrainerUsernameWithCriteria(String trainerUsername,
+                                                     LocalDate fromDate,
+                                                     LocalDate toDate,
+                                                     String traineeName,
+                                                     String trainingTypeName,
+                                                     FetchPlan<Training> plan);
+
+    // newest first, keyset-paginated on (training date, id); cursor is the previous page's next cursor, or null
+    Page<Training> findTrainingPageByTrainerUsernameWithCriteria(String trainerUsername,
+                                                                 LocalDate fromDate,
+                                                                 LocalDate toDate,
+                                                                 String traineeName,
+                                                                 String trainingTypeName,
+                                                                 String cursor,
+                                                                 int pageSize);
+
+    Page<Training> findTrainingPageByTrainerUsernameWithCriteria(String trainerUsername,
+                                                                 LocalDate fromDate,
+                                                                 LocalDate toDate,
+                                                                 String traineeName,
+                                                                 String trainingTypeName,
+                                                                 String cursor,
+                                                                 int pageSize,
+                                                                 FetchPlan<Training> plan);
+
+    // read-only rows with the names already resolved, in one statement; nothing is attached to the persistence context
+    List<TrainingSummary> findTrainingSummariesByTrainerUsernameWithCriteria(String trainerUsername,
+                                                                       LocalDate fromDate,
+                                                                       LocalDate toDate,
+                                                                       String traineeName,
+                                                                       String trainingTypeName);
+
+    Page<TrainingSummary> findTrainingSummaryPageByTrainerUsernameWithCriteria(String trainerUsername,
+                                                                         LocalDate fromDate,
+                                                                         LocalDate toDate,
+                                                                         String traineeName,
+                                                                         String trainingTypeName,
+                                                                         String cursor,
+                                                                         int pageSize);
 }
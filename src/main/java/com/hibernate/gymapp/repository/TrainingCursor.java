@@ -0,0 +1,43 @@
+package com.hibernate.gymapp.repository;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a training history ordered by (training date, id), newest first: the key of the last row served.
+ * Callers only see the encoded form, so the key can change without breaking them.
+ */
+@Getter
+public final class TrainingCursor {
+
+    private static final String VERSION = "1";
+
+    private final LocalDate trainingDate;
+    private final Long id;
+
+    public TrainingCursor(LocalDate trainingDate, Long id) {
+        this.trainingDate = trainingDate;
+        this.id = id;
+    }
+
+    public String encode() {
+        String key = VERSION + ":" + trainingDate + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public static TrainingCursor decode(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII).split(":");
+            if (parts.length == 3 && VERSION.equals(parts[0])) {
+                return new TrainingCursor(LocalDate.parse(parts[1]), Long.valueOf(parts[2]));
+            }
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page cursor: " + cursor, e);
+        }
+        throw new IllegalArgumentException("Invalid page cursor: " + cursor);
+    }
+}
@@ -12,6 +12,8 @@ public interface TrainingRepository {
 
     Optional<Training> findById(Long id);
 
+    Optional<Training> findById(Long id, FetchPlan<Training> plan);
+
     List<Training> findAll();
 
     void delete(Training training);
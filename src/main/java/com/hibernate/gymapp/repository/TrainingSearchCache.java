@@ -0,0 +1,294 @@
+package com.hibernate.gymapp.repository;
+
+import jakarta.persistence.EntityManager;
+import lombok.Getter;
+import org.hibernate.engine.spi.SessionImplementor;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of training history search results, evicting by size and by TTL. Entries hold only the ids of
+ * the matching trainings, in result order, and are dropped when a training of their trainee or trainer is written.
+ */
+public class TrainingSearchCache {
+
+    public static final int DEFAULT_MAX_SIZE = 10_000;
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+
+    public enum Side {
+        TRAINEE, TRAINER
+    }
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<Key, Entry> entries;
+    private final Map<Owner, Set<Key>> keysByOwner = new HashMap<>();
+    private final Set<Key> nameFilteredKeys = new HashSet<>();
+
+    /*
+     * Bumped by every invalidation; a result read before a write commits must not be stored after it. A rename only
+     * bumps nameVersion, which results without a name filter do not depend on.
+     */
+    private int ownerVersion;
+    private int nameVersion;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public TrainingSearchCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_TTL);
+    }
+
+    public TrainingSearchCache(int maxSize, Duration ttl) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Cache TTL must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > TrainingSearchCache.this.maxSize) {
+                    unindex(eldest.getKey());
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static Key key(Side side, Long ownerId, LocalDate fromDate, LocalDate toDate,
+                          String nameFilter, Long trainingTypeId) {
+        String name = nameFilter == null || nameFilter.trim().isEmpty()
+                ? null : nameFilter.trim().toLowerCase(Locale.ROOT);
+        return new Key(new Owner(side, ownerId), fromDate, toDate, name, trainingTypeId);
+    }
+
+    // both versions, owner in the high half; to be taken before the query runs and handed to put
+    public synchronized long version() {
+        return (long) ownerVersion << 32 | (nameVersion & 0xFFFFFFFFL);
+    }
+
+    public synchronized Optional<List<Long>> get(Key key) {
+        Entry entry = entries.get(key);
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+
+        if (System.nanoTime() - entry.expiresAtNanos >= 0) {
+            entries.remove(key);
+            unindex(key);
+            evictions.incrementAndGet();
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+
+        hits.incrementAndGet();
+        return Optional.of(entry.trainingIds);
+    }
+
+    /**
+     * Stores a result unless something was invalidated since {@code readVersion}, taken before the query ran.
+     */
+    public synchronized void put(Key key, List<Long> trainingIds, long readVersion) {
+        if ((int) (readVersion >>> 32) != ownerVersion
+                || key.nameFilter != null && (int) readVersion != nameVersion) {
+            return;
+        }
+        entries.put(key, new Entry(Collections.unmodifiableList(trainingIds), System.nanoTime() + ttlNanos));
+        keysByOwner.computeIfAbsent(key.owner, owner -> new HashSet<>()).add(key);
+        if (key.nameFilter != null) {
+            nameFilteredKeys.add(key);
+        }
+    }
+
+    public synchronized void invalidate(Side side, Long ownerId) {
+        ownerVersion++;
+        Set<Key> keys = keysByOwner.remove(new Owner(side, ownerId));
+        if (keys != null) {
+            entries.keySet().removeAll(keys);
+            nameFilteredKeys.removeAll(keys);
+            invalidations.addAndGet(keys.size());
+        }
+    }
+
+    // a renamed user changes which rows match any name filter, wherever the user appears
+    public synchronized void invalidateNameFiltered() {
+        nameVersion++;
+        for (Key key : nameFilteredKeys) {
+            entries.remove(key);
+            unindexOwner(key);
+        }
+        invalidations.addAndGet(nameFilteredKeys.size());
+        nameFilteredKeys.clear();
+    }
+
+    public synchronized void invalidateAll() {
+        ownerVersion++;
+        nameVersion++;
+        invalidations.addAndGet(entries.size());
+        entries.clear();
+        keysByOwner.clear();
+        nameFilteredKeys.clear();
+    }
+
+    /**
+     * Invalidates now, so this transaction does not read its own stale entries, and again once the transaction
+     * completes, dropping whatever concurrent readers stored from the data as it was before the commit.
+     */
+    public void invalidateOnCompletion(EntityManager entityManager, Side side, Long ownerId) {
+        if (ownerId != null) {
+            nowAndOnCompletion(entityManager, () -> invalidate(side, ownerId));
+        }
+    }
+
+    public void invalidateNameFilteredOnCompletion(EntityManager entityManager) {
+        nowAndOnCompletion(entityManager, this::invalidateNameFiltered);
+    }
+
+    private static void nowAndOnCompletion(EntityManager entityManager, Runnable invalidation) {
+        invalidation.run();
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        if (session != null) {
+            session.getActionQueue().registerProcess((success, s) -> invalidation.run());
+        }
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits.get(), misses.get(), evictions.get(), invalidations.get(), entries.size(), maxSize);
+    }
+
+    private void unindex(Key key) {
+        nameFilteredKeys.remove(key);
+        unindexOwner(key);
+    }
+
+    private void unindexOwner(Key key) {
+        Set<Key> keys = keysByOwner.get(key.owner);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            keysByOwner.remove(key.owner);
+        }
+    }
+
+    private static final class Owner {
+
+        private final Side side;
+        private final Long id;
+
+        private Owner(Side side, Long id) {
+            this.side = side;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Owner)) {
+                return false;
+            }
+            Owner other = (Owner) o;
+            return side == other.side && Objects.equals(id, other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * side.hashCode() + Objects.hashCode(id);
+        }
+    }
+
+    public static final class Key {
+
+        private final Owner owner;
+        private final LocalDate fromDate;
+        private final LocalDate toDate;
+        private final String nameFilter;
+        private final Long trainingTypeId;
+
+        private Key(Owner owner, LocalDate fromDate, LocalDate toDate, String nameFilter, Long trainingTypeId) {
+            this.owner = owner;
+            this.fromDate = fromDate;
+            this.toDate = toDate;
+            this.nameFilter = nameFilter;
+            this.trainingTypeId = trainingTypeId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return owner.equals(other.owner)
+                    && Objects.equals(fromDate, other.fromDate)
+                    && Objects.equals(toDate, other.toDate)
+                    && Objects.equals(nameFilter, other.nameFilter)
+                    && Objects.equals(trainingTypeId, other.trainingTypeId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(owner, fromDate, toDate, nameFilter, trainingTypeId);
+        }
+    }
+
+    private static final class Entry {
+
+        private final List<Long> trainingIds;
+        private final long expiresAtNanos;
+
+        private Entry(List<Long> trainingIds, long expiresAtNanos) {
+            this.trainingIds = trainingIds;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    @Getter
+    public static final class Stats {
+
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long invalidations;
+        private final int size;
+        private final int maxSize;
+
+        private Stats(long hits, long misses, long evictions, long invalidations, int size, int maxSize) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+            this.size = size;
+            this.maxSize = maxSize;
+        }
+
+        public double getHitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return "TrainingSearchCache.Stats{hits=" + hits + ", misses=" + misses + ", evictions=" + evictions
+                    + ", invalidations=" + invalidations + ", size=" + size + "/" + maxSize + "}";
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.hibernate.gymapp.repository;
+
+import com.hibernate.gymapp.model.TrainingType;
+import com.hibernate.gymapp.transaction.EntityManagerProvider;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Training type ids by name, case-insensitive. The table is tiny and almost static, so it is read into an immutable
+ * snapshot and read again only after a training type was written, or when an unknown name is asked for.
+ * Loading uses the EntityManager of the current unit of work.
+ */
+public class TrainingTypeRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrainingTypeRegistry.class);
+
+    // an unknown name reloads at most this often, in case another node added the type
+    private static final long MISS_RELOAD_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // bumped by every committed training type write
+    private final AtomicLong changes = new AtomicLong();
+
+    private final EntityManagerProvider entityManagerProvider;
+    private volatile Snapshot snapshot;
+
+    public TrainingTypeRegistry(EntityManagerProvider entityManagerProvider) {
+        this.entityManagerProvider = entityManagerProvider;
+    }
+
+    /**
+     * Reloads on the next lookup after a training type is inserted, updated or deleted through this factory and its
+     * transaction commits, so a rolled back write does not reload for nothing and a reload never misses a commit.
+     */
+    public TrainingTypeRegistry attach(EntityManagerFactory entityManagerFactory) {
+        EventListenerRegistry listeners = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        ChangeListener listener = new ChangeListener();
+        listeners.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        listeners.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        listeners.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+        return this;
+    }
+
+    // the next lookup reads the table again
+    public void invalidate() {
+        changes.incrementAndGet();
+    }
+
+    public void load() {
+        long generation = changes.get();
+        List<Object[]> rows = entityManagerProvider.get().createQuery(
+                "SELECT t.id, t.trainingTypeName FROM TrainingType t", Object[].class).getResultList();
+
+        Map<String, Long> idsByName = new HashMap<>();
+        Map<Long, String> namesById = new HashMap<>();
+        for (Object[] row : rows) {
+            idsByName.put(normalize((String) row[1]), (Long) row[0]);
+            namesById.put((Long) row[0], (String) row[1]);
+        }
+        snapshot = new Snapshot(generation, idsByName, namesById);
+        logger.debug("Loaded {} training types", rows.size());
+    }
+
+    public Optional<Long> findIdByName(String trainingTypeName) {
+        if (trainingTypeName == null || trainingTypeName.trim().isEmpty()) {
+            return Optional.empty();
+        }
+        String key = normalize(trainingTypeName);
+        Snapshot current = current();
+        Long id = current.idsByName.get(key);
+        if (id == null && System.nanoTime() - current.loadedAtNanos > MISS_RELOAD_INTERVAL_NANOS) {
+            load();
+            id = snapshot.idsByName.get(key);
+        }
+        return Optional.ofNullable(id);
+    }
+
+    public Optional<String> findNameById(Long id) {
+        return Optional.ofNullable(current().namesById.get(id));
+    }
+
+    public Map<String, Long> getIdsByName() {
+        return current().idsByName;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null || current.generation != changes.get()) {
+            load();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    private static String normalize(String trainingTypeName) {
+        return trainingTypeName.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Snapshot {
+
+        private final long generation;
+        private final long loadedAtNanos = System.nanoTime();
+        private final Map<String, Long> idsByName;
+        private final Map<Long, String> namesById;
+
+        private Snapshot(long generation, Map<String, Long> idsByName, Map<Long, String> namesById) {
+            this.generation = generation;
+            this.idsByName = Collections.unmodifiableMap(idsByName);
+            this.namesById = Collections.unmodifiableMap(namesById);
+        }
+    }
+
+    private final class ChangeListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+            PostCommitDeleteEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            invalidate();
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            invalidate();
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            invalidate();
+        }
+
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {
+        }
+
+        @Override
+        public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        }
+
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return persister.getMappedClass() == TrainingType.class;
+        }
+    }
+}
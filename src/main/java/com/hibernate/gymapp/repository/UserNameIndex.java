@@ -0,0 +1,249 @@
+package com.hibernate.gymapp.repository;
+
+import com.hibernate.gymapp.model.User;
+import com.hibernate.gymapp.transaction.EntityManagerProvider;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index over user names, answering the case-insensitive "part of first name, last name or
+ * 'first last'" match of the training searches with user ids, so the database filters by id instead of running
+ * LIKE '%x%' over every joined user. Candidates from the trigram postings are checked against the full name, so the
+ * result is exact. Loaded once with {@link #load()} and kept current by Hibernate post-commit listeners, so rolled
+ * back writes never reach it.
+ * <p>
+ * Only writes made through this node's EntityManagerFactory reach the listeners. Users added, renamed or deleted by
+ * another application node, or in the database directly, leave name filtering wrong on this node, missing or
+ * matching the wrong users, until it restarts and loads again. Deployments with more than one writer have to
+ * reload it themselves or run the searches without the index.
+ */
+public class UserNameIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserNameIndex.class);
+
+    private static final int GRAM = 3;
+
+    private final EntityManagerProvider entityManagerProvider;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // "first last", lower-cased, per user id
+    private final Map<Long, String> namesById = new HashMap<>();
+    private final Map<String, Set<Long>> idsByGram = new HashMap<>();
+
+    public UserNameIndex(EntityManagerProvider entityManagerProvider) {
+        this.entityManagerProvider = entityManagerProvider;
+    }
+
+    /**
+     * Keeps the index current with users inserted, renamed or deleted through this factory, once their transaction
+     * commits.
+     */
+    public UserNameIndex attach(EntityManagerFactory entityManagerFactory) {
+        EventListenerRegistry listeners = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        ChangeListener listener = new ChangeListener();
+        listeners.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        listeners.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        listeners.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+        return this;
+    }
+
+    public void load() {
+        List<Object[]> rows = entityManagerProvider.get().createQuery(
+                "SELECT u.id, u.firstName, u.lastName FROM User u", Object[].class).getResultList();
+
+        lock.writeLock().lock();
+        try {
+            namesById.clear();
+            idsByGram.clear();
+            for (Object[] row : rows) {
+                index((Long) row[0], name((String) row[1], (String) row[2]));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.debug("Indexed {} user names", rows.size());
+    }
+
+    public void put(Long userId, String firstName, String lastName) {
+        String name = name(firstName, lastName);
+        lock.writeLock().lock();
+        try {
+            if (name.equals(namesById.get(userId))) {
+                return;
+            }
+            unindex(userId);
+            index(userId, name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long userId) {
+        lock.writeLock().lock();
+        try {
+            unindex(userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the users whose first name, last name or "first last" contains {@code query}, ignoring case.
+     */
+    public Set<Long> findUserIds(String query) {
+        String needle = query.trim().toLowerCase(Locale.ROOT);
+        lock.readLock().lock();
+        try {
+            return needle.length() < GRAM ? scan(needle) : lookup(needle);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return namesById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // every gram of the query must be in the name; intersect from the rarest posting, then confirm the substring
+    private Set<Long> lookup(String needle) {
+        List<Set<Long>> postings = new ArrayList<>();
+        for (String gram : grams(needle)) {
+            Set<Long> ids = idsByGram.get(gram);
+            if (ids == null) {
+                return Collections.emptySet();
+            }
+            postings.add(ids);
+        }
+        postings.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+        Set<Long> matches = new HashSet<>();
+        candidates:
+        for (Long id : postings.get(0)) {
+            for (int i = 1; i < postings.size(); i++) {
+                if (!postings.get(i).contains(id)) {
+                    continue candidates;
+                }
+            }
+            if (namesById.get(id).contains(needle)) {
+                matches.add(id);
+            }
+        }
+        return matches;
+    }
+
+    // shorter than a gram: nothing to look up, but the names are in memory
+    private Set<Long> scan(String needle) {
+        Set<Long> matches = new HashSet<>();
+        for (Map.Entry<Long, String> entry : namesById.entrySet()) {
+            if (entry.getValue().contains(needle)) {
+                matches.add(entry.getKey());
+            }
+        }
+        return matches;
+    }
+
+    private void index(Long userId, String name) {
+        namesById.put(userId, name);
+        for (String gram : grams(name)) {
+            idsByGram.computeIfAbsent(gram, g -> new HashSet<>()).add(userId);
+        }
+    }
+
+    private void unindex(Long userId) {
+        String name = namesById.remove(userId);
+        if (name == null) {
+            return;
+        }
+        for (String gram : grams(name)) {
+            Set<Long> ids = idsByGram.get(gram);
+            if (ids != null && ids.remove(userId) && ids.isEmpty()) {
+                idsByGram.remove(gram);
+            }
+        }
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static String name(String firstName, String lastName) {
+        return (firstName + " " + lastName).toLowerCase(Locale.ROOT);
+    }
+
+    private final class ChangeListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+            PostCommitDeleteEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            if (event.getEntity() instanceof User) {
+                User user = (User) event.getEntity();
+                put(user.getId(), user.getFirstName(), user.getLastName());
+            }
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            if (event.getEntity() instanceof User) {
+                User user = (User) event.getEntity();
+                put(user.getId(), user.getFirstName(), user.getLastName());
+            }
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            if (event.getEntity() instanceof User) {
+                remove((Long) event.getId());
+            }
+        }
+
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {
+        }
+
+        @Override
+        public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        }
+
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return persister.getMappedClass() == User.class;
+        }
+    }
+}
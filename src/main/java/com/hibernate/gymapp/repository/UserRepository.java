@@ -2,6 +2,8 @@ package com.hibernate.gymapp.repository;
 
 import com.hibernate.gymapp.model.User;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,7 +15,27 @@ public interface UserRepository {
 
     Optional<User> findByUsername(String username);
 
+    /*
+     * Reserves the next free username for baseUsername: the bare name first, then baseUsername1, baseUsername2, ...
+     * The suffix comes from the base name's username_suffixes row, locked until the transaction ends, so concurrent
+     * registrations of the same name queue instead of colliding and no lookup scans the existing duplicates.
+     */
+    String reserveUsername(String baseUsername);
+
+    // same for many base names, one locking select per batch of them; duplicates get consecutive suffixes, in order
+    List<String> reserveUsernames(List<String> baseUsernames);
+
     List<User> findAll();
 
     void delete(User user);
+
+    // sets is_active with one UPDATE per large batch of usernames; returns how many users changed status
+    int updateActiveByUsernames(Collection<String> usernames, boolean active);
+
+    /*
+     * Sets is_active for every user without a training, as trainee or as trainer, on or after since, and returns the
+     * usernames of the users whose status changed. They are selected and locked in one statement and updated by id,
+     * so the usernames are exactly the users the update changed.
+     */
+    List<String> updateActiveWithoutTrainingSince(LocalDate since, boolean active);
 }
@@ -0,0 +1,161 @@
+package com.hibernate.gymapp.repository.impl;
+
+import com.hibernate.gymapp.model.User;
+import com.hibernate.gymapp.repository.UserNameIndex;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
+import org.hibernate.cache.spi.access.NaturalIdDataAccess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.query.NativeQuery;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Steps shared by the trainee and trainer profile removals. Their statements run outside the persistence context,
+ * so the second-level cache and the in-memory indexes are brought up to date here rather than by Hibernate events.
+ * Only User carries the soft-delete restriction; trainee and trainer lookups that do not go through it check the
+ * user here.
+ */
+final class ProfileRemoval {
+
+    // an already deleted user is not marked twice
+    private static final String MARK_USER_DELETED =
+            "UPDATE users SET is_active = false, deleted_at = :deletedAt WHERE id = :userId AND deleted_at IS NULL";
+
+    // no entity maps to it, so Hibernate evicts no cache region for the statements; rows are evicted by id instead
+    private static final String QUERY_SPACE = "profile_removal";
+
+    private ProfileRemoval() {
+    }
+
+    // nothing of the old profile may be flushed after the bulk statements
+    static void detach(EntityManager entityManager, Object profile, User user) {
+        entityManager.detach(profile);
+        if (entityManager.contains(user)) {
+            entityManager.detach(user);
+        }
+    }
+
+    static NativeQuery<?> statement(EntityManager entityManager, String sql) {
+        return entityManager.createNativeQuery(sql).unwrap(NativeQuery.class).addSynchronizedQuerySpace(QUERY_SPACE);
+    }
+
+    static boolean markUserDeleted(EntityManager entityManager, User user) {
+        Long userId = user.getId();
+        // read before the update, which hides the row from the users restriction
+        String username = username(entityManager, user);
+
+        int updated = statement(entityManager, MARK_USER_DELETED)
+                .setParameter("deletedAt", LocalDateTime.now())
+                .setParameter("userId", userId)
+                .executeUpdate();
+        if (updated == 0) {
+            return false;
+        }
+        evictUserOnCompletion(entityManager, userId, username);
+        return true;
+    }
+
+    static boolean deleteUser(EntityManager entityManager, User user) {
+        Long userId = user.getId();
+        String username = username(entityManager, user);
+
+        int deleted = statement(entityManager, "DELETE FROM users WHERE id = :userId")
+                .setParameter("userId", userId)
+                .executeUpdate();
+        if (deleted == 0) {
+            return false;
+        }
+        evictUserOnCompletion(entityManager, userId, username);
+        return true;
+    }
+
+    private static String username(EntityManager entityManager, User user) {
+        if (Hibernate.isInitialized(user)) {
+            return user.getUsername();
+        }
+        List<?> usernames = entityManager.createNativeQuery("SELECT username FROM users WHERE id = :userId")
+                .setParameter("userId", user.getId())
+                .getResultList();
+        return usernames.isEmpty() ? null : (String) usernames.get(0);
+    }
+
+    /*
+     * Whether a trainee or trainer loaded by id or natural id belongs to a user that was not soft-deleted. Marking a
+     * user deleted evicts it, so a cached user is live and the check costs no SQL on a warm cache.
+     */
+    static boolean hasLiveUser(EntityManager entityManager, User user) {
+        if (user == null) {
+            return false;
+        }
+        if (Hibernate.isInitialized(user)) {
+            return user.getDeletedAt() == null;
+        }
+        return entityManager.getEntityManagerFactory().getCache().contains(User.class, user.getId())
+                || !entityManager.createQuery(
+                        "SELECT u.id FROM User u WHERE u.id = :userId AND u.deletedAt IS NULL", Long.class)
+                .setParameter("userId", user.getId())
+                .getResultList().isEmpty();
+    }
+
+    // assignment collections are not restricted either, so a deleted profile leaves them at once rather than at purge
+    static void removeAssignments(EntityManager entityManager, String column, Long profileId) {
+        statement(entityManager, "DELETE FROM trainee_trainer WHERE " + column + " = :profileId")
+                .setParameter("profileId", profileId)
+                .executeUpdate();
+    }
+
+    // the cached user and its username lookup, which both bypass the users restriction
+    private static void evictUserOnCompletion(EntityManager entityManager, Long userId, String username) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(User.class);
+        NaturalIdDataAccess naturalIds = persister.getNaturalIdCacheAccessStrategy();
+        Object naturalIdKey = naturalIds == null ? null : naturalIds.generateCacheKey(username, persister, session);
+
+        Runnable eviction = () -> {
+            entityManager.getEntityManagerFactory().getCache().evict(User.class, userId);
+            if (naturalIdKey != null) {
+                naturalIds.evict(naturalIdKey);
+            }
+        };
+        eviction.run();
+        session.getActionQueue().registerProcess((success, s) -> eviction.run());
+    }
+
+    // a profile read by id is served from the cache without the users restriction, so it is dropped by hand
+    static void evictOnCompletion(EntityManager entityManager, Class<?> type, Long id) {
+        evictOnCompletion(entityManager, type, Collections.singletonList(id));
+    }
+
+    static void evictOnCompletion(EntityManager entityManager, Class<?> type, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        Runnable eviction = () -> {
+            for (Long id : ids) {
+                cache.evict(type, id);
+            }
+        };
+        eviction.run();
+        entityManager.unwrap(SessionImplementor.class).getActionQueue()
+                .registerProcess((success, session) -> eviction.run());
+    }
+
+    // post-commit listeners do not see bulk statements
+    static void removeNameOnCompletion(EntityManager entityManager, UserNameIndex userNameIndex, Long userId) {
+        if (userNameIndex == null) {
+            return;
+        }
+        entityManager.unwrap(SessionImplementor.class).getActionQueue().registerProcess((success, session) -> {
+            if (success) {
+                userNameIndex.remove(userId);
+            }
+        });
+    }
+}
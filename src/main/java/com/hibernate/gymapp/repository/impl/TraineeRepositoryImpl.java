@@ -1,116 +1,568 @@
 package com.hibernate.gymapp.repository.impl;
 
+import com.hibernate.gymapp.dto.TrainingSummary;
 import com.hibernate.gymapp.model.Trainee;
 import com.hibernate.gymapp.model.Trainer;
 import com.hibernate.gymapp.model.Training;
+import com.hibernate.gymapp.model.User;
+import com.hibernate.gymapp.repository.FetchPlan;
+import com.hibernate.gymapp.repository.Page;
 import com.hibernate.gymapp.repository.TraineeRepository;
+import com.hibernate.gymapp.repository.TrainerAssignmentIndex;
+import com.hibernate.gymapp.repository.TrainingCursor;
+import com.hibernate.gymapp.repository.TrainingSearchCache;
+import com.hibernate.gymapp.repository.TrainingTypeRegistry;
+import com.hibernate.gymapp.repository.UserNameIndex;
+import com.hibernate.gymapp.transaction.EntityManagerProvider;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public class TraineeRepositoryImpl implements TraineeRepository {
 
-    private final EntityManager entityManager;
+    // trainer ids per statement, keeping IN lists well under driver parameter limits
+    static final int ASSIGNMENT_BATCH_SIZE = 500;
 
+    // inserts only trainers that exist and are not assigned yet, so repeating a call changes nothing
+    private static final String ASSIGN_SQL =
+            "INSERT INTO trainee_trainer (trainee_id, trainer_id) " +
+            "SELECT :traineeId, t.id FROM trainers t " +
+            "WHERE t.id IN (:trainerIds) " +
+            "  AND NOT EXISTS (SELECT 1 FROM trainee_trainer tt " +
+            "                  WHERE tt.trainee_id = :traineeId AND tt.trainer_id = t.id)";
+
+    private static final String UNASSIGN_SQL =
+            "DELETE FROM trainee_trainer WHERE trainee_id = :traineeId AND trainer_id IN (:trainerIds)";
+
+    // active trainers the trainee is not assigned to, in id order; one fixed string per combination of the filters
+    private static final String UNASSIGNED_ACTIVE_TRAINERS =
+            "SELECT t.id FROM Trainer t WHERE t.user.isActive = true " +
+            "AND NOT EXISTS (SELECT 1 FROM Trainee tr JOIN tr.trainers trn WHERE trn = t AND tr.id = :traineeId)";
+    private static final String BY_SPECIALIZATION = " AND t.specialization.id = :specializationId";
+    private static final String AFTER_TRAINER = " AND t.id > :after";
+    private static final String BY_TRAINER_ID = " ORDER BY t.id";
+
+    private static final String UNASSIGNED_ACTIVE_TRAINERS_JPQL =
+            UNASSIGNED_ACTIVE_TRAINERS + BY_TRAINER_ID;
+    private static final String UNASSIGNED_ACTIVE_TRAINERS_AFTER_JPQL =
+            UNASSIGNED_ACTIVE_TRAINERS + AFTER_TRAINER + BY_TRAINER_ID;
+    private static final String UNASSIGNED_ACTIVE_TRAINERS_BY_SPECIALIZATION_JPQL =
+            UNASSIGNED_ACTIVE_TRAINERS + BY_SPECIALIZATION + BY_TRAINER_ID;
+    private static final String UNASSIGNED_ACTIVE_TRAINERS_BY_SPECIALIZATION_AFTER_JPQL =
+            UNASSIGNED_ACTIVE_TRAINERS + BY_SPECIALIZATION + AFTER_TRAINER + BY_TRAINER_ID;
+
+    private final EntityManagerProvider entityManagerProvider;
+    private final TrainingTypeRegistry trainingTypeRegistry;
+    private final TrainingSearchCache searchCache;
+    private final UserNameIndex userNameIndex;
+    private final TrainerAssignmentIndex assignmentIndex;
+
+    public TraineeRepositoryImpl(EntityManagerProvider entityManagerProvider) {
+        this(entityManagerProvider, new TrainingTypeRegistry(entityManagerProvider), null);
+    }
+
+    // searchCache may be null; it is only safe when shared with the TrainingRepository that invalidates it
+    public TraineeRepositoryImpl(EntityManagerProvider entityManagerProvider, TrainingTypeRegistry trainingTypeRegistry,
+                                 TrainingSearchCache searchCache) {
+        this(entityManagerProvider, trainingTypeRegistry, searchCache, null);
+    }
+
+    // without a userNameIndex, name filters are matched by the query itself
+    public TraineeRepositoryImpl(EntityManagerProvider entityManagerProvider, TrainingTypeRegistry trainingTypeRegistry,
+                                 TrainingSearchCache searchCache, UserNameIndex userNameIndex) {
+        this(entityManagerProvider, trainingTypeRegistry, searchCache, userNameIndex, null);
+    }
+
+    // without an assignmentIndex, unassigned trainers are found by a NOT EXISTS query
+    public TraineeRepositoryImpl(EntityManagerProvider entityManagerProvider, TrainingTypeRegistry trainingTypeRegistry,
+                                 TrainingSearchCache searchCache, UserNameIndex userNameIndex,
+                                 TrainerAssignmentIndex assignmentIndex) {
+        this.entityManagerProvider = entityManagerProvider;
+        this.trainingTypeRegistry = trainingTypeRegistry;
+        this.searchCache = searchCache;
+        this.userNameIndex = userNameIndex;
+        this.assignmentIndex = assignmentIndex;
+    }
+
+    // single-threaded use, e.g. tests and scripts that manage one EntityManager themselves
     public TraineeRepositoryImpl(EntityManager entityManager) {
-        this.entityManager = entityManager;
+        this(() -> entityManager);
     }
 
     @Override
     public Trainee save(Trainee trainee) {
         if (trainee.getId() == null) {
-            entityManager.persist(trainee);
+            entityManager().persist(trainee);
             return trainee;
         }
-        return entityManager.merge(trainee);
+        return entityManager().merge(trainee);
     }
 
     @Override
     public Optional<Trainee> findById(Long id) {
-        return Optional.ofNullable(entityManager.find(Trainee.class, id));
+        EntityManager entityManager = entityManager();
+        return Optional.ofNullable(entityManager.find(Trainee.class, id))
+                .filter(trainee -> ProfileRemoval.hasLiveUser(entityManager, trainee.getUser()));
+    }
+
+    @Override
+    public Optional<Trainee> findById(Long id, FetchPlan<Trainee> plan) {
+        if (plan == null) {
+            return findById(id);
+        }
+        EntityManager entityManager = entityManager();
+        return Optional.ofNullable(entityManager.find(Trainee.class, id, plan.findHints(entityManager)))
+                .filter(trainee -> ProfileRemoval.hasLiveUser(entityManager, trainee.getUser()));
     }
 
     @Override
     public Optional<Trainee> findByUsername(String username) {
+        // user and trainee both resolve through natural id caches, a warm lookup issues no SQL
+        Session session = entityManager().unwrap(Session.class);
+        return session.bySimpleNaturalId(User.class).loadOptional(username)
+                .flatMap(user -> session.bySimpleNaturalId(Trainee.class).loadOptional(user));
+    }
+
+    @Override
+    public Optional<Trainee> findByUsername(String username, FetchPlan<Trainee> plan) {
+        if (plan == null) {
+            return findByUsername(username);
+        }
+        // the graph has to ride on a query; natural id loads take no fetch plan
+        EntityManager entityManager = entityManager();
         TypedQuery<Trainee> query = entityManager.createQuery(
-                "SELECT tr FROM Trainee tr WHERE tr.user.username = :username", Trainee.class
-        );
+                "SELECT t FROM Trainee t WHERE t.user.username = :username", Trainee.class);
         query.setParameter("username", username);
-        return query.getResultStream().findFirst();
+        return FetchPlan.apply(query, plan, entityManager).getResultStream().findFirst();
+    }
+
+    @Override
+    public Optional<Trainee> findByUserId(Long userId) {
+        EntityManager entityManager = entityManager();
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(Trainee.class)
+                .loadOptional(entityManager.getReference(User.class, userId))
+                .filter(trainee -> ProfileRemoval.hasLiveUser(entityManager, trainee.getUser()));
+    }
+
+    @Override
+    public Map<String, Long> findIdsByUsernames(Collection<String> usernames) {
+        Map<String, Long> ids = new HashMap<>();
+        if (usernames.isEmpty()) {
+            return ids;
+        }
+
+        TypedQuery<Object[]> query = entityManager().createQuery(
+                "SELECT u.username, tr.id FROM Trainee tr JOIN tr.user u "
+                        + "WHERE u.username IN :usernames AND u.deletedAt IS NULL",
+                Object[].class
+        );
+        query.setParameter("usernames", usernames);
+
+        for (Object[] row : query.getResultList()) {
+            ids.put((String) row[0], (Long) row[1]);
+        }
+        return ids;
     }
 
     @Override
     public List<Trainee> findAll() {
-        TypedQuery<Trainee> query = entityManager.createQuery("SELECT tr FROM Trainee tr", Trainee.class);
+        TypedQuery<Trainee> query = entityManager().createQuery(
+                "SELECT tr FROM Trainee tr JOIN tr.user u WHERE u.deletedAt IS NULL", Trainee.class);
         return query.getResultList();
     }
 
     @Override
-    public void delete(Trainee trainee) {
-        if (!entityManager.contains(trainee)) {
-            trainee = entityManager.merge(trainee);
+    public boolean deleteProfile(Trainee trainee) {
+        EntityManager entityManager = entityManager();
+        Long traineeId = trainee.getId();
+        User user = trainee.getUser();
+        Long userId = user.getId();
+
+        // the trainings to evict and the trainers whose searches lose rows, read before they are gone
+        List<Long> trainingIds = new ArrayList<>();
+        Set<Long> trainerIds = new HashSet<>();
+        List<?> rows = ProfileRemoval.statement(entityManager,
+                        "SELECT id, trainer_id FROM trainings WHERE trainee_id = :traineeId")
+                .setParameter("traineeId", traineeId)
+                .getResultList();
+        for (Object row : rows) {
+            Object[] columns = (Object[]) row;
+            trainingIds.add(((Number) columns[0]).longValue());
+            trainerIds.add(((Number) columns[1]).longValue());
+        }
+
+        ProfileRemoval.detach(entityManager, trainee, user);
+        ProfileRemoval.statement(entityManager, "DELETE FROM trainings WHERE trainee_id = :traineeId")
+                .setParameter("traineeId", traineeId)
+                .executeUpdate();
+        ProfileRemoval.statement(entityManager, "DELETE FROM trainee_trainer WHERE trainee_id = :traineeId")
+                .setParameter("traineeId", traineeId)
+                .executeUpdate();
+        int deleted = ProfileRemoval.statement(entityManager, "DELETE FROM trainees WHERE id = :traineeId")
+                .setParameter("traineeId", traineeId)
+                .executeUpdate();
+        if (deleted == 0) {
+            return false;
+        }
+        ProfileRemoval.deleteUser(entityManager, user);
+
+        ProfileRemoval.evictOnCompletion(entityManager, Trainee.class, traineeId);
+        ProfileRemoval.evictOnCompletion(entityManager, Training.class, trainingIds);
+        ProfileRemoval.removeNameOnCompletion(entityManager, userNameIndex, userId);
+        if (searchCache != null) {
+            searchCache.invalidateOnCompletion(entityManager, TrainingSearchCache.Side.TRAINEE, traineeId);
+            for (Long trainerId : trainerIds) {
+                searchCache.invalidateOnCompletion(entityManager, TrainingSearchCache.Side.TRAINER, trainerId);
+            }
+            searchCache.invalidateNameFilteredOnCompletion(entityManager);
         }
-        entityManager.remove(trainee);
+        if (assignmentIndex != null) {
+            assignmentIndex.invalidateOnCompletion(entityManager, traineeId);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean softDelete(Trainee trainee) {
+        EntityManager entityManager = entityManager();
+        Long traineeId = trainee.getId();
+        Long userId = trainee.getUser().getId();
+
+        ProfileRemoval.detach(entityManager, trainee, trainee.getUser());
+        if (!ProfileRemoval.markUserDeleted(entityManager, trainee.getUser())) {
+            return false;
+        }
+
+        ProfileRemoval.removeAssignments(entityManager, "trainee_id", traineeId);
+        ProfileRemoval.evictOnCompletion(entityManager, Trainee.class, traineeId);
+        ProfileRemoval.removeNameOnCompletion(entityManager, userNameIndex, userId);
+        if (searchCache != null) {
+            // the trainings stay until purged but drop out of every search, including those of the other side
+            searchCache.invalidateOnCompletion(entityManager, TrainingSearchCache.Side.TRAINEE, traineeId);
+            List<Long> trainerIds = entityManager.createQuery(
+                        "SELECT DISTINCT tr.trainer.id FROM Training tr WHERE tr.trainee.id = :traineeId", Long.class)
+                    .setParameter("traineeId", traineeId)
+                    .getResultList();
+            for (Long trainerId : trainerIds) {
+                searchCache.invalidateOnCompletion(entityManager, TrainingSearchCache.Side.TRAINER, trainerId);
+            }
+            searchCache.invalidateNameFilteredOnCompletion(entityManager);
+        }
+        if (assignmentIndex != null) {
+            assignmentIndex.invalidateOnCompletion(entityManager, traineeId);
+        }
+        return true;
     }
 
     @Override
     public List<Trainer> findTrainersNotAssignedToTrainee(String traineeUsername) {
+        if (assignmentIndex != null) {
+            Long traineeId = traineeUsername == null || traineeUsername.isEmpty()
+                    ? null : findByUsername(traineeUsername).map(Trainee::getId).orElse(null);
+            return loadTrainers(assignmentIndex.findUnassignedTrainerIds(traineeId));
+        }
+
         if (traineeUsername == null || traineeUsername.isEmpty()) {
-            TypedQuery<Trainer> all = entityManager.createQuery("SELECT t FROM Trainer t", Trainer.class);
+            TypedQuery<Trainer> all = entityManager().createQuery(
+                    "SELECT t FROM Trainer t JOIN t.user u WHERE u.deletedAt IS NULL", Trainer.class);
             return all.getResultList();
         }
 
-        String jpql = "SELECT t FROM Trainer t WHERE NOT EXISTS (" +
+        String jpql = "SELECT t FROM Trainer t JOIN t.user u WHERE u.deletedAt IS NULL AND NOT EXISTS (" +
                 " SELECT 1 FROM Trainee tr JOIN tr.trainers trn WHERE trn = t AND tr.user.username = :username" +
                 ")";
 
-        TypedQuery<Trainer> query = entityManager.createQuery(jpql, Trainer.class);
+        TypedQuery<Trainer> query = entityManager().createQuery(jpql, Trainer.class);
         query.setParameter("username", traineeUsername);
         return query.getResultList();
     }
 
+    @Override
+    public Page<Trainer> findActiveTrainersNotAssignedToTrainee(String traineeUsername, String specializationName,
+                                                                String cursor, int pageSize) {
+        Long after = decodeTrainerCursor(cursor);
+        if (pageSize <= 0 || pageSize > TrainingSearchQueries.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + TrainingSearchQueries.MAX_PAGE_SIZE);
+        }
+
+        Long specializationId = null;
+        if (specializationName != null && !specializationName.isEmpty()) {
+            specializationId = trainingTypeRegistry.findIdByName(specializationName).orElse(null);
+            if (specializationId == null) {
+                return Page.empty();
+            }
+        }
+
+        Optional<Trainee> trainee = findByUsername(traineeUsername);
+        if (!trainee.isPresent()) {
+            return Page.empty();
+        }
+
+        List<Long> ids;
+        if (assignmentIndex != null) {
+            ids = assignmentIndex.findUnassignedActiveTrainerIds(trainee.get().getId(), specializationId, after,
+                    pageSize + 1);
+        } else {
+            ids = findUnassignedActiveTrainerIds(trainee.get().getId(), specializationId, after, pageSize + 1);
+        }
+
+        if (ids.size() <= pageSize) {
+            return new Page<>(loadTrainers(ids), null);
+        }
+        List<Long> pageIds = ids.subList(0, pageSize);
+        return new Page<>(loadTrainers(pageIds), String.valueOf(pageIds.get(pageSize - 1)));
+    }
+
+    private List<Long> findUnassignedActiveTrainerIds(Long traineeId, Long specializationId, Long after, int limit) {
+        String jpql;
+        if (specializationId == null) {
+            jpql = after == null ? UNASSIGNED_ACTIVE_TRAINERS_JPQL : UNASSIGNED_ACTIVE_TRAINERS_AFTER_JPQL;
+        } else {
+            jpql = after == null
+                    ? UNASSIGNED_ACTIVE_TRAINERS_BY_SPECIALIZATION_JPQL
+                    : UNASSIGNED_ACTIVE_TRAINERS_BY_SPECIALIZATION_AFTER_JPQL;
+        }
+
+        TypedQuery<Long> query = entityManager().createQuery(jpql, Long.class);
+        query.setParameter("traineeId", traineeId);
+        if (specializationId != null) query.setParameter("specializationId", specializationId);
+        if (after != null) query.setParameter("after", after);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    // the cursor of a trainer page is the id of the last trainer served
+    private static Long decodeTrainerCursor(String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid page cursor: " + cursor, e);
+        }
+    }
+
+    // trainers are in the second-level cache, so a page rarely costs more than the rows missing from it
+    private List<Trainer> loadTrainers(List<Long> ids) {
+        List<Trainer> trainers = new ArrayList<>(ids.size());
+        for (Trainer trainer : entityManager().unwrap(Session.class).byMultipleIds(Trainer.class)
+                .with(CacheMode.NORMAL).multiLoad(ids)) {
+            if (trainer != null) {
+                trainers.add(trainer);
+            }
+        }
+        return trainers;
+    }
+
     @Override
     public List<Training> findTrainingsByTraineeUsernameWithCriteria(String traineeUsername, LocalDate fromDate, LocalDate toDate, String trainerName, String trainingTypeName) {
-        if (traineeUsername == null || traineeUsername.isEmpty()) {
+        return findTrainingsByTraineeUsernameWithCriteria(traineeUsername, fromDate, toDate, trainerName, trainingTypeName, null);
+    }
+
+    @Override
+    public List<Training> findTrainingsByTraineeUsernameWithCriteria(String traineeUsername,
+                                                                 LocalDate fromDate,
+                                                                 LocalDate toDate,
+                                                                 String trainerName,
+                                                                 String trainingTypeName,
+                                                                 FetchPlan<Training> plan) {
+        // read before anything is resolved, so a change racing this search keeps its result out of the cache
+        long cacheVersion = searchCache != null ? searchCache.version() : 0;
+        Optional<TrainingSearchQueries.Criteria> criteria = criteria(traineeUsername, trainerName, trainingTypeName);
+        if (!criteria.isPresent()) {
+            return Collections.emptyList();
+        }
+        Long traineeId = criteria.get().getOwnerId();
+        Long trainingTypeId = criteria.get().getTrainingTypeId();
+
+        TrainingSearchCache.Key cacheKey = null;
+        if (searchCache != null) {
+            cacheKey = TrainingSearchCache.key(TrainingSearchCache.Side.TRAINEE, traineeId, fromDate, toDate,
+                    trainerName, trainingTypeId);
+            Optional<List<Long>> cached = searchCache.get(cacheKey);
+            if (cached.isPresent()) {
+                return TrainingLoader.load(entityManager(), cached.get(), plan);
+            }
+        }
+
+        EntityManager entityManager = entityManager();
+        TypedQuery<Training> query = TrainingSearchQueries.BY_TRAINEE.create(entityManager, traineeId, fromDate, toDate,
+                trainerName, criteria.get().getNameUserIds(), trainingTypeId);
+        List<Training> trainings = FetchPlan.apply(query, plan, entityManager).getResultList();
+        if (searchCache != null) {
+            List<Long> ids = new ArrayList<>(trainings.size());
+            for (Training training : trainings) {
+                ids.add(training.getId());
+            }
+            searchCache.put(cacheKey, ids, cacheVersion);
+        }
+        return trainings;
+    }
+
+    @Override
+    public Page<Training> findTrainingPageByTraineeUsernameWithCriteria(String traineeUsername,
+                                                                        LocalDate fromDate,
+                                                                        LocalDate toDate,
+                                                                        String trainerName,
+                                                                        String trainingTypeName,
+                                                                        String cursor,
+                                                                        int pageSize) {
+        return findTrainingPageByTraineeUsernameWithCriteria(traineeUsername, fromDate, toDate, trainerName, trainingTypeName,
+                cursor, pageSize, null);
+    }
+
+    @Override
+    public Page<Training> findTrainingPageByTraineeUsernameWithCriteria(String traineeUsername,
+                                                                        LocalDate fromDate,
+                                                                        LocalDate toDate,
+                                                                        String trainerName,
+                                                                        String trainingTypeName,
+                                                                        String cursor,
+                                                                        int pageSize,
+                                                                        FetchPlan<Training> plan) {
+        TrainingCursor after = cursor == null ? null : TrainingCursor.decode(cursor);
+        Optional<TrainingSearchQueries.Criteria> criteria = criteria(traineeUsername, trainerName, trainingTypeName);
+        if (!criteria.isPresent()) {
+            return Page.empty();
+        }
+
+        EntityManager entityManager = entityManager();
+        TypedQuery<Training> query = TrainingSearchQueries.BY_TRAINEE.createPage(entityManager,
+                criteria.get().getOwnerId(), fromDate, toDate, trainerName, criteria.get().getNameUserIds(),
+                criteria.get().getTrainingTypeId(), after, pageSize);
+        List<Training> rows = FetchPlan.apply(query, plan, entityManager).getResultList();
+        return TrainingSearchQueries.toPage(rows, pageSize);
+    }
+
+    @Override
+    public List<TrainingSummary> findTrainingSummariesByTraineeUsernameWithCriteria(String traineeUsername,
+                                                                              LocalDate fromDate,
+                                                                              LocalDate toDate,
+                                                                              String trainerName,
+                                                                              String trainingTypeName) {
+        Optional<TrainingSearchQueries.Criteria> criteria = criteria(traineeUsername, trainerName, trainingTypeName);
+        if (!criteria.isPresent()) {
             return Collections.emptyList();
         }
 
-        StringBuilder jpql = new StringBuilder();
-        jpql.append("SELECT tr FROM Training tr ")
-                .append("JOIN tr.trainee t JOIN t.user tu ")
-                .append("JOIN tr.trainer trn JOIN trn.user trun ")
-                .append("JOIN tr.trainingType tt ")
-                .append("WHERE tu.username = :traineeUsername");
+        return TrainingSearchQueries.BY_TRAINEE.createSummaries(entityManager(), criteria.get().getOwnerId(), fromDate,
+                toDate, trainerName, criteria.get().getNameUserIds(), criteria.get().getTrainingTypeId())
+                .getResultList();
+    }
 
+    @Override
+    public Page<TrainingSummary> findTrainingSummaryPageByTraineeUsernameWithCriteria(String traineeUsername,
+                                                                                LocalDate fromDate,
+                                                                                LocalDate toDate,
+                                                                                String trainerName,
+                                                                                String trainingTypeName,
+                                                                                String cursor,
+                                                                                int pageSize) {
+        TrainingCursor after = cursor == null ? null : TrainingCursor.decode(cursor);
+        Optional<TrainingSearchQueries.Criteria> criteria = criteria(traineeUsername, trainerName, trainingTypeName);
+        if (!criteria.isPresent()) {
+            return Page.empty();
+        }
 
-        if (fromDate != null) jpql.append(" AND tr.trainingDate >= :fromDate");
-        if (toDate != null)   jpql.append(" AND tr.trainingDate <= :toDate");
-        if (trainerName != null && !trainerName.isEmpty()) {
-            // case-insensitive partial match on firstName OR lastName OR "first last"
-            jpql.append(" AND (LOWER(trun.firstName) LIKE :trainerName")
-                    .append(" OR LOWER(trun.lastName) LIKE :trainerName")
-                    .append(" OR LOWER(CONCAT(trun.firstName, ' ', trun.lastName)) LIKE :trainerName)");
+        List<TrainingSummary> rows = TrainingSearchQueries.BY_TRAINEE.createSummaryPage(entityManager(),
+                criteria.get().getOwnerId(), fromDate, toDate, trainerName, criteria.get().getNameUserIds(),
+                criteria.get().getTrainingTypeId(), after, pageSize).getResultList();
+        return TrainingSearchQueries.toSummaryPage(rows, pageSize);
+    }
+
+    @Override
+    public int assignTrainers(Long traineeId, Collection<Long> trainerIds) {
+        if (trainerIds == null || trainerIds.isEmpty() || !lockAssignments(traineeId)) {
+            return 0;
         }
-        if (trainingTypeName != null && !trainingTypeName.isEmpty()) {
-            jpql.append(" AND LOWER(tt.trainingTypeName) = :trainingTypeName");
+        return writeAssignments(ASSIGN_SQL, traineeId, trainerIds);
+    }
+
+    @Override
+    public int unassignTrainers(Long traineeId, Collection<Long> trainerIds) {
+        if (trainerIds == null || trainerIds.isEmpty() || !lockAssignments(traineeId)) {
+            return 0;
         }
+        return writeAssignments(UNASSIGN_SQL, traineeId, trainerIds);
+    }
 
-        TypedQuery<Training> query = entityManager.createQuery(jpql.toString(), Training.class);
-        query.setParameter("traineeUsername", traineeUsername);
+    @Override
+    public int replaceTrainers(Long traineeId, Collection<Long> trainerIds) {
+        if (trainerIds == null) {
+            // an empty collection unassigns every trainer; null is more likely a caller bug than that intent
+            throw new IllegalArgumentException("Trainer ids are required, use an empty collection to unassign all");
+        }
+        if (!lockAssignments(traineeId)) {
+            return 0;
+        }
+        List<?> rows = entityManager().createNativeQuery(
+                        "SELECT trainer_id FROM trainee_trainer WHERE trainee_id = :traineeId")
+                .setParameter("traineeId", traineeId)
+                .getResultList();
+        Set<Long> current = new HashSet<>();
+        for (Object row : rows) {
+            current.add(((Number) row).longValue());
+        }
+
+        // only the difference is written; trainers kept on both sides are not touched
+        Set<Long> removed = new HashSet<>(current);
+        removed.removeAll(trainerIds);
+        Set<Long> added = new HashSet<>(trainerIds);
+        added.removeAll(current);
+
+        return writeAssignments(UNASSIGN_SQL, traineeId, removed) + writeAssignments(ASSIGN_SQL, traineeId, added);
+    }
 
-        if (fromDate != null) query.setParameter("fromDate", fromDate);
-        if (toDate != null)   query.setParameter("toDate", toDate);
-        if (trainerName != null && !trainerName.isEmpty()) {
-            query.setParameter("trainerName", "%" + trainerName.trim().toLowerCase() + "%");
+    // serialises assignment writers per trainee, so two idempotent inserts cannot race into a duplicate key
+    private boolean lockAssignments(Long traineeId) {
+        return !entityManager().createNativeQuery("SELECT id FROM trainees WHERE id = :traineeId FOR UPDATE")
+                .setParameter("traineeId", traineeId)
+                .getResultList()
+                .isEmpty();
+    }
+
+    private int writeAssignments(String sql, Long traineeId, Collection<Long> trainerIds) {
+        if (trainerIds.isEmpty()) {
+            return 0;
         }
-        if (trainingTypeName != null && !trainingTypeName.isEmpty()) {
-            query.setParameter("trainingTypeName", trainingTypeName.trim().toLowerCase());
+        EntityManager entityManager = entityManager();
+        List<Long> ids = new ArrayList<>(trainerIds);
+        int changed = 0;
+        for (int from = 0; from < ids.size(); from += ASSIGNMENT_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + ASSIGNMENT_BATCH_SIZE, ids.size()));
+            // the query space limits the auto flush to pending writes of trainee_trainer
+            NativeQuery<?> query = entityManager.createNativeQuery(sql).unwrap(NativeQuery.class);
+            changed += query.addSynchronizedQuerySpace("trainee_trainer")
+                    .setParameter("traineeId", traineeId)
+                    .setParameterList("trainerIds", batch)
+                    .executeUpdate();
         }
+        if (changed > 0 && assignmentIndex != null) {
+            assignmentIndex.invalidateOnCompletion(entityManager, traineeId);
+        }
+        return changed;
+    }
 
-        return query.getResultList();
+    private Optional<TrainingSearchQueries.Criteria> criteria(String traineeUsername, String trainerName,
+                                                              String trainingTypeName) {
+        return TrainingSearchQueries.resolve(traineeUsername, username -> findByUsername(username).map(Trainee::getId),
+                trainingTypeRegistry, trainingTypeName, userNameIndex, trainerName);
+    }
+
+    private EntityManager entityManager() {
+        return entityManagerProvider.get();
     }
 }
@@ -1,102 +1,316 @@
 package com.hibernate.gymapp.repository.impl;
 
+import com.hibernate.gymapp.dto.TrainingSummary;
 import com.hibernate.gymapp.model.Trainer;
 import com.hibernate.gymapp.model.Training;
+import com.hibernate.gymapp.model.User;
+import com.hibernate.gymapp.repository.FetchPlan;
+import com.hibernate.gymapp.repository.Page;
+import com.hibernate.gymapp.repository.TrainerAssignmentIndex;
 import com.hibernate.gymapp.repository.TrainerRepository;
+import com.hibernate.gymapp.repository.TrainingCursor;
+import com.hibernate.gymapp.repository.TrainingSearchCache;
+import com.hibernate.gymapp.repository.TrainingTypeRegistry;
+import com.hibernate.gymapp.repository.UserNameIndex;
+import com.hibernate.gymapp.transaction.EntityManagerProvider;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
+import org.hibernate.Session;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class TrainerRepositoryImpl implements TrainerRepository {
 
-    private final EntityManager entityManager;
+    private final EntityManagerProvider entityManagerProvider;
+    private final TrainingTypeRegistry trainingTypeRegistry;
+    private final TrainingSearchCache searchCache;
+    private final UserNameIndex userNameIndex;
+    private final TrainerAssignmentIndex assignmentIndex;
 
+    public TrainerRepositoryImpl(EntityManagerProvider entityManagerProvider) {
+        this(entityManagerProvider, new TrainingTypeRegistry(entityManagerProvider), null);
+    }
+
+    // searchCache may be null; it is only safe when shared with the TrainingRepository that invalidates it
+    public TrainerRepositoryImpl(EntityManagerProvider entityManagerProvider, TrainingTypeRegistry trainingTypeRegistry,
+                                 TrainingSearchCache searchCache) {
+        this(entityManagerProvider, trainingTypeRegistry, searchCache, null);
+    }
+
+    // without a userNameIndex, name filters are matched by the query itself
+    public TrainerRepositoryImpl(EntityManagerProvider entityManagerProvider, TrainingTypeRegistry trainingTypeRegistry,
+                                 TrainingSearchCache searchCache, UserNameIndex userNameIndex) {
+        this(entityManagerProvider, trainingTypeRegistry, searchCache, userNameIndex, null);
+    }
+
+    // assignmentIndex, when given, is told about trainers removed by bulk statements
+    public TrainerRepositoryImpl(EntityManagerProvider entityManagerProvider, TrainingTypeRegistry trainingTypeRegistry,
+                                 TrainingSearchCache searchCache, UserNameIndex userNameIndex,
+                                 TrainerAssignmentIndex assignmentIndex) {
+        this.entityManagerProvider = entityManagerProvider;
+        this.trainingTypeRegistry = trainingTypeRegistry;
+        this.searchCache = searchCache;
+        this.userNameIndex = userNameIndex;
+        this.assignmentIndex = assignmentIndex;
+    }
+
+    // single-threaded use, e.g. tests and scripts that manage one EntityManager themselves
     public TrainerRepositoryImpl(EntityManager entityManager) {
-        this.entityManager = entityManager;
+        this(() -> entityManager);
     }
 
     @Override
     public Trainer save(Trainer trainer) {
         if (trainer.getId() == null) {
-            entityManager.persist(trainer);
+            entityManager().persist(trainer);
             return trainer;
         }
-        return entityManager.merge(trainer);
+        return entityManager().merge(trainer);
     }
 
     @Override
     public Optional<Trainer> findById(Long id) {
-        return Optional.ofNullable(entityManager.find(Trainer.class, id));
+        EntityManager entityManager = entityManager();
+        return Optional.ofNullable(entityManager.find(Trainer.class, id))
+                .filter(trainer -> ProfileRemoval.hasLiveUser(entityManager, trainer.getUser()));
+    }
+
+    @Override
+    public Optional<Trainer> findById(Long id, FetchPlan<Trainer> plan) {
+        if (plan == null) {
+            return findById(id);
+        }
+        EntityManager entityManager = entityManager();
+        return Optional.ofNullable(entityManager.find(Trainer.class, id, plan.findHints(entityManager)))
+                .filter(trainer -> ProfileRemoval.hasLiveUser(entityManager, trainer.getUser()));
+    }
+
+    @Override
+    public Map<String, Long> findIdsByUsernames(Collection<String> usernames) {
+        Map<String, Long> ids = new HashMap<>();
+        if (usernames.isEmpty()) {
+            return ids;
+        }
+
+        TypedQuery<Object[]> query = entityManager().createQuery(
+                "SELECT u.username, t.id FROM Trainer t JOIN t.user u "
+                        + "WHERE u.username IN :usernames AND u.deletedAt IS NULL",
+                Object[].class
+        );
+        query.setParameter("usernames", usernames);
+
+        for (Object[] row : query.getResultList()) {
+            ids.put((String) row[0], (Long) row[1]);
+        }
+        return ids;
     }
 
     @Override
     public List<Trainer> findAll() {
-        TypedQuery<Trainer> query = entityManager.createQuery("SELECT t FROM Trainer t", Trainer.class);
+        TypedQuery<Trainer> query = entityManager().createQuery(
+                "SELECT t FROM Trainer t JOIN t.user u WHERE u.deletedAt IS NULL", Trainer.class);
         return query.getResultList();
     }
 
     @Override
     public Optional<Trainer> findByUsername(String username) {
-        TypedQuery<Trainer> query = entityManager.createQuery(
-                "SELECT t FROM Trainer t WHERE t.user.username = :username", Trainer.class
-        );
+        // user and trainer both resolve through natural id caches, a warm lookup issues no SQL
+        Session session = entityManager().unwrap(Session.class);
+        return session.bySimpleNaturalId(User.class).loadOptional(username)
+                .flatMap(user -> session.bySimpleNaturalId(Trainer.class).loadOptional(user));
+    }
 
+    @Override
+    public Optional<Trainer> findByUsername(String username, FetchPlan<Trainer> plan) {
+        if (plan == null) {
+            return findByUsername(username);
+        }
+        // the graph has to ride on a query; natural id loads take no fetch plan
+        EntityManager entityManager = entityManager();
+        TypedQuery<Trainer> query = entityManager.createQuery(
+                "SELECT t FROM Trainer t WHERE t.user.username = :username", Trainer.class);
         query.setParameter("username", username);
-        return query.getResultStream().findFirst();
+        return FetchPlan.apply(query, plan, entityManager).getResultStream().findFirst();
+    }
+
+    @Override
+    public Optional<Trainer> findByUserId(Long userId) {
+        EntityManager entityManager = entityManager();
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(Trainer.class)
+                .loadOptional(entityManager.getReference(User.class, userId))
+                .filter(trainer -> ProfileRemoval.hasLiveUser(entityManager, trainer.getUser()));
     }
 
     @Override
     public void delete(Trainer trainer) {
-        if (!entityManager.contains(trainer)) {
-            trainer = entityManager.merge(trainer);
+        if (!entityManager().contains(trainer)) {
+            trainer = entityManager().merge(trainer);
+        }
+        entityManager().remove(trainer);
+    }
+
+    @Override
+    public boolean softDelete(Trainer trainer) {
+        EntityManager entityManager = entityManager();
+        Long trainerId = trainer.getId();
+        Long userId = trainer.getUser().getId();
+
+        ProfileRemoval.detach(entityManager, trainer, trainer.getUser());
+        if (!ProfileRemoval.markUserDeleted(entityManager, trainer.getUser())) {
+            return false;
         }
-        entityManager.remove(trainer);
+
+        ProfileRemoval.removeAssignments(entityManager, "trainer_id", trainerId);
+        ProfileRemoval.evictOnCompletion(entityManager, Trainer.class, trainerId);
+        ProfileRemoval.removeNameOnCompletion(entityManager, userNameIndex, userId);
+        if (searchCache != null) {
+            // the trainings stay until purged but drop out of every search, including those of the other side
+            searchCache.invalidateOnCompletion(entityManager, TrainingSearchCache.Side.TRAINER, trainerId);
+            List<Long> traineeIds = entityManager.createQuery(
+                        "SELECT DISTINCT tr.trainee.id FROM Training tr WHERE tr.trainer.id = :trainerId", Long.class)
+                    .setParameter("trainerId", trainerId)
+                    .getResultList();
+            for (Long traineeId : traineeIds) {
+                searchCache.invalidateOnCompletion(entityManager, TrainingSearchCache.Side.TRAINEE, traineeId);
+            }
+            searchCache.invalidateNameFilteredOnCompletion(entityManager);
+        }
+        if (assignmentIndex != null) {
+            assignmentIndex.invalidateTrainersOnCompletion(entityManager);
+        }
+        return true;
+    }
+
+    @Override
+    public List<Training> findTrainingsByTrainerUsernameWithCriteria(String trainerUsername, LocalDate fromDate, LocalDate toDate, String traineeName, String trainingTypeName) {
+        return findTrainingsByTrainerUsernameWithCriteria(trainerUsername, fromDate, toDate, traineeName, trainingTypeName, null);
     }
 
     @Override
     public List<Training> findTrainingsByTrainerUsernameWithCriteria(String trainerUsername,
-                                                                     LocalDate fromDate,
-                                                                     LocalDate toDate,
-                                                                     String traineeName,
-                                                                     String trainingTypeName) {
-        if (trainerUsername == null || trainerUsername.isEmpty()) {
+                                                                 LocalDate fromDate,
+                                                                 LocalDate toDate,
+                                                                 String traineeName,
+                                                                 String trainingTypeName,
+                                                                 FetchPlan<Training> plan) {
+        // read before anything is resolved, so a change racing this search keeps its result out of the cache
+        long cacheVersion = searchCache != null ? searchCache.version() : 0;
+        Optional<TrainingSearchQueries.Criteria> criteria = criteria(trainerUsername, traineeName, trainingTypeName);
+        if (!criteria.isPresent()) {
             return Collections.emptyList();
         }
+        Long trainerId = criteria.get().getOwnerId();
+        Long trainingTypeId = criteria.get().getTrainingTypeId();
+
+        TrainingSearchCache.Key cacheKey = null;
+        if (searchCache != null) {
+            cacheKey = TrainingSearchCache.key(TrainingSearchCache.Side.TRAINER, trainerId, fromDate, toDate,
+                    traineeName, trainingTypeId);
+            Optional<List<Long>> cached = searchCache.get(cacheKey);
+            if (cached.isPresent()) {
+                return TrainingLoader.load(entityManager(), cached.get(), plan);
+            }
+        }
 
-        StringBuilder jpql = new StringBuilder();
-        jpql.append("SELECT tr FROM Training tr ")
-                .append("JOIN tr.trainer trn JOIN trn.user trun ")
-                .append("JOIN tr.trainee t JOIN t.user tu ")
-                .append("JOIN tr.trainingType tt ")
-                .append("WHERE trun.username = :trainerUsername");
-
-        if (fromDate != null) jpql.append(" AND tr.trainingDate >= :fromDate");
-        if (toDate != null) jpql.append(" AND tr.trainingDate <= :toDate");
-        if (traineeName != null && !traineeName.isEmpty()) {
-            jpql.append(" AND (LOWER(tu.firstName) LIKE :traineeName")
-                    .append(" OR LOWER(tu.lastName) LIKE :traineeName")
-                    .append(" OR LOWER(CONCAT(tu.firstName, ' ', tu.lastName)) LIKE :traineeName)");
+        EntityManager entityManager = entityManager();
+        TypedQuery<Training> query = TrainingSearchQueries.BY_TRAINER.create(entityManager, trainerId, fromDate, toDate,
+                traineeName, criteria.get().getNameUserIds(), trainingTypeId);
+        List<Training> trainings = FetchPlan.apply(query, plan, entityManager).getResultList();
+        if (searchCache != null) {
+            List<Long> ids = new ArrayList<>(trainings.size());
+            for (Training training : trainings) {
+                ids.add(training.getId());
+            }
+            searchCache.put(cacheKey, ids, cacheVersion);
         }
-        if (trainingTypeName != null && !trainingTypeName.isEmpty()) {
-            jpql.append(" AND LOWER(tt.trainingTypeName) = :trainingTypeName");
+        return trainings;
+    }
+
+    @Override
+    public Page<Training> findTrainingPageByTrainerUsernameWithCriteria(String trainerUsername,
+                                                                        LocalDate fromDate,
+                                                                        LocalDate toDate,
+                                                                        String traineeName,
+                                                                        String trainingTypeName,
+                                                                        String cursor,
+                                                                        int pageSize) {
+        return findTrainingPageByTrainerUsernameWithCriteria(trainerUsername, fromDate, toDate, traineeName, trainingTypeName,
+                cursor, pageSize, null);
+    }
+
+    @Override
+    public Page<Training> findTrainingPageByTrainerUsernameWithCriteria(String trainerUsername,
+                                                                        LocalDate fromDate,
+                                                                        LocalDate toDate,
+                                                                        String traineeName,
+                                                                        String trainingTypeName,
+                                                                        String cursor,
+                                                                        int pageSize,
+                                                                        FetchPlan<Training> plan) {
+        TrainingCursor after = cursor == null ? null : TrainingCursor.decode(cursor);
+        Optional<TrainingSearchQueries.Criteria> criteria = criteria(trainerUsername, traineeName, trainingTypeName);
+        if (!criteria.isPresent()) {
+            return Page.empty();
         }
 
-        TypedQuery<Training> query = entityManager.createQuery(jpql.toString(), Training.class);
-        query.setParameter("trainerUsername", trainerUsername);
+        EntityManager entityManager = entityManager();
+        TypedQuery<Training> query = TrainingSearchQueries.BY_TRAINER.createPage(entityManager,
+                criteria.get().getOwnerId(), fromDate, toDate, traineeName, criteria.get().getNameUserIds(),
+                criteria.get().getTrainingTypeId(), after, pageSize);
+        List<Training> rows = FetchPlan.apply(query, plan, entityManager).getResultList();
+        return TrainingSearchQueries.toPage(rows, pageSize);
+    }
 
-        if (fromDate != null) query.setParameter("fromDate", fromDate);
-        if (toDate != null) query.setParameter("toDate", toDate);
-        if (traineeName != null && !traineeName.isEmpty()) {
-            query.setParameter("traineeName", "%" + traineeName.trim().toLowerCase() + "%");
+    @Override
+    public List<TrainingSummary> findTrainingSummariesByTrainerUsernameWithCriteria(String trainerUsername,
+                                                                              LocalDate fromDate,
+                                                                              LocalDate toDate,
+                                                                              String traineeName,
+                                                                              String trainingTypeName) {
+        Optional<TrainingSearchQueries.Criteria> criteria = criteria(trainerUsername, traineeName, trainingTypeName);
+        if (!criteria.isPresent()) {
+            return Collections.emptyList();
         }
-        if (trainingTypeName != null && !trainingTypeName.isEmpty()) {
-            query.setParameter("trainingTypeName", trainingTypeName.trim().toLowerCase());
+
+        return TrainingSearchQueries.BY_TRAINER.createSummaries(entityManager(), criteria.get().getOwnerId(), fromDate,
+                toDate, traineeName, criteria.get().getNameUserIds(), criteria.get().getTrainingTypeId())
+                .getResultList();
+    }
+
+    @Override
+    public Page<TrainingSummary> findTrainingSummaryPageByTrainerUsernameWithCriteria(String trainerUsername,
+                                                                                LocalDate fromDate,
+                                                                                LocalDate toDate,
+                                                                                String traineeName,
+                                                                                String trainingTypeName,
+                                                                                String cursor,
+                                                                                int pageSize) {
+        TrainingCursor after = cursor == null ? null : TrainingCursor.decode(cursor);
+        Optional<TrainingSearchQueries.Criteria> criteria = criteria(trainerUsername, traineeName, trainingTypeName);
+        if (!criteria.isPresent()) {
+            return Page.empty();
         }
 
-        return query.getResultList();
+        List<TrainingSummary> rows = TrainingSearchQueries.BY_TRAINER.createSummaryPage(entityManager(),
+                criteria.get().getOwnerId(), fromDate, toDate, traineeName, criteria.get().getNameUserIds(),
+                criteria.get().getTrainingTypeId(), after, pageSize).getResultList();
+        return TrainingSearchQueries.toSummaryPage(rows, pageSize);
+    }
+
+    private Optional<TrainingSearchQueries.Criteria> criteria(String trainerUsername, String traineeName,
+                                                              String trainingTypeName) {
+        return TrainingSearchQueries.resolve(trainerUsername, username -> findByUsername(username).map(Trainer::getId),
+                trainingTypeRegistry, trainingTypeName, userNameIndex, traineeName);
+    }
+
+    private EntityManager entityManager() {
+        return entityManagerProvider.get();
     }
 }
@@ -0,0 +1,147 @@
+package com.hibernate.gymapp.repository.impl;
+
+import com.hibernate.gymapp.model.Trainee;
+import com.hibernate.gymapp.model.Trainer;
+import com.hibernate.gymapp.model.Training;
+import com.hibernate.gymapp.model.TrainingType;
+import com.hibernate.gymapp.model.User;
+import com.hibernate.gymapp.repository.FetchPlan;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceUnitUtil;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.CacheMode;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads trainings by id, in id order, for the training history searches served from {@code TrainingSearchCache}.
+ * Without a plan the trainings come from the second-level cache, with one batched select for the misses. With the
+ * participants plan they are put together from the second-level cache when every training, participant, user and
+ * training type is cached there, and read in one select that fetches the graph otherwise.
+ */
+final class TrainingLoader {
+
+    private TrainingLoader() {
+    }
+
+    static List<Training> load(EntityManager entityManager, List<Long> ids, FetchPlan<Training> plan) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (plan == null) {
+            return multiLoad(entityManager, Training.class, ids);
+        }
+        if (plan == FetchPlan.TRAINING_WITH_PARTICIPANTS) {
+            List<Training> cached = withParticipantsFromCache(entityManager, ids);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        return loadWithPlan(entityManager, ids, plan);
+    }
+
+    // null unless the whole graph is in the second-level cache; checked level by level, so a miss costs no select
+    private static List<Training> withParticipantsFromCache(EntityManager entityManager, List<Long> ids) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        PersistenceUnitUtil identifiers = entityManager.getEntityManagerFactory().getPersistenceUnitUtil();
+        if (!cached(cache, Training.class, ids)) {
+            return null;
+        }
+        List<Training> trainings = multiLoad(entityManager, Training.class, ids);
+
+        Set<Object> traineeIds = new LinkedHashSet<>();
+        Set<Object> trainerIds = new LinkedHashSet<>();
+        Set<Object> trainingTypeIds = new LinkedHashSet<>();
+        for (Training training : trainings) {
+            // the identifier of an uninitialized proxy is read without loading it
+            traineeIds.add(identifiers.getIdentifier(training.getTrainee()));
+            trainerIds.add(identifiers.getIdentifier(training.getTrainer()));
+            trainingTypeIds.add(identifiers.getIdentifier(training.getTrainingType()));
+        }
+        if (!cached(cache, Trainee.class, traineeIds) || !cached(cache, Trainer.class, trainerIds)
+                || !cached(cache, TrainingType.class, trainingTypeIds)) {
+            return null;
+        }
+        List<Trainee> trainees = multiLoad(entityManager, Trainee.class, traineeIds);
+        List<Trainer> trainers = multiLoad(entityManager, Trainer.class, trainerIds);
+        if (trainees.size() < traineeIds.size() || trainers.size() < trainerIds.size()
+                || multiLoad(entityManager, TrainingType.class, trainingTypeIds).size() < trainingTypeIds.size()) {
+            return null;
+        }
+
+        Set<Object> userIds = new LinkedHashSet<>();
+        for (Trainee trainee : trainees) {
+            userIds.add(identifiers.getIdentifier(trainee.getUser()));
+        }
+        for (Trainer trainer : trainers) {
+            userIds.add(identifiers.getIdentifier(trainer.getUser()));
+        }
+        if (!cached(cache, User.class, userIds)) {
+            return null;
+        }
+        if (multiLoad(entityManager, User.class, userIds).size() < userIds.size()) {
+            return null;
+        }
+
+        // every target is in the persistence context now, so initializing the proxies runs no SQL
+        for (Training training : trainings) {
+            Hibernate.initialize(training.getTrainee());
+            Hibernate.initialize(training.getTrainee().getUser());
+            Hibernate.initialize(training.getTrainer());
+            Hibernate.initialize(training.getTrainer().getUser());
+            Hibernate.initialize(training.getTrainingType());
+        }
+        return trainings;
+    }
+
+    // one select that fetches the plan's graph, put back in id order
+    private static List<Training> loadWithPlan(EntityManager entityManager, List<Long> ids, FetchPlan<Training> plan) {
+        TypedQuery<Training> query = entityManager.createQuery(
+                "SELECT tr FROM Training tr WHERE tr.id IN :ids", Training.class);
+        query.setParameter("ids", ids);
+
+        Map<Long, Training> byId = new HashMap<>();
+        for (Training training : FetchPlan.apply(query, plan, entityManager).getResultList()) {
+            byId.put(training.getId(), training);
+        }
+        List<Training> trainings = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Training training = byId.get(id);
+            if (training != null) {
+                trainings.add(training);
+            }
+        }
+        return trainings;
+    }
+
+    private static boolean cached(Cache cache, Class<?> type, Collection<?> ids) {
+        for (Object id : ids) {
+            if (id == null || !cache.contains(type, id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // rows gone since they were cached come back as null and are left out
+    private static <T> List<T> multiLoad(EntityManager entityManager, Class<T> type, Collection<?> ids) {
+        List<T> loaded = new ArrayList<>(ids.size());
+        for (T entity : entityManager.unwrap(Session.class).byMultipleIds(type)
+                .with(CacheMode.NORMAL).multiLoad(new ArrayList<>(ids))) {
+            if (entity != null) {
+                loaded.add(entity);
+            }
+        }
+        return loaded;
+    }
+}
@@ -1,7 +1,10 @@
 package com.hibernate.gymapp.repository.impl;
 
 import com.hibernate.gymapp.model.Training;
+import com.hibernate.gymapp.repository.FetchPlan;
 import com.hibernate.gymapp.repository.TrainingRepository;
+import com.hibernate.gymapp.repository.TrainingSearchCache;
+import com.hibernate.gymapp.transaction.EntityManagerProvider;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
 
@@ -12,38 +15,82 @@ import java.util.Optional;
 
 public class TrainingRepositoryImpl implements TrainingRepository {
 
-    private final EntityManager entityManager;
+    private final EntityManagerProvider entityManagerProvider;
+    private final TrainingSearchCache searchCache;
 
+    public TrainingRepositoryImpl(EntityManagerProvider entityManagerProvider) {
+        this(entityManagerProvider, null);
+    }
+
+    public TrainingRepositoryImpl(EntityManagerProvider entityManagerProvider, TrainingSearchCache searchCache) {
+        this.entityManagerProvider = entityManagerProvider;
+        this.searchCache = searchCache;
+    }
+
+    // single-threaded use, e.g. tests and scripts that manage one EntityManager themselves
     public TrainingRepositoryImpl(EntityManager entityManager) {
-        this.entityManager = entityManager;
+        this(() -> entityManager);
     }
 
     @Override
     public Training save(Training training) {
+        invalidateSearches(training);
         if (training.getId() == null) {
-            entityManager.persist(training);
+            entityManager().persist(training);
             return training;
         }
-        return entityManager.merge(training);
+        // an update may move the training to another trainee or trainer, whose searches go stale as well
+        invalidateSearches(entityManager().find(Training.class, training.getId()));
+        return entityManager().merge(training);
     }
 
     @Override
     public Optional<Training> findById(Long id) {
-        return Optional.ofNullable(entityManager.find(Training.class, id));
+        return Optional.ofNullable(entityManager().find(Training.class, id));
+    }
+
+    @Override
+    public Optional<Training> findById(Long id, FetchPlan<Training> plan) {
+        if (plan == null) {
+            return findById(id);
+        }
+        EntityManager entityManager = entityManager();
+        return Optional.ofNullable(entityManager.find(Training.class, id, plan.findHints(entityManager)));
     }
 
     @Override
     public List<Training> findAll() {
-        TypedQuery<Training> query = entityManager.createQuery("SELECT t FROM Training t", Training.class);
+        // trainings of soft-deleted trainees and trainers are skipped, as in the history searches
+        TypedQuery<Training> query = entityManager().createQuery("SELECT t FROM Training t "
+                + "WHERE t.trainee.user.deletedAt IS NULL AND t.trainer.user.deletedAt IS NULL", Training.class);
         return query.getResultList();
     }
 
     @Override
     public void delete(Training training) {
-        if (!entityManager.contains(training)) {
-            training = entityManager.merge(training);
+        if (!entityManager().contains(training)) {
+            training = entityManager().merge(training);
         }
-        entityManager.remove(training);
+        invalidateSearches(training);
+        entityManager().remove(training);
     }
 
+    // ids are read off the associations without initialising them
+    private void invalidateSearches(Training training) {
+        if (searchCache == null || training == null) {
+            return;
+        }
+        if (training.getTrainee() != null) {
+            searchCache.invalidateOnCompletion(entityManager(), TrainingSearchCache.Side.TRAINEE,
+                    training.getTrainee().getId());
+        }
+        if (training.getTrainer() != null) {
+            searchCache.invalidateOnCompletion(entityManager(), TrainingSearchCache.Side.TRAINER,
+                    training.getTrainer().getId());
+        }
+    }
+
+    private EntityManager entityManager() {
+        return entityManagerProvider.get();
+    }
 }
@@ -0,0 +1,272 @@
+package com.hibernate.gymapp.repository.impl;
+
+import com.hibernate.gymapp.dto.TrainingSummary;
+import com.hibernate.gymapp.model.Training;
+import com.hibernate.gymapp.repository.Page;
+import com.hibernate.gymapp.repository.TrainingCursor;
+import com.hibernate.gymapp.repository.TrainingTypeRegistry;
+import com.hibernate.gymapp.repository.UserNameIndex;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * JPQL for the training history searches, one string per combination of the optional filters, built once. Every
+ * search hands Hibernate one of these exact strings, so each shape is parsed once and later calls hit the plan cache.
+ * Paged variants seek past a cursor on (training date, id), newest first, so a deep page costs the same as the first.
+ * Summary variants select straight into {@link TrainingSummary}, joining everything the summary shows in one statement.
+ * A name filter is applied as the ids of the matching users when the caller resolved them, and as LIKE otherwise.
+ * Every shape joins the other side's user and skips trainings whose other side was soft-deleted: entity restrictions
+ * do not apply to joined associations, so without the check those rows would come back with a counterpart that
+ * cannot be loaded until the purge removes them.
+ */
+public final class TrainingSearchQueries {
+
+    public static final int FROM_DATE = 1;
+    public static final int TO_DATE = 2;
+    public static final int NAME = 4;
+    public static final int TRAINING_TYPE = 8;
+    public static final int NAME_USER_IDS = 16;
+    public static final int AFTER_CURSOR = 32;
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    // a name matching more users than this is not selective; such filters fall back to LIKE
+    public static final int MAX_NAME_USER_IDS = 1000;
+
+    private static final String SUMMARY_FROM = "SELECT new " + TrainingSummary.class.getName() + "("
+            + "tr.id, tr.trainingName, tr.trainingDate, tr.trainingDuration, "
+            + "CONCAT(teu.firstName, ' ', teu.lastName), CONCAT(tnu.firstName, ' ', tnu.lastName), "
+            + "tt.trainingTypeName) "
+            + "FROM Training tr JOIN tr.trainee te JOIN te.user teu JOIN tr.trainer tn JOIN tn.user tnu "
+            + "JOIN tr.trainingType tt ";
+
+    public static final TrainingSearchQueries BY_TRAINEE = new TrainingSearchQueries("tr.trainee", "tr.trainer", "tnu");
+    public static final TrainingSearchQueries BY_TRAINER = new TrainingSearchQueries("tr.trainer", "tr.trainee", "teu");
+
+    private final String[] shapes = new String[32];
+    private final String[] pageShapes = new String[64];
+    private final String[] summaryShapes = new String[32];
+    private final String[] summaryPageShapes = new String[64];
+
+    private TrainingSearchQueries(String owner, String counterpart, String summaryCounterpartUser) {
+        for (int shape = 0; shape < pageShapes.length; shape++) {
+            String from = "SELECT tr FROM Training tr JOIN " + counterpart + " c JOIN c.user cu ";
+            StringBuilder entities = build(from, owner, "cu", shape);
+            StringBuilder summaries = build(SUMMARY_FROM, owner, summaryCounterpartUser, shape);
+
+            if (shape < shapes.length) {
+                shapes[shape] = entities.toString();
+                summaryShapes[shape] = summaries.toString();
+            }
+            pageShapes[shape] = paged(entities, shape);
+            summaryPageShapes[shape] = paged(summaries, shape);
+        }
+    }
+
+    private static StringBuilder build(String from, String owner, String counterpartUser, int shape) {
+        StringBuilder jpql = new StringBuilder(from);
+        jpql.append("WHERE ").append(owner).append(".id = :ownerId");
+        jpql.append(" AND ").append(counterpartUser).append(".deletedAt IS NULL");
+
+        if ((shape & FROM_DATE) != 0) jpql.append(" AND tr.trainingDate >= :fromDate");
+        if ((shape & TO_DATE) != 0) jpql.append(" AND tr.trainingDate <= :toDate");
+        if ((shape & NAME) != 0) {
+            // case-insensitive partial match on firstName OR lastName OR "first last"
+            String u = counterpartUser;
+            jpql.append(" AND (LOWER(").append(u).append(".firstName) LIKE :name")
+                    .append(" OR LOWER(").append(u).append(".lastName) LIKE :name")
+                    .append(" OR LOWER(CONCAT(").append(u).append(".firstName, ' ', ").append(u)
+                    .append(".lastName)) LIKE :name)");
+        }
+        if ((shape & NAME_USER_IDS) != 0) jpql.append(" AND ").append(counterpartUser).append(".id IN :userIds");
+        if ((shape & TRAINING_TYPE) != 0) jpql.append(" AND tr.trainingType.id = :trainingTypeId");
+        return jpql;
+    }
+
+    private static String paged(StringBuilder jpql, int shape) {
+        StringBuilder paged = new StringBuilder(jpql);
+        if ((shape & AFTER_CURSOR) != 0) {
+            // (trainingDate, id) < cursor, spelled out: Hibernate 6.3 cannot type a tuple of parameters
+            paged.append(" AND (tr.trainingDate < :cursorDate")
+                    .append(" OR (tr.trainingDate = :cursorDate AND tr.id < :cursorId))");
+        }
+        return paged.append(" ORDER BY tr.trainingDate DESC, tr.id DESC").toString();
+    }
+
+    /**
+     * {@code nameUserIds}, when not null, are the users already known to match {@code name}, which is then not
+     * matched again.
+     */
+    public static int shape(LocalDate fromDate, LocalDate toDate, String name, Collection<Long> nameUserIds,
+                            Long trainingTypeId) {
+        int shape = 0;
+        if (fromDate != null) shape |= FROM_DATE;
+        if (toDate != null) shape |= TO_DATE;
+        if (nameUserIds != null) shape |= NAME_USER_IDS;
+        else if (name != null && !name.isEmpty()) shape |= NAME;
+        if (trainingTypeId != null) shape |= TRAINING_TYPE;
+        return shape;
+    }
+
+    /**
+     * Resolves what every search needs before it queries: the owner's id, the training type's id and the users
+     * matching the name filter. Empty when one of them already rules out every row, i.e. an unknown owner, an
+     * unknown training type or a name nobody has.
+     */
+    public static Optional<Criteria> resolve(String ownerUsername, Function<String, Optional<Long>> ownerIds,
+                                             TrainingTypeRegistry trainingTypeRegistry, String trainingTypeName,
+                                             UserNameIndex userNameIndex, String name) {
+        if (ownerUsername == null || ownerUsername.isEmpty()) {
+            return Optional.empty();
+        }
+
+        // resolved in memory, so the query compares training_type_id instead of joining training_types
+        Long trainingTypeId = null;
+        if (trainingTypeName != null && !trainingTypeName.isEmpty()) {
+            trainingTypeId = trainingTypeRegistry.findIdByName(trainingTypeName).orElse(null);
+            if (trainingTypeId == null) {
+                return Optional.empty();
+            }
+        }
+
+        Optional<Long> ownerId = ownerIds.apply(ownerUsername);
+        if (!ownerId.isPresent()) {
+            return Optional.empty();
+        }
+
+        Set<Long> nameUserIds = matchingUserIds(userNameIndex, name);
+        if (nameUserIds != null && nameUserIds.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new Criteria(ownerId.get(), trainingTypeId, nameUserIds));
+    }
+
+    // users matching the name filter, from the index; null when there is no filter or the query has to match it
+    private static Set<Long> matchingUserIds(UserNameIndex userNameIndex, String name) {
+        if (userNameIndex == null || name == null || name.trim().isEmpty()) {
+            return null;
+        }
+        Set<Long> ids = userNameIndex.findUserIds(name);
+        return ids.size() > MAX_NAME_USER_IDS ? null : ids;
+    }
+
+    public String jpql(int shape) {
+        return shapes[shape];
+    }
+
+    public TypedQuery<Training> create(EntityManager entityManager, Long ownerId, LocalDate fromDate, LocalDate toDate,
+                                       String name, Collection<Long> nameUserIds, Long trainingTypeId) {
+        int shape = shape(fromDate, toDate, name, nameUserIds, trainingTypeId);
+        return bind(entityManager.createQuery(shapes[shape], Training.class),
+                ownerId, fromDate, toDate, name, nameUserIds, trainingTypeId);
+    }
+
+    public TypedQuery<TrainingSummary> createSummaries(EntityManager entityManager, Long ownerId, LocalDate fromDate,
+                                                       LocalDate toDate, String name, Collection<Long> nameUserIds,
+                                                       Long trainingTypeId) {
+        int shape = shape(fromDate, toDate, name, nameUserIds, trainingTypeId);
+        return bind(entityManager.createQuery(summaryShapes[shape], TrainingSummary.class),
+                ownerId, fromDate, toDate, name, nameUserIds, trainingTypeId);
+    }
+
+    /**
+     * Fetches one row more than the page size, which tells whether a next page exists without a count query.
+     */
+    public TypedQuery<Training> createPage(EntityManager entityManager, Long ownerId, LocalDate fromDate,
+                                           LocalDate toDate, String name, Collection<Long> nameUserIds,
+                                           Long trainingTypeId, TrainingCursor cursor, int pageSize) {
+        return page(entityManager, pageShapes, Training.class, ownerId, fromDate, toDate, name, nameUserIds,
+                trainingTypeId, cursor, pageSize);
+    }
+
+    public TypedQuery<TrainingSummary> createSummaryPage(EntityManager entityManager, Long ownerId, LocalDate fromDate,
+                                                         LocalDate toDate, String name, Collection<Long> nameUserIds,
+                                                         Long trainingTypeId, TrainingCursor cursor, int pageSize) {
+        return page(entityManager, summaryPageShapes, TrainingSummary.class, ownerId, fromDate, toDate, name,
+                nameUserIds, trainingTypeId, cursor, pageSize);
+    }
+
+    public static Page<Training> toPage(List<Training> rows, int pageSize) {
+        return toPage(rows, pageSize, Training::getTrainingDate, Training::getId);
+    }
+
+    public static Page<TrainingSummary> toSummaryPage(List<TrainingSummary> rows, int pageSize) {
+        return toPage(rows, pageSize, TrainingSummary::getTrainingDate, TrainingSummary::getId);
+    }
+
+    // the extra row only signals that more follow; the cursor points at the last row served
+    private static <T> Page<T> toPage(List<T> rows, int pageSize, Function<T, LocalDate> date, Function<T, Long> id) {
+        if (rows.size() <= pageSize) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, pageSize));
+        T last = items.get(pageSize - 1);
+        return new Page<>(items, new TrainingCursor(date.apply(last), id.apply(last)).encode());
+    }
+
+    private static <T> TypedQuery<T> page(EntityManager entityManager, String[] pageShapes, Class<T> type,
+                                          Long ownerId, LocalDate fromDate, LocalDate toDate, String name,
+                                          Collection<Long> nameUserIds, Long trainingTypeId,
+                                          TrainingCursor cursor, int pageSize) {
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        int shape = shape(fromDate, toDate, name, nameUserIds, trainingTypeId) | (cursor != null ? AFTER_CURSOR : 0);
+        TypedQuery<T> query = bind(entityManager.createQuery(pageShapes[shape], type),
+                ownerId, fromDate, toDate, name, nameUserIds, trainingTypeId);
+        if (cursor != null) {
+            query.setParameter("cursorDate", cursor.getTrainingDate());
+            query.setParameter("cursorId", cursor.getId());
+        }
+        return query.setMaxResults(pageSize + 1);
+    }
+
+    private static <T> TypedQuery<T> bind(TypedQuery<T> query, Long ownerId, LocalDate fromDate, LocalDate toDate,
+                                          String name, Collection<Long> nameUserIds, Long trainingTypeId) {
+        query.setParameter("ownerId", ownerId);
+
+        if (fromDate != null) query.setParameter("fromDate", fromDate);
+        if (toDate != null) query.setParameter("toDate", toDate);
+        if (nameUserIds != null) query.setParameter("userIds", nameUserIds);
+        else if (name != null && !name.isEmpty()) query.setParameter("name", "%" + name.trim().toLowerCase(Locale.ROOT) + "%");
+        if (trainingTypeId != null) query.setParameter("trainingTypeId", trainingTypeId);
+        return query;
+    }
+
+    /**
+     * The resolved filters of one search; {@code nameUserIds} is null when the query matches the name itself.
+     */
+    public static final class Criteria {
+
+        private final Long ownerId;
+        private final Long trainingTypeId;
+        private final Set<Long> nameUserIds;
+
+        private Criteria(Long ownerId, Long trainingTypeId, Set<Long> nameUserIds) {
+            this.ownerId = ownerId;
+            this.trainingTypeId = trainingTypeId;
+            this.nameUserIds = nameUserIds;
+        }
+
+        public Long getOwnerId() {
+            return ownerId;
+        }
+
+        public Long getTrainingTypeId() {
+            return trainingTypeId;
+        }
+
+        public Set<Long> getNameUserIds() {
+            return nameUserIds;
+        }
+    }
+}
@@ -1,57 +1,279 @@
 package com.hibernate.gymapp.repository.impl;
 
 import com.hibernate.gymapp.model.User;
+import com.hibernate.gymapp.model.UsernameSuffix;
+import com.hibernate.gymapp.repository.TrainerAssignmentIndex;
+import com.hibernate.gymapp.repository.TrainingSearchCache;
 import com.hibernate.gymapp.repository.UserRepository;
+import com.hibernate.gymapp.transaction.EntityManagerProvider;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
 import jakarta.persistence.TypedQuery;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.tuple.entity.EntityMetamodel;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 
 public class UserRepositoryImpl implements UserRepository {
 
-    private final EntityManager entityManager;
+    // base names per locking select, and candidate usernames per lookup
+    static final int SUFFIX_BATCH_SIZE = 1_000;
 
+    // sorted, so concurrent batches lock shared base names in the same order and cannot deadlock
+    private static final String LOCK_USERNAME_SUFFIXES =
+            "SELECT s FROM UsernameSuffix s WHERE s.baseUsername IN :bases ORDER BY s.baseUsername";
+
+    // native, so soft-deleted users, whose usernames stay taken until they are purged, are found too
+    private static final String TAKEN_USERNAMES = "SELECT u.username FROM users u WHERE u.username IN (:usernames)";
+
+    // usernames per UPDATE, keeping IN lists well under driver parameter limits
+    static final int STATUS_BATCH_SIZE = 10_000;
+
+    // each side on its own, so both probes run on the (side, training_date) indexes
+    private static final String WITHOUT_TRAINING_SINCE =
+            "NOT EXISTS (SELECT 1 FROM Training tr " +
+            "            WHERE tr.trainee.user.id = u.id AND tr.trainingDate >= :since) " +
+            "AND NOT EXISTS (SELECT 1 FROM Training tr " +
+            "                WHERE tr.trainer.user.id = u.id AND tr.trainingDate >= :since)";
+
+    // users already in the target status are left alone, so the count is of actual changes
+    private static final String SET_ACTIVE = "UPDATE User u SET u.isActive = :active WHERE u.isActive <> :active AND ";
+
+    private final EntityManagerProvider entityManagerProvider;
+    private final TrainingSearchCache searchCache;
+    private final TrainerAssignmentIndex assignmentIndex;
+
+    public UserRepositoryImpl(EntityManagerProvider entityManagerProvider) {
+        this(entityManagerProvider, null);
+    }
+
+    public UserRepositoryImpl(EntityManagerProvider entityManagerProvider, TrainingSearchCache searchCache) {
+        this(entityManagerProvider, searchCache, null);
+    }
+
+    // assignmentIndex, when given, is told about activation changes made by bulk updates
+    public UserRepositoryImpl(EntityManagerProvider entityManagerProvider, TrainingSearchCache searchCache,
+                              TrainerAssignmentIndex assignmentIndex) {
+        this.entityManagerProvider = entityManagerProvider;
+        this.searchCache = searchCache;
+        this.assignmentIndex = assignmentIndex;
+    }
+
+    // single-threaded use, e.g. tests and scripts that manage one EntityManager themselves
     public UserRepositoryImpl(EntityManager entityManager) {
-        this.entityManager = entityManager;
+        this(() -> entityManager);
     }
 
     @Override
     public User save(User user) {
         if (user.getId() == null) {
-            entityManager.persist(user);
+            entityManager().persist(user);
             return user;
         }
-        return entityManager.merge(user);
+        if (searchCache != null && nameChanged(user)) {
+            // training searches filter on the other side's name
+            searchCache.invalidateNameFilteredOnCompletion(entityManager());
+        }
+        return entityManager().merge(user);
+    }
+
+    // against the names as loaded: the persistence context's snapshot for a managed user, else the row merged into
+    private boolean nameChanged(User user) {
+        SessionImplementor session = entityManager().unwrap(SessionImplementor.class);
+        EntityEntry entry = session.getPersistenceContextInternal().getEntry(user);
+        if (entry != null && entry.getLoadedState() != null) {
+            EntityMetamodel metamodel = entry.getPersister().getEntityMetamodel();
+            Object[] loaded = entry.getLoadedState();
+            return !Objects.equals(loaded[metamodel.getPropertyIndex("firstName")], user.getFirstName())
+                    || !Objects.equals(loaded[metamodel.getPropertyIndex("lastName")], user.getLastName());
+        }
+
+        // the merge below loads the same row, so this costs nothing extra
+        User current = entityManager().find(User.class, user.getId());
+        return current == null
+                || !Objects.equals(current.getFirstName(), user.getFirstName())
+                || !Objects.equals(current.getLastName(), user.getLastName());
     }
 
     @Override
     public Optional<User> findById(Long id) {
-        return Optional.ofNullable(entityManager.find(User.class, id));
+        return Optional.ofNullable(entityManager().find(User.class, id));
     }
 
     @Override
     public Optional<User> findByUsername(String username) {
-        TypedQuery<User> query = entityManager.createQuery(
-                "SELECT u FROM User u WHERE u.username = :username", User.class
-        );
+        // natural id lookup, answered from the second-level cache when the user was seen before
+        return entityManager().unwrap(Session.class).bySimpleNaturalId(User.class).loadOptional(username);
+    }
+
+    @Override
+    public String reserveUsername(String baseUsername) {
+        return reserveUsernames(Collections.singletonList(baseUsername)).get(0);
+    }
+
+    @Override
+    public List<String> reserveUsernames(List<String> baseUsernames) {
+        Map<String, UsernameSuffix> counters = lockCounters(baseUsernames);
+        String[] usernames = new String[baseUsernames.size()];
+
+        List<Integer> pending = new ArrayList<>(baseUsernames.size());
+        for (int i = 0; i < baseUsernames.size(); i++) {
+            pending.add(i);
+        }
+        /*
+         * A counter can point at a name that is already taken: a base name ending in digits shares names with a
+         * shorter one ("ann.lee1" is also "ann.lee" + 1), and a base name seen before its counter existed starts at
+         * 0. Taken candidates move on to their next suffix; a counter is behind only once, so this rarely loops.
+         */
+        while (!pending.isEmpty()) {
+            Map<String, Integer> candidates = new LinkedHashMap<>();
+            List<Integer> retry = new ArrayList<>();
+            for (Integer position : pending) {
+                String baseUsername = baseUsernames.get(position);
+                UsernameSuffix counter = counters.get(baseUsername);
+                long suffix = counter.getNextSuffix();
+                counter.setNextSuffix(suffix + 1);
+
+                String candidate = suffix == 0 ? baseUsername : baseUsername + suffix;
+                if (candidates.putIfAbsent(candidate, position) != null) {
+                    retry.add(position);
+                }
+            }
 
-        query.setParameter("username", username);
-        return query.getResultStream().findFirst();
+            Set<String> taken = findTakenUsernames(candidates.keySet());
+            for (Map.Entry<String, Integer> candidate : candidates.entrySet()) {
+                if (taken.contains(candidate.getKey())) {
+                    retry.add(candidate.getValue());
+                } else {
+                    usernames[candidate.getValue()] = candidate.getKey();
+                }
+            }
+            Collections.sort(retry);
+            pending = retry;
+        }
+        return Arrays.asList(usernames);
+    }
+
+    // the counters of the given base names, locked; base names seen for the first time get a new counter at 0
+    private Map<String, UsernameSuffix> lockCounters(Collection<String> baseUsernames) {
+        List<String> bases = new ArrayList<>(new TreeSet<>(baseUsernames));
+        Map<String, UsernameSuffix> counters = new HashMap<>();
+
+        for (int from = 0; from < bases.size(); from += SUFFIX_BATCH_SIZE) {
+            List<UsernameSuffix> locked = entityManager().createQuery(LOCK_USERNAME_SUFFIXES, UsernameSuffix.class)
+                    .setParameter("bases", bases.subList(from, Math.min(from + SUFFIX_BATCH_SIZE, bases.size())))
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .getResultList();
+            for (UsernameSuffix counter : locked) {
+                counters.put(counter.getBaseUsername(), counter);
+            }
+        }
+        for (String base : bases) {
+            if (!counters.containsKey(base)) {
+                // two first registrations of a new base name on different nodes meet at this insert's primary key
+                UsernameSuffix counter = new UsernameSuffix(base, 0L);
+                entityManager().persist(counter);
+                counters.put(base, counter);
+            }
+        }
+        return counters;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<String> findTakenUsernames(Collection<String> usernames) {
+        List<String> candidates = new ArrayList<>(usernames);
+        Set<String> taken = new HashSet<>();
+
+        for (int from = 0; from < candidates.size(); from += SUFFIX_BATCH_SIZE) {
+            taken.addAll(entityManager().createNativeQuery(TAKEN_USERNAMES)
+                    .setParameter("usernames",
+                            candidates.subList(from, Math.min(from + SUFFIX_BATCH_SIZE, candidates.size())))
+                    .getResultList());
+        }
+        return taken;
     }
 
     @Override
     public List<User> findAll() {
-        TypedQuery<User> query = entityManager.createQuery("SELECT u FROM User u", User.class);
+        TypedQuery<User> query = entityManager().createQuery("SELECT u FROM User u", User.class);
         return query.getResultList();
     }
 
     @Override
     public void delete(User user) {
-        if (!entityManager.contains(user)) {
-            user = entityManager.merge(user);
+        if (!entityManager().contains(user)) {
+            user = entityManager().merge(user);
         }
-        entityManager.remove(user);
+        entityManager().remove(user);
     }
-}
 
+    @Override
+    public int updateActiveByUsernames(Collection<String> usernames, boolean active) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(usernames));
+        int updated = 0;
+        for (int from = 0; from < distinct.size(); from += STATUS_BATCH_SIZE) {
+            List<String> batch = distinct.subList(from, Math.min(from + STATUS_BATCH_SIZE, distinct.size()));
+            updated += entityManager().createQuery(SET_ACTIVE + "u.username IN :usernames")
+                    .setParameter("active", active)
+                    .setParameter("usernames", batch)
+                    .executeUpdate();
+        }
+        statusChanged(updated);
+        return updated;
+    }
+
+    @Override
+    public List<String> updateActiveWithoutTrainingSince(LocalDate since, boolean active) {
+        // locked until the transaction ends, so the users updated by id below are exactly the ones selected here
+        List<Object[]> rows = entityManager().createQuery(
+                        "SELECT u.id, u.username FROM User u WHERE u.isActive <> :active AND " + WITHOUT_TRAINING_SINCE,
+                        Object[].class)
+                .setParameter("active", active)
+                .setParameter("since", since)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+
+        List<Long> ids = new ArrayList<>(rows.size());
+        List<String> usernames = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            ids.add((Long) row[0]);
+            usernames.add((String) row[1]);
+        }
+        int updated = 0;
+        for (int from = 0; from < ids.size(); from += STATUS_BATCH_SIZE) {
+            updated += entityManager().createQuery(SET_ACTIVE + "u.id IN :ids")
+                    .setParameter("active", active)
+                    .setParameter("ids", ids.subList(from, Math.min(from + STATUS_BATCH_SIZE, ids.size())))
+                    .executeUpdate();
+        }
+        statusChanged(updated);
+        return usernames;
+    }
+
+    // the bulk update evicts the users region and username lookups itself; only the trainer bitmaps are ours
+    private void statusChanged(int updated) {
+        if (updated > 0 && assignmentIndex != null) {
+            assignmentIndex.invalidateTrainersOnCompletion(entityManager());
+        }
+    }
+
+    private EntityManager entityManager() {
+        return entityManagerProvider.get();
+    }
+}
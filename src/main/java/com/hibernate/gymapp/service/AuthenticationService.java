@@ -2,9 +2,13 @@ package com.hibernate.gymapp.service;
 
 import com.hibernate.gymapp.model.User;
 import com.hibernate.gymapp.repository.UserRepository;
+import com.hibernate.gymapp.transaction.UnitOfWork;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public class AuthenticationService {
@@ -12,9 +16,30 @@ public class AuthenticationService {
     private static final Logger logger = LoggerFactory.getLogger(AuthenticationService.class);
 
     private final UserRepository userRepository;
+    private final CredentialCache credentialCache;
+    private final SessionManager sessionManager;
+    private final UnitOfWork unitOfWork;
 
     public AuthenticationService(UserRepository userRepository) {
+        this(userRepository, new CredentialCache(), new SessionManager());
+    }
+
+    public AuthenticationService(UserRepository userRepository, CredentialCache credentialCache) {
+        this(userRepository, credentialCache, new SessionManager());
+    }
+
+    public AuthenticationService(UserRepository userRepository, CredentialCache credentialCache,
+                                 SessionManager sessionManager) {
+        this(userRepository, credentialCache, sessionManager, null);
+    }
+
+    // with a unitOfWork, invalidations are repeated once the caller's transaction completes
+    public AuthenticationService(UserRepository userRepository, CredentialCache credentialCache,
+                                 SessionManager sessionManager, UnitOfWork unitOfWork) {
         this.userRepository = userRepository;
+        this.credentialCache = credentialCache;
+        this.sessionManager = sessionManager;
+        this.unitOfWork = unitOfWork;
     }
 
     public boolean authenticateTrainee(String username, String password) {
@@ -27,34 +52,111 @@ public class AuthenticationService {
         return authenticateUser(username, password);
     }
 
+    public Optional<SessionToken> login(String username, String password) {
+        logger.info("Opening session for user: {}", username);
+
+        Optional<Long> userId = verifyCredentials(username, password);
+        if (!userId.isPresent()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(sessionManager.issue(userId.get(), username));
+    }
+
+    public Optional<SessionManager.Session> resolveSession(SessionToken token) {
+        Optional<SessionManager.Session> session = sessionManager.resolve(token);
+
+        if (!session.isPresent()) {
+            logger.warn("Authentication failed: Session is invalid or expired");
+        }
+
+        return session;
+    }
+
+    public void logout(SessionToken token) {
+        sessionManager.revoke(token);
+    }
+
+    /**
+     * Also revokes every open session of the user, so password and status changes take effect immediately. Done now
+     * and again when the current transaction completes: a login running meanwhile still reads the old row and would
+     * otherwise cache it, and then authenticate from that entry until it expires.
+     */
+    public void invalidateCredentials(String username) {
+        logger.debug("Invalidating cached credentials for user: {}", username);
+        nowAndOnCompletion(() -> {
+            credentialCache.invalidate(username);
+            sessionManager.revokeAll(username);
+        });
+    }
+
+    // same for many users at once, e.g. after a bulk status change
+    public void invalidateCredentials(Collection<String> usernames) {
+        logger.debug("Invalidating cached credentials for {} users", usernames.size());
+        List<String> invalidated = new ArrayList<>(usernames);
+        nowAndOnCompletion(() -> {
+            credentialCache.invalidate(invalidated);
+            sessionManager.revokeAll(invalidated);
+        });
+    }
+
+    public CredentialCache.Stats getCredentialCacheStats() {
+        return credentialCache.stats();
+    }
+
+    private void nowAndOnCompletion(Runnable invalidation) {
+        invalidation.run();
+        if (unitOfWork != null && unitOfWork.isActive()) {
+            unitOfWork.afterCompletion(invalidation);
+        }
+    }
+
     private boolean authenticateUser(String username, String password) {
+        return verifyCredentials(username, password).isPresent();
+    }
+
+    private Optional<Long> verifyCredentials(String username, String password) {
+        Optional<CredentialCache.Entry> cached = credentialCache.get(username);
+
+        if (cached.isPresent()) {
+            CredentialCache.Entry entry = cached.get();
+
+            if (!entry.isActive()) {
+                logger.warn("Authentication failed: User {} is deactivated", username);
+                return Optional.empty();
+            }
+
+            if (entry.matches(password)) {
+                logger.info("You have been successfully authenticated!");
+                return Optional.of(entry.getUserId());
+            }
+            // the password may have been changed elsewhere, so a mismatch is re-checked against the database
+        }
+
+        long cacheVersion = credentialCache.version(username);
         Optional<User> userOpt = userRepository.findByUsername(username);
 
         if (!userOpt.isPresent()) { // put isEmpty instead of isPresent
             logger.warn("Authentication failed: User {} not found", username);
-            return false;
+            return Optional.empty();
         }
 
         User user = userOpt.get();
+        credentialCache.put(user, cacheVersion);
 
         if (!user.getIsActive()) {
             logger.warn("Authentication failed: User {} is deactivated", username);
-            return false;
+            return Optional.empty();
         }
 
         boolean passwordMatches = user.getPassword().equals(password);
 
         if (!passwordMatches) {
             logger.warn("Authentication failed: Wrong password for user {}", username);
-        } else {
-            logger.info("You have been successfully authenticated!");
+            return Optional.empty();
         }
 
-        return passwordMatches;
+        logger.info("You have been successfully authenticated!");
+        return Optional.of(user.getId());
     }
 }
-
-
-
-
-
@@ -0,0 +1,234 @@
+package com.hibernate.gymapp.service;
+
+import com.hibernate.gymapp.model.User;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of verified credentials, evicting by size and by TTL.
+ * Plain passwords are never kept: each entry stores a salted SHA-256 verifier.
+ */
+public class CredentialCache {
+
+    public static final int DEFAULT_MAX_SIZE = 10_000;
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+
+    private static final int SALT_LENGTH = 16;
+
+    // version stripes; a power of two, so a username's stripe is a mask of its hash
+    private static final int VERSION_STRIPES = 256;
+    private static final SecureRandom saltRandom = new SecureRandom();
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry> entries;
+
+    /*
+     * Bumped by every invalidation of a username in the stripe; credentials read before a change commits must not be
+     * stored after it. Striped, so an invalidation only rejects the concurrent puts of usernames sharing its stripe.
+     */
+    private final long[] versions = new long[VERSION_STRIPES];
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public CredentialCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_TTL);
+    }
+
+    public CredentialCache(int maxSize, Duration ttl) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Cache TTL must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > CredentialCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // to be taken before the user is read, and handed to put(User, long)
+    public synchronized long version(String username) {
+        return versions[stripe(username)];
+    }
+
+    public synchronized Optional<Entry> get(String username) {
+        Entry entry = entries.get(username);
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+
+        if (entry.isExpired(System.nanoTime())) {
+            entries.remove(username);
+            evictions.incrementAndGet();
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+
+        hits.incrementAndGet();
+        return Optional.of(entry);
+    }
+
+    public void put(User user) {
+        put(user, version(user.getUsername()));
+    }
+
+    /**
+     * Stores the user's credentials unless something was invalidated since {@code readVersion}, taken before the
+     * user was read.
+     */
+    public void put(User user, long readVersion) {
+        byte[] salt = new byte[SALT_LENGTH];
+        saltRandom.nextBytes(salt);
+
+        Entry entry = new Entry(user.getId(), salt, digest(salt, user.getPassword()),
+                Boolean.TRUE.equals(user.getIsActive()), System.nanoTime() + ttlNanos);
+
+        synchronized (this) {
+            if (readVersion == versions[stripe(user.getUsername())]) {
+                entries.put(user.getUsername(), entry);
+            }
+        }
+    }
+
+    public synchronized void invalidate(String username) {
+        versions[stripe(username)]++;
+        entries.remove(username);
+    }
+
+    public synchronized void invalidate(Collection<String> usernames) {
+        for (String username : usernames) {
+            versions[stripe(username)]++;
+            entries.remove(username);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        for (int i = 0; i < versions.length; i++) {
+            versions[i]++;
+        }
+        entries.clear();
+    }
+
+    // drops expired entries eagerly; get() already ignores them, this only reclaims memory
+    public synchronized int purgeExpired() {
+        long now = System.nanoTime();
+        int purged = 0;
+
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().isExpired(now)) {
+                it.remove();
+                purged++;
+            }
+        }
+
+        evictions.addAndGet(purged);
+        return purged;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits.get(), misses.get(), evictions.get(), entries.size(), maxSize);
+    }
+
+    private static int stripe(String username) {
+        int hash = username.hashCode();
+        return (hash ^ (hash >>> 16)) & (VERSION_STRIPES - 1);
+    }
+
+    private static byte[] digest(byte[] salt, String password) {
+        if (password == null) {
+            return new byte[0];
+        }
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(salt);
+            return sha.digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public static final class Entry {
+
+        @Getter
+        private final Long userId;
+        @Getter
+        private final boolean active;
+        private final byte[] salt;
+        private final byte[] verifier;
+        private final long expiresAtNanos;
+
+        private Entry(Long userId, byte[] salt, byte[] verifier, boolean active, long expiresAtNanos) {
+            this.userId = userId;
+            this.salt = salt;
+            this.verifier = verifier;
+            this.active = active;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        public boolean matches(String password) {
+            if (password == null || verifier.length == 0) {
+                return false;
+            }
+            return MessageDigest.isEqual(verifier, digest(salt, password));
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+
+    @Getter
+    public static final class Stats {
+
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final int size;
+        private final int maxSize;
+
+        private Stats(long hits, long misses, long evictions, int size, int maxSize) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.size = size;
+            this.maxSize = maxSize;
+        }
+
+        public double getHitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return "CredentialCache.Stats{hits=" + hits + ", misses=" + misses + ", evictions=" + evictions
+                    + ", size=" + size + "/" + maxSize + "}";
+        }
+    }
+}
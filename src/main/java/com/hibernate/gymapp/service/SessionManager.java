@@ -0,0 +1,171 @@
+package com.hibernate.gymapp.service;
+
+import lombok.Getter;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory registry of issued session tokens. A session is bound to the user id loaded at login,
+ * so token-based calls never need to look the user up by username again.
+ */
+public class SessionManager {
+
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(30);
+    public static final int DEFAULT_MAX_SESSIONS = 100_000;
+
+    private static final int TOKEN_BYTES = 32;
+    private static final SecureRandom random = new SecureRandom();
+    private static final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+
+    private final long ttlNanos;
+    private final int maxSessions;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    // tokens per username, so revoking a user's sessions touches only those; each set is only changed inside compute
+    private final Map<String, Set<String>> tokensByUsername = new ConcurrentHashMap<>();
+
+    public SessionManager() {
+        this(DEFAULT_TTL, DEFAULT_MAX_SESSIONS);
+    }
+
+    public SessionManager(Duration ttl, int maxSessions) {
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Session TTL must be positive");
+        }
+        if (maxSessions <= 0) {
+            throw new IllegalArgumentException("Maximum number of sessions must be positive");
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.maxSessions = maxSessions;
+    }
+
+    public SessionToken issue(Long userId, String username) {
+        if (sessions.size() >= maxSessions) {
+            purgeExpired();
+            if (sessions.size() >= maxSessions) {
+                throw new IllegalStateException("Too many active sessions");
+            }
+        }
+
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String value = encoder.encodeToString(bytes);
+
+        Session session = new Session(userId, username, System.nanoTime() + ttlNanos);
+        tokensByUsername.compute(username, (key, tokens) -> {
+            Set<String> indexed = tokens != null ? tokens : new HashSet<>();
+            indexed.add(value);
+            sessions.put(value, session);
+            return indexed;
+        });
+        return new SessionToken(value);
+    }
+
+    public Optional<Session> resolve(SessionToken token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+
+        Session session = sessions.get(token.getValue());
+        if (session == null) {
+            return Optional.empty();
+        }
+
+        if (session.isExpired(System.nanoTime())) {
+            if (sessions.remove(token.getValue(), session)) {
+                unindex(token.getValue(), session);
+            }
+            return Optional.empty();
+        }
+
+        return Optional.of(session);
+    }
+
+    public void revoke(SessionToken token) {
+        if (token != null) {
+            Session removed = sessions.remove(token.getValue());
+            if (removed != null) {
+                unindex(token.getValue(), removed);
+            }
+        }
+    }
+
+    public int revokeAll(String username) {
+        // a session issued after this removal starts a new set and stays open
+        Set<String> tokens = tokensByUsername.remove(username);
+        if (tokens == null) {
+            return 0;
+        }
+
+        int removed = 0;
+        for (String token : tokens) {
+            if (sessions.remove(token) != null) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public int revokeAll(Collection<String> usernames) {
+        int removed = 0;
+        for (String username : new HashSet<>(usernames)) {
+            removed += revokeAll(username);
+        }
+        return removed;
+    }
+
+    public int purgeExpired() {
+        long now = System.nanoTime();
+        int removed = 0;
+
+        Iterator<Map.Entry<String, Session>> it = sessions.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Session> entry = it.next();
+            if (entry.getValue().isExpired(now)) {
+                it.remove();
+                unindex(entry.getKey(), entry.getValue());
+                removed++;
+            }
+        }
+
+        return removed;
+    }
+
+    public int activeSessions() {
+        return sessions.size();
+    }
+
+    private void unindex(String token, Session session) {
+        tokensByUsername.computeIfPresent(session.getUsername(), (key, tokens) -> {
+            tokens.remove(token);
+            return tokens.isEmpty() ? null : tokens;
+        });
+    }
+
+    @Getter
+    public static final class Session {
+
+        private final Long userId;
+        private final String username;
+        private final long expiresAtNanos;
+
+        private Session(Long userId, String username, long expiresAtNanos) {
+            this.userId = userId;
+            this.username = username;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
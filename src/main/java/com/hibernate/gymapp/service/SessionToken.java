@@ -0,0 +1,27 @@
+package com.hibernate.gymapp.service;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Opaque bearer token handed out by {@link AuthenticationService#login(String, String)}.
+ */
+@Getter
+@EqualsAndHashCode
+public final class SessionToken {
+
+    private final String value;
+
+    public SessionToken(String value) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Token value is required");
+        }
+        this.value = value;
+    }
+
+    // never print the token itself, it is a credential
+    @Override
+    public String toString() {
+        return "SessionToken[" + value.substring(0, Math.min(6, value.length())) + "...]";
+    }
+}
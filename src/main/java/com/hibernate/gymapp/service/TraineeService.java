@@ -1,10 +1,13 @@
 package com.hibernate.gymapp.service;
 
+import com.hibernate.gymapp.dto.TrainingSummary;
 import com.hibernate.gymapp.model.Trainee;
 import com.hibernate.gymapp.model.Trainer;
 import com.hibernate.gymapp.model.Training;
 import com.hibernate.gymapp.model.User;
 import com.hibernate.gymapp.repository.TraineeRepository;
+import com.hibernate.gymapp.repository.FetchPlan;
+import com.hibernate.gymapp.repository.Page;
 import com.hibernate.gymapp.repository.TrainingRepository;
 import com.hibernate.gymapp.repository.UserRepository;
 import com.hibernate.gymapp.utils.CredentialsGenerator;
@@ -86,6 +89,11 @@ public class TraineeService {
         return traineeRepository.findByUsername(username);
     }
 
+    public Optional<Trainee> getTraineeProfile(SessionToken token) {
+        logger.debug("Getting trainee profile for session: {}", token);
+        return findTraineeForSession(token);
+    }
+
     @Transactional
     public boolean changeTraineePassword(String username, String oldPassword, String newPassword) {
         logger.info("Changing password for trainer username: {}", username);
@@ -114,6 +122,7 @@ public class TraineeService {
 
             trainee.getUser().setPassword(newPassword.trim());
             userRepository.save(trainee.getUser());
+            authenticationService.invalidateCredentials(username);
 
             logger.info("Successfully changed password for trainer username: {}", username);
             return true;
@@ -143,34 +152,59 @@ public class TraineeService {
                 return Optional.empty();
             }
 
-            Trainee trainee = traineeOpt.get();
-            User user = trainee.getUser();
+            return Optional.of(applyProfileUpdate(traineeOpt.get(), newFirstName, newLastName, isActive));
 
-            // Update fields if provided
-            if (newFirstName != null && !newFirstName.trim().isEmpty()) {
-                user.setFirstName(newFirstName.trim());
-            }
+        } catch (Exception e) {
+            logger.error("Error updating trainer profile for username: {}", username, e);
+            throw new RuntimeException("Failed to update trainer profile", e);
+        }
+    }
 
-            if (newLastName != null && !newLastName.trim().isEmpty()) {
-                user.setLastName(newLastName.trim());
-            }
+    @Transactional
+    public Optional<Trainee> updateTraineeProfile(SessionToken token,
+                                                  String newFirstName, String newLastName,
+                                                  LocalDate newDateOfBirth, String newAddress,
+                                                  Boolean isActive) {
+        logger.info("Updating trainee profile for session: {}", token);
 
-            if (isActive != null) {
-                user.setIsActive(isActive);
+        try {
+            Optional<Trainee> traineeOpt = findTraineeForSession(token);
+            if (!traineeOpt.isPresent()) {
+                return Optional.empty();
             }
 
-            userRepository.save(user);
-            Trainee updatedTrainee = traineeRepository.save(trainee);
-
-            logger.info("Successfully updated trainer profile for username: {}", username);
-            return Optional.of(updatedTrainee);
+            return Optional.of(applyProfileUpdate(traineeOpt.get(), newFirstName, newLastName, isActive));
 
         } catch (Exception e) {
-            logger.error("Error updating trainer profile for username: {}", username, e);
-            throw new RuntimeException("Failed to update trainer profile", e);
+            logger.error("Error updating trainee profile for session: {}", token, e);
+            throw new RuntimeException("Failed to update trainee profile", e);
         }
     }
 
+    private Trainee applyProfileUpdate(Trainee trainee, String newFirstName, String newLastName, Boolean isActive) {
+        User user = trainee.getUser();
+
+        // Update fields if provided
+        if (newFirstName != null && !newFirstName.trim().isEmpty()) {
+            user.setFirstName(newFirstName.trim());
+        }
+
+        if (newLastName != null && !newLastName.trim().isEmpty()) {
+            user.setLastName(newLastName.trim());
+        }
+
+        if (isActive != null) {
+            user.setIsActive(isActive);
+        }
+
+        userRepository.save(user);
+        Trainee updatedTrainee = traineeRepository.save(trainee);
+        authenticationService.invalidateCredentials(user.getUsername());
+
+        logger.info("Successfully updated trainer profile for username: {}", user.getUsername());
+        return updatedTrainee;
+    }
+
     @Transactional
     public boolean activateDeactivateTrainee(String username, String password, boolean active) {
         logger.info("{} trainer with username: {}", active ? "Activating" : "Deactivating", username);
@@ -187,28 +221,52 @@ public class TraineeService {
                 return false;
             }
 
-            Trainee trainee = traineeOpt.get();
+            return applyStatusChange(traineeOpt.get(), active);
 
-            // Check if already in desired state (non-idempotent check)
-            if (trainee.getUser().getIsActive() == active) {
-                logger.warn("Trainer is already {}", active ? "active" : "inactive");
+        } catch (Exception e) {
+            logger.error("Error {} trainer with username: {}",
+                    active ? "activating" : "deactivating", username, e);
+            throw new RuntimeException("Failed to update trainer status", e);
+        }
+    }
+
+    @Transactional
+    public boolean activateDeactivateTrainee(SessionToken token, boolean active) {
+        logger.info("{} trainee for session: {}", active ? "Activating" : "Deactivating", token);
+
+        try {
+            Optional<Trainee> traineeOpt = findTraineeForSession(token);
+            if (!traineeOpt.isPresent()) {
                 return false;
             }
 
-            trainee.getUser().setIsActive(active);
-            userRepository.save(trainee.getUser());
-
-            logger.info("Successfully {} trainer with username: {}",
-                    active ? "activated" : "deactivated", username);
-            return true;
+            return applyStatusChange(traineeOpt.get(), active);
 
         } catch (Exception e) {
-            logger.error("Error {} trainer with username: {}",
-                    active ? "activating" : "deactivating", username, e);
-            throw new RuntimeException("Failed to update trainer status", e);
+            logger.error("Error {} trainee for session: {}",
+                    active ? "activating" : "deactivating", token, e);
+            throw new RuntimeException("Failed to update trainee status", e);
         }
     }
 
+    private boolean applyStatusChange(Trainee trainee, boolean active) {
+        String username = trainee.getUser().getUsername();
+
+        // Check if already in desired state (non-idempotent check)
+        if (trainee.getUser().getIsActive() == active) {
+            logger.warn("Trainer is already {}", active ? "active" : "inactive");
+            return false;
+        }
+
+        trainee.getUser().setIsActive(active);
+        userRepository.save(trainee.getUser());
+        authenticationService.invalidateCredentials(username);
+
+        logger.info("Successfully {} trainer with username: {}",
+                active ? "activated" : "deactivated", username);
+        return true;
+    }
+
     @Transactional
     public boolean deleteTraineeProfile(String username, String password) {
         logger.info("Deleting trainee profile for username: {}", username);
@@ -227,9 +285,11 @@ public class TraineeService {
 
             Trainee trainee = traineeOpt.get();
 
-            traineeRepository.delete(trainee);
+            // instant for the caller; PurgeWorker removes the rows later
+            traineeRepository.softDelete(trainee);
+            authenticationService.invalidateCredentials(username);
 
-            logger.info("Successfully deleted trainee profile and associated trainings for username: {}", username);
+            logger.info("Successfully deleted trainee profile for username: {}", username);
             return true;
 
         } catch (Exception e) {
@@ -238,6 +298,32 @@ public class TraineeService {
         }
     }
 
+    @Transactional
+    public boolean deleteTraineeProfile(SessionToken token) {
+        logger.info("Deleting trainee profile for session: {}", token);
+
+        try {
+            Optional<Trainee> traineeOpt = findTraineeForSession(token);
+            if (!traineeOpt.isPresent()) {
+                return false;
+            }
+
+            Trainee trainee = traineeOpt.get();
+            String username = trainee.getUser().getUsername();
+
+            // instant for the caller; PurgeWorker removes the rows later
+            traineeRepository.softDelete(trainee);
+            authenticationService.invalidateCredentials(username);
+
+            logger.info("Successfully deleted trainee profile for username: {}", username);
+            return true;
+
+        } catch (Exception e) {
+            logger.error("Error deleting trainee profile for session: {}", token, e);
+            throw new RuntimeException("Failed to delete trainee profile", e);
+        }
+    }
+
     public List<Trainer> findNonAssignedTrainers(String traineeUsername, String password) {
         logger.info("Searching for all the trainers that are not assigned to this specific trainee: {}", traineeUsername);
 
@@ -270,6 +356,48 @@ public class TraineeService {
         }
     }
 
+    public List<Trainer> findNonAssignedTrainers(SessionToken token) {
+        Optional<SessionManager.Session> session = authenticationService.resolveSession(token);
+        if (!session.isPresent()) {
+            return Collections.emptyList();
+        }
+
+        String traineeUsername = session.get().getUsername();
+        logger.info("Searching for all the trainers that are not assigned to this specific trainee: {}", traineeUsername);
+
+        try {
+            List<Trainer> trainers = traineeRepository.findTrainersNotAssignedToTrainee(traineeUsername);
+
+            logger.info("Successfully fetched all the trainers: {}", traineeUsername);
+            return trainers == null ? Collections.<Trainer>emptyList() : trainers;
+
+        } catch (PersistenceException e) {
+            logger.error("Failed to fetch trainers: {}", traineeUsername, e);
+            throw new PersistenceException(e);
+        }
+    }
+
+    public Page<Trainer> getNonAssignedTrainersPage(SessionToken token, String specializationName, String cursor,
+                                                    int pageSize) {
+        Optional<SessionManager.Session> session = authenticationService.resolveSession(token);
+        if (!session.isPresent()) {
+            return Page.empty();
+        }
+
+        String traineeUsername = session.get().getUsername();
+        logger.info("Fetching page of trainers not assigned to trainee [{}]: specialization={}, pageSize={}",
+                traineeUsername, specializationName, pageSize);
+
+        try {
+            return traineeRepository.findActiveTrainersNotAssignedToTrainee(traineeUsername, specializationName,
+                    cursor, pageSize);
+
+        } catch (Exception e) {
+            logger.error("Failed to fetch trainers: {}", traineeUsername, e);
+            throw new RuntimeException("Failed to fetch trainers", e);
+        }
+    }
+
     public List<Training> getTraineeTrainingsByCriteria(
             String traineeUsername,
             String password,
@@ -293,20 +421,158 @@ public class TraineeService {
                 return Collections.emptyList();
             }
 
-            List<Training> trainings = traineeRepository.findTrainingsByTraineeUsernameWithCriteria(
-                    traineeUsername, fromDate, toDate, trainerName, trainingTypeName);
+            return searchTrainings(traineeUsername, fromDate, toDate, trainerName, trainingTypeName);
 
-            if (trainings == null || trainings.isEmpty()) {
-                logger.info("No trainings found for trainee [{}] with given criteria", traineeUsername);
-                return Collections.emptyList();
-            }
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error while fetching trainings for trainee [{}]", traineeUsername, e);
+            throw new RuntimeException("Failed to fetch trainings", e);
+        }
+    }
+
+    public List<Training> getTraineeTrainingsByCriteria(
+            SessionToken token,
+            LocalDate fromDate,
+            LocalDate toDate,
+            String trainerName,
+            String trainingTypeName
+    ) {
+        Optional<SessionManager.Session> session = authenticationService.resolveSession(token);
+        if (!session.isPresent()) {
+            return Collections.emptyList();
+        }
 
-            logger.info("Found {} trainings for trainee [{}]", trainings.size(), traineeUsername);
-            return trainings;
+        String traineeUsername = session.get().getUsername();
+        logger.info("Fetching trainings for trainee [{}] with criteria: fromDate={}, toDate={}, trainerName={}, trainingTypeName={}",
+                traineeUsername, fromDate, toDate, trainerName, trainingTypeName);
 
+        try {
+            return searchTrainings(traineeUsername, fromDate, toDate, trainerName, trainingTypeName);
+
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error while fetching trainings for trainee [{}]", traineeUsername, e);
             throw new RuntimeException("Failed to fetch trainings", e);
         }
     }
+
+    public Page<Training> getTraineeTrainingsPage(
+            SessionToken token,
+            LocalDate fromDate,
+            LocalDate toDate,
+            String trainerName,
+            String trainingTypeName,
+            String cursor,
+            int pageSize
+    ) {
+        Optional<SessionManager.Session> session = authenticationService.resolveSession(token);
+        if (!session.isPresent()) {
+            return Page.empty();
+        }
+
+        String traineeUsername = session.get().getUsername();
+        logger.info("Fetching training page for trainee [{}] with criteria: fromDate={}, toDate={}, trainerName={}, trainingTypeName={}, pageSize={}",
+                traineeUsername, fromDate, toDate, trainerName, trainingTypeName, pageSize);
+
+        try {
+            return traineeRepository.findTrainingPageByTraineeUsernameWithCriteria(
+                    traineeUsername, fromDate, toDate, trainerName, trainingTypeName, cursor, pageSize,
+                    FetchPlan.TRAINING_WITH_PARTICIPANTS);
+
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error while fetching training page for trainee [{}]", traineeUsername, e);
+            throw new RuntimeException("Failed to fetch trainings", e);
+        }
+    }
+
+    public List<TrainingSummary> getTraineeTrainingSummaries(
+            SessionToken token,
+            LocalDate fromDate,
+            LocalDate toDate,
+            String trainerName,
+            String trainingTypeName
+    ) {
+        Optional<SessionManager.Session> session = authenticationService.resolveSession(token);
+        if (!session.isPresent()) {
+            return Collections.emptyList();
+        }
+
+        String traineeUsername = session.get().getUsername();
+        logger.info("Fetching training summaries for trainee [{}] with criteria: fromDate={}, toDate={}, trainerName={}, trainingTypeName={}",
+                traineeUsername, fromDate, toDate, trainerName, trainingTypeName);
+
+        try {
+            return traineeRepository.findTrainingSummariesByTraineeUsernameWithCriteria(
+                    traineeUsername, fromDate, toDate, trainerName, trainingTypeName);
+
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error while fetching training summaries for trainee [{}]", traineeUsername, e);
+            throw new RuntimeException("Failed to fetch trainings", e);
+        }
+    }
+
+    public Page<TrainingSummary> getTraineeTrainingSummaryPage(
+            SessionToken token,
+            LocalDate fromDate,
+            LocalDate toDate,
+            String trainerName,
+            String trainingTypeName,
+            String cursor,
+            int pageSize
+    ) {
+        Optional<SessionManager.Session> session = authenticationService.resolveSession(token);
+        if (!session.isPresent()) {
+            return Page.empty();
+        }
+
+        String traineeUsername = session.get().getUsername();
+        logger.info("Fetching training summary page for trainee [{}] with criteria: fromDate={}, toDate={}, trainerName={}, trainingTypeName={}, pageSize={}",
+                traineeUsername, fromDate, toDate, trainerName, trainingTypeName, pageSize);
+
+        try {
+            return traineeRepository.findTrainingSummaryPageByTraineeUsernameWithCriteria(
+                    traineeUsername, fromDate, toDate, trainerName, trainingTypeName, cursor, pageSize);
+
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error while fetching training summary page for trainee [{}]", traineeUsername, e);
+            throw new RuntimeException("Failed to fetch trainings", e);
+        }
+    }
+
+    private List<Training> searchTrainings(String traineeUsername, LocalDate fromDate, LocalDate toDate,
+                                           String trainerName, String trainingTypeName) {
+        // callers show who trained and what, so participants and type come back with the rows
+        List<Training> trainings = traineeRepository.findTrainingsByTraineeUsernameWithCriteria(
+                traineeUsername, fromDate, toDate, trainerName, trainingTypeName, FetchPlan.TRAINING_WITH_PARTICIPANTS);
+
+        if (trainings == null || trainings.isEmpty()) {
+            logger.info("No trainings found for trainee [{}] with given criteria", traineeUsername);
+            return Collections.emptyList();
+        }
+
+        logger.info("Found {} trainings for trainee [{}]", trainings.size(), traineeUsername);
+        return trainings;
+    }
+
+    // the session is bound to the user id, so neither the password nor the username has to be checked again
+    private Optional<Trainee> findTraineeForSession(SessionToken token) {
+        Optional<SessionManager.Session> session = authenticationService.resolveSession(token);
+        if (!session.isPresent()) {
+            return Optional.empty();
+        }
+
+        Optional<Trainee> traineeOpt = traineeRepository.findByUserId(session.get().getUserId());
+        if (!traineeOpt.isPresent()) {
+            logger.warn("Trainee not found for username: {}", session.get().getUsername());
+        }
+        return traineeOpt;
+    }
 }
@@ -1,6 +1,9 @@
 package com.hibernate.gymapp.service;
 
+import com.hibernate.gymapp.dto.TrainingSummary;
 import com.hibernate.gymapp.model.*;
+import com.hibernate.gymapp.repository.FetchPlan;
+import com.hibernate.gymapp.repository.Page;
 import com.hibernate.gymapp.repository.TrainerRepository;
 import com.hibernate.gymapp.repository.UserRepository;
 import com.hibernate.gymapp.utils.CredentialsGenerator;
@@ -82,6 +85,11 @@ public class TrainerService {
         return trainerRepository.findByUsername(username);
     }
 
+    public Optional<Trainer> getTrainerProfile(SessionToken token) {
+        logger.debug("Getting trainer profile for session: {}", token);
+        return findTrainerForSession(token);
+    }
+
     @Transactional
     public boolean changeTrainerPassword(String username, String oldPassword, String newPassword) {
         logger.info("Changing password for trainer username: {}", username);
@@ -115,6 +123,7 @@ public class TrainerService {
 
             trainer.getUser().setPassword(newPassword.trim());
             userRepository.save(trainer.getUser());
+            authenticationService.invalidateCredentials(username);
 
             logger.info("Successfully changed password for trainer username: {}", username);
             return true;
@@ -143,38 +152,63 @@ public class TrainerService {
                 return Optional.empty();
             }
 
-            Trainer trainer = trainerOpt.get();
-            User user = trainer.getUser();
-
-            // Update fields if provided
-            if (newFirstName != null && !newFirstName.trim().isEmpty()) {
-                user.setFirstName(newFirstName.trim());
-            }
+            return Optional.of(applyProfileUpdate(trainerOpt.get(), newFirstName, newLastName, newSpecialization, isActive));
 
-            if (newLastName != null && !newLastName.trim().isEmpty()) {
-                user.setLastName(newLastName.trim());
-            }
+        } catch (Exception e) {
+            logger.error("Error updating trainer profile for username: {}", username, e);
+            throw new RuntimeException("Failed to update trainer profile", e);
+        }
+    }
 
-            if (isActive != null) {
-                user.setIsActive(isActive);
-            }
+    @Transactional
+    public Optional<Trainer> updateTrainerProfile(SessionToken token,
+                                                  String newFirstName, String newLastName,
+                                                  TrainingType newSpecialization, Boolean isActive) {
+        logger.info("Updating trainer profile for session: {}", token);
 
-            if (newSpecialization != null) {
-                trainer.setSpecialization(newSpecialization);
+        try {
+            Optional<Trainer> trainerOpt = findTrainerForSession(token);
+            if (!trainerOpt.isPresent()) {
+                return Optional.empty();
             }
 
-            userRepository.save(user);
-            Trainer updatedTrainer = trainerRepository.save(trainer);
-
-            logger.info("Successfully updated trainer profile for username: {}", username);
-            return Optional.of(updatedTrainer);
+            return Optional.of(applyProfileUpdate(trainerOpt.get(), newFirstName, newLastName, newSpecialization, isActive));
 
         } catch (Exception e) {
-            logger.error("Error updating trainer profile for username: {}", username, e);
+            logger.error("Error updating trainer profile for session: {}", token, e);
             throw new RuntimeException("Failed to update trainer profile", e);
         }
     }
 
+    private Trainer applyProfileUpdate(Trainer trainer, String newFirstName, String newLastName,
+                                       TrainingType newSpecialization, Boolean isActive) {
+        User user = trainer.getUser();
+
+        // Update fields if provided
+        if (newFirstName != null && !newFirstName.trim().isEmpty()) {
+            user.setFirstName(newFirstName.trim());
+        }
+
+        if (newLastName != null && !newLastName.trim().isEmpty()) {
+            user.setLastName(newLastName.trim());
+        }
+
+        if (isActive != null) {
+            user.setIsActive(isActive);
+        }
+
+        if (newSpecialization != null) {
+            trainer.setSpecialization(newSpecialization);
+        }
+
+        userRepository.save(user);
+        Trainer updatedTrainer = trainerRepository.save(trainer);
+        authenticationService.invalidateCredentials(user.getUsername());
+
+        logger.info("Successfully updated trainer profile for username: {}", user.getUsername());
+        return updatedTrainer;
+    }
+
     @Transactional
     public boolean activateDeactivateTrainer(String username, String password, boolean active) {
         logger.info("{} trainer with username: {}", active ? "Activating" : "Deactivating", username);
@@ -191,28 +225,52 @@ public class TrainerService {
                 return false;
             }
 
-            Trainer trainer = trainerOpt.get();
+            return applyStatusChange(trainerOpt.get(), active);
+
+        } catch (Exception e) {
+            logger.error("Error {} trainer with username: {}",
+                    active ? "activating" : "deactivating", username, e);
+            throw new RuntimeException("Failed to update trainer status", e);
+        }
+    }
+
+    @Transactional
+    public boolean activateDeactivateTrainer(SessionToken token, boolean active) {
+        logger.info("{} trainer for session: {}", active ? "Activating" : "Deactivating", token);
 
-            // Check if already in desired state (non-idempotent check)
-            if (trainer.getUser().getIsActive() == active) {
-                logger.warn("Trainer is already {}", active ? "active" : "inactive");
+        try {
+            Optional<Trainer> trainerOpt = findTrainerForSession(token);
+            if (!trainerOpt.isPresent()) {
                 return false;
             }
 
-            trainer.getUser().setIsActive(active);
-            userRepository.save(trainer.getUser());
-
-            logger.info("Successfully {} trainer with username: {}",
-                    active ? "activated" : "deactivated", username);
-            return true;
+            return applyStatusChange(trainerOpt.get(), active);
 
         } catch (Exception e) {
-            logger.error("Error {} trainer with username: {}",
-                    active ? "activating" : "deactivating", username, e);
+            logger.error("Error {} trainer for session: {}",
+                    active ? "activating" : "deactivating", token, e);
             throw new RuntimeException("Failed to update trainer status", e);
         }
     }
 
+    private boolean applyStatusChange(Trainer trainer, boolean active) {
+        String username = trainer.getUser().getUsername();
+
+        // Check if already in desired state (non-idempotent check)
+        if (trainer.getUser().getIsActive() == active) {
+            logger.warn("Trainer is already {}", active ? "active" : "inactive");
+            return false;
+        }
+
+        trainer.getUser().setIsActive(active);
+        userRepository.save(trainer.getUser());
+        authenticationService.invalidateCredentials(username);
+
+        logger.info("Successfully {} trainer with username: {}",
+                active ? "activated" : "deactivated", username);
+        return true;
+    }
+
     @Transactional
     public boolean deleteTrainerProfile(String username, String password) {
         logger.info("Deleting trainer profile for username: {}", username);
@@ -230,7 +288,9 @@ public class TrainerService {
             }
 
             Trainer trainer = trainerOpt.get();
-            trainerRepository.delete(trainer);
+            // instant for the caller; PurgeWorker removes the rows later
+            trainerRepository.softDelete(trainer);
+            authenticationService.invalidateCredentials(username);
 
             logger.info("Successfully deleted trainer profile for username: {}", username);
             return true;
@@ -241,6 +301,32 @@ public class TrainerService {
         }
     }
 
+    @Transactional
+    public boolean deleteTrainerProfile(SessionToken token) {
+        logger.info("Deleting trainer profile for session: {}", token);
+
+        try {
+            Optional<Trainer> trainerOpt = findTrainerForSession(token);
+            if (!trainerOpt.isPresent()) {
+                return false;
+            }
+
+            Trainer trainer = trainerOpt.get();
+            String username = trainer.getUser().getUsername();
+
+            // instant for the caller; PurgeWorker removes the rows later
+            trainerRepository.softDelete(trainer);
+            authenticationService.invalidateCredentials(username);
+
+            logger.info("Successfully deleted trainer profile for username: {}", username);
+            return true;
+
+        } catch (Exception e) {
+            logger.error("Error deleting trainer profile for session: {}", token, e);
+            throw new RuntimeException("Failed to delete trainer profile", e);
+        }
+    }
+
     public List<Training> getTrainerTrainingsByCriteria(
             String trainerUsername,
             String password,
@@ -264,20 +350,158 @@ public class TrainerService {
                 return Collections.emptyList();
             }
 
-            List<Training> trainings = trainerRepository.findTrainingsByTrainerUsernameWithCriteria(
+            return searchTrainings(trainerUsername, fromDate, toDate, traineeName, trainingTypeName);
+
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error while fetching trainings for trainee [{}]", trainerUsername, e);
+            throw new RuntimeException("Failed to fetch trainings", e);
+        }
+    }
+
+    public List<Training> getTrainerTrainingsByCriteria(
+            SessionToken token,
+            LocalDate fromDate,
+            LocalDate toDate,
+            String traineeName,
+            String trainingTypeName
+    ) {
+        Optional<SessionManager.Session> session = authenticationService.resolveSession(token);
+        if (!session.isPresent()) {
+            return Collections.emptyList();
+        }
+
+        String trainerUsername = session.get().getUsername();
+        logger.info("Fetching trainings for trainer [{}] with criteria: fromDate={}, toDate={}, traineeName={}, trainingTypeName={}",
+                trainerUsername, fromDate, toDate, traineeName, trainingTypeName);
+
+        try {
+            return searchTrainings(trainerUsername, fromDate, toDate, traineeName, trainingTypeName);
+
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error while fetching trainings for trainer [{}]", trainerUsername, e);
+            throw new RuntimeException("Failed to fetch trainings", e);
+        }
+    }
+
+    public Page<Training> getTrainerTrainingsPage(
+            SessionToken token,
+            LocalDate fromDate,
+            LocalDate toDate,
+            String traineeName,
+            String trainingTypeName,
+            String cursor,
+            int pageSize
+    ) {
+        Optional<SessionManager.Session> session = authenticationService.resolveSession(token);
+        if (!session.isPresent()) {
+            return Page.empty();
+        }
+
+        String trainerUsername = session.get().getUsername();
+        logger.info("Fetching training page for trainer [{}] with criteria: fromDate={}, toDate={}, traineeName={}, trainingTypeName={}, pageSize={}",
+                trainerUsername, fromDate, toDate, traineeName, trainingTypeName, pageSize);
+
+        try {
+            return trainerRepository.findTrainingPageByTrainerUsernameWithCriteria(
+                    trainerUsername, fromDate, toDate, traineeName, trainingTypeName, cursor, pageSize,
+                    FetchPlan.TRAINING_WITH_PARTICIPANTS);
+
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error while fetching training page for trainer [{}]", trainerUsername, e);
+            throw new RuntimeException("Failed to fetch trainings", e);
+        }
+    }
+
+    public List<TrainingSummary> getTrainerTrainingSummaries(
+            SessionToken token,
+            LocalDate fromDate,
+            LocalDate toDate,
+            String traineeName,
+            String trainingTypeName
+    ) {
+        Optional<SessionManager.Session> session = authenticationService.resolveSession(token);
+        if (!session.isPresent()) {
+            return Collections.emptyList();
+        }
+
+        String trainerUsername = session.get().getUsername();
+        logger.info("Fetching training summaries for trainer [{}] with criteria: fromDate={}, toDate={}, traineeName={}, trainingTypeName={}",
+                trainerUsername, fromDate, toDate, traineeName, trainingTypeName);
+
+        try {
+            return trainerRepository.findTrainingSummariesByTrainerUsernameWithCriteria(
                     trainerUsername, fromDate, toDate, traineeName, trainingTypeName);
 
-            if (trainings == null || trainings.isEmpty()) {
-                logger.info("No trainings found for trainee [{}] with given criteria", trainerUsername);
-                return Collections.emptyList();
-            }
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error while fetching training summaries for trainer [{}]", trainerUsername, e);
+            throw new RuntimeException("Failed to fetch trainings", e);
+        }
+    }
 
-            logger.info("Found {} trainings for trainee [{}]", trainings.size(), trainerUsername);
-            return trainings;
+    public Page<TrainingSummary> getTrainerTrainingSummaryPage(
+            SessionToken token,
+            LocalDate fromDate,
+            LocalDate toDate,
+            String traineeName,
+            String trainingTypeName,
+            String cursor,
+            int pageSize
+    ) {
+        Optional<SessionManager.Session> session = authenticationService.resolveSession(token);
+        if (!session.isPresent()) {
+            return Page.empty();
+        }
 
+        String trainerUsername = session.get().getUsername();
+        logger.info("Fetching training summary page for trainer [{}] with criteria: fromDate={}, toDate={}, traineeName={}, trainingTypeName={}, pageSize={}",
+                trainerUsername, fromDate, toDate, traineeName, trainingTypeName, pageSize);
+
+        try {
+            return trainerRepository.findTrainingSummaryPageByTrainerUsernameWithCriteria(
+                    trainerUsername, fromDate, toDate, traineeName, trainingTypeName, cursor, pageSize);
+
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
-            logger.error("Error while fetching trainings for trainee [{}]", trainerUsername, e);
+            logger.error("Error while fetching training summary page for trainer [{}]", trainerUsername, e);
             throw new RuntimeException("Failed to fetch trainings", e);
         }
     }
+
+    private List<Training> searchTrainings(String trainerUsername, LocalDate fromDate, LocalDate toDate,
+                                           String traineeName, String trainingTypeName) {
+        // callers show who trained and what, so participants and type come back with the rows
+        List<Training> trainings = trainerRepository.findTrainingsByTrainerUsernameWithCriteria(
+                trainerUsername, fromDate, toDate, traineeName, trainingTypeName, FetchPlan.TRAINING_WITH_PARTICIPANTS);
+
+        if (trainings == null || trainings.isEmpty()) {
+            logger.info("No trainings found for trainee [{}] with given criteria", trainerUsername);
+            return Collections.emptyList();
+        }
+
+        logger.info("Found {} trainings for trainee [{}]", trainings.size(), trainerUsername);
+        return trainings;
+    }
+
+    // the session is bound to the user id, so neither the password nor the username has to be checked again
+    private Optional<Trainer> findTrainerForSession(SessionToken token) {
+        Optional<SessionManager.Session> session = authenticationService.resolveSession(token);
+        if (!session.isPresent()) {
+            return Optional.empty();
+        }
+
+        Optional<Trainer> trainerOpt = trainerRepository.findByUserId(session.get().getUserId());
+        if (!trainerOpt.isPresent()) {
+            logger.warn("Trainer not found for username: {}", session.get().getUsername());
+        }
+        return trainerOpt;
+    }
 }
@@ -7,6 +7,7 @@ import com.hibernate.gymapp.model.TrainingType;
 import com.hibernate.gymapp.repository.TraineeRepository;
 import com.hibernate.gymapp.repository.TrainerRepository;
 import com.hibernate.gymapp.repository.TrainingRepository;
+import com.hibernate.gymapp.repository.TrainingTypeRegistry;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,16 +22,19 @@ public class TrainingService {
     private final AuthenticationService authenticationService;
     private final TraineeRepository traineeRepository;
     private final TrainerRepository trainerRepository;
+    private final TrainingTypeRegistry trainingTypeRegistry;
 
     public TrainingService(TrainingRepository trainingRepository,
                            AuthenticationService authenticationService,
                            TraineeRepository traineeRepository,
-                           TrainerRepository trainerRepository) {
+                           TrainerRepository trainerRepository,
+                           TrainingTypeRegistry trainingTypeRegistry) {
 
         this.trainingRepository = trainingRepository;
         this.authenticationService = authenticationService;
         this.traineeRepository = traineeRepository;
         this.trainerRepository = trainerRepository;
+        this.trainingTypeRegistry = trainingTypeRegistry;
     }
 
     @Transactional
@@ -59,15 +63,13 @@ public class TrainingService {
                     .orElseThrow(() -> new IllegalArgumentException("Trainer not found: " + trainerUsername));
 
 
-            TrainingType trainingType = trainerRepository
-                    .findByUsername(trainerUsername).get()
-                    .getSpecialization();
-
-            if (trainingType.getTrainingTypeName() != trainingTypeName || trainingType == null) {
+            // compared by id: reading the id of the lazy specialization does not load it
+            TrainingType trainingType = trainer.getSpecialization();
+            Long trainingTypeId = trainingTypeRegistry.findIdByName(trainingTypeName).orElse(null);
+            if (trainingType == null || trainingTypeId == null || !trainingTypeId.equals(trainingType.getId())) {
                 throw new IllegalArgumentException("This trainer does not offer that service");
             }
 
-
             // Validate date
             if (trainingDate == null || trainingDate.isBefore(LocalDate.now())) {
                 throw new IllegalArgumentException("Training date must be in the future");
@@ -0,0 +1,78 @@
+package com.hibernate.gymapp.service;
+
+import com.hibernate.gymapp.repository.UserRepository;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Activates or deactivates many trainees and trainers at once, e.g. when a gym closes or a membership batch
+ * expires. Each call is one set-based UPDATE on users.is_active instead of a load, check and save per user, and the
+ * cached credentials and open sessions of all the users concerned are dropped together, once more after the commit
+ * so that a login racing the update cannot keep the old status cached.
+ */
+public class UserStatusService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserStatusService.class);
+
+    private final UserRepository userRepository;
+    private final AuthenticationService authenticationService;
+
+    public UserStatusService(UserRepository userRepository, AuthenticationService authenticationService) {
+        this.userRepository = userRepository;
+        this.authenticationService = authenticationService;
+    }
+
+    /**
+     * Returns how many of the users changed status; unknown usernames and users already in it are not counted.
+     */
+    @Transactional
+    public int setActive(Collection<String> usernames, boolean active) {
+        logger.info("{} {} users by username", active ? "Activating" : "Deactivating", usernames.size());
+
+        try {
+            if (usernames.isEmpty()) {
+                return 0;
+            }
+
+            int updated = userRepository.updateActiveByUsernames(usernames, active);
+            authenticationService.invalidateCredentials(usernames);
+
+            logger.info("Successfully {} {} users", active ? "activated" : "deactivated", updated);
+            return updated;
+
+        } catch (Exception e) {
+            logger.error("Error {} users by username", active ? "activating" : "deactivating", e);
+            throw new RuntimeException("Failed to update user status", e);
+        }
+    }
+
+    /**
+     * Sets the status of every user without a training, as trainee or as trainer, on or after {@code since}, and
+     * returns how many changed.
+     */
+    @Transactional
+    public int setActiveWithoutTrainingSince(LocalDate since, boolean active) {
+        logger.info("{} users without training since {}", active ? "Activating" : "Deactivating", since);
+
+        try {
+            List<String> changed = userRepository.updateActiveWithoutTrainingSince(since, active);
+            int updated = changed.size();
+            if (updated > 0) {
+                authenticationService.invalidateCredentials(changed);
+            }
+
+            logger.info("Successfully {} {} users without training since {}",
+                    active ? "activated" : "deactivated", updated, since);
+            return updated;
+
+        } catch (Exception e) {
+            logger.error("Error {} users without training since {}", active ? "activating" : "deactivating", since, e);
+            throw new RuntimeException("Failed to update user status", e);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.hibernate.gymapp.transaction;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Resolves the EntityManager of the current scope. Repositories ask for it on every call instead of holding one,
+ * which keeps them stateless and safe to share between threads.
+ */
+@FunctionalInterface
+public interface EntityManagerProvider {
+
+    EntityManager get();
+}
@@ -0,0 +1,69 @@
+package com.hibernate.gymapp.transaction;
+
+import jakarta.transaction.Transactional;
+import lombok.Getter;
+
+import java.lang.reflect.Method;
+
+/**
+ * How a unit of work is opened, derived from {@link Transactional}. Methods without the annotation
+ * (and SUPPORTS / NOT_SUPPORTED / NEVER) run read-only: no dirty checking and no flush.
+ */
+@Getter
+public final class TransactionDefinition {
+
+    public static final TransactionDefinition READ_WRITE = new TransactionDefinition(
+            Transactional.TxType.REQUIRED, false, new Class<?>[0], new Class<?>[0]);
+
+    public static final TransactionDefinition READ_ONLY = new TransactionDefinition(
+            Transactional.TxType.SUPPORTS, true, new Class<?>[0], new Class<?>[0]);
+
+    private final Transactional.TxType type;
+    private final boolean readOnly;
+    private final Class<?>[] rollbackOn;
+    private final Class<?>[] dontRollbackOn;
+
+    private TransactionDefinition(Transactional.TxType type, boolean readOnly,
+                                  Class<?>[] rollbackOn, Class<?>[] dontRollbackOn) {
+        this.type = type;
+        this.readOnly = readOnly;
+        this.rollbackOn = rollbackOn;
+        this.dontRollbackOn = dontRollbackOn;
+    }
+
+    public static TransactionDefinition of(Method method) {
+        Transactional transactional = method.getAnnotation(Transactional.class);
+        if (transactional == null) {
+            transactional = method.getDeclaringClass().getAnnotation(Transactional.class);
+        }
+        if (transactional == null) {
+            return READ_ONLY;
+        }
+
+        Transactional.TxType type = transactional.value();
+        boolean readOnly = type == Transactional.TxType.SUPPORTS
+                || type == Transactional.TxType.NOT_SUPPORTED
+                || type == Transactional.TxType.NEVER;
+
+        return new TransactionDefinition(type, readOnly, transactional.rollbackOn(), transactional.dontRollbackOn());
+    }
+
+    public boolean requiresNew() {
+        return type == Transactional.TxType.REQUIRES_NEW;
+    }
+
+    // JTA rules: unchecked exceptions roll back, checked ones commit, unless rollbackOn / dontRollbackOn say otherwise
+    public boolean rollsBackOn(Throwable failure) {
+        for (Class<?> type : dontRollbackOn) {
+            if (type.isInstance(failure)) {
+                return false;
+            }
+        }
+        for (Class<?> type : rollbackOn) {
+            if (type.isInstance(failure)) {
+                return true;
+            }
+        }
+        return failure instanceof RuntimeException || failure instanceof Error;
+    }
+}
@@ -0,0 +1,98 @@
+package com.hibernate.gymapp.transaction;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.dynamic.scaffold.subclass.ConstructorStrategy;
+import net.bytebuddy.implementation.MethodDelegation;
+import net.bytebuddy.implementation.bind.annotation.AllArguments;
+import net.bytebuddy.implementation.bind.annotation.Origin;
+import net.bytebuddy.implementation.bind.annotation.RuntimeType;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static net.bytebuddy.matcher.ElementMatchers.isDeclaredBy;
+import static net.bytebuddy.matcher.ElementMatchers.isPublic;
+import static net.bytebuddy.matcher.ElementMatchers.not;
+import static net.bytebuddy.matcher.ElementMatchers.isStatic;
+
+/**
+ * Wraps a service so that each public method runs in its own {@link UnitOfWork}, as its
+ * {@link jakarta.transaction.Transactional} annotation describes.
+ */
+public final class TransactionalProxyFactory {
+
+    private TransactionalProxyFactory() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T create(T target, UnitOfWork unitOfWork) {
+        Class<T> type = (Class<T>) target.getClass();
+
+        Class<? extends T> proxyType = new ByteBuddy()
+                .subclass(type, ConstructorStrategy.Default.IMITATE_SUPER_CLASS_OPENING)
+                .method(isPublic().and(isDeclaredBy(type)).and(not(isStatic())))
+                .intercept(MethodDelegation.to(new TransactionInterceptor(target, unitOfWork)))
+                .make()
+                .load(type.getClassLoader(), ClassLoadingStrategy.Default.WRAPPER)
+                .getLoaded();
+
+        return instantiate(proxyType);
+    }
+
+    // the proxy's own fields are never read, every call is delegated, so placeholder constructor arguments are enough
+    private static <T> T instantiate(Class<? extends T> proxyType) {
+        Constructor<?> constructor = proxyType.getDeclaredConstructors()[0];
+        Class<?>[] parameterTypes = constructor.getParameterTypes();
+        Object[] arguments = new Object[parameterTypes.length];
+
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (parameterTypes[i] == boolean.class) {
+                arguments[i] = false;
+            } else if (parameterTypes[i] == char.class) {
+                arguments[i] = '\0';
+            } else if (parameterTypes[i].isPrimitive()) {
+                arguments[i] = (byte) 0;
+            }
+        }
+
+        try {
+            return proxyType.cast(constructor.newInstance(arguments));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create transactional proxy for " + proxyType.getSuperclass(), e);
+        }
+    }
+
+    public static final class TransactionInterceptor {
+
+        private final Object target;
+        private final UnitOfWork unitOfWork;
+        private final Map<Method, TransactionDefinition> definitions = new ConcurrentHashMap<>();
+
+        private TransactionInterceptor(Object target, UnitOfWork unitOfWork) {
+            this.target = target;
+            this.unitOfWork = unitOfWork;
+        }
+
+        @RuntimeType
+        public Object intercept(@Origin Method method, @AllArguments Object[] arguments) throws Exception {
+            TransactionDefinition definition = definitions.computeIfAbsent(method, TransactionDefinition::of);
+            return unitOfWork.execute(definition, () -> invoke(method, arguments));
+        }
+
+        private Object invoke(Method method, Object[] arguments) throws Exception {
+            try {
+                return method.invoke(target, arguments);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                throw (Error) cause;
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.hibernate.gymapp.transaction;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import jakarta.transaction.Transactional;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Supplier;
+
+/**
+ * Opens one EntityManager and one transaction per unit of work and binds it to the calling thread.
+ * Nested calls join the unit that is already active, so the whole service call flushes once, at commit.
+ * The binding is dropped when the outermost unit ends, so short-lived and virtual threads leave nothing behind.
+ */
+public class UnitOfWork implements EntityManagerProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnitOfWork.class);
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final ThreadLocal<Deque<EntityManager>> active = new ThreadLocal<>();
+
+    public UnitOfWork(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @FunctionalInterface
+    public interface Work<T> {
+        T run() throws Exception;
+    }
+
+    public <T> T inTransaction(Supplier<T> work) {
+        return executeUnchecked(TransactionDefinition.READ_WRITE, work);
+    }
+
+    public <T> T readOnly(Supplier<T> work) {
+        return executeUnchecked(TransactionDefinition.READ_ONLY, work);
+    }
+
+    public <T> T execute(TransactionDefinition definition, Work<T> work) throws Exception {
+        Deque<EntityManager> stack = active.get();
+        if (stack == null) {
+            stack = new ArrayDeque<>();
+        }
+        boolean joinable = !stack.isEmpty() && !definition.requiresNew();
+
+        if (definition.getType() == Transactional.TxType.MANDATORY && stack.isEmpty()) {
+            throw new IllegalStateException("Transaction required but none is active");
+        }
+        if (definition.getType() == Transactional.TxType.NEVER && !stack.isEmpty()) {
+            throw new IllegalStateException("Transaction not allowed but one is active");
+        }
+
+        if (joinable) {
+            return work.run();
+        }
+
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        if (definition.isReadOnly()) {
+            Session session = entityManager.unwrap(Session.class);
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+        }
+
+        if (stack.isEmpty()) {
+            active.set(stack);
+        }
+        stack.push(entityManager);
+        EntityTransaction transaction = entityManager.getTransaction();
+        try {
+            transaction.begin();
+            T result = work.run();
+            transaction.commit();
+            return result;
+        } catch (Throwable failure) {
+            if (transaction.isActive()) {
+                if (definition.rollsBackOn(failure)) {
+                    logger.debug("Rolling back unit of work after {}", failure.toString());
+                    transaction.rollback();
+                } else {
+                    transaction.commit();
+                }
+            }
+            throw failure;
+        } finally {
+            stack.pop();
+            if (stack.isEmpty()) {
+                active.remove();
+            }
+            entityManager.close();
+        }
+    }
+
+    public boolean isActive() {
+        return active.get() != null;
+    }
+
+    public EntityManager currentEntityManager() {
+        Deque<EntityManager> stack = active.get();
+        if (stack == null) {
+            throw new IllegalStateException("No unit of work is active on this thread");
+        }
+        return stack.peek();
+    }
+
+    /**
+     * Runs {@code action} once the current unit of work has committed or rolled back, or right away when none is
+     * active on this thread.
+     */
+    public void afterCompletion(Runnable action) {
+        Deque<EntityManager> stack = active.get();
+        if (stack == null) {
+            action.run();
+            return;
+        }
+        stack.peek().unwrap(SessionImplementor.class).getActionQueue()
+                .registerProcess((success, session) -> action.run());
+    }
+
+    // repositories resolve their EntityManager here on every call, so one instance serves all threads
+    @Override
+    public EntityManager get() {
+        return currentEntityManager();
+    }
+
+    private <T> T executeUnchecked(TransactionDefinition definition, Supplier<T> work) {
+        try {
+            return execute(definition, work::get);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -2,36 +2,85 @@ package com.hibernate.gymapp.utils;
 
 import com.hibernate.gymapp.repository.UserRepository;
 
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.List;
 
 public class CredentialsGenerator {
 
     private static final String CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
     private static final int PASSWORD_LENGTH = 10;
-    private static final SecureRandom random = new SecureRandom();
+
+    // largest multiple of the alphabet size that fits in a byte; higher bytes are rejected to avoid modulo bias
+    private static final int UNBIASED_BYTE_LIMIT = 256 - 256 % CHARACTERS.length();
+    private static final int ENTROPY_BUFFER_SIZE = 512;
+    private static final EntropyStripe[] stripes = createStripes();
 
     public String generatePassword() {
-        StringBuilder password = new StringBuilder(PASSWORD_LENGTH);
+        char[] password = new char[PASSWORD_LENGTH];
 
-        for (int i = 0; i < PASSWORD_LENGTH; i++) {
-            int index = random.nextInt(CHARACTERS.length());
-            password.append(CHARACTERS.charAt(index));
-        }
+        // threads are spread over independent generators so concurrent registrations do not queue on one lock
+        EntropyStripe stripe = stripes[(int) Thread.currentThread().getId() & (stripes.length - 1)];
+        stripe.fill(password);
+
+        return new String(password);
+    }
 
-        return password.toString();
+    public static String baseUsername(String firstName, String lastName) {
+        return (firstName + "." + lastName).toLowerCase();
     }
 
+    // must run inside the registration's transaction, which holds the base name's suffix counter until it ends
     public String generateUsername(String firstName, String lastName, UserRepository userRepository) {
+        return userRepository.reserveUsername(baseUsername(firstName, lastName));
+    }
+
+    // one locking select for the whole batch; duplicates within the batch get consecutive suffixes
+    public List<String> generateUsernames(List<String> baseUsernames, UserRepository userRepository) {
+        return userRepository.reserveUsernames(baseUsernames);
+    }
+
+    private static EntropyStripe[] createStripes() {
+        int count = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
 
-        String baseUsername = (firstName + "." + lastName).toLowerCase();
-        String username = baseUsername;
-        int c = 1;
+        EntropyStripe[] created = new EntropyStripe[count];
+        for (int i = 0; i < count; i++) {
+            created[i] = new EntropyStripe();
+        }
+        return created;
+    }
+
+    private static final class EntropyStripe {
+
+        private final SecureRandom random = newInstanceRandom();
+        private final byte[] buffer = new byte[ENTROPY_BUFFER_SIZE];
+        private int position = ENTROPY_BUFFER_SIZE;
 
-        while (userRepository.findByUsername(username).isPresent()) {
-            username = baseUsername + c;
-            c++;
+        synchronized void fill(char[] target) {
+            int filled = 0;
+
+            while (filled < target.length) {
+                if (position == buffer.length) {
+                    random.nextBytes(buffer);
+                    position = 0;
+                }
+
+                int value = buffer[position] & 0xFF;
+                buffer[position++] = 0;
+
+                if (value < UNBIASED_BYTE_LIMIT) {
+                    target[filled++] = CHARACTERS.charAt(value % CHARACTERS.length());
+                }
+            }
         }
 
-        return username;
+        // NativePRNG funnels every instance through one shared lock, DRBG keeps its state per instance
+        private static SecureRandom newInstanceRandom() {
+            try {
+                return SecureRandom.getInstance("DRBG");
+            } catch (NoSuchAlgorithmException e) {
+                return new SecureRandom();
+            }
+        }
     }
 }
@@ -1,17 +1,61 @@
 package com.hibernate.gymapp.utils;
 
+import com.hibernate.gymapp.metrics.CacheMetrics;
+import com.hibernate.gymapp.metrics.FlushAttribution;
+import com.hibernate.gymapp.metrics.PoolMetrics;
+import com.hibernate.gymapp.metrics.SqlInstrumentation;
+import com.hibernate.gymapp.metrics.SqlMetrics;
+import com.hibernate.gymapp.metrics.SqlMetricsReporter;
+import com.zaxxer.hikari.HikariDataSource;
 import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
 import org.hibernate.cfg.Configuration;
 
+import java.util.List;
+import java.util.Properties;
+
 public class HibernateUtil {
 
+    // custom settings read from hibernate.cfg.xml next to the Hibernate ones
+    public static final String SQL_SAMPLE_RATE = "gymapp.sql.sample_rate";
+    public static final String SQL_REPORT_INTERVAL = "gymapp.sql.report_interval_seconds";
+
+    private static final PoolMetrics poolMetrics = new PoolMetrics();
+    private static SqlMetrics sqlMetrics;
+    private static SqlMetricsReporter sqlMetricsReporter;
+    private static HikariDataSource dataSource;
     private static final SessionFactory sessionFactory = buildSessionFactory();
+    private static final CacheMetrics cacheMetrics = new CacheMetrics(sessionFactory);
 
     private static SessionFactory buildSessionFactory() {
         try {
-            return new Configuration().configure().buildSessionFactory();
+            Configuration configuration = new Configuration().configure();
+            Properties settings = configuration.getProperties();
+
+            dataSource = PooledDataSourceFactory.create(settings, poolMetrics);
+            sqlMetrics = new SqlMetrics(Double.parseDouble(settings.getProperty(SQL_SAMPLE_RATE, "0")));
+
+            // the pool owns the connection settings, Hibernate only sees the pool
+            settings.remove(AvailableSettings.JAKARTA_JDBC_URL);
+            settings.remove(AvailableSettings.JAKARTA_JDBC_USER);
+            settings.remove(AvailableSettings.JAKARTA_JDBC_PASSWORD);
+            settings.put(AvailableSettings.CONNECTION_PROVIDER,
+                    PooledDataSourceFactory.connectionProvider(SqlInstrumentation.wrap(dataSource, sqlMetrics)));
+
+            SessionFactory built = configuration.buildSessionFactory();
+            // statements flushed at commit are tagged with the repository method that queued them
+            FlushAttribution.attach(built);
+
+            long reportInterval = Long.parseLong(settings.getProperty(SQL_REPORT_INTERVAL, "0"));
+            if (reportInterval > 0) {
+                sqlMetricsReporter = new SqlMetricsReporter(sqlMetrics, reportInterval);
+            }
+            return built;
         } catch (Throwable ex) {
             System.err.println("Initial SessionFactory creation failed." + ex);
+            if (dataSource != null) {
+                dataSource.close();
+            }
             throw new ExceptionInInitializerError(ex);
         }
     }
@@ -20,7 +64,23 @@ public class HibernateUtil {
         return sessionFactory;
     }
 
+    public static PoolMetrics.Snapshot getPoolMetrics() {
+        return poolMetrics.snapshot();
+    }
+
+    public static List<SqlMetrics.StatementSnapshot> getSqlMetrics() {
+        return sqlMetrics.snapshot();
+    }
+
+    public static List<CacheMetrics.RegionSnapshot> getCacheMetrics() {
+        return cacheMetrics.snapshot();
+    }
+
     public static void shutdown() {
+        if (sqlMetricsReporter != null) {
+            sqlMetricsReporter.close();
+        }
         getSessionFactory().close();
+        dataSource.close();
     }
 }
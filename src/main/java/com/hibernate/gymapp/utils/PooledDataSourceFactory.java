@@ -0,0 +1,63 @@
+package com.hibernate.gymapp.utils;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.jdbc.connections.internal.DatasourceConnectionProviderImpl;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Builds the HikariCP pool from the jakarta.persistence.jdbc.* settings plus any hibernate.hikari.* overrides.
+ */
+public final class PooledDataSourceFactory {
+
+    public static final String HIKARI_PREFIX = "hibernate.hikari.";
+
+    private static final String POOL_NAME = "gym-pool";
+
+    private PooledDataSourceFactory() {
+    }
+
+    public static HikariDataSource create(Properties settings, MetricsTrackerFactory metricsTrackerFactory) {
+        Properties poolProperties = new Properties();
+        for (Map.Entry<Object, Object> entry : settings.entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            if (key.startsWith(HIKARI_PREFIX)) {
+                poolProperties.setProperty(key.substring(HIKARI_PREFIX.length()), String.valueOf(entry.getValue()));
+            }
+        }
+
+        HikariConfig config = new HikariConfig(poolProperties);
+        config.setPoolName(POOL_NAME);
+        config.setJdbcUrl(settings.getProperty(AvailableSettings.JAKARTA_JDBC_URL));
+        config.setUsername(settings.getProperty(AvailableSettings.JAKARTA_JDBC_USER));
+        config.setPassword(settings.getProperty(AvailableSettings.JAKARTA_JDBC_PASSWORD));
+
+        String driverClass = settings.getProperty(AvailableSettings.JAKARTA_JDBC_DRIVER);
+        if (driverClass != null) {
+            config.setDriverClassName(driverClass);
+        }
+
+        // Hibernate manages transactions itself
+        config.setAutoCommit(false);
+        config.setMetricsTrackerFactory(metricsTrackerFactory);
+
+        return new HikariDataSource(config);
+    }
+
+    /*
+     * The connection provider for Configuration.buildSessionFactory() to take its connections from dataSource. The
+     * native bootstrap of Hibernate 6.3 does not read jakarta.persistence.nonJtaDataSource, only the deprecated
+     * hibernate.connection.datasource, so the data source is handed over inside a ready provider instead.
+     */
+    public static ConnectionProvider connectionProvider(DataSource dataSource) {
+        DatasourceConnectionProviderImpl provider = new DatasourceConnectionProviderImpl();
+        provider.setDataSource(dataSource);
+        return provider;
+    }
+}
@@ -0,0 +1,9 @@
+-- Run once on databases created while ids were IDENTITY columns.
+-- Moves every id sequence past the ids already in use; Hibernate hands out blocks of 50 from here on.
+-- The pooled optimizer reads the first value it gets as the top of a 50-id block and starts 49 below it,
+-- so each sequence is set to MAX(id) + 50 (the allocationSize) for the first new id to be MAX(id) + 1.
+SELECT setval('users_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM users), false);
+SELECT setval('trainees_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM trainees), false);
+SELECT setval('trainers_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM trainers), false);
+SELECT setval('trainings_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM trainings), false);
+SELECT setval('training_types_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM training_types), false);
@@ -0,0 +1,11 @@
+-- Run once on databases that hold users from before the username_suffixes counters, after the table was created.
+-- Starts every base name's counter after the highest suffix in use: "john.smith", "john.smith7" and "john.smith12"
+-- become base "john.smith" with next suffix 13. Up to 18 trailing digits are a suffix, the most a BIGINT holds.
+-- Names the split gets wrong, e.g. a last name ending in digits, are still skipped when they are handed out.
+INSERT INTO username_suffixes (base_username, next_suffix)
+SELECT base_username, MAX(suffix) + 1
+FROM (SELECT REGEXP_REPLACE(username, '[0-9]{1,18}$', '') AS base_username,
+             CAST(COALESCE(NULLIF(SUBSTRING(username FROM CHAR_LENGTH(REGEXP_REPLACE(username, '[0-9]{1,18}$', ''))
+                                                     + 1), ''), '0') AS BIGINT) AS suffix
+      FROM users) s
+GROUP BY base_username;
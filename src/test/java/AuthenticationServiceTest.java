@@ -0,0 +1,227 @@
+import com.hibernate.gymapp.model.User;
+import com.hibernate.gymapp.repository.UserRepository;
+import com.hibernate.gymapp.service.AuthenticationService;
+import com.hibernate.gymapp.service.CredentialCache;
+import com.hibernate.gymapp.service.SessionManager;
+import com.hibernate.gymapp.service.SessionToken;
+import com.hibernate.gymapp.transaction.UnitOfWork;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AuthenticationServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private AuthenticationService authenticationService;
+
+    @BeforeEach
+    void setup() {
+        authenticationService = new AuthenticationService(userRepository, new CredentialCache(2, Duration.ofMinutes(1)));
+    }
+
+    private User user(String username, String password, boolean active) {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername(username);
+        user.setPassword(password);
+        user.setIsActive(active);
+        return user;
+    }
+
+    @Test
+    void authenticate_CachesVerifiedCredentials() {
+        when(userRepository.findByUsername("john")).thenReturn(Optional.of(user("john", "pass", true)));
+
+        assertTrue(authenticationService.authenticateTrainee("john", "pass"));
+        assertTrue(authenticationService.authenticateTrainee("john", "pass"));
+
+        verify(userRepository, times(1)).findByUsername("john");
+        assertEquals(1, authenticationService.getCredentialCacheStats().getHits());
+        assertEquals(1, authenticationService.getCredentialCacheStats().getMisses());
+    }
+
+    @Test
+    void authenticate_WrongPasswordIsRecheckedAgainstDatabase() {
+        when(userRepository.findByUsername("john")).thenReturn(Optional.of(user("john", "pass", true)));
+
+        assertTrue(authenticationService.authenticateTrainee("john", "pass"));
+        assertFalse(authenticationService.authenticateTrainee("john", "wrong"));
+
+        verify(userRepository, times(2)).findByUsername("john");
+    }
+
+    @Test
+    void authenticate_DeactivatedUserIsRejectedFromCache() {
+        when(userRepository.findByUsername("john")).thenReturn(Optional.of(user("john", "pass", false)));
+
+        assertFalse(authenticationService.authenticateTrainee("john", "pass"));
+        assertFalse(authenticationService.authenticateTrainee("john", "pass"));
+
+        verify(userRepository, times(1)).findByUsername("john");
+    }
+
+    @Test
+    void invalidateCredentials_ForcesReload() {
+        when(userRepository.findByUsername("john"))
+                .thenReturn(Optional.of(user("john", "pass", true)))
+                .thenReturn(Optional.of(user("john", "pass", false)));
+
+        assertTrue(authenticationService.authenticateTrainee("john", "pass"));
+        authenticationService.invalidateCredentials("john");
+
+        assertFalse(authenticationService.authenticateTrainee("john", "pass"));
+        verify(userRepository, times(2)).findByUsername("john");
+    }
+
+    @Test
+    void invalidateCredentials_InTransaction_DropsWhatWasCachedBeforeTheCommit() {
+        SessionFactory sessionFactory = H2Database.open("credentials");
+        try {
+            UnitOfWork unitOfWork = new UnitOfWork(sessionFactory);
+            AuthenticationService service = new AuthenticationService(userRepository, new CredentialCache(),
+                    new SessionManager(), unitOfWork);
+            when(userRepository.findByUsername("john")).thenReturn(Optional.of(user("john", "pass", true)));
+
+            unitOfWork.inTransaction(() -> {
+                service.invalidateCredentials("john");
+                // a login racing the change still reads the row as it was before this commit
+                assertTrue(service.authenticateTrainee("john", "pass"));
+                return null;
+            });
+
+            assertTrue(service.authenticateTrainee("john", "pass"));
+            verify(userRepository, times(2)).findByUsername("john");
+        } finally {
+            sessionFactory.close();
+        }
+    }
+
+    @Test
+    void invalidateCredentials_ManyUsersInTransaction_DropsWhatWasCachedBeforeTheCommit() {
+        SessionFactory sessionFactory = H2Database.open("bulk-credentials");
+        try {
+            UnitOfWork unitOfWork = new UnitOfWork(sessionFactory);
+            AuthenticationService service = new AuthenticationService(userRepository, new CredentialCache(),
+                    new SessionManager(), unitOfWork);
+            when(userRepository.findByUsername(anyString()))
+                    .thenAnswer(invocation -> Optional.of(user(invocation.getArgument(0), "pass", true)));
+
+            SessionToken racing = unitOfWork.inTransaction(() -> {
+                service.invalidateCredentials(new ArrayList<>(Arrays.asList("ann", "bob")));
+                return service.login("ann", "pass").get();
+            });
+
+            assertFalse(service.resolveSession(racing).isPresent());
+            assertTrue(service.authenticateTrainee("ann", "pass"));
+            verify(userRepository, times(2)).findByUsername("ann");
+        } finally {
+            sessionFactory.close();
+        }
+    }
+
+    @Test
+    void authenticate_ReadBeforeAnInvalidation_IsNotCached() {
+        CredentialCache cache = new CredentialCache();
+        long readVersion = cache.version("john");
+        cache.invalidate("john");
+
+        cache.put(user("john", "pass", true), readVersion);
+
+        assertFalse(cache.get("john").isPresent());
+    }
+
+    @Test
+    void authenticate_InvalidationOfAnotherUser_DoesNotRejectThePut() {
+        CredentialCache cache = new CredentialCache();
+        long readVersion = cache.version("john");
+        cache.invalidate("ann");
+        cache.invalidate(Collections.singletonList("bob"));
+
+        cache.put(user("john", "pass", true), readVersion);
+
+        assertTrue(cache.get("john").isPresent());
+    }
+
+    @Test
+    void cache_EvictsLeastRecentlyUsedWhenFull() {
+        when(userRepository.findByUsername(anyString()))
+                .thenAnswer(invocation -> Optional.of(user(invocation.getArgument(0), "pass", true)));
+
+        authenticationService.authenticateTrainee("a", "pass");
+        authenticationService.authenticateTrainee("b", "pass");
+        authenticationService.authenticateTrainee("c", "pass");
+
+        CredentialCache.Stats stats = authenticationService.getCredentialCacheStats();
+        assertEquals(2, stats.getSize());
+        assertEquals(1, stats.getEvictions());
+    }
+
+    @Test
+    void login_IssuesSessionBoundToUserId() {
+        when(userRepository.findByUsername("john")).thenReturn(Optional.of(user("john", "pass", true)));
+
+        Optional<SessionToken> token = authenticationService.login("john", "pass");
+        assertTrue(token.isPresent());
+
+        Optional<SessionManager.Session> session = authenticationService.resolveSession(token.get());
+        assertTrue(session.isPresent());
+        assertEquals(1L, session.get().getUserId());
+        assertEquals("john", session.get().getUsername());
+    }
+
+    @Test
+    void login_FailedAuthentication() {
+        when(userRepository.findByUsername("john")).thenReturn(Optional.of(user("john", "pass", true)));
+        assertFalse(authenticationService.login("john", "wrong").isPresent());
+    }
+
+    @Test
+    void invalidateCredentials_RevokesOpenSessions() {
+        when(userRepository.findByUsername("john")).thenReturn(Optional.of(user("john", "pass", true)));
+        SessionToken token = authenticationService.login("john", "pass").get();
+
+        authenticationService.invalidateCredentials("john");
+
+        assertFalse(authenticationService.resolveSession(token).isPresent());
+    }
+
+    @Test
+    void invalidateCredentials_ManyUsers_RevokesTheirSessionsOnly() {
+        when(userRepository.findByUsername(anyString()))
+                .thenAnswer(invocation -> Optional.of(user(invocation.getArgument(0), "pass", true)));
+        SessionToken ann = authenticationService.login("ann", "pass").get();
+        SessionToken bob = authenticationService.login("bob", "pass").get();
+        SessionToken cid = authenticationService.login("cid", "pass").get();
+
+        authenticationService.invalidateCredentials(Arrays.asList("ann", "cid", "nobody"));
+
+        assertFalse(authenticationService.resolveSession(ann).isPresent());
+        assertTrue(authenticationService.resolveSession(bob).isPresent());
+        assertFalse(authenticationService.resolveSession(cid).isPresent());
+    }
+
+    @Test
+    void logout_RevokesSession() {
+        when(userRepository.findByUsername("john")).thenReturn(Optional.of(user("john", "pass", true)));
+        SessionToken token = authenticationService.login("john", "pass").get();
+
+        authenticationService.logout(token);
+
+        assertFalse(authenticationService.resolveSession(token).isPresent());
+    }
+}
@@ -0,0 +1,159 @@
+import com.hibernate.gymapp.importer.BulkImporter;
+import com.hibernate.gymapp.importer.ImportKind;
+import com.hibernate.gymapp.importer.ImportProgress;
+import com.hibernate.gymapp.model.Trainee;
+import com.hibernate.gymapp.model.User;
+import com.hibernate.gymapp.repository.TraineeRepository;
+import com.hibernate.gymapp.repository.TrainerRepository;
+import com.hibernate.gymapp.repository.TrainingRepository;
+import com.hibernate.gymapp.repository.UserRepository;
+import com.hibernate.gymapp.transaction.UnitOfWork;
+import com.hibernate.gymapp.utils.CredentialsGenerator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BulkImporterTest {
+
+    private static final String TRAINEES_CSV = "firstName,lastName,dateOfBirth,address\n"
+            + "John,Smith,1990-01-01,Main St\n"
+            + "John,Smith,1991-02-02,\n"
+            + "Mary,,1992-03-03,Oak St\n"
+            + "Ann,Lee,not-a-date,\n"
+            + "Bob,Stone,,Elm St\n";
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private EntityTransaction transaction;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private TraineeRepository traineeRepository;
+
+    @Mock
+    private TrainerRepository trainerRepository;
+
+    @Mock
+    private TrainingRepository trainingRepository;
+
+    @TempDir
+    Path directory;
+
+    private final List<ImportProgress> reported = new ArrayList<>();
+
+    private BulkImporter importer;
+
+    @BeforeEach
+    void setup() {
+        when(entityManagerFactory.createEntityManager()).thenReturn(entityManager);
+        when(entityManager.getTransaction()).thenReturn(transaction);
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        importer = new BulkImporter(new UnitOfWork(entityManagerFactory), userRepository, traineeRepository,
+                trainerRepository, trainingRepository, new CredentialsGenerator(), 2, reported::add);
+    }
+
+    @Test
+    void importTrainees_InChunksWithBulkUsernames() throws IOException {
+        // john.smith is taken already
+        when(userRepository.reserveUsernames(anyList())).thenReturn(Arrays.asList("john.smith1", "john.smith2"),
+                Collections.emptyList(), Collections.singletonList("bob.stone"));
+        Path source = write("trainees.csv", TRAINEES_CSV);
+
+        ImportProgress result = importer.importFile(ImportKind.TRAINEES, source);
+
+        assertEquals(5, result.getRecordsRead());
+        assertEquals(3, result.getImported());
+        assertEquals(2, result.getRejected());
+        assertEquals(3, reported.size());
+        verify(transaction, times(3)).commit();
+        verify(userRepository, times(3)).reserveUsernames(anyList());
+
+        ArgumentCaptor<Trainee> trainees = ArgumentCaptor.forClass(Trainee.class);
+        verify(traineeRepository, times(3)).save(trainees.capture());
+        assertEquals("john.smith1", trainees.getAllValues().get(0).getUser().getUsername());
+        assertEquals("john.smith2", trainees.getAllValues().get(1).getUser().getUsername());
+        assertEquals("bob.stone", trainees.getAllValues().get(2).getUser().getUsername());
+        assertNull(trainees.getAllValues().get(2).getDateOfBirth());
+    }
+
+    @Test
+    void importTrainees_ResumesAfterLastCommittedChunk() throws IOException {
+        when(userRepository.reserveUsernames(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        Path source = write("trainees.csv", TRAINEES_CSV);
+        Path checkpoint = directory.resolve("trainees.checkpoint");
+
+        AtomicInteger saves = new AtomicInteger();
+        when(traineeRepository.save(any(Trainee.class))).thenAnswer(invocation -> {
+            if (saves.incrementAndGet() == 3) {
+                throw new IllegalStateException("connection lost");
+            }
+            return invocation.getArgument(0);
+        });
+
+        assertThrows(RuntimeException.class, () -> importer.importFile(ImportKind.TRAINEES, source, checkpoint));
+        assertTrue(Files.exists(checkpoint));
+
+        ImportProgress resumed = importer.importFile(ImportKind.TRAINEES, source, checkpoint);
+
+        // records 3 and 4 are rejected but their chunk still commits, only record 5 is left
+        assertEquals(4, resumed.getResumedAfter());
+        assertEquals(1, resumed.getRecordsRead());
+        assertEquals(1, resumed.getImported());
+        assertEquals(4, saves.get());
+        assertFalse(Files.exists(checkpoint));
+    }
+
+    @Test
+    void importTrainees_MalformedRecordIsRejectedAndTheImportContinues() throws IOException {
+        when(userRepository.reserveUsernames(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        Path source = write("trainees.csv", "firstName,lastName,dateOfBirth,address\n"
+                + "John,Smith,1990-01-01,Main St\n"
+                + "Mary,Jones\n"
+                + "Bob,Stone,,Elm St,extra\n"
+                + "Ann,Lee,,\n");
+
+        ImportProgress result = importer.importFile(ImportKind.TRAINEES, source);
+
+        assertEquals(4, result.getRecordsRead());
+        assertEquals(2, result.getImported());
+        assertEquals(2, result.getRejected());
+        ArgumentCaptor<Trainee> trainees = ArgumentCaptor.forClass(Trainee.class);
+        verify(traineeRepository, times(2)).save(trainees.capture());
+        assertEquals("ann.lee", trainees.getAllValues().get(1).getUser().getUsername());
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
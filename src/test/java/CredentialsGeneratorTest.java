@@ -0,0 +1,65 @@
+import com.hibernate.gymapp.repository.UserRepository;
+import com.hibernate.gymapp.utils.CredentialsGenerator;
+import jakarta.persistence.PersistenceException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CredentialsGeneratorTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private final CredentialsGenerator credentialsGenerator = new CredentialsGenerator();
+
+    @Test
+    void generatePassword_UsesAlphanumericCharacters() {
+        Set<String> passwords = new HashSet<>();
+
+        for (int i = 0; i < 1_000; i++) {
+            String password = credentialsGenerator.generatePassword();
+            assertEquals(10, password.length());
+            assertTrue(password.matches("[A-Za-z0-9]+"));
+            passwords.add(password);
+        }
+
+        assertEquals(1_000, passwords.size());
+    }
+
+    @Test
+    void generateUsername_ReservesFromTheBaseName() {
+        when(userRepository.reserveUsername("john.smith")).thenReturn("john.smith42");
+
+        assertEquals("john.smith42", credentialsGenerator.generateUsername("John", "Smith", userRepository));
+        verify(userRepository, never()).findByUsername(anyString());
+    }
+
+    @Test
+    void generateUsername_FailedReservationIsNotRetriedInTheSameTransaction() {
+        when(userRepository.reserveUsername("john.smith")).thenThrow(new PersistenceException("aborted"));
+
+        assertThrows(PersistenceException.class,
+                () -> credentialsGenerator.generateUsername("John", "Smith", userRepository));
+        verify(userRepository, times(1)).reserveUsername(anyString());
+    }
+
+    @Test
+    void generateUsernames_OneReservationForTheBatch() {
+        List<String> bases = Arrays.asList("john.smith", "ann.lee", "john.smith");
+        when(userRepository.reserveUsernames(bases)).thenReturn(Arrays.asList("john.smith1", "ann.lee", "john.smith2"));
+
+        assertEquals(Arrays.asList("john.smith1", "ann.lee", "john.smith2"),
+                credentialsGenerator.generateUsernames(bases, userRepository));
+        verify(userRepository, never()).reserveUsername(anyString());
+    }
+}
@@ -0,0 +1,90 @@
+import com.hibernate.gymapp.model.Trainee;
+import com.hibernate.gymapp.model.Trainer;
+import com.hibernate.gymapp.model.Training;
+import com.hibernate.gymapp.model.TrainingType;
+import com.hibernate.gymapp.model.User;
+import com.hibernate.gymapp.model.UsernameSuffix;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+
+import java.time.LocalDate;
+
+/**
+ * A fresh in-memory H2 schema per call, mapped and cached like hibernate.cfg.xml, for tests that need the real SQL.
+ */
+final class H2Database {
+
+    private H2Database() {
+    }
+
+    static SessionFactory open(String name) {
+        return configure(name).buildSessionFactory();
+    }
+
+    static Configuration configure(String name) {
+        return new Configuration()
+                .addAnnotatedClass(User.class)
+                .addAnnotatedClass(Trainee.class)
+                .addAnnotatedClass(Trainer.class)
+                .addAnnotatedClass(Training.class)
+                .addAnnotatedClass(TrainingType.class)
+                .addAnnotatedClass(UsernameSuffix.class)
+                .setProperty(AvailableSettings.URL, url(name))
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, "50")
+                .setProperty(AvailableSettings.IN_CLAUSE_PARAMETER_PADDING, "true")
+                .setProperty(AvailableSettings.GENERATE_STATISTICS, "true")
+                .setProperty(AvailableSettings.LOG_SESSION_METRICS, "false")
+                .setProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, "true")
+                .setProperty(AvailableSettings.CACHE_REGION_FACTORY, "jcache")
+                .setProperty("hibernate.javax.cache.provider",
+                        "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider")
+                .setProperty("hibernate.javax.cache.uri", "caffeine-cache.conf")
+                .setProperty("hibernate.javax.cache.missing_cache_strategy", "fail");
+    }
+
+    static String url(String name) {
+        return "jdbc:h2:mem:" + name + "-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+    }
+
+    static User user(EntityManager entityManager, String username) {
+        User user = new User();
+        user.setFirstName(username);
+        user.setLastName("Test");
+        user.setUsername(username);
+        user.setPassword("secret");
+        user.setIsActive(true);
+        entityManager.persist(user);
+        return user;
+    }
+
+    static Trainee trainee(EntityManager entityManager, String username) {
+        Trainee trainee = new Trainee();
+        trainee.setUser(user(entityManager, username));
+        entityManager.persist(trainee);
+        return trainee;
+    }
+
+    static Trainer trainer(EntityManager entityManager, String username, TrainingType specialization) {
+        Trainer trainer = new Trainer();
+        trainer.setUser(user(entityManager, username));
+        trainer.setSpecialization(specialization);
+        entityManager.persist(trainer);
+        return trainer;
+    }
+
+    static Training training(EntityManager entityManager, Trainee trainee, Trainer trainer, TrainingType type,
+                             LocalDate date) {
+        Training training = new Training();
+        training.setTrainee(trainee);
+        training.setTrainer(trainer);
+        training.setTrainingType(type);
+        training.setTrainingName(type.getTrainingTypeName() + " " + date);
+        training.setTrainingDate(date);
+        training.setTrainingDuration(60);
+        entityManager.persist(training);
+        return training;
+    }
+}
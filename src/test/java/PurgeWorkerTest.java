@@ -0,0 +1,182 @@
+import com.hibernate.gymapp.model.Trainee;
+import com.hibernate.gymapp.model.Trainer;
+import com.hibernate.gymapp.model.Training;
+import com.hibernate.gymapp.model.TrainingType;
+import com.hibernate.gymapp.model.User;
+import com.hibernate.gymapp.purge.PurgeProgress;
+import com.hibernate.gymapp.purge.PurgeWorker;
+import com.hibernate.gymapp.repository.TrainingSearchCache;
+import com.hibernate.gymapp.repository.TrainingTypeRegistry;
+import com.hibernate.gymapp.repository.impl.TraineeRepositoryImpl;
+import com.hibernate.gymapp.repository.impl.TrainerRepositoryImpl;
+import com.hibernate.gymapp.transaction.UnitOfWork;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.Query;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PurgeWorkerTest {
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private EntityTransaction transaction;
+
+    @Mock
+    private Query query;
+
+    @Mock
+    private NativeQuery<Object> nativeQuery;
+
+    @Test
+    void fromSettings_WithoutRate_IsDisabled() {
+        UnitOfWork unitOfWork = new UnitOfWork(entityManagerFactory);
+        Map<String, Object> settings = new HashMap<>();
+
+        assertNull(PurgeWorker.fromSettings(unitOfWork, null, settings));
+
+        settings.put(PurgeWorker.USERS_PER_SECOND, "20");
+        assertNotNull(PurgeWorker.fromSettings(unitOfWork, null, settings));
+    }
+
+    @Test
+    void constructor_RejectsNonPositiveBatchOrRate() {
+        UnitOfWork unitOfWork = new UnitOfWork(entityManagerFactory);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new PurgeWorker(unitOfWork, null, 0, 10, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PurgeWorker(unitOfWork, null, 10, 0, Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void purgeBatch_NothingDeleted_StopsAfterTheScan() {
+        when(entityManagerFactory.createEntityManager()).thenReturn(entityManager);
+        when(entityManager.getTransaction()).thenReturn(transaction);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+        when(query.unwrap(NativeQuery.class)).thenReturn(nativeQuery);
+        when(nativeQuery.addSynchronizedQuerySpace(anyString())).thenReturn(nativeQuery);
+        when(nativeQuery.setMaxResults(anyInt())).thenReturn(nativeQuery);
+        when(nativeQuery.getResultList()).thenReturn(Collections.emptyList());
+
+        PurgeWorker worker = new PurgeWorker(new UnitOfWork(entityManagerFactory), null, 50, 10,
+                Duration.ofSeconds(1), progress -> fail("no progress expected for an empty batch"));
+
+        assertEquals(0, worker.purgeBatch());
+
+        PurgeProgress progress = worker.getProgress();
+        assertEquals(0, progress.getBatches());
+        assertEquals(0, progress.getPending());
+        verify(nativeQuery).setMaxResults(50);
+        verify(nativeQuery, never()).executeUpdate();
+        verify(transaction).commit();
+    }
+
+    @Test
+    void purgeBatch_RemovesDeletedProfilesWithTheirTrainingsAndAssignments() {
+        SessionFactory sessionFactory = H2Database.open("purge");
+        try {
+            UnitOfWork unitOfWork = new UnitOfWork(sessionFactory);
+            TrainingSearchCache searchCache = new TrainingSearchCache();
+            TraineeRepositoryImpl traineeRepository = new TraineeRepositoryImpl(unitOfWork,
+                    new TrainingTypeRegistry(unitOfWork), searchCache);
+            TrainerRepositoryImpl trainerRepository = new TrainerRepositoryImpl(unitOfWork,
+                    new TrainingTypeRegistry(unitOfWork), searchCache);
+
+            List<Long> trainingIds = unitOfWork.inTransaction(() -> {
+                EntityManager entityManager = unitOfWork.get();
+                TrainingType yoga = new TrainingType("Yoga");
+                entityManager.persist(yoga);
+                Trainee ann = H2Database.trainee(entityManager, "ann");
+                Trainee bob = H2Database.trainee(entityManager, "bob");
+                Trainer kim = H2Database.trainer(entityManager, "kim", yoga);
+                Trainer max = H2Database.trainer(entityManager, "max", yoga);
+                ann.getTrainers().addAll(Arrays.asList(kim, max));
+                bob.getTrainers().add(max);
+                return Arrays.asList(
+                        H2Database.training(entityManager, ann, kim, yoga, LocalDate.of(2024, 1, 1)).getId(),
+                        H2Database.training(entityManager, ann, max, yoga, LocalDate.of(2024, 1, 2)).getId(),
+                        H2Database.training(entityManager, bob, kim, yoga, LocalDate.of(2024, 1, 3)).getId(),
+                        H2Database.training(entityManager, bob, max, yoga, LocalDate.of(2024, 1, 4)).getId());
+            });
+            unitOfWork.inTransaction(() -> traineeRepository.softDelete(traineeRepository.findByUsername("ann").get()));
+            unitOfWork.inTransaction(() -> trainerRepository.softDelete(trainerRepository.findByUsername("kim").get()));
+            assertTrue(sessionFactory.getCache().containsEntity(Training.class, trainingIds.get(3)));
+
+            // bob's and max's histories are cached before the purge
+            unitOfWork.readOnly(() -> traineeRepository.findTrainingsByTraineeUsernameWithCriteria(
+                    "bob", null, null, null, null));
+            unitOfWork.readOnly(() -> trainerRepository.findTrainingsByTrainerUsernameWithCriteria(
+                    "max", null, null, null, null));
+            assertEquals(2, searchCache.stats().getSize());
+            Trainee bob = unitOfWork.readOnly(() -> traineeRepository.findByUsername("bob").get());
+
+            PurgeWorker worker = new PurgeWorker(unitOfWork, searchCache, 1, 1000, Duration.ofSeconds(1));
+            assertEquals(1, worker.purgeBatch());
+            assertEquals(1, worker.getProgress().getPending());
+            assertEquals(1, worker.purgeBatch());
+            assertEquals(0, worker.purgeBatch());
+
+            PurgeProgress progress = worker.getProgress();
+            assertEquals(2, progress.getBatches());
+            assertEquals(2, progress.getUsers());
+            assertEquals(1, progress.getTrainees());
+            assertEquals(1, progress.getTrainers());
+            assertEquals(3, progress.getTrainings());
+            assertEquals(0, progress.getPending());
+
+            assertEquals(Arrays.asList(1L, 1L, 1L, 1L, 2L), unitOfWork.readOnly(() -> Arrays.asList(
+                    count(unitOfWork, "trainings"), count(unitOfWork, "trainee_trainer"),
+                    count(unitOfWork, "trainees"), count(unitOfWork, "trainers"), count(unitOfWork, "users"))));
+            for (Long trainingId : trainingIds.subList(0, 3)) {
+                assertFalse(sessionFactory.getCache().containsEntity(Training.class, trainingId));
+            }
+            assertTrue(sessionFactory.getCache().containsEntity(Training.class, trainingIds.get(3)));
+            assertEquals(0, searchCache.stats().getSize(), "the survivors' searches lost rows");
+
+            // the purge evicts by id, so the survivors stay cached and a warm lookup still runs no SQL
+            Cache cache = sessionFactory.getCache();
+            assertTrue(cache.containsEntity(Trainee.class, bob.getId()));
+            assertTrue(cache.containsEntity(User.class, bob.getUser().getId()));
+            Statistics statistics = sessionFactory.getStatistics();
+            statistics.clear();
+            assertTrue(unitOfWork.readOnly(() -> traineeRepository.findByUsername("bob").isPresent()));
+            assertEquals(0, statistics.getPrepareStatementCount());
+            assertFalse(unitOfWork.readOnly(() -> traineeRepository.findByUsername("ann").isPresent()));
+            assertFalse(unitOfWork.readOnly(() -> trainerRepository.findByUsername("kim").isPresent()));
+        } finally {
+            sessionFactory.close();
+        }
+    }
+
+    private static long count(UnitOfWork unitOfWork, String table) {
+        return ((Number) unitOfWork.get().createNativeQuery("SELECT COUNT(*) FROM " + table).getSingleResult())
+                .longValue();
+    }
+}
@@ -0,0 +1,99 @@
+import com.hibernate.gymapp.importer.CsvRecordReader;
+import com.hibernate.gymapp.importer.MalformedRecordException;
+import com.hibernate.gymapp.importer.NdjsonRecordReader;
+import com.hibernate.gymapp.importer.RecordReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecordReaderTest {
+
+    @Test
+    void csv_QuotedFieldsAndBlankLines() throws IOException {
+        String csv = "firstName,lastName,address\r\n"
+                + "John,Smith,\"12 Main St, Apt 4\"\r\n"
+                + "\n"
+                + "\"Mary \"\"Mo\"\"\",Jones,\"line one\nline two\"\n"
+                + "Ann,Lee,\n";
+
+        try (RecordReader reader = new CsvRecordReader(new BufferedReader(new StringReader(csv)))) {
+            Map<String, String> first = reader.next();
+            assertEquals("12 Main St, Apt 4", first.get("address"));
+            assertEquals(1, reader.getRecordNumber());
+
+            Map<String, String> second = reader.next();
+            assertEquals("Mary \"Mo\"", second.get("firstName"));
+            assertEquals("line one\nline two", second.get("address"));
+
+            Map<String, String> third = reader.next();
+            assertEquals("Ann", third.get("firstName"));
+            assertNull(third.get("address"));
+            assertEquals(3, reader.getRecordNumber());
+
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void csv_FieldCountMismatch_SkipsOnlyThatRecord() throws IOException {
+        String csv = "firstName,lastName\nJohn\nMary,Jones,extra\nAnn,Lee\n";
+
+        try (RecordReader reader = new CsvRecordReader(new BufferedReader(new StringReader(csv)))) {
+            assertThrows(MalformedRecordException.class, reader::next);
+            assertEquals(1, reader.getRecordNumber());
+            assertThrows(MalformedRecordException.class, reader::next);
+            assertEquals(2, reader.getRecordNumber());
+
+            assertEquals("Ann", reader.next().get("firstName"));
+            assertEquals(3, reader.getRecordNumber());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void csv_UnterminatedQuote_FailsTheRead() {
+        String csv = "firstName,lastName\n\"John,Smith\n";
+
+        RecordReader reader = new CsvRecordReader(new BufferedReader(new StringReader(csv)));
+        IOException failure = assertThrows(IOException.class, reader::next);
+        assertFalse(failure instanceof MalformedRecordException);
+    }
+
+    @Test
+    void ndjson_FlatObjects() throws IOException {
+        String ndjson = "{\"firstName\": \"Jos\\u00e9\", \"lastName\": \"O\\\"Neil\", \"address\": null}\n"
+                + "\n"
+                + "{\"trainingDuration\": 60, \"active\": true}\n";
+
+        try (RecordReader reader = new NdjsonRecordReader(new BufferedReader(new StringReader(ndjson)))) {
+            Map<String, String> first = reader.next();
+            assertEquals("Jos\u00e9", first.get("firstName"));
+            assertEquals("O\"Neil", first.get("lastName"));
+            assertTrue(first.containsKey("address"));
+            assertNull(first.get("address"));
+
+            Map<String, String> second = reader.next();
+            assertEquals("60", second.get("trainingDuration"));
+            assertEquals("true", second.get("active"));
+            assertEquals(2, reader.getRecordNumber());
+
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void ndjson_NestedValueRejected() throws IOException {
+        String ndjson = "{\"firstName\": {\"nested\": 1}}\n{\"firstName\": \"Ann\"}\n";
+
+        try (RecordReader reader = new NdjsonRecordReader(new BufferedReader(new StringReader(ndjson)))) {
+            assertThrows(MalformedRecordException.class, reader::next);
+            assertEquals("Ann", reader.next().get("firstName"));
+            assertEquals(2, reader.getRecordNumber());
+        }
+    }
+}
@@ -0,0 +1,215 @@
+import com.hibernate.gymapp.model.Trainee;
+import com.hibernate.gymapp.model.User;
+import com.hibernate.gymapp.repository.TraineeRepository;
+import com.hibernate.gymapp.repository.UserRepository;
+import com.hibernate.gymapp.repository.impl.TraineeRepositoryImpl;
+import com.hibernate.gymapp.repository.impl.UserRepositoryImpl;
+import com.hibernate.gymapp.transaction.TransactionalProxyFactory;
+import com.hibernate.gymapp.transaction.UnitOfWork;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Drives one shared repository/service graph from hundreds of threads. Every EntityManager is an in-memory fake
+ * that only sees its own writes and reports any call coming from a thread other than the one that owns it.
+ */
+public class RepositoryConcurrencyStressTest {
+
+    private static final int THREADS = 256;
+    private static final int CALLS_PER_THREAD = 40;
+
+    private final AtomicLong ids = new AtomicLong();
+    private final AtomicLong entityManagersOpened = new AtomicLong();
+    private final Queue<String> violations = new ConcurrentLinkedQueue<>();
+
+    private RegistrationService registrationService;
+
+    public static class RegistrationService {
+
+        private final UnitOfWork unitOfWork;
+        private final UserRepository userRepository;
+        private final TraineeRepository traineeRepository;
+
+        public RegistrationService(UnitOfWork unitOfWork, UserRepository userRepository,
+                                   TraineeRepository traineeRepository) {
+            this.unitOfWork = unitOfWork;
+            this.userRepository = userRepository;
+            this.traineeRepository = traineeRepository;
+        }
+
+        @Transactional
+        public String registerAndReload(String username) {
+            EntityManager owner = unitOfWork.get();
+
+            User user = new User();
+            user.setUsername(username);
+            userRepository.save(user);
+
+            Trainee trainee = new Trainee();
+            trainee.setUser(user);
+            traineeRepository.save(trainee);
+
+            // give other threads a chance to interleave inside this unit of work
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(20_000));
+
+            if (unitOfWork.get() != owner) {
+                throw new IllegalStateException("EntityManager changed within one unit of work");
+            }
+            Trainee reloaded = traineeRepository.findById(trainee.getId())
+                    .orElseThrow(() -> new IllegalStateException("Trainee written by this unit is missing"));
+            return userRepository.findById(reloaded.getUser().getId())
+                    .map(User::getUsername)
+                    .orElseThrow(() -> new IllegalStateException("User written by this unit is missing"));
+        }
+    }
+
+    @BeforeEach
+    void setup() {
+        UnitOfWork unitOfWork = new UnitOfWork(fakeEntityManagerFactory());
+        registrationService = TransactionalProxyFactory.create(
+                new RegistrationService(unitOfWork,
+                        new UserRepositoryImpl(unitOfWork),
+                        new TraineeRepositoryImpl(unitOfWork)),
+                unitOfWork);
+    }
+
+    @Test
+    void sharedGraph_PlatformThreads_NoCrossTalk() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            runConcurrently(executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void sharedGraph_VirtualThreads_NoCrossTalk() throws Exception {
+        Method factory = null;
+        try {
+            factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            // runtime without virtual threads
+        }
+        assumeTrue(factory != null, "Virtual threads need Java 21+");
+
+        ExecutorService executor = (ExecutorService) factory.invoke(null);
+        try {
+            runConcurrently(executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void runConcurrently(ExecutorService executor) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        Queue<Future<?>> futures = new ConcurrentLinkedQueue<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            String prefix = "user-" + t + "-";
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                    String username = prefix + i;
+                    String reloaded = registrationService.registerAndReload(username);
+                    if (!username.equals(reloaded)) {
+                        violations.add("expected " + username + " but read " + reloaded);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+
+        assertTrue(violations.isEmpty(), () -> violations.size() + " violations, first: " + violations.peek());
+        assertEquals((long) THREADS * CALLS_PER_THREAD, entityManagersOpened.get());
+    }
+
+    private EntityManagerFactory fakeEntityManagerFactory() {
+        return (EntityManagerFactory) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{EntityManagerFactory.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("createEntityManager")) {
+                        entityManagersOpened.incrementAndGet();
+                        return fakeEntityManager(Thread.currentThread());
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private EntityManager fakeEntityManager(Thread owner) {
+        Map<Object, Object> persistenceContext = new ConcurrentHashMap<>();
+        boolean[] transactionActive = new boolean[1];
+
+        EntityTransaction transaction = (EntityTransaction) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{EntityTransaction.class}, (proxy, method, args) -> {
+                    checkOwner(owner, "transaction." + method.getName());
+                    switch (method.getName()) {
+                        case "begin":
+                            transactionActive[0] = true;
+                            return null;
+                        case "commit":
+                        case "rollback":
+                            transactionActive[0] = false;
+                            return null;
+                        case "isActive":
+                            return transactionActive[0];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+
+        return (EntityManager) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{EntityManager.class}, (proxy, method, args) -> {
+                    checkOwner(owner, method.getName());
+                    switch (method.getName()) {
+                        case "getTransaction":
+                            return transaction;
+                        case "persist":
+                            Object entity = args[0];
+                            Long id = ids.incrementAndGet();
+                            entity.getClass().getMethod("setId", Long.class).invoke(entity, id);
+                            persistenceContext.put(entity.getClass().getSimpleName() + "#" + id, entity);
+                            return null;
+                        case "find":
+                            return persistenceContext.get(((Class<?>) args[0]).getSimpleName() + "#" + args[1]);
+                        case "close":
+                            persistenceContext.clear();
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private void checkOwner(Thread owner, String operation) {
+        if (Thread.currentThread() != owner) {
+            violations.add(operation + " from " + Thread.currentThread() + " on EntityManager of " + owner);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+import com.hibernate.gymapp.metrics.RepositoryInstrumentation;
+import com.hibernate.gymapp.metrics.RepositoryMetrics;
+import com.hibernate.gymapp.metrics.SqlContext;
+import com.hibernate.gymapp.model.User;
+import com.hibernate.gymapp.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RepositoryMetricsTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private final RepositoryMetrics metrics = new RepositoryMetrics();
+    private UserRepository instrumented;
+
+    @BeforeEach
+    void setup() {
+        instrumented = RepositoryInstrumentation.instrument(UserRepository.class, userRepository, metrics);
+    }
+
+    @Test
+    void calls_RecordedPerMethodWithErrors() {
+        when(userRepository.findByUsername("john.smith")).thenAnswer(invocation -> {
+            assertEquals("UserRepository.findByUsername", SqlContext.current());
+            return Optional.of(new User());
+        });
+        when(userRepository.findByUsername("broken")).thenThrow(new IllegalStateException("db down"));
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(instrumented.findByUsername("john.smith").isPresent());
+        }
+        assertThrows(IllegalStateException.class, () -> instrumented.findByUsername("broken"));
+        instrumented.findAll();
+
+        List<RepositoryMetrics.MethodSnapshot> snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.size());
+
+        RepositoryMetrics.MethodSnapshot findByUsername = snapshot.stream()
+                .filter(s -> s.getMethod().equals("UserRepository.findByUsername")).findFirst().get();
+        assertEquals(11, findByUsername.getCalls());
+        assertEquals(1, findByUsername.getErrors());
+        assertEquals(11, findByUsername.getLatency().getCount());
+        assertTrue(findByUsername.getCallsPerSecond() > 0);
+        assertEquals(SqlContext.UNTAGGED, SqlContext.current());
+    }
+
+    @Test
+    void reset_StartsNewWindow() {
+        instrumented.findAll();
+        metrics.reset();
+
+        assertTrue(metrics.snapshot().isEmpty());
+    }
+}
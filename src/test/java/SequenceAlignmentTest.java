@@ -0,0 +1,130 @@
+import com.hibernate.gymapp.model.Trainee;
+import com.hibernate.gymapp.model.Trainer;
+import com.hibernate.gymapp.model.Training;
+import com.hibernate.gymapp.model.TrainingType;
+import com.hibernate.gymapp.transaction.UnitOfWork;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * db/align-sequences.sql against H2, on a schema that already holds rows 1 to 60 in every table, the way a database
+ * created while the ids were IDENTITY columns would. H2 has no setval, so the test registers one that restarts the
+ * sequence like PostgreSQL's setval(sequence, value, false).
+ */
+public class SequenceAlignmentTest {
+
+    private static final int EXISTING_ROWS = 60;
+
+    private SessionFactory sessionFactory;
+    private UnitOfWork unitOfWork;
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory = H2Database.open("sequence-alignment");
+        unitOfWork = new UnitOfWork(sessionFactory);
+        unitOfWork.inTransaction(() -> {
+            EntityManager entityManager = unitOfWork.get();
+            for (int id = 1; id <= EXISTING_ROWS; id++) {
+                insert(entityManager, "INSERT INTO training_types (id, training_type_name) VALUES (?1, ?2)",
+                        id, "Type " + id);
+                insert(entityManager, "INSERT INTO users (id, first_name, last_name, username, password, is_active) "
+                        + "VALUES (?1, 'Old', 'User', ?2, 'secret', TRUE)", id, "old.trainee" + id);
+                insert(entityManager, "INSERT INTO users (id, first_name, last_name, username, password, is_active) "
+                        + "VALUES (?1, 'Old', 'User', ?2, 'secret', TRUE)", EXISTING_ROWS + id, "old.trainer" + id);
+                insert(entityManager, "INSERT INTO trainees (id, user_id) VALUES (?1, ?2)", id, id);
+                insert(entityManager, "INSERT INTO trainers (id, user_id, specialization_id) VALUES (?1, ?2, ?1)",
+                        id, EXISTING_ROWS + id);
+                insert(entityManager, "INSERT INTO trainings (id, trainee_id, trainer_id, training_type_id, "
+                        + "training_name, training_date, training_duration) "
+                        + "VALUES (?1, ?1, ?1, ?1, ?2, DATE '2024-01-01', 60)", id, "Old training " + id);
+            }
+            return null;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Test
+    void alignedSequences_HandOutIdsAfterTheExistingRows() throws Exception {
+        String script = script();
+        unitOfWork.inTransaction(() -> {
+            unitOfWork.get().unwrap(Session.class).doWork(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("CREATE ALIAS SETVAL FOR \"SequenceAlignmentTest.setval\"");
+                    for (String sql : script.split(";")) {
+                        if (!sql.trim().isEmpty()) {
+                            statement.execute(sql);
+                        }
+                    }
+                }
+            });
+            return null;
+        });
+
+        Training training = unitOfWork.inTransaction(() -> {
+            EntityManager entityManager = unitOfWork.get();
+            TrainingType yoga = new TrainingType();
+            yoga.setTrainingTypeName("Yoga");
+            entityManager.persist(yoga);
+            Trainee trainee = H2Database.trainee(entityManager, "new.trainee");
+            Trainer trainer = H2Database.trainer(entityManager, "new.trainer", yoga);
+            return H2Database.training(entityManager, trainee, trainer, yoga, LocalDate.of(2025, 1, 1));
+        });
+
+        assertEquals(EXISTING_ROWS + 1, training.getId());
+        assertEquals(EXISTING_ROWS + 1, training.getTrainee().getId());
+        assertEquals(EXISTING_ROWS + 1, training.getTrainer().getId());
+        assertEquals(EXISTING_ROWS + 1, training.getTrainingType().getId());
+        assertEquals(2 * EXISTING_ROWS + 1, training.getTrainee().getUser().getId());
+        assertEquals(2 * EXISTING_ROWS + 2, training.getTrainer().getUser().getId());
+        assertEquals(EXISTING_ROWS + 1L, unitOfWork.readOnly(() -> unitOfWork.get()
+                .createQuery("SELECT COUNT(tr) FROM Training tr", Long.class)
+                .getSingleResult()));
+    }
+
+    // setval(sequence, value, false): the next nextval returns value
+    public static long setval(Connection connection, String sequence, long value, boolean isCalled)
+            throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + (isCalled ? value + 1 : value));
+        }
+        return value;
+    }
+
+    private static void insert(EntityManager entityManager, String sql, Object... parameters) {
+        Query query = entityManager.createNativeQuery(sql);
+        for (int i = 0; i < parameters.length; i++) {
+            query.setParameter(i + 1, parameters[i]);
+        }
+        query.executeUpdate();
+    }
+
+    private static String script() throws Exception {
+        try (InputStream in = SequenceAlignmentTest.class.getResourceAsStream("/db/align-sequences.sql");
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return reader.lines()
+                    .filter(line -> !line.startsWith("--"))
+                    .collect(Collectors.joining("\n"));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+import com.hibernate.gymapp.service.SessionManager;
+import com.hibernate.gymapp.service.SessionToken;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionManagerTest {
+
+    @Test
+    void revokeAll_ClosesOnlyThatUsersSessions() {
+        SessionManager sessions = new SessionManager();
+        SessionToken john1 = sessions.issue(1L, "john");
+        SessionToken john2 = sessions.issue(1L, "john");
+        SessionToken ann = sessions.issue(2L, "ann");
+        sessions.revoke(john1);
+
+        assertEquals(1, sessions.revokeAll("john"));
+        assertFalse(sessions.resolve(john2).isPresent());
+        assertTrue(sessions.resolve(ann).isPresent());
+        assertEquals(0, sessions.revokeAll("john"));
+
+        SessionToken again = sessions.issue(1L, "john");
+        assertTrue(sessions.resolve(again).isPresent(), "a login after the revocation stays open");
+        assertEquals(2, sessions.revokeAll(Arrays.asList("john", "ann", "john", "bob")));
+        assertEquals(0, sessions.activeSessions());
+    }
+
+    @Test
+    void expiredSessions_LeaveNothingToRevoke() throws InterruptedException {
+        SessionManager sessions = new SessionManager(Duration.ofMillis(1), 10);
+        SessionToken expired = sessions.issue(1L, "john");
+        sessions.issue(1L, "john");
+        Thread.sleep(5);
+
+        assertFalse(sessions.resolve(expired).isPresent());
+        assertEquals(1, sessions.purgeExpired());
+        assertEquals(0, sessions.revokeAll("john"));
+        assertEquals(0, sessions.activeSessions());
+    }
+}
@@ -0,0 +1,185 @@
+import com.hibernate.gymapp.dto.TrainingSummary;
+import com.hibernate.gymapp.model.Trainee;
+import com.hibernate.gymapp.model.Trainer;
+import com.hibernate.gymapp.model.Training;
+import com.hibernate.gymapp.model.TrainingType;
+import com.hibernate.gymapp.model.User;
+import com.hibernate.gymapp.repository.FetchPlan;
+import com.hibernate.gymapp.repository.TrainingSearchCache;
+import com.hibernate.gymapp.repository.TrainingTypeRegistry;
+import com.hibernate.gymapp.repository.impl.TraineeRepositoryImpl;
+import com.hibernate.gymapp.repository.impl.TrainerRepositoryImpl;
+import com.hibernate.gymapp.repository.impl.TrainingRepositoryImpl;
+import com.hibernate.gymapp.transaction.UnitOfWork;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Soft deletes against H2: a deleted trainee or trainer drops out of the other side's history on every search path,
+ * while the rest of that history stays as it was.
+ */
+public class SoftDeleteTest {
+
+    private SessionFactory sessionFactory;
+    private UnitOfWork unitOfWork;
+    private TrainingSearchCache searchCache;
+    private TraineeRepositoryImpl traineeRepository;
+    private TrainerRepositoryImpl trainerRepository;
+    private TrainingRepositoryImpl trainingRepository;
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory = H2Database.open("soft-delete");
+        unitOfWork = new UnitOfWork(sessionFactory);
+        searchCache = new TrainingSearchCache();
+        TrainingTypeRegistry registry = new TrainingTypeRegistry(unitOfWork);
+        traineeRepository = new TraineeRepositoryImpl(unitOfWork, registry, searchCache);
+        trainerRepository = new TrainerRepositoryImpl(unitOfWork, registry, searchCache);
+        trainingRepository = new TrainingRepositoryImpl(unitOfWork, searchCache);
+
+        unitOfWork.inTransaction(() -> {
+            EntityManager entityManager = unitOfWork.get();
+            TrainingType yoga = new TrainingType("Yoga");
+            entityManager.persist(yoga);
+            Trainee ann = H2Database.trainee(entityManager, "ann");
+            Trainee bob = H2Database.trainee(entityManager, "bob");
+            Trainer kim = H2Database.trainer(entityManager, "kim", yoga);
+            Trainer max = H2Database.trainer(entityManager, "max", yoga);
+            H2Database.training(entityManager, ann, kim, yoga, LocalDate.of(2024, 1, 1));
+            H2Database.training(entityManager, ann, max, yoga, LocalDate.of(2024, 1, 2));
+            H2Database.training(entityManager, bob, kim, yoga, LocalDate.of(2024, 1, 3));
+            return null;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Test
+    void softDeletedTrainer_IsHiddenFromTraineeHistoryOnEveryPath() {
+        // warm the search cache, so the later reads also cover a result cached before the delete
+        assertEquals(2, traineeTrainers(null).size());
+
+        assertTrue(unitOfWork.inTransaction(() -> trainerRepository.softDelete(
+                trainerRepository.findByUsername("kim").get())));
+
+        assertEquals(Collections.singletonList("max"), traineeTrainers(null));
+        assertEquals(Collections.singletonList("max"), traineeTrainers(FetchPlan.TRAINING_WITH_PARTICIPANTS));
+        assertEquals(1, unitOfWork.readOnly(() -> traineeRepository.findTrainingPageByTraineeUsernameWithCriteria(
+                "ann", null, null, null, null, null, 10).getItems().size()));
+        assertEquals(1, unitOfWork.readOnly(() -> traineeRepository.findTrainingPageByTraineeUsernameWithCriteria(
+                "ann", null, null, null, null, null, 10, FetchPlan.TRAINING_WITH_PARTICIPANTS).getItems().size()));
+
+        List<TrainingSummary> summaries = unitOfWork.readOnly(() -> traineeRepository
+                .findTrainingSummariesByTraineeUsernameWithCriteria("ann", null, null, null, null));
+        assertEquals(1, summaries.size());
+        assertEquals("max Test", summaries.get(0).getTrainerName());
+        assertEquals(1, unitOfWork.readOnly(() -> traineeRepository
+                .findTrainingSummaryPageByTraineeUsernameWithCriteria("ann", null, null, null, null, null, 10)
+                .getItems().size()));
+
+        assertTrue(unitOfWork.readOnly(() -> traineeRepository.findTrainingsByTraineeUsernameWithCriteria(
+                "bob", null, null, null, null)).isEmpty());
+        assertEquals(1, unitOfWork.readOnly(() -> trainingRepository.findAll().size()));
+    }
+
+    @Test
+    void softDeletedTrainee_IsHiddenFromTrainerHistory() {
+        assertEquals(2, unitOfWork.readOnly(() -> trainerRepository.findTrainingsByTrainerUsernameWithCriteria(
+                "kim", null, null, null, null)).size());
+
+        assertTrue(unitOfWork.inTransaction(() -> traineeRepository.softDelete(
+                traineeRepository.findByUsername("ann").get())));
+
+        List<String> trainees = unitOfWork.readOnly(() -> {
+            List<String> usernames = new ArrayList<>();
+            for (Training training : trainerRepository.findTrainingsByTrainerUsernameWithCriteria(
+                    "kim", null, null, null, null)) {
+                usernames.add(training.getTrainee().getUser().getUsername());
+            }
+            return usernames;
+        });
+        assertEquals(Collections.singletonList("bob"), trainees);
+        assertEquals(1, unitOfWork.readOnly(() -> trainerRepository
+                .findTrainingSummariesByTrainerUsernameWithCriteria("kim", null, null, null, null).size()));
+        assertFalse(unitOfWork.readOnly(() -> traineeRepository.findByUsername("ann").isPresent()));
+    }
+
+    @Test
+    void softDelete_EvictsOnlyTheDeletedUserFromTheCache() {
+        Long annUserId = unitOfWork.readOnly(() -> traineeRepository.findByUsername("ann").get().getUser().getId());
+        Long bobUserId = unitOfWork.readOnly(() -> traineeRepository.findByUsername("bob").get().getUser().getId());
+        Cache cache = sessionFactory.getCache();
+        assertTrue(cache.containsEntity(User.class, annUserId));
+
+        assertTrue(unitOfWork.inTransaction(() -> traineeRepository.softDelete(
+                traineeRepository.findByUsername("ann").get())));
+
+        assertFalse(cache.containsEntity(User.class, annUserId));
+        assertTrue(cache.containsEntity(User.class, bobUserId));
+
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+        assertTrue(unitOfWork.readOnly(() -> traineeRepository.findByUsername("bob").isPresent()));
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertFalse(unitOfWork.readOnly(() -> traineeRepository.findByUsername("ann").isPresent()));
+        assertEquals(1, statistics.getNaturalIdCacheMissCount(), "ann's username lookup was evicted");
+    }
+
+    @Test
+    void softDeletedTrainee_IsHiddenFromEveryLookup() {
+        Trainee ann = unitOfWork.readOnly(() -> traineeRepository.findByUsername("ann").get());
+        Long annUserId = unitOfWork.readOnly(() -> ann.getUser().getId());
+        Long kimId = unitOfWork.readOnly(() -> trainerRepository.findByUsername("kim").get().getId());
+        unitOfWork.inTransaction(() -> traineeRepository.assignTrainers(ann.getId(), Collections.singletonList(kimId)));
+        assertTrue(unitOfWork.readOnly(() -> traineeRepository.findById(ann.getId()).isPresent()));
+
+        assertTrue(unitOfWork.inTransaction(() -> traineeRepository.softDelete(
+                traineeRepository.findByUsername("ann").get())));
+
+        assertFalse(unitOfWork.readOnly(() -> traineeRepository.findById(ann.getId()).isPresent()));
+        assertFalse(unitOfWork.readOnly(() -> traineeRepository.findById(ann.getId(), FetchPlan.TRAINEE_WITH_USER)
+                .isPresent()));
+        assertFalse(unitOfWork.readOnly(() -> traineeRepository.findByUserId(annUserId).isPresent()));
+        assertEquals(Collections.singletonList("bob"), unitOfWork.readOnly(() -> {
+            List<String> usernames = new ArrayList<>();
+            for (Trainee trainee : traineeRepository.findAll()) {
+                usernames.add(trainee.getUser().getUsername());
+            }
+            return usernames;
+        }));
+        assertEquals(Collections.singleton("bob"), unitOfWork.readOnly(() -> traineeRepository
+                .findIdsByUsernames(Arrays.asList("ann", "bob")).keySet()));
+        // the assignment went with the soft delete, so kim's trainees never reach ann's hidden user
+        assertTrue(unitOfWork.readOnly(() -> trainerRepository.findByUsername("kim", FetchPlan.TRAINER_WITH_TRAINEES)
+                .get().getTrainees().isEmpty()));
+    }
+
+    // usernames of ann's trainers, read while the session is open so a missing trainer would throw here
+    private List<String> traineeTrainers(FetchPlan<Training> plan) {
+        return unitOfWork.readOnly(() -> {
+            List<String> usernames = new ArrayList<>();
+            for (Training training : traineeRepository.findTrainingsByTraineeUsernameWithCriteria(
+                    "ann", null, null, null, null, plan)) {
+                usernames.add(training.getTrainer().getUser().getUsername());
+            }
+            usernames.sort(null);
+            return usernames;
+        });
+    }
+}
@@ -0,0 +1,201 @@
+import com.hibernate.gymapp.metrics.FlushAttribution;
+import com.hibernate.gymapp.metrics.RepositoryInstrumentation;
+import com.hibernate.gymapp.metrics.SqlContext;
+import com.hibernate.gymapp.metrics.SqlInstrumentation;
+import com.hibernate.gymapp.metrics.SqlMetrics;
+import com.hibernate.gymapp.model.Trainee;
+import com.hibernate.gymapp.model.Trainer;
+import com.hibernate.gymapp.model.User;
+import com.hibernate.gymapp.repository.TraineeRepository;
+import com.hibernate.gymapp.repository.TrainerRepository;
+import com.hibernate.gymapp.repository.UserRepository;
+import com.hibernate.gymapp.repository.impl.TraineeRepositoryImpl;
+import com.hibernate.gymapp.repository.impl.TrainerRepositoryImpl;
+import com.hibernate.gymapp.repository.impl.UserRepositoryImpl;
+import com.hibernate.gymapp.transaction.UnitOfWork;
+import com.hibernate.gymapp.utils.PooledDataSourceFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SqlMetricsTest {
+
+    private final SqlMetrics metrics = new SqlMetrics();
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setup() throws SQLException {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:sql-metrics-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        dataSource = SqlInstrumentation.wrap(h2, metrics);
+
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, username VARCHAR(50))");
+        }
+        metrics.reset();
+    }
+
+    @Test
+    void batchAndQuery_CountedPerShapeAndTag() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            try (SqlContext.Scope ignored = SqlContext.open("UserRepository.save");
+                 PreparedStatement insert = connection.prepareStatement(
+                         "INSERT INTO users (id, username) VALUES (?, ?)")) {
+                for (long id = 1; id <= 3; id++) {
+                    insert.setLong(1, id);
+                    insert.setString(2, "user" + id);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+
+            try (SqlContext.Scope ignored = SqlContext.open("UserRepository.findAll");
+                 PreparedStatement select = connection.prepareStatement("SELECT   id\n  FROM users");
+                 ResultSet rows = select.executeQuery()) {
+                while (rows.next()) {
+                    assertTrue(rows.getLong(1) > 0);
+                }
+            }
+        }
+
+        List<SqlMetrics.StatementSnapshot> snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.size());
+
+        SqlMetrics.StatementSnapshot insert = find(snapshot, "UserRepository.save");
+        assertEquals(1, insert.getCalls());
+        assertEquals(3, insert.getRows());
+
+        SqlMetrics.StatementSnapshot select = find(snapshot, "UserRepository.findAll");
+        assertEquals("SELECT id FROM users", select.getSql());
+        assertEquals(1, select.getCalls());
+        assertEquals(3, select.getRows());
+        assertEquals(1, select.getLatency().getCount());
+        assertTrue(select.toJson().startsWith("{\"tag\":\"UserRepository.findAll\",\"sql\":\"SELECT id FROM users\""));
+    }
+
+    @Test
+    void failedStatement_CountedAsError() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            assertThrows(SQLException.class, () -> statement.executeQuery("SELECT * FROM missing_table"));
+        }
+
+        SqlMetrics.StatementSnapshot failed = find(metrics.snapshot(), SqlContext.UNTAGGED);
+        assertEquals(1, failed.getErrors());
+        assertEquals(0, failed.getCalls());
+    }
+
+    @Test
+    void inListsAndRepeatedOrTerms_ShareOneShape() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            for (int size = 1; size <= 3; size++) {
+                StringBuilder in = new StringBuilder("SELECT id FROM users WHERE id IN (?");
+                StringBuilder like = new StringBuilder("SELECT id FROM users u WHERE u.username like ? escape '!'");
+                for (int i = 1; i < size + 1; i++) {
+                    in.append(", ?");
+                    like.append(" or u.username like ? escape '!'");
+                }
+                try (PreparedStatement first = connection.prepareStatement(in.append(")").toString());
+                     PreparedStatement second = connection.prepareStatement(like.toString())) {
+                    for (int i = 1; i <= size + 1; i++) {
+                        first.setLong(i, i);
+                        second.setString(i, "user%");
+                    }
+                    first.executeQuery().close();
+                    second.executeQuery().close();
+                }
+            }
+        }
+
+        List<SqlMetrics.StatementSnapshot> snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.size());
+        assertEquals(3, snapshot.get(0).getCalls());
+        assertEquals(3, snapshot.get(1).getCalls());
+    }
+
+    @Test
+    void writesFlushedAtCommit_AreTaggedWithTheRepositoryMethodThatQueuedThem() {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL(H2Database.url("flush-attribution"));
+        Configuration configuration = H2Database.configure("flush-attribution");
+        configuration.getProperties().put(AvailableSettings.CONNECTION_PROVIDER,
+                PooledDataSourceFactory.connectionProvider(SqlInstrumentation.wrap(h2, metrics)));
+        SessionFactory sessionFactory = configuration.buildSessionFactory();
+        try {
+            FlushAttribution.attach(sessionFactory);
+            UnitOfWork unitOfWork = new UnitOfWork(sessionFactory);
+            UserRepository users = RepositoryInstrumentation.instrument(UserRepository.class,
+                    new UserRepositoryImpl(unitOfWork));
+            TraineeRepository trainees = RepositoryInstrumentation.instrument(TraineeRepository.class,
+                    new TraineeRepositoryImpl(unitOfWork));
+            TrainerRepository trainers = RepositoryInstrumentation.instrument(TrainerRepository.class,
+                    new TrainerRepositoryImpl(unitOfWork));
+
+            unitOfWork.inTransaction(() -> {
+                Trainer trainer = new Trainer();
+                trainer.setUser(user("kim"));
+                users.save(trainer.getUser());
+                trainers.save(trainer);
+
+                Trainee trainee = new Trainee();
+                trainee.setUser(user("ann"));
+                users.save(trainee.getUser());
+                trainee.getTrainers().add(trainer);
+                return trainees.save(trainee);
+            });
+            unitOfWork.inTransaction(() -> {
+                Trainee trainee = trainees.findByUsername("ann").get();
+                // changed through a setter only, so no repository method queued the update
+                trainee.getUser().setLastName("Changed");
+                trainee.getTrainers().clear();
+                trainees.save(trainee);
+                trainers.delete(trainers.findByUsername("kim").get());
+                return null;
+            });
+
+            List<SqlMetrics.StatementSnapshot> snapshot = metrics.snapshot();
+            assertEquals("UserRepository.save", tagOf(snapshot, "insert into users"));
+            assertEquals("TrainerRepository.save", tagOf(snapshot, "insert into trainers"));
+            assertEquals("TraineeRepository.save", tagOf(snapshot, "insert into trainees"));
+            assertEquals("TraineeRepository.save", tagOf(snapshot, "insert into trainee_trainer"));
+            assertEquals("TraineeRepository.save", tagOf(snapshot, "delete from trainee_trainer"));
+            assertEquals("TrainerRepository.delete", tagOf(snapshot, "delete from trainers"));
+            assertEquals(SqlContext.UNTAGGED, tagOf(snapshot, "update users"));
+        } finally {
+            sessionFactory.close();
+        }
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setFirstName(username);
+        user.setLastName("Test");
+        user.setUsername(username);
+        user.setPassword("secret");
+        user.setIsActive(true);
+        return user;
+    }
+
+    private static String tagOf(List<SqlMetrics.StatementSnapshot> snapshot, String sqlPrefix) {
+        return snapshot.stream().filter(s -> s.getSql().startsWith(sqlPrefix)).map(SqlMetrics.StatementSnapshot::getTag)
+                .reduce((a, b) -> a.equals(b) ? a : a + "," + b)
+                .orElseThrow(() -> new AssertionError("No statement starting with " + sqlPrefix));
+    }
+
+    private static SqlMetrics.StatementSnapshot find(List<SqlMetrics.StatementSnapshot> snapshot, String tag) {
+        return snapshot.stream().filter(s -> s.getTag().equals(tag)).findFirst()
+                .orElseThrow(() -> new AssertionError("No statement tagged " + tag));
+    }
+}
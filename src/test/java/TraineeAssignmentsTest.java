@@ -0,0 +1,132 @@
+import com.hibernate.gymapp.model.Trainee;
+import com.hibernate.gymapp.model.TrainingType;
+import com.hibernate.gymapp.repository.TrainerAssignmentIndex;
+import com.hibernate.gymapp.repository.TrainingSearchCache;
+import com.hibernate.gymapp.repository.TrainingTypeRegistry;
+import com.hibernate.gymapp.repository.impl.TraineeRepositoryImpl;
+import com.hibernate.gymapp.transaction.UnitOfWork;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Trainer assignments written straight to trainee_trainer, against H2. Ann starts with no trainers; trainers 0 to 2
+ * exist, and 999999 does not.
+ */
+public class TraineeAssignmentsTest {
+
+    private static final Long UNKNOWN_TRAINER = 999_999L;
+
+    private SessionFactory sessionFactory;
+    private UnitOfWork unitOfWork;
+    private TrainerAssignmentIndex assignmentIndex;
+    private TraineeRepositoryImpl trainees;
+    private Long annId;
+    private final List<Long> trainerIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory = H2Database.open("trainee-assignments");
+        unitOfWork = new UnitOfWork(sessionFactory);
+        assignmentIndex = new TrainerAssignmentIndex(unitOfWork).attach(sessionFactory);
+        trainees = new TraineeRepositoryImpl(unitOfWork, new TrainingTypeRegistry(unitOfWork),
+                new TrainingSearchCache(), null, assignmentIndex);
+
+        unitOfWork.inTransaction(() -> {
+            EntityManager entityManager = unitOfWork.get();
+            TrainingType yoga = new TrainingType();
+            yoga.setTrainingTypeName("Yoga");
+            entityManager.persist(yoga);
+            for (int i = 0; i < 3; i++) {
+                trainerIds.add(H2Database.trainer(entityManager, "trainer" + i, yoga).getId());
+            }
+            Trainee ann = H2Database.trainee(entityManager, "ann");
+            entityManager.flush();
+            annId = ann.getId();
+            return null;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Test
+    void assign_IsIdempotentAndIgnoresUnknownTrainers() {
+        assertEquals(2, assign(trainer(0), trainer(1), UNKNOWN_TRAINER));
+        assertEquals(0, assign(trainer(0), trainer(1), UNKNOWN_TRAINER));
+        assertEquals(1, assign(trainer(1), trainer(2)));
+
+        assertEquals(Arrays.asList(trainer(0), trainer(1), trainer(2)), assigned());
+    }
+
+    @Test
+    void unassign_IsIdempotentAndIgnoresUnknownTrainers() {
+        assign(trainer(0), trainer(1));
+
+        assertEquals(1, unitOfWork.inTransaction(() -> trainees.unassignTrainers(annId,
+                Arrays.asList(trainer(0), UNKNOWN_TRAINER))));
+        assertEquals(0, unitOfWork.inTransaction(() -> trainees.unassignTrainers(annId,
+                Arrays.asList(trainer(0), UNKNOWN_TRAINER))));
+
+        assertEquals(Collections.singletonList(trainer(1)), assigned());
+    }
+
+    @Test
+    void replace_WritesOnlyTheDifference() {
+        assign(trainer(0), trainer(1));
+        // warm the index, so the replace has to invalidate what it holds for ann
+        assertEquals(Collections.singletonList(trainer(2)),
+                unitOfWork.readOnly(() -> assignmentIndex.findUnassignedTrainerIds(annId)));
+
+        // trainer 0 unassigned, trainer 2 assigned, trainer 1 left alone
+        assertEquals(2, unitOfWork.inTransaction(() -> trainees.replaceTrainers(annId,
+                Arrays.asList(trainer(1), trainer(2), UNKNOWN_TRAINER))));
+        assertEquals(0, unitOfWork.inTransaction(() -> trainees.replaceTrainers(annId,
+                Arrays.asList(trainer(1), trainer(2)))));
+
+        assertEquals(Arrays.asList(trainer(1), trainer(2)), assigned());
+        assertEquals(Collections.singletonList(trainer(0)),
+                unitOfWork.readOnly(() -> assignmentIndex.findUnassignedTrainerIds(annId)));
+
+        assertEquals(2, unitOfWork.inTransaction(() -> trainees.replaceTrainers(annId, Collections.emptyList())));
+        assertTrue(assigned().isEmpty());
+    }
+
+    @Test
+    void nullTrainerIds_AssignNothingAndAreRejectedByReplace() {
+        assign(trainer(0));
+
+        assertEquals(0, unitOfWork.inTransaction(() -> trainees.assignTrainers(annId, null)));
+        assertEquals(0, unitOfWork.inTransaction(() -> trainees.unassignTrainers(annId, null)));
+        assertThrows(IllegalArgumentException.class,
+                () -> unitOfWork.inTransaction(() -> trainees.replaceTrainers(annId, null)));
+
+        assertEquals(Collections.singletonList(trainer(0)), assigned());
+    }
+
+    private int assign(Long... ids) {
+        return unitOfWork.inTransaction(() -> trainees.assignTrainers(annId, Arrays.asList(ids)));
+    }
+
+    private List<Long> assigned() {
+        return unitOfWork.readOnly(() -> unitOfWork.get().createQuery(
+                "SELECT t.id FROM Trainee tr JOIN tr.trainers t WHERE tr.id = :traineeId ORDER BY t.id", Long.class)
+                .setParameter("traineeId", annId)
+                .getResultList());
+    }
+
+    private Long trainer(int position) {
+        return trainerIds.get(position);
+    }
+}
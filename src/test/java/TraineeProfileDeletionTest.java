@@ -0,0 +1,134 @@
+import com.hibernate.gymapp.model.Trainee;
+import com.hibernate.gymapp.model.Trainer;
+import com.hibernate.gymapp.model.Training;
+import com.hibernate.gymapp.model.TrainingType;
+import com.hibernate.gymapp.model.User;
+import com.hibernate.gymapp.repository.TrainingSearchCache;
+import com.hibernate.gymapp.repository.TrainingTypeRegistry;
+import com.hibernate.gymapp.repository.impl.TraineeRepositoryImpl;
+import com.hibernate.gymapp.repository.impl.TrainerRepositoryImpl;
+import com.hibernate.gymapp.transaction.UnitOfWork;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TraineeRepository.deleteProfile against H2. Ann has 20 trainings with kim and max and is assigned to both; bob
+ * has one training with kim and is assigned to max.
+ */
+public class TraineeProfileDeletionTest {
+
+    private static final int ANN_TRAININGS = 20;
+
+    private SessionFactory sessionFactory;
+    private UnitOfWork unitOfWork;
+    private TrainingSearchCache searchCache;
+    private TraineeRepositoryImpl traineeRepository;
+    private TrainerRepositoryImpl trainerRepository;
+    private final List<Long> annTrainingIds = new ArrayList<>();
+    private Long bobTrainingId;
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory = H2Database.open("trainee-deletion");
+        unitOfWork = new UnitOfWork(sessionFactory);
+        searchCache = new TrainingSearchCache();
+        TrainingTypeRegistry registry = new TrainingTypeRegistry(unitOfWork);
+        traineeRepository = new TraineeRepositoryImpl(unitOfWork, registry, searchCache);
+        trainerRepository = new TrainerRepositoryImpl(unitOfWork, registry, searchCache);
+
+        unitOfWork.inTransaction(() -> {
+            EntityManager entityManager = unitOfWork.get();
+            TrainingType yoga = new TrainingType("Yoga");
+            entityManager.persist(yoga);
+            Trainee ann = H2Database.trainee(entityManager, "ann");
+            Trainee bob = H2Database.trainee(entityManager, "bob");
+            Trainer kim = H2Database.trainer(entityManager, "kim", yoga);
+            Trainer max = H2Database.trainer(entityManager, "max", yoga);
+            ann.getTrainers().addAll(Arrays.asList(kim, max));
+            bob.getTrainers().add(max);
+            for (int i = 0; i < ANN_TRAININGS; i++) {
+                annTrainingIds.add(H2Database.training(entityManager, ann, i % 2 == 0 ? kim : max, yoga,
+                        LocalDate.of(2024, 1, 1).plusDays(i)).getId());
+            }
+            bobTrainingId = H2Database.training(entityManager, bob, kim, yoga, LocalDate.of(2024, 2, 1)).getId();
+            return null;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Test
+    void deleteProfile_RemovesTheProfileWithAFewSetBasedStatements() {
+        Statistics statistics = sessionFactory.getStatistics();
+        long statements = unitOfWork.inTransaction(() -> {
+            Trainee ann = traineeRepository.findByUsername("ann").get();
+            statistics.clear();
+            assertTrue(traineeRepository.deleteProfile(ann));
+            return statistics.getPrepareStatementCount();
+        });
+
+        // one select of ann's trainings and one delete per table, however long ann's history is
+        assertEquals(5, statements);
+        assertEquals(Arrays.asList(1L, 1L, 1L, 2L, 3L), unitOfWork.readOnly(() -> Arrays.asList(
+                count("trainings"), count("trainee_trainer"), count("trainees"), count("trainers"), count("users"))));
+        assertFalse(unitOfWork.readOnly(() -> traineeRepository.findByUsername("ann").isPresent()));
+        assertTrue(unitOfWork.readOnly(() -> traineeRepository.findByUsername("bob").isPresent()));
+    }
+
+    @Test
+    void deleteProfile_KeepsTheCachesConsistent() {
+        Trainee bob = unitOfWork.readOnly(() -> traineeRepository.findByUsername("bob").get());
+        Long annUserId = unitOfWork.readOnly(() -> traineeRepository.findByUsername("ann").get().getUser().getId());
+        // kim's history is cached with ann's trainings in it
+        assertEquals(ANN_TRAININGS / 2 + 1, kimTrainings());
+        Cache cache = sessionFactory.getCache();
+        assertTrue(cache.containsEntity(Training.class, annTrainingIds.get(0)));
+
+        assertTrue(unitOfWork.inTransaction(() -> traineeRepository.deleteProfile(
+                traineeRepository.findByUsername("ann").get())));
+
+        for (Long trainingId : annTrainingIds) {
+            assertFalse(cache.containsEntity(Training.class, trainingId));
+        }
+        assertFalse(cache.containsEntity(User.class, annUserId));
+        // evicted by id, so everything else stays cached
+        assertTrue(cache.containsEntity(Training.class, bobTrainingId));
+        assertTrue(cache.containsEntity(Trainee.class, bob.getId()));
+        assertTrue(cache.containsEntity(User.class, bob.getUser().getId()));
+        assertEquals(1, kimTrainings());
+    }
+
+    @Test
+    void deleteProfile_OfAnAlreadyDeletedTrainee_ReturnsFalse() {
+        Trainee ann = unitOfWork.readOnly(() -> traineeRepository.findByUsername("ann").get());
+        assertTrue(unitOfWork.inTransaction(() -> traineeRepository.deleteProfile(ann)));
+
+        assertFalse(unitOfWork.inTransaction(() -> traineeRepository.deleteProfile(ann)));
+        assertEquals(3L, unitOfWork.readOnly(() -> count("users")));
+    }
+
+    private int kimTrainings() {
+        return unitOfWork.readOnly(() -> trainerRepository.findTrainingsByTrainerUsernameWithCriteria(
+                "kim", null, null, null, null).size());
+    }
+
+    private long count(String table) {
+        return ((Number) unitOfWork.get().createNativeQuery("SELECT COUNT(*) FROM " + table).getSingleResult())
+                .longValue();
+    }
+}
@@ -1,10 +1,13 @@
 import com.hibernate.gymapp.model.Trainee;
 import com.hibernate.gymapp.model.User;
+import com.hibernate.gymapp.repository.FetchPlan;
 import com.hibernate.gymapp.repository.TraineeRepository;
 import com.hibernate.gymapp.repository.TrainerRepository;
 import com.hibernate.gymapp.repository.TrainingRepository;
 import com.hibernate.gymapp.repository.UserRepository;
 import com.hibernate.gymapp.service.AuthenticationService;
+import com.hibernate.gymapp.service.SessionManager;
+import com.hibernate.gymapp.service.SessionToken;
 import com.hibernate.gymapp.service.TraineeService;
 import com.hibernate.gymapp.utils.CredentialsGenerator;
 import org.junit.jupiter.api.Test;
@@ -217,7 +220,44 @@ public class TraineeServiceTest {
 
         boolean deleted = traineeService.deleteTraineeProfile("john", "pass");
         assertTrue(deleted);
-        verify(traineeRepository, times(1)).delete(trainee);
+        verify(traineeRepository, times(1)).softDelete(trainee);
     }
 
+    @Test
+    void getTraineeProfile_WithSessionToken() {
+        Trainee trainee = new Trainee();
+        SessionManager sessions = new SessionManager();
+        SessionToken issued = sessions.issue(7L, "john");
+        when(authenticationService.resolveSession(issued)).thenReturn(sessions.resolve(issued));
+        when(traineeRepository.findByUserId(7L)).thenReturn(Optional.of(trainee));
+
+        Optional<Trainee> result = traineeService.getTraineeProfile(issued);
+
+        assertTrue(result.isPresent());
+        verify(traineeRepository, never()).findByUsername(anyString());
+        verify(authenticationService, never()).authenticateTrainee(anyString(), anyString());
+    }
+
+    @Test
+    void getTraineeProfile_InvalidSessionToken() {
+        SessionToken token = new SessionToken("unknown");
+        when(authenticationService.resolveSession(token)).thenReturn(Optional.empty());
+
+        assertFalse(traineeService.getTraineeProfile(token).isPresent());
+        verifyNoInteractions(traineeRepository);
+    }
+
+    @Test
+    void getTraineeTrainingsPage_InvalidCursorIsNotWrapped() {
+        SessionManager sessions = new SessionManager();
+        SessionToken issued = sessions.issue(7L, "john");
+        IllegalArgumentException invalid = new IllegalArgumentException("Invalid page cursor: bogus");
+        when(authenticationService.resolveSession(issued)).thenReturn(sessions.resolve(issued));
+        when(traineeRepository.findTrainingPageByTraineeUsernameWithCriteria(
+                "john", null, null, null, null, "bogus", 10, FetchPlan.TRAINING_WITH_PARTICIPANTS))
+                .thenThrow(invalid);
+
+        assertSame(invalid, assertThrows(IllegalArgumentException.class, () ->
+                traineeService.getTraineeTrainingsPage(issued, null, null, null, null, "bogus", 10)));
+    }
 }
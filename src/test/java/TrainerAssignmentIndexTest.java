@@ -0,0 +1,193 @@
+import com.hibernate.gymapp.model.Trainee;
+import com.hibernate.gymapp.model.Trainer;
+import com.hibernate.gymapp.model.TrainingType;
+import com.hibernate.gymapp.model.User;
+import com.hibernate.gymapp.repository.TrainerAssignmentIndex;
+import com.hibernate.gymapp.transaction.UnitOfWork;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The index against H2: trainers 1 to 5 in id order are yoga, box, yoga (inactive), yoga and box. Ann is assigned
+ * to trainer 1, bob to trainer 2.
+ */
+public class TrainerAssignmentIndexTest {
+
+    private SessionFactory sessionFactory;
+    private UnitOfWork unitOfWork;
+    private Long yogaId;
+    private Long boxId;
+    private Long annId;
+    private Long bobId;
+    private final List<Long> trainerIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory = H2Database.open("assignment-index");
+        unitOfWork = new UnitOfWork(sessionFactory);
+        unitOfWork.inTransaction(() -> {
+            EntityManager entityManager = unitOfWork.get();
+            TrainingType yoga = new TrainingType();
+            yoga.setTrainingTypeName("Yoga");
+            TrainingType box = new TrainingType();
+            box.setTrainingTypeName("Box");
+            entityManager.persist(yoga);
+            entityManager.persist(box);
+
+            List<Trainer> trainers = new ArrayList<>();
+            for (TrainingType specialization : Arrays.asList(yoga, box, yoga, yoga, box)) {
+                trainers.add(H2Database.trainer(entityManager, "trainer" + trainers.size(), specialization));
+            }
+            trainers.get(2).getUser().setIsActive(false);
+
+            Trainee ann = H2Database.trainee(entityManager, "ann");
+            ann.getTrainers().add(trainers.get(0));
+            Trainee bob = H2Database.trainee(entityManager, "bob");
+            bob.getTrainers().add(trainers.get(1));
+            entityManager.flush();
+
+            yogaId = yoga.getId();
+            boxId = box.getId();
+            annId = ann.getId();
+            bobId = bob.getId();
+            for (Trainer trainer : trainers) {
+                trainerIds.add(trainer.getId());
+            }
+            return null;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Test
+    void unassignedActive_PagesAfterTheCursorInIdOrder() {
+        TrainerAssignmentIndex index = new TrainerAssignmentIndex(unitOfWork);
+
+        List<Long> first = unitOfWork.readOnly(() -> index.findUnassignedActiveTrainerIds(annId, null, null, 2));
+        List<Long> second = unitOfWork.readOnly(() -> index.findUnassignedActiveTrainerIds(
+                annId, null, first.get(first.size() - 1), 2));
+        List<Long> last = unitOfWork.readOnly(() -> index.findUnassignedActiveTrainerIds(
+                annId, null, second.get(second.size() - 1), 2));
+
+        assertEquals(Arrays.asList(trainer(1), trainer(3)), first);
+        assertEquals(Collections.singletonList(trainer(4)), second);
+        assertTrue(last.isEmpty());
+    }
+
+    @Test
+    void unassignedActive_BySpecialization_SkipsInactiveAndAssignedTrainers() {
+        TrainerAssignmentIndex index = new TrainerAssignmentIndex(unitOfWork);
+
+        assertEquals(Collections.singletonList(trainer(3)),
+                unitOfWork.readOnly(() -> index.findUnassignedActiveTrainerIds(annId, yogaId, null, 10)));
+        assertEquals(Collections.singletonList(trainer(4)),
+                unitOfWork.readOnly(() -> index.findUnassignedActiveTrainerIds(bobId, boxId, null, 10)));
+        assertTrue(unitOfWork.readOnly(() -> index.findUnassignedActiveTrainerIds(annId, -1L, null, 10)).isEmpty());
+    }
+
+    @Test
+    void unassigned_IncludesInactiveTrainers() {
+        TrainerAssignmentIndex index = new TrainerAssignmentIndex(unitOfWork);
+
+        assertEquals(Arrays.asList(trainer(1), trainer(2), trainer(3), trainer(4)),
+                unitOfWork.readOnly(() -> index.findUnassignedTrainerIds(annId)));
+        assertEquals(Arrays.asList(trainer(0), trainer(1), trainer(2), trainer(3), trainer(4)),
+                unitOfWork.readOnly(() -> index.findUnassignedTrainerIds(null)));
+    }
+
+    @Test
+    void assignments_KeepOnlyTheMostRecentlyUsedTrainees() {
+        TrainerAssignmentIndex index = new TrainerAssignmentIndex(unitOfWork, 1);
+        unitOfWork.readOnly(() -> index.findUnassignedTrainerIds(annId));
+        Statistics statistics = sessionFactory.getStatistics();
+
+        statistics.clear();
+        unitOfWork.readOnly(() -> index.findUnassignedTrainerIds(annId));
+        assertEquals(0, statistics.getPrepareStatementCount(), "ann's assignments are held");
+
+        unitOfWork.readOnly(() -> index.findUnassignedTrainerIds(bobId));
+        statistics.clear();
+        unitOfWork.readOnly(() -> index.findUnassignedTrainerIds(annId));
+        assertEquals(1, statistics.getPrepareStatementCount(), "bob's assignments pushed ann's out");
+    }
+
+    @Test
+    void staleTrainers_AreReadOnceByConcurrentCallers() throws Exception {
+        TrainerAssignmentIndex index = new TrainerAssignmentIndex(unitOfWork);
+        unitOfWork.readOnly(() -> index.findUnassignedTrainerIds(null));
+        index.invalidateTrainers();
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<Long>>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return unitOfWork.readOnly(() -> index.findUnassignedTrainerIds(null));
+                }));
+            }
+            start.countDown();
+            for (Future<List<Long>> result : results) {
+                assertEquals(trainerIds, result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, statistics.getPrepareStatementCount(), "one reload for all callers");
+    }
+
+    @Test
+    void statusChanges_FlipOnlyTheTrainersBitsWithoutReadingTheTableAgain() {
+        TrainerAssignmentIndex index = new TrainerAssignmentIndex(unitOfWork).attach(sessionFactory);
+        unitOfWork.readOnly(() -> index.findUnassignedActiveTrainerIds(annId, yogaId, null, 10));
+
+        setActive("bob", false);
+        setActive("trainer2", true);
+        setActive("trainer3", false);
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+
+        assertEquals(Collections.singletonList(trainer(2)),
+                unitOfWork.readOnly(() -> index.findUnassignedActiveTrainerIds(annId, yogaId, null, 10)));
+        assertEquals(Arrays.asList(trainer(1), trainer(2), trainer(4)),
+                unitOfWork.readOnly(() -> index.findUnassignedActiveTrainerIds(annId, null, null, 10)));
+        assertEquals(0, statistics.getPrepareStatementCount(), "the trainer table is not read again");
+    }
+
+    private void setActive(String username, boolean isActive) {
+        unitOfWork.inTransaction(() -> {
+            unitOfWork.get().createQuery("SELECT u FROM User u WHERE u.username = :username", User.class)
+                    .setParameter("username", username)
+                    .getSingleResult()
+                    .setIsActive(isActive);
+            return null;
+        });
+    }
+
+    private Long trainer(int position) {
+        return trainerIds.get(position);
+    }
+}
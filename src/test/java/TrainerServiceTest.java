@@ -2,11 +2,14 @@ import com.hibernate.gymapp.model.Trainee;
 import com.hibernate.gymapp.model.Trainer;
 import com.hibernate.gymapp.model.TrainingType;
 import com.hibernate.gymapp.model.User;
+import com.hibernate.gymapp.repository.FetchPlan;
 import com.hibernate.gymapp.repository.TraineeRepository;
 import com.hibernate.gymapp.repository.TrainerRepository;
 import com.hibernate.gymapp.repository.TrainingRepository;
 import com.hibernate.gymapp.repository.UserRepository;
 import com.hibernate.gymapp.service.AuthenticationService;
+import com.hibernate.gymapp.service.SessionManager;
+import com.hibernate.gymapp.service.SessionToken;
 import com.hibernate.gymapp.service.TrainerService;
 import com.hibernate.gymapp.utils.CredentialsGenerator;
 import org.junit.jupiter.api.BeforeEach;
@@ -21,6 +24,8 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -233,7 +238,23 @@ public class TrainerServiceTest {
 
         boolean deleted = trainerService.deleteTrainerProfile("john", "pass");
         assertTrue(deleted);
-        verify(trainerRepository, times(1)).delete(trainer);
+        verify(trainerRepository, times(1)).softDelete(trainer);
     }
-}
 
+    @Test
+    void getTrainerTrainingsPage_InvalidPageSizeIsNotWrapped() {
+        SessionManager sessions = new SessionManager();
+        SessionToken issued = sessions.issue(7L, "john");
+        IllegalArgumentException invalid = new IllegalArgumentException("Page size must be between 1 and 500");
+        when(authenticationService.resolveSession(issued)).thenReturn(sessions.resolve(issued));
+        when(trainerRepository.findTrainingPageByTrainerUsernameWithCriteria(
+                "john", null, null, null, null, null, 0, FetchPlan.TRAINING_WITH_PARTICIPANTS))
+                .thenThrow(invalid);
+
+        // built here, the mocks injected into trainerService were replaced by openMocks in setup
+        TrainerService service = new TrainerService(trainerRepository, userRepository,
+                authenticationService, credentialsGenerator);
+        assertSame(invalid, assertThrows(IllegalArgumentException.class, () ->
+                service.getTrainerTrainingsPage(issued, null, null, null, null, null, 0)));
+    }
+}
@@ -0,0 +1,102 @@
+import com.hibernate.gymapp.exporter.ExportFormat;
+import com.hibernate.gymapp.exporter.TrainingExporter;
+import com.hibernate.gymapp.transaction.UnitOfWork;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TrainingExporterTest {
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private EntityTransaction transaction;
+
+    @Mock
+    private Session session;
+
+    @Mock
+    private Query<Object[]> query;
+
+    @Mock
+    private ScrollableResults<Object[]> results;
+
+    private TrainingExporter exporter;
+
+    @BeforeEach
+    void setup() {
+        when(entityManagerFactory.createEntityManager()).thenReturn(entityManager);
+        when(entityManager.getTransaction()).thenReturn(transaction);
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+        when(session.createQuery(anyString(), eq(Object[].class))).thenReturn(query);
+        when(query.scroll(ScrollMode.FORWARD_ONLY)).thenReturn(results);
+        when(results.next()).thenReturn(true, true, false);
+        when(results.get()).thenReturn(
+                new Object[]{1L, "john.smith", "ann.lee", "Yoga", "Morning, slow", LocalDate.of(2024, 1, 2), 60},
+                new Object[]{2L, "john.smith", "ann.lee", "Yoga", "Say \"hi\"", LocalDate.of(2024, 1, 3), null});
+
+        exporter = new TrainingExporter(new UnitOfWork(entityManagerFactory), 250);
+    }
+
+    @Test
+    void exportCsv_StreamsWithForwardOnlyCursor() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = exporter.export(ExportFormat.CSV, out, "john.smith", null, null, null);
+
+        assertEquals(2, rows);
+        assertEquals("id,traineeUsername,trainerUsername,trainingType,trainingName,trainingDate,trainingDuration\n"
+                        + "1,john.smith,ann.lee,Yoga,\"Morning, slow\",2024-01-02,60\n"
+                        + "2,john.smith,ann.lee,Yoga,\"Say \"\"hi\"\"\",2024-01-03,\n",
+                new String(out.toByteArray(), StandardCharsets.UTF_8));
+        verify(query).setFetchSize(250);
+        verify(query).setReadOnly(true);
+        verify(query).setParameter("traineeUsername", "john.smith");
+        verify(results).close();
+    }
+
+    @Test
+    void exportNdjson_ToFileChannel(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("trainings.ndjson");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            assertEquals(2, exporter.export(ExportFormat.NDJSON, channel, null, null, null, null));
+        }
+
+        assertEquals("{\"id\":1,\"traineeUsername\":\"john.smith\",\"trainerUsername\":\"ann.lee\","
+                        + "\"trainingType\":\"Yoga\",\"trainingName\":\"Morning, slow\",\"trainingDate\":\"2024-01-02\","
+                        + "\"trainingDuration\":60}\n"
+                        + "{\"id\":2,\"traineeUsername\":\"john.smith\",\"trainerUsername\":\"ann.lee\","
+                        + "\"trainingType\":\"Yoga\",\"trainingName\":\"Say \\\"hi\\\"\",\"trainingDate\":\"2024-01-03\","
+                        + "\"trainingDuration\":null}\n",
+                new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+}
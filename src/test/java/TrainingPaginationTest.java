@@ -0,0 +1,79 @@
+import com.hibernate.gymapp.dto.TrainingSummary;
+import com.hibernate.gymapp.model.Training;
+import com.hibernate.gymapp.repository.Page;
+import com.hibernate.gymapp.repository.TrainingCursor;
+import com.hibernate.gymapp.repository.impl.TrainingSearchQueries;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrainingPaginationTest {
+
+    @Test
+    void cursor_RoundTripsAndIsOpaque() {
+        String encoded = new TrainingCursor(LocalDate.of(2024, 3, 9), 42L).encode();
+
+        TrainingCursor decoded = TrainingCursor.decode(encoded);
+
+        assertFalse(encoded.contains("2024"));
+        assertEquals(LocalDate.of(2024, 3, 9), decoded.getTrainingDate());
+        assertEquals(42L, decoded.getId());
+    }
+
+    @Test
+    void cursor_Tampered_Rejected() {
+        assertThrows(IllegalArgumentException.class, () -> TrainingCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> TrainingCursor.decode("MjoyMDI0LTAzLTA5OjQy"));
+    }
+
+    @Test
+    void toPage_ExtraRowMeansNextPageFromLastServedRow() {
+        List<Training> rows = trainings(4);
+
+        Page<Training> page = TrainingSearchQueries.toPage(rows, 3);
+
+        assertEquals(3, page.getItems().size());
+        assertTrue(page.hasNext());
+        assertEquals(3L, TrainingCursor.decode(page.getNextCursor()).getId());
+    }
+
+    @Test
+    void toPage_LastPage_HasNoCursor() {
+        Page<Training> page = TrainingSearchQueries.toPage(trainings(3), 3);
+
+        assertEquals(3, page.getItems().size());
+        assertFalse(page.hasNext());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void toSummaryPage_CursorFromLastServedSummary() {
+        List<TrainingSummary> rows = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            rows.add(new TrainingSummary(id, "Morning", LocalDate.of(2024, 1, 1).minusDays(id), 60,
+                    "Anna Lee", "Bob Stone", "Yoga"));
+        }
+
+        Page<TrainingSummary> page = TrainingSearchQueries.toSummaryPage(rows, 2);
+
+        TrainingCursor next = TrainingCursor.decode(page.getNextCursor());
+        assertEquals(2, page.getItems().size());
+        assertEquals(2L, next.getId());
+        assertEquals(LocalDate.of(2023, 12, 30), next.getTrainingDate());
+    }
+
+    private static List<Training> trainings(int count) {
+        List<Training> trainings = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            Training training = new Training();
+            training.setId(id);
+            training.setTrainingDate(LocalDate.of(2024, 1, 1).minusDays(id));
+            trainings.add(training);
+        }
+        return trainings;
+    }
+}
@@ -0,0 +1,218 @@
+import com.hibernate.gymapp.model.Trainee;
+import com.hibernate.gymapp.model.Training;
+import com.hibernate.gymapp.model.TrainingType;
+import com.hibernate.gymapp.model.User;
+import com.hibernate.gymapp.repository.FetchPlan;
+import com.hibernate.gymapp.repository.TrainingSearchCache;
+import com.hibernate.gymapp.repository.TrainingSearchCache.Side;
+import com.hibernate.gymapp.repository.TrainingTypeRegistry;
+import com.hibernate.gymapp.repository.impl.TraineeRepositoryImpl;
+import com.hibernate.gymapp.repository.impl.UserRepositoryImpl;
+import com.hibernate.gymapp.transaction.UnitOfWork;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrainingSearchCacheTest {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 1, 1);
+
+    private final TrainingSearchCache cache = new TrainingSearchCache();
+
+    @Test
+    void sameCriteria_HitsRegardlessOfNameCase() {
+        cache.put(TrainingSearchCache.key(Side.TRAINEE, 1L, FROM, null, "Anna", 3L), Arrays.asList(10L, 11L),
+                cache.version());
+
+        Optional<List<Long>> cached = cache.get(TrainingSearchCache.key(Side.TRAINEE, 1L, FROM, null, " anna ", 3L));
+
+        assertEquals(Optional.of(Arrays.asList(10L, 11L)), cached);
+        assertFalse(cache.get(TrainingSearchCache.key(Side.TRAINER, 1L, FROM, null, "anna", 3L)).isPresent());
+    }
+
+    @Test
+    void invalidate_DropsOnlyThatOwner() {
+        TrainingSearchCache.Key trainee1 = TrainingSearchCache.key(Side.TRAINEE, 1L, null, null, null, null);
+        TrainingSearchCache.Key trainee2 = TrainingSearchCache.key(Side.TRAINEE, 2L, null, null, null, null);
+        cache.put(trainee1, Collections.singletonList(10L), cache.version());
+        cache.put(trainee2, Collections.singletonList(20L), cache.version());
+
+        cache.invalidate(Side.TRAINEE, 1L);
+
+        assertFalse(cache.get(trainee1).isPresent());
+        assertTrue(cache.get(trainee2).isPresent());
+        assertEquals(1, cache.stats().getInvalidations());
+    }
+
+    @Test
+    void put_AfterConcurrentInvalidation_IsDropped() {
+        TrainingSearchCache.Key key = TrainingSearchCache.key(Side.TRAINER, 5L, null, null, null, null);
+        long readVersion = cache.version();
+
+        // a training of some owner was written while the query ran
+        cache.invalidate(Side.TRAINEE, 9L);
+        cache.put(key, Collections.singletonList(50L), readVersion);
+
+        assertFalse(cache.get(key).isPresent());
+    }
+
+    @Test
+    void invalidateNameFiltered_KeepsUnfilteredSearches() {
+        TrainingSearchCache.Key filtered = TrainingSearchCache.key(Side.TRAINEE, 1L, null, null, "bob", null);
+        TrainingSearchCache.Key unfiltered = TrainingSearchCache.key(Side.TRAINEE, 1L, null, null, null, null);
+        cache.put(filtered, Collections.singletonList(10L), cache.version());
+        cache.put(unfiltered, Collections.singletonList(10L), cache.version());
+
+        cache.invalidateNameFiltered();
+
+        assertFalse(cache.get(filtered).isPresent());
+        assertTrue(cache.get(unfiltered).isPresent());
+    }
+
+    @Test
+    void invalidateNameFiltered_OnlyRejectsConcurrentNameFilteredPuts() {
+        TrainingSearchCache.Key filtered = TrainingSearchCache.key(Side.TRAINER, 5L, null, null, "bob", null);
+        TrainingSearchCache.Key unfiltered = TrainingSearchCache.key(Side.TRAINER, 5L, null, null, null, null);
+        long readVersion = cache.version();
+
+        cache.invalidateNameFiltered();
+        cache.put(filtered, Collections.singletonList(50L), readVersion);
+        cache.put(unfiltered, Collections.singletonList(50L), readVersion);
+
+        assertFalse(cache.get(filtered).isPresent());
+        assertTrue(cache.get(unfiltered).isPresent());
+    }
+
+    @Test
+    void savedUser_DropsNameFilteredSearchesOnlyWhenRenamed() {
+        SessionFactory sessionFactory = H2Database.open("search-rename");
+        try {
+            UnitOfWork unitOfWork = new UnitOfWork(sessionFactory);
+            UserRepositoryImpl users = new UserRepositoryImpl(unitOfWork, cache);
+            User bob = unitOfWork.inTransaction(() -> H2Database.user(unitOfWork.get(), "bob"));
+            TrainingSearchCache.Key filtered = TrainingSearchCache.key(Side.TRAINEE, 1L, null, null, "bob", null);
+
+            cache.put(filtered, Collections.singletonList(10L), cache.version());
+            unitOfWork.inTransaction(() -> {
+                User managed = users.findByUsername("bob").get();
+                managed.setPassword("changed");
+                managed.setIsActive(false);
+                return users.save(managed);
+            });
+            bob.setPassword("changed again");
+            unitOfWork.inTransaction(() -> users.save(bob));
+            assertTrue(cache.get(filtered).isPresent(), "password and status changes keep the entry");
+
+            unitOfWork.inTransaction(() -> {
+                User managed = users.findByUsername("bob").get();
+                managed.setFirstName("Robert");
+                return users.save(managed);
+            });
+            assertFalse(cache.get(filtered).isPresent());
+
+            cache.put(filtered, Collections.singletonList(10L), cache.version());
+            bob.setLastName("Builder");
+            unitOfWork.inTransaction(() -> users.save(bob));
+            assertFalse(cache.get(filtered).isPresent(), "a detached rename too");
+        } finally {
+            sessionFactory.close();
+        }
+    }
+
+    @Test
+    void fullCache_EvictsLeastRecentlyUsed() {
+        TrainingSearchCache small = new TrainingSearchCache(2, Duration.ofMinutes(1));
+        for (long owner = 1; owner <= 3; owner++) {
+            small.put(TrainingSearchCache.key(Side.TRAINEE, owner, null, null, null, null),
+                    Collections.singletonList(owner), small.version());
+        }
+
+        assertFalse(small.get(TrainingSearchCache.key(Side.TRAINEE, 1L, null, null, null, null)).isPresent());
+        assertEquals(2, small.stats().getSize());
+        assertEquals(1, small.stats().getEvictions());
+    }
+
+    @Test
+    void cachedSearch_WithParticipants_IsHydratedFromTheSecondLevelCache() {
+        SessionFactory sessionFactory = H2Database.open("search-hydration");
+        try {
+            UnitOfWork unitOfWork = new UnitOfWork(sessionFactory);
+            TraineeRepositoryImpl trainees = annWithTwoTrainings(unitOfWork);
+            assertEquals(Arrays.asList("kim", "max"), annTrainers(unitOfWork, trainees));
+
+            Statistics statistics = sessionFactory.getStatistics();
+            statistics.clear();
+            assertEquals(Arrays.asList("kim", "max"), annTrainers(unitOfWork, trainees));
+            assertEquals(0, statistics.getPrepareStatementCount(), "a warm hit runs no SQL");
+        } finally {
+            sessionFactory.close();
+        }
+    }
+
+    @Test
+    void cachedSearch_WithParticipantsMissingFromTheSecondLevelCache_LoadsThemInOneRoundTrip() {
+        SessionFactory sessionFactory = H2Database.open("search-hydration");
+        try {
+            UnitOfWork unitOfWork = new UnitOfWork(sessionFactory);
+            TraineeRepositoryImpl trainees = annWithTwoTrainings(unitOfWork);
+            assertEquals(Arrays.asList("kim", "max"), annTrainers(unitOfWork, trainees));
+            Long kimUserId = unitOfWork.readOnly(() -> unitOfWork.get()
+                    .createQuery("SELECT u.id FROM User u WHERE u.username = 'kim'", Long.class).getSingleResult());
+
+            Statistics statistics = sessionFactory.getStatistics();
+            sessionFactory.getCache().evict(User.class, kimUserId);
+            statistics.clear();
+            assertEquals(Arrays.asList("kim", "max"), annTrainers(unitOfWork, trainees));
+            assertEquals(1, statistics.getPrepareStatementCount(), "one participant missing");
+
+            sessionFactory.getCache().evict(Training.class);
+            statistics.clear();
+            assertEquals(Arrays.asList("kim", "max"), annTrainers(unitOfWork, trainees));
+            assertEquals(1, statistics.getPrepareStatementCount(), "every training missing");
+        } finally {
+            sessionFactory.close();
+        }
+    }
+
+    // ann trained with kim and max; the search cache is shared by the returned repository
+    private static TraineeRepositoryImpl annWithTwoTrainings(UnitOfWork unitOfWork) {
+        unitOfWork.inTransaction(() -> {
+            EntityManager entityManager = unitOfWork.get();
+            TrainingType yoga = new TrainingType();
+            yoga.setTrainingTypeName("Yoga");
+            entityManager.persist(yoga);
+            Trainee ann = H2Database.trainee(entityManager, "ann");
+            H2Database.training(entityManager, ann, H2Database.trainer(entityManager, "kim", yoga), yoga,
+                    LocalDate.of(2024, 1, 1));
+            H2Database.training(entityManager, ann, H2Database.trainer(entityManager, "max", yoga), yoga,
+                    LocalDate.of(2024, 1, 2));
+            return null;
+        });
+        return new TraineeRepositoryImpl(unitOfWork, new TrainingTypeRegistry(unitOfWork), new TrainingSearchCache());
+    }
+
+    // the participants are checked after the unit of work closed, so anything not loaded by the search would throw
+    private static List<String> annTrainers(UnitOfWork unitOfWork, TraineeRepositoryImpl trainees) {
+        List<Training> trainings = unitOfWork.readOnly(() -> trainees.findTrainingsByTraineeUsernameWithCriteria(
+                "ann", null, null, null, null, FetchPlan.TRAINING_WITH_PARTICIPANTS));
+        List<String> usernames = new ArrayList<>();
+        for (Training training : trainings) {
+            assertEquals("ann", training.getTrainee().getUser().getUsername());
+            assertEquals("Yoga", training.getTrainingType().getTrainingTypeName());
+            usernames.add(training.getTrainer().getUser().getUsername());
+        }
+        usernames.sort(null);
+        return usernames;
+    }
+}
@@ -0,0 +1,73 @@
+import com.hibernate.gymapp.model.TrainingType;
+import com.hibernate.gymapp.repository.TrainingTypeRegistry;
+import com.hibernate.gymapp.transaction.UnitOfWork;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TrainingTypeRegistry attached to an H2 factory: only committed training type writes make it reload.
+ */
+public class TrainingTypeChangesTest {
+
+    private SessionFactory sessionFactory;
+    private UnitOfWork unitOfWork;
+    private TrainingTypeRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory = H2Database.open("training-type-changes");
+        unitOfWork = new UnitOfWork(sessionFactory);
+        registry = new TrainingTypeRegistry(unitOfWork).attach(sessionFactory);
+        unitOfWork.inTransaction(() -> {
+            unitOfWork.get().persist(new TrainingType("Yoga"));
+            return null;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Test
+    void committedWrite_IsSeenByTheNextLookup() {
+        assertEquals(1, ids());
+
+        unitOfWork.inTransaction(() -> {
+            unitOfWork.get().persist(new TrainingType("Pilates"));
+            // not committed yet, so still the old snapshot
+            assertEquals(1, ids());
+            return null;
+        });
+
+        assertEquals(2, ids());
+        assertTrue(unitOfWork.readOnly(() -> registry.findNameById(registry.getIdsByName().get("pilates")))
+                .isPresent());
+    }
+
+    @Test
+    void rolledBackWrite_DoesNotReload() {
+        assertEquals(1, ids());
+        sessionFactory.getStatistics().clear();
+
+        assertThrows(IllegalStateException.class, () -> unitOfWork.inTransaction(() -> {
+            unitOfWork.get().persist(new TrainingType("Pilates"));
+            unitOfWork.get().flush();
+            throw new IllegalStateException("rolled back");
+        }));
+
+        assertEquals(1, ids());
+        assertEquals(Optional.empty(), registry.findNameById(-1L));
+        assertEquals(0, sessionFactory.getStatistics().getQueryExecutionCount(), "no reload");
+    }
+
+    private int ids() {
+        return unitOfWork.readOnly(() -> registry.getIdsByName().size());
+    }
+}
@@ -0,0 +1,58 @@
+import com.hibernate.gymapp.repository.TrainingTypeRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TrainingTypeRegistryTest {
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private TypedQuery<Object[]> query;
+
+    private TrainingTypeRegistry registry;
+
+    @BeforeEach
+    void setup() {
+        registry = new TrainingTypeRegistry(() -> entityManager);
+        when(entityManager.createQuery(anyString(), eq(Object[].class))).thenReturn(query);
+        when(query.getResultList()).thenReturn(Arrays.asList(
+                new Object[]{1L, "Yoga"},
+                new Object[]{2L, "Strength Training"}));
+    }
+
+    @Test
+    void findIdByName_CaseInsensitiveFromOneLoad() {
+        assertEquals(Optional.of(1L), registry.findIdByName("yoga"));
+        assertEquals(Optional.of(2L), registry.findIdByName("  STRENGTH training "));
+        assertEquals(Optional.of("Yoga"), registry.findNameById(1L));
+
+        verify(query, times(1)).getResultList();
+    }
+
+    @Test
+    void trainingTypeWritten_NextLookupReloads() {
+        registry.load();
+        when(query.getResultList()).thenReturn(Collections.singletonList(new Object[]{3L, "Pilates"}));
+
+        registry.invalidate();
+
+        assertEquals(Optional.of(3L), registry.findIdByName("pilates"));
+        assertEquals(Optional.empty(), registry.findNameById(1L));
+    }
+}
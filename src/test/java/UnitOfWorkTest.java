@@ -0,0 +1,127 @@
+import com.hibernate.gymapp.transaction.TransactionalProxyFactory;
+import com.hibernate.gymapp.transaction.UnitOfWork;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import jakarta.transaction.Transactional;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UnitOfWorkTest {
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private EntityTransaction transaction;
+
+    @Mock
+    private Session session;
+
+    private UnitOfWork unitOfWork;
+
+    @BeforeEach
+    void setup() {
+        unitOfWork = new UnitOfWork(entityManagerFactory);
+        when(entityManagerFactory.createEntityManager()).thenReturn(entityManager);
+        when(entityManager.getTransaction()).thenReturn(transaction);
+    }
+
+    public static class SampleService {
+
+        private final UnitOfWork unitOfWork;
+        private final String name;
+
+        public SampleService(UnitOfWork unitOfWork, String name) {
+            this.unitOfWork = unitOfWork;
+            this.name = name;
+        }
+
+        @Transactional
+        public String write() {
+            assertTrue(unitOfWork.isActive());
+            return name;
+        }
+
+        @Transactional
+        public String writeThenRead() {
+            return read();
+        }
+
+        @Transactional
+        public void fail() {
+            throw new IllegalStateException("boom");
+        }
+
+        public String read() {
+            return name;
+        }
+    }
+
+    private SampleService proxy() {
+        return TransactionalProxyFactory.create(new SampleService(unitOfWork, "sample"), unitOfWork);
+    }
+
+    @Test
+    void transactionalMethod_CommitsOnce() {
+        assertEquals("sample", proxy().write());
+
+        verify(transaction).begin();
+        verify(transaction).commit();
+        verify(entityManager).close();
+        assertFalse(unitOfWork.isActive());
+    }
+
+    @Test
+    void transactionalMethod_RollsBackOnException() {
+        when(transaction.isActive()).thenReturn(true);
+
+        assertThrows(IllegalStateException.class, () -> proxy().fail());
+
+        verify(transaction).rollback();
+        verify(transaction, never()).commit();
+        verify(entityManager).close();
+    }
+
+    @Test
+    void unannotatedMethod_RunsReadOnlyWithoutFlush() {
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+
+        assertEquals("sample", proxy().read());
+
+        verify(session).setDefaultReadOnly(true);
+        verify(session).setHibernateFlushMode(FlushMode.MANUAL);
+    }
+
+    @Test
+    void nestedUnitOfWork_JoinsTheActiveOne() {
+        String result = unitOfWork.inTransaction(() -> unitOfWork.readOnly(() -> "nested"));
+
+        assertEquals("nested", result);
+        verify(entityManagerFactory, times(1)).createEntityManager();
+        verify(transaction, times(1)).commit();
+    }
+
+    @Test
+    void provider_ResolvesEntityManagerOfActiveUnit() {
+        unitOfWork.inTransaction(() -> {
+            unitOfWork.get().persist("entity");
+            return null;
+        });
+
+        verify(entityManager).persist("entity");
+        assertThrows(IllegalStateException.class, () -> unitOfWork.get());
+    }
+}
@@ -0,0 +1,100 @@
+import com.hibernate.gymapp.model.Trainee;
+import com.hibernate.gymapp.model.TrainingType;
+import com.hibernate.gymapp.repository.TrainingSearchCache;
+import com.hibernate.gymapp.repository.TrainingTypeRegistry;
+import com.hibernate.gymapp.repository.UserNameIndex;
+import com.hibernate.gymapp.repository.impl.TraineeRepositoryImpl;
+import com.hibernate.gymapp.transaction.UnitOfWork;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserNameIndexTest {
+
+    private final UserNameIndex index = new UserNameIndex(() -> null);
+
+    @BeforeEach
+    void setup() {
+        index.put(1L, "Anna", "Lee");
+        index.put(2L, "Johanna", "Stone");
+        index.put(3L, "Bob", "Annan");
+    }
+
+    @Test
+    void find_MatchesFirstLastAndFullNameIgnoringCase() {
+        assertEquals(new HashSet<>(Arrays.asList(1L, 2L, 3L)), index.findUserIds("ANN"));
+        assertEquals(Collections.singleton(1L), index.findUserIds(" anna lee "));
+        assertEquals(Collections.singleton(2L), index.findUserIds("a sto"));
+        assertTrue(index.findUserIds("lee anna").isEmpty());
+    }
+
+    @Test
+    void find_ShorterThanTrigram_ScansNames() {
+        assertEquals(new HashSet<>(Arrays.asList(2L, 3L)), index.findUserIds("o"));
+    }
+
+    @Test
+    void rename_And_Remove_KeepIndexCurrent() {
+        index.put(1L, "Zelda", "Lee");
+        index.remove(3L);
+
+        assertEquals(Collections.singleton(2L), index.findUserIds("ann"));
+        assertEquals(Collections.singleton(1L), index.findUserIds("zel"));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void nameFilteredSearches_ShareTheSqlOfPaddedIdLists() {
+        Set<String> inListSql = Collections.synchronizedSet(new HashSet<>());
+        SessionFactory sessionFactory = H2Database.configure("name-padding")
+                .setStatementInspector(sql -> {
+                    if (sql.contains(" in (")) {
+                        inListSql.add(sql);
+                    }
+                    return sql;
+                })
+                .buildSessionFactory();
+        try {
+            UnitOfWork unitOfWork = new UnitOfWork(sessionFactory);
+            UserNameIndex names = new UserNameIndex(unitOfWork).attach(sessionFactory);
+            unitOfWork.inTransaction(() -> {
+                EntityManager entityManager = unitOfWork.get();
+                TrainingType yoga = new TrainingType("Yoga");
+                entityManager.persist(yoga);
+                Trainee ann = H2Database.trainee(entityManager, "ann");
+                for (String trainer : Arrays.asList("zed1", "zed12", "zed123", "zed1234")) {
+                    H2Database.training(entityManager, ann, H2Database.trainer(entityManager, trainer, yoga), yoga,
+                            LocalDate.of(2024, 1, 1));
+                }
+                return null;
+            });
+            unitOfWork.readOnly(() -> {
+                names.load();
+                return null;
+            });
+            TraineeRepositoryImpl trainees = new TraineeRepositoryImpl(unitOfWork,
+                    new TrainingTypeRegistry(unitOfWork), new TrainingSearchCache(), names);
+
+            List<String> filters = Arrays.asList("zed1", "zed12", "zed123", "zed1234");
+            List<Integer> matches = Arrays.asList(4, 3, 2, 1);
+            for (int i = 0; i < filters.size(); i++) {
+                String name = filters.get(i);
+                assertEquals(matches.get(i), unitOfWork.readOnly(() -> trainees
+                        .findTrainingsByTraineeUsernameWithCriteria("ann", null, null, name, null).size()));
+            }
+            assertEquals(3, inListSql.size(), "lists of 3 and 4 ids run the same SQL");
+        } finally {
+            sessionFactory.close();
+        }
+    }
+}
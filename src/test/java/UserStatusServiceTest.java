@@ -0,0 +1,80 @@
+import com.hibernate.gymapp.repository.UserRepository;
+import com.hibernate.gymapp.service.AuthenticationService;
+import com.hibernate.gymapp.service.UserStatusService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UserStatusServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private AuthenticationService authenticationService;
+
+    @InjectMocks
+    private UserStatusService userStatusService;
+
+    @Test
+    void setActive_UpdatesOnceAndInvalidatesAllUsernames() {
+        List<String> usernames = Arrays.asList("ann.lee", "bob.ray", "cid.moe");
+        when(userRepository.updateActiveByUsernames(usernames, false)).thenReturn(2);
+
+        assertEquals(2, userStatusService.setActive(usernames, false));
+
+        verify(userRepository, times(1)).updateActiveByUsernames(usernames, false);
+        verify(authenticationService, times(1)).invalidateCredentials(usernames);
+        verify(authenticationService, never()).invalidateCredentials(any(String.class));
+    }
+
+    @Test
+    void setActive_EmptyList_TouchesNothing() {
+        assertEquals(0, userStatusService.setActive(Collections.emptyList(), true));
+
+        verifyNoInteractions(userRepository, authenticationService);
+    }
+
+    @Test
+    void setActiveWithoutTrainingSince_InvalidatesTheChangedUsers() {
+        LocalDate since = LocalDate.of(2024, 1, 1);
+        List<String> idle = Arrays.asList("ann.lee", "bob.ray");
+        when(userRepository.updateActiveWithoutTrainingSince(since, false)).thenReturn(idle);
+
+        assertEquals(2, userStatusService.setActiveWithoutTrainingSince(since, false));
+
+        verify(authenticationService, times(1)).invalidateCredentials(idle);
+    }
+
+    @Test
+    void setActiveWithoutTrainingSince_NothingChanged_SkipsInvalidation() {
+        LocalDate since = LocalDate.of(2024, 1, 1);
+        when(userRepository.updateActiveWithoutTrainingSince(since, true)).thenReturn(Collections.emptyList());
+
+        assertEquals(0, userStatusService.setActiveWithoutTrainingSince(since, true));
+
+        verifyNoInteractions(authenticationService);
+    }
+
+    @Test
+    void setActive_RepositoryFailure_IsWrapped() {
+        when(userRepository.updateActiveByUsernames(any(), anyBoolean())).thenThrow(new IllegalStateException("db"));
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> userStatusService.setActive(Collections.singletonList("ann.lee"), false));
+        assertEquals("Failed to update user status", e.getMessage());
+    }
+}
@@ -0,0 +1,83 @@
+import com.hibernate.gymapp.model.Trainee;
+import com.hibernate.gymapp.model.Trainer;
+import com.hibernate.gymapp.model.TrainingType;
+import com.hibernate.gymapp.repository.impl.UserRepositoryImpl;
+import com.hibernate.gymapp.transaction.UnitOfWork;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bulk status updates against H2. Ann and kim trained in 2024, bob and max only in 2023; cid never trained and is
+ * already inactive.
+ */
+public class UserStatusUpdateTest {
+
+    private static final LocalDate SINCE = LocalDate.of(2024, 1, 1);
+
+    private SessionFactory sessionFactory;
+    private UnitOfWork unitOfWork;
+    private UserRepositoryImpl userRepository;
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory = H2Database.open("user-status");
+        unitOfWork = new UnitOfWork(sessionFactory);
+        userRepository = new UserRepositoryImpl(unitOfWork);
+
+        unitOfWork.inTransaction(() -> {
+            EntityManager entityManager = unitOfWork.get();
+            TrainingType yoga = new TrainingType("Yoga");
+            entityManager.persist(yoga);
+            Trainee ann = H2Database.trainee(entityManager, "ann");
+            Trainee bob = H2Database.trainee(entityManager, "bob");
+            Trainer kim = H2Database.trainer(entityManager, "kim", yoga);
+            Trainer max = H2Database.trainer(entityManager, "max", yoga);
+            H2Database.user(entityManager, "cid").setIsActive(false);
+            H2Database.training(entityManager, ann, kim, yoga, LocalDate.of(2024, 3, 1));
+            H2Database.training(entityManager, bob, max, yoga, LocalDate.of(2023, 3, 1));
+            return null;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Test
+    void withoutTrainingSince_ReturnsOnlyTheUsersWhoseStatusChanged() {
+        List<String> deactivated = unitOfWork.inTransaction(
+                () -> userRepository.updateActiveWithoutTrainingSince(SINCE, false));
+
+        assertEquals(Arrays.asList("bob", "max"), sorted(deactivated));
+        assertEquals(Arrays.asList("bob", "cid", "max"), inactive());
+
+        assertTrue(unitOfWork.inTransaction(() -> userRepository.updateActiveWithoutTrainingSince(SINCE, false))
+                .isEmpty(), "nobody left to change");
+
+        List<String> activated = unitOfWork.inTransaction(
+                () -> userRepository.updateActiveWithoutTrainingSince(SINCE, true));
+        assertEquals(Arrays.asList("bob", "cid", "max"), sorted(activated));
+        assertTrue(inactive().isEmpty());
+    }
+
+    private List<String> inactive() {
+        return unitOfWork.readOnly(() -> unitOfWork.get().createQuery(
+                "SELECT u.username FROM User u WHERE u.isActive = false ORDER BY u.username", String.class)
+                .getResultList());
+    }
+
+    private static List<String> sorted(List<String> usernames) {
+        usernames.sort(null);
+        return usernames;
+    }
+}
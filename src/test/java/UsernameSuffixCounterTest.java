@@ -0,0 +1,162 @@
+import com.hibernate.gymapp.model.UsernameSuffix;
+import com.hibernate.gymapp.repository.impl.UserRepositoryImpl;
+import com.hibernate.gymapp.transaction.UnitOfWork;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Username suffixes from the username_suffixes counters against H2, seeded by db/username-suffixes.sql where the
+ * users predate the counters.
+ */
+public class UsernameSuffixCounterTest {
+
+    private SessionFactory sessionFactory;
+    private UnitOfWork unitOfWork;
+    private UserRepositoryImpl users;
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory = H2Database.open("username-suffixes");
+        unitOfWork = new UnitOfWork(sessionFactory);
+        users = new UserRepositoryImpl(unitOfWork);
+        unitOfWork.inTransaction(() -> {
+            EntityManager entityManager = unitOfWork.get();
+            for (String username : Arrays.asList("john.smith", "john.smith7", "john.smith12", "john.smithx",
+                    "john.smiths3", "ann.lee", "ann.lee1", "ann.lee2", "zoe.k0")) {
+                H2Database.user(entityManager, username);
+            }
+            return null;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Test
+    void seededCounters_ContinueAfterTheHighestSuffix() throws Exception {
+        runScript("/db/username-suffixes.sql");
+
+        assertEquals(Long.valueOf(13), nextSuffix("john.smith"));
+        assertEquals(Long.valueOf(1), nextSuffix("john.smithx"));
+        assertEquals(Long.valueOf(4), nextSuffix("john.smiths"));
+        assertEquals(Long.valueOf(1), nextSuffix("zoe.k"));
+
+        assertEquals("john.smith13", unitOfWork.inTransaction(() -> users.reserveUsername("john.smith")));
+        assertEquals(Arrays.asList("ann.lee3", "john.smith14", "free.name", "ann.lee4", "john.smiths4"),
+                unitOfWork.inTransaction(() -> users.reserveUsernames(Arrays.asList(
+                        "ann.lee", "john.smith", "free.name", "ann.lee", "john.smiths"))));
+        assertEquals(Long.valueOf(15), nextSuffix("john.smith"));
+        assertEquals(Long.valueOf(1), nextSuffix("free.name"));
+    }
+
+    @Test
+    void reserveUsername_CostsTheSameHoweverManyDuplicatesExist() throws Exception {
+        unitOfWork.inTransaction(() -> {
+            for (int i = 1; i <= 1_000; i++) {
+                H2Database.user(unitOfWork.get(), "many.dups" + i);
+            }
+            return null;
+        });
+        runScript("/db/username-suffixes.sql");
+
+        assertEquals(3, statementsToReserve("zoe.k"), "locking select, taken check, counter update");
+        assertEquals(3, statementsToReserve("many.dups"));
+        assertEquals("many.dups1002", unitOfWork.inTransaction(() -> users.reserveUsername("many.dups")));
+    }
+
+    @Test
+    void takenCandidates_AreSkipped() {
+        unitOfWork.inTransaction(() -> unitOfWork.get()
+                .createNativeQuery("UPDATE users SET deleted_at = CURRENT_TIMESTAMP WHERE username = 'john.smithx'")
+                .executeUpdate());
+
+        // no counters yet, so ann.lee walks past the taken names once; ann.lee1 is a name of ann.lee as well
+        assertEquals("ann.lee3", unitOfWork.inTransaction(() -> users.reserveUsername("ann.lee")));
+        assertEquals(Arrays.asList("ann.lee11", "ann.lee4"),
+                unitOfWork.inTransaction(() -> users.reserveUsernames(Arrays.asList("ann.lee1", "ann.lee"))));
+        // soft-deleted users keep their names until they are purged
+        assertEquals("john.smithx1", unitOfWork.inTransaction(() -> users.reserveUsername("john.smithx")));
+        // two base names of one batch landing on the same name
+        assertEquals(Arrays.asList("bo.x1", "bo.x", "bo.x2"),
+                unitOfWork.inTransaction(() -> users.reserveUsernames(Arrays.asList("bo.x1", "bo.x", "bo.x"))));
+    }
+
+    @Test
+    void concurrentRegistrations_QueueOnTheCounter() throws Exception {
+        unitOfWork.inTransaction(() -> users.reserveUsername("kim.park"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> registrations = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                registrations.add(executor.submit(() -> unitOfWork.inTransaction(() -> {
+                    String username = users.reserveUsername("kim.park");
+                    H2Database.user(unitOfWork.get(), username);
+                    return username;
+                })));
+            }
+            Set<String> usernames = new HashSet<>();
+            for (Future<String> registration : registrations) {
+                usernames.add(registration.get());
+            }
+            assertEquals(32, usernames.size());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(Long.valueOf(33), nextSuffix("kim.park"));
+    }
+
+    private long statementsToReserve(String baseUsername) {
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+        unitOfWork.inTransaction(() -> users.reserveUsernames(Collections.singletonList(baseUsername)));
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Long nextSuffix(String baseUsername) {
+        return unitOfWork.readOnly(() -> unitOfWork.get().find(UsernameSuffix.class, baseUsername).getNextSuffix());
+    }
+
+    private void runScript(String resource) throws Exception {
+        String script;
+        try (InputStream in = UsernameSuffixCounterTest.class.getResourceAsStream(resource);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            script = reader.lines()
+                    .filter(line -> !line.startsWith("--"))
+                    .collect(Collectors.joining("\n"));
+        }
+        unitOfWork.inTransaction(() -> {
+            unitOfWork.get().unwrap(Session.class).doWork(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(script);
+                }
+            });
+            return null;
+        });
+    }
+}
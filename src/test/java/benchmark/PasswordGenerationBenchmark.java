@@ -0,0 +1,53 @@
+package benchmark;
+
+import com.hibernate.gymapp.utils.CredentialsGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Password generation throughput under a registration burst: many threads generating at once.
+ * legacySharedRandom is the previous implementation, one shared SecureRandom and one nextInt per character.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class PasswordGenerationBenchmark {
+
+    private static final String CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    private static final int PASSWORD_LENGTH = 10;
+    private static final SecureRandom legacyRandom = new SecureRandom();
+
+    private final CredentialsGenerator credentialsGenerator = new CredentialsGenerator();
+
+    @Benchmark
+    public String stripedBulkBytes() {
+        return credentialsGenerator.generatePassword();
+    }
+
+    @Benchmark
+    public String legacySharedRandom() {
+        StringBuilder password = new StringBuilder(PASSWORD_LENGTH);
+
+        for (int i = 0; i < PASSWORD_LENGTH; i++) {
+            int index = legacyRandom.nextInt(CHARACTERS.length());
+            password.append(CHARACTERS.charAt(index));
+        }
+
+        return password.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PasswordGenerationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,181 @@
+package benchmark;
+
+import com.hibernate.gymapp.metrics.CacheMetrics;
+import com.hibernate.gymapp.metrics.SqlInstrumentation;
+import com.hibernate.gymapp.metrics.SqlMetrics;
+import com.hibernate.gymapp.model.Trainee;
+import com.hibernate.gymapp.model.Trainer;
+import com.hibernate.gymapp.model.Training;
+import com.hibernate.gymapp.model.TrainingType;
+import com.hibernate.gymapp.model.User;
+import com.hibernate.gymapp.repository.TraineeRepository;
+import com.hibernate.gymapp.repository.TrainerRepository;
+import com.hibernate.gymapp.repository.UserRepository;
+import com.hibernate.gymapp.repository.impl.TraineeRepositoryImpl;
+import com.hibernate.gymapp.repository.impl.TrainerRepositoryImpl;
+import com.hibernate.gymapp.repository.impl.UserRepositoryImpl;
+import com.hibernate.gymapp.transaction.UnitOfWork;
+import com.hibernate.gymapp.utils.PooledDataSourceFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A read-heavy mix through the repositories, with and without the second-level cache: 60% trainee profile reads,
+ * 30% credential lookups by username, 10% profile updates. Each request is its own unit of work, as in the services.
+ * Prints the SQL statements per request after every iteration, which is what the cache is meant to cut.
+ *
+ * Runs against in-memory H2 by default, where a round trip is almost free, so the time per request understates
+ * what a networked database shows. Point it at PostgreSQL with -Dbench.jdbc.url, -Dbench.jdbc.user and
+ * -Dbench.jdbc.password.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecondLevelCacheBenchmark {
+
+    private static final int TRAINEES = 2_000;
+    private static final int TRAINERS = 200;
+
+    @Param({"off", "on"})
+    private String cache;
+
+    private final SqlMetrics sqlMetrics = new SqlMetrics();
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    private SessionFactory sessionFactory;
+    private CacheMetrics cacheMetrics;
+    private UnitOfWork unitOfWork;
+    private UserRepository userRepository;
+    private TraineeRepository traineeRepository;
+    private TrainerRepository trainerRepository;
+    private long requests;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL(System.getProperty("bench.jdbc.url", "jdbc:h2:mem:l2-bench;DB_CLOSE_DELAY=-1"));
+        h2.setUser(System.getProperty("bench.jdbc.user", "sa"));
+        h2.setPassword(System.getProperty("bench.jdbc.password", ""));
+
+        Configuration configuration = new Configuration()
+                .addAnnotatedClass(User.class)
+                .addAnnotatedClass(Trainee.class)
+                .addAnnotatedClass(Trainer.class)
+                .addAnnotatedClass(Training.class)
+                .addAnnotatedClass(TrainingType.class)
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, "50")
+                .setProperty(AvailableSettings.GENERATE_STATISTICS, "true")
+                .setProperty(AvailableSettings.LOG_SESSION_METRICS, "false")
+                .setProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, String.valueOf("on".equals(cache)));
+        if ("on".equals(cache)) {
+            // same provider and region limits as hibernate.cfg.xml
+            configuration
+                    .setProperty(AvailableSettings.CACHE_REGION_FACTORY, "jcache")
+                    .setProperty("hibernate.javax.cache.provider",
+                            "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider")
+                    .setProperty("hibernate.javax.cache.uri", "caffeine-cache.conf")
+                    .setProperty("hibernate.javax.cache.missing_cache_strategy", "fail");
+        }
+        configuration.getProperties().put(AvailableSettings.CONNECTION_PROVIDER,
+                PooledDataSourceFactory.connectionProvider(SqlInstrumentation.wrap(h2, sqlMetrics)));
+        sessionFactory = configuration.buildSessionFactory();
+        cacheMetrics = new CacheMetrics(sessionFactory);
+
+        unitOfWork = new UnitOfWork(sessionFactory);
+        userRepository = new UserRepositoryImpl(unitOfWork);
+        traineeRepository = new TraineeRepositoryImpl(unitOfWork);
+        trainerRepository = new TrainerRepositoryImpl(unitOfWork);
+
+        unitOfWork.inTransaction(() -> {
+            for (int i = 0; i < TRAINEES + TRAINERS; i++) {
+                User user = new User();
+                user.setFirstName("First" + i);
+                user.setLastName("Last" + i);
+                user.setUsername(username(i));
+                user.setPassword("secret" + i);
+                user.setIsActive(true);
+                userRepository.save(user);
+
+                if (i < TRAINEES) {
+                    Trainee trainee = new Trainee();
+                    trainee.setUser(user);
+                    traineeRepository.save(trainee);
+                } else {
+                    Trainer trainer = new Trainer();
+                    trainer.setUser(user);
+                    trainerRepository.save(trainer);
+                }
+            }
+            return null;
+        });
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounters() {
+        sqlMetrics.reset();
+        cacheMetrics.reset();
+        requests = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        long statements = 0;
+        for (SqlMetrics.StatementSnapshot statement : sqlMetrics.snapshot()) {
+            statements += statement.getCalls();
+        }
+        System.out.printf("%n  cache=%s: %.2f statements/request over %d requests%n",
+                cache, (double) statements / Math.max(1, requests), requests);
+        cacheMetrics.snapshot().forEach(region -> System.out.println("  " + region));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public Object mixedRequest() {
+        requests++;
+        int roll = random.nextInt(100);
+        int i = random.nextInt(TRAINEES + TRAINERS);
+        String username = username(i);
+
+        if (roll < 60) {
+            return unitOfWork.readOnly(() -> i < TRAINEES
+                    ? traineeRepository.findByUsername(username).map(t -> t.getUser().getFirstName())
+                    : trainerRepository.findByUsername(username).map(t -> t.getUser().getFirstName()));
+        }
+        if (roll < 90) {
+            return unitOfWork.readOnly(() -> userRepository.findByUsername(username)
+                    .map(user -> user.getPassword().equals("secret" + i)));
+        }
+        return unitOfWork.inTransaction(() -> userRepository.findByUsername(username)
+                .map(user -> {
+                    user.setLastName("Last" + i + "-" + random.nextInt(1_000));
+                    return userRepository.save(user);
+                }));
+    }
+
+    private static String username(int i) {
+        return "First" + i + ".Last" + i;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SecondLevelCacheBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,142 @@
+package benchmark;
+
+import jakarta.persistence.*;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per second when bulk-creating trainings, with the id strategy the entities used before (IDENTITY) and the
+ * pooled sequence they use now. Both run with the batching settings from hibernate.cfg.xml; IDENTITY cannot use them
+ * because Hibernate has to insert every row immediately to learn its id.
+ *
+ * Runs against in-memory H2 by default, where a round trip is almost free, so the gap understates what a networked
+ * database shows. Point it at PostgreSQL with -Dbench.jdbc.url, -Dbench.jdbc.user and -Dbench.jdbc.password.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrainingBulkInsertBenchmark {
+
+    private static final int ROWS = 1_000;
+
+    @Param({"identity", "sequence"})
+    private String idStrategy;
+
+    private SessionFactory sessionFactory;
+    private Class<?> entityType;
+
+    @Entity
+    @Table(name = "bench_identity_trainings")
+    public static class IdentityTraining extends TrainingRow {
+
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private Long id;
+    }
+
+    @Entity
+    @Table(name = "bench_sequence_trainings")
+    public static class SequenceTraining extends TrainingRow {
+
+        @Id
+        @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "benchTrainingSeq")
+        @SequenceGenerator(name = "benchTrainingSeq", sequenceName = "bench_trainings_seq", allocationSize = 50)
+        private Long id;
+    }
+
+    // same columns as the trainings table, foreign keys kept as plain ids
+    @MappedSuperclass
+    public abstract static class TrainingRow {
+
+        @Column(name = "trainee_id", nullable = false)
+        Long traineeId;
+
+        @Column(name = "trainer_id", nullable = false)
+        Long trainerId;
+
+        @Column(name = "training_type_id", nullable = false)
+        Long trainingTypeId;
+
+        @Column(name = "training_name", nullable = false)
+        String trainingName;
+
+        @Column(name = "training_date", nullable = false)
+        LocalDate trainingDate;
+
+        @Column(name = "training_duration", nullable = false)
+        Integer trainingDuration;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        entityType = "identity".equals(idStrategy) ? IdentityTraining.class : SequenceTraining.class;
+
+        sessionFactory = new Configuration()
+                .addAnnotatedClass(IdentityTraining.class)
+                .addAnnotatedClass(SequenceTraining.class)
+                .setProperty(AvailableSettings.URL,
+                        System.getProperty("bench.jdbc.url", "jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1"))
+                .setProperty(AvailableSettings.USER, System.getProperty("bench.jdbc.user", "sa"))
+                .setProperty(AvailableSettings.PASS, System.getProperty("bench.jdbc.password", ""))
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, "50")
+                .setProperty(AvailableSettings.ORDER_INSERTS, "true")
+                .setProperty(AvailableSettings.ORDER_UPDATES, "true")
+                .buildSessionFactory();
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncate() {
+        try (Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            session.createNativeMutationQuery("DELETE FROM " + entityType.getAnnotation(Table.class).name())
+                    .executeUpdate();
+            transaction.commit();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void createTrainings() throws ReflectiveOperationException {
+        LocalDate today = LocalDate.now();
+
+        try (Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            for (int i = 0; i < ROWS; i++) {
+                TrainingRow row = (TrainingRow) entityType.getDeclaredConstructor().newInstance();
+                row.traineeId = (long) (i % 100);
+                row.trainerId = (long) (i % 20);
+                row.trainingTypeId = (long) (i % 5);
+                row.trainingName = "Training " + i;
+                row.trainingDate = today.plusDays(i % 365);
+                row.trainingDuration = 60;
+                session.persist(row);
+            }
+            transaction.commit();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TrainingBulkInsertBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,125 @@
+package benchmark;
+
+import com.hibernate.gymapp.model.Trainee;
+import com.hibernate.gymapp.model.Trainer;
+import com.hibernate.gymapp.model.Training;
+import com.hibernate.gymapp.model.TrainingType;
+import com.hibernate.gymapp.model.User;
+import com.hibernate.gymapp.repository.impl.TrainingSearchQueries;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of preparing a training history search: producing the JPQL, resolving it to a Hibernate query and binding
+ * the parameters, without executing it. Calls cycle through all 16 filter combinations.
+ *
+ * "string-builder" is how the searches used to assemble JPQL on every call; "precompiled" uses the fixed shapes in
+ * TrainingSearchQueries. With planCache=false every call also pays the HQL parse and semantic analysis, which is
+ * what a plan cache miss costs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrainingSearchQueryBenchmark {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 12, 31);
+
+    @Param({"string-builder", "precompiled"})
+    private String jpql;
+
+    @Param({"true", "false"})
+    private boolean planCache;
+
+    private SessionFactory sessionFactory;
+    private Session session;
+    private int call;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        sessionFactory = new Configuration()
+                .addAnnotatedClass(User.class)
+                .addAnnotatedClass(Trainee.class)
+                .addAnnotatedClass(Trainer.class)
+                .addAnnotatedClass(Training.class)
+                .addAnnotatedClass(TrainingType.class)
+                .setProperty(AvailableSettings.URL, "jdbc:h2:mem:query-bench;DB_CLOSE_DELAY=-1")
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .setProperty(AvailableSettings.QUERY_PLAN_CACHE_ENABLED, String.valueOf(planCache))
+                .buildSessionFactory();
+        session = sessionFactory.openSession();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        session.close();
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public TypedQuery<Training> prepareTraineeSearch() {
+        int shape = call++ & 15;
+        LocalDate fromDate = (shape & TrainingSearchQueries.FROM_DATE) != 0 ? FROM : null;
+        LocalDate toDate = (shape & TrainingSearchQueries.TO_DATE) != 0 ? TO : null;
+        String trainerName = (shape & TrainingSearchQueries.NAME) != 0 ? "Anna" : null;
+        Long trainingTypeId = (shape & TrainingSearchQueries.TRAINING_TYPE) != 0 ? 3L : null;
+
+        if ("precompiled".equals(jpql)) {
+            return TrainingSearchQueries.BY_TRAINEE.create(session, 1L, fromDate, toDate, trainerName, null,
+                    trainingTypeId);
+        }
+        return buildOnEveryCall(1L, fromDate, toDate, trainerName, trainingTypeId);
+    }
+
+    // the search as it was written before the shapes were precompiled
+    private TypedQuery<Training> buildOnEveryCall(Long traineeId, LocalDate fromDate, LocalDate toDate,
+                                                  String trainerName, Long trainingTypeId) {
+        StringBuilder jpql = new StringBuilder();
+        jpql.append("SELECT tr FROM Training tr ")
+                .append("JOIN tr.trainer trn JOIN trn.user trun ")
+                .append("WHERE tr.trainee.id = :traineeId");
+
+        if (fromDate != null) jpql.append(" AND tr.trainingDate >= :fromDate");
+        if (toDate != null) jpql.append(" AND tr.trainingDate <= :toDate");
+        if (trainerName != null && !trainerName.isEmpty()) {
+            jpql.append(" AND (LOWER(trun.firstName) LIKE :trainerName")
+                    .append(" OR LOWER(trun.lastName) LIKE :trainerName")
+                    .append(" OR LOWER(CONCAT(trun.firstName, ' ', trun.lastName)) LIKE :trainerName)");
+        }
+        if (trainingTypeId != null) {
+            jpql.append(" AND tr.trainingType.id = :trainingTypeId");
+        }
+
+        TypedQuery<Training> query = session.createQuery(jpql.toString(), Training.class);
+        query.setParameter("traineeId", traineeId);
+
+        if (fromDate != null) query.setParameter("fromDate", fromDate);
+        if (toDate != null) query.setParameter("toDate", toDate);
+        if (trainerName != null && !trainerName.isEmpty()) {
+            query.setParameter("trainerName", "%" + trainerName.trim().toLowerCase() + "%");
+        }
+        if (trainingTypeId != null) {
+            query.setParameter("trainingTypeId", trainingTypeId);
+        }
+        return query;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TrainingSearchQueryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
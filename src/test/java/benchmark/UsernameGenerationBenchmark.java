@@ -0,0 +1,128 @@
+package benchmark;
+
+import com.hibernate.gymapp.model.Trainee;
+import com.hibernate.gymapp.model.Trainer;
+import com.hibernate.gymapp.model.Training;
+import com.hibernate.gymapp.model.TrainingType;
+import com.hibernate.gymapp.model.User;
+import com.hibernate.gymapp.model.UsernameSuffix;
+import com.hibernate.gymapp.repository.UserRepository;
+import com.hibernate.gymapp.repository.impl.UserRepositoryImpl;
+import com.hibernate.gymapp.utils.CredentialsGenerator;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Username generation cost as the number of existing "john.smith" duplicates grows, against H2 through
+ * UserRepositoryImpl. The legacy probing loop runs one lookup per taken name, so it grows linearly with duplicates;
+ * the suffix counter is one locked row read, one exact-match check of the candidate and one update, whatever the
+ * number of duplicates. Both run in their own transaction, as a registration would. There is no second-level cache,
+ * so every lookup reaches the database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UsernameGenerationBenchmark {
+
+    private static final String FIRST_NAME = "John";
+    private static final String LAST_NAME = "Smith";
+    private static final String BASE = "john.smith";
+
+    @Param({"1", "100", "10000"})
+    public int duplicates;
+
+    private SessionFactory sessionFactory;
+    private Session session;
+    private UserRepository userRepository;
+    private final CredentialsGenerator credentialsGenerator = new CredentialsGenerator();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        sessionFactory = new Configuration()
+                .addAnnotatedClass(User.class)
+                .addAnnotatedClass(Trainee.class)
+                .addAnnotatedClass(Trainer.class)
+                .addAnnotatedClass(Training.class)
+                .addAnnotatedClass(TrainingType.class)
+                .addAnnotatedClass(UsernameSuffix.class)
+                .setProperty(AvailableSettings.URL, "jdbc:h2:mem:username-bench-" + duplicates + ";DB_CLOSE_DELAY=-1")
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, "50")
+                .buildSessionFactory();
+        session = sessionFactory.openSession();
+
+        session.beginTransaction();
+        for (int i = 0; i < duplicates; i++) {
+            User user = new User();
+            user.setFirstName(FIRST_NAME);
+            user.setLastName(LAST_NAME);
+            user.setUsername(i == 0 ? BASE : BASE + i);
+            user.setPassword("secret");
+            user.setIsActive(true);
+            session.persist(user);
+            if (i % 50 == 49) {
+                session.flush();
+                session.clear();
+            }
+        }
+        // what db/username-suffixes.sql leaves for these users
+        session.persist(new UsernameSuffix(BASE, (long) duplicates));
+        session.getTransaction().commit();
+        session.clear();
+
+        userRepository = new UserRepositoryImpl(session);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearSession() {
+        // an empty persistence context per call, so nothing in memory hides the database lookup
+        session.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        session.close();
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public String suffixCounter() {
+        session.beginTransaction();
+        String username = credentialsGenerator.generateUsername(FIRST_NAME, LAST_NAME, userRepository);
+        session.getTransaction().commit();
+        return username;
+    }
+
+    @Benchmark
+    public String legacyProbing() {
+        String baseUsername = (FIRST_NAME + "." + LAST_NAME).toLowerCase();
+        String username = baseUsername;
+        int c = 1;
+
+        session.beginTransaction();
+        while (userRepository.findByUsername(username).isPresent()) {
+            username = baseUsername + c;
+            c++;
+        }
+        session.getTransaction().commit();
+
+        return username;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UsernameGenerationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}